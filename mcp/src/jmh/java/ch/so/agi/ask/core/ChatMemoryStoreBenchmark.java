@@ -0,0 +1,105 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+/**
+ * Vergleicht den bisherigen Copy-on-Append-Store ({@code compute()} +
+ * {@code List.copyOf}) mit dem {@link InMemoryChatMemoryStore} auf Basis von
+ * {@link ChunkedMessageLog}. 32 Threads spielen je eine eigene Session durch:
+ * pro Runde werden eine User- und eine Assistant-Nachricht angefügt und der
+ * Verlauf gelesen, wie es der Planner pro Prompt tut. Die Policy ist
+ * deaktiviert, damit nur die Datenstruktur gemessen wird.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class ChatMemoryStoreBenchmark {
+
+    @Param({ "copy-on-append", "chunked" })
+    public String store;
+
+    @Param({ "50", "500" })
+    public int turns;
+
+    private ChatMemoryStore memoryStore;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final Message user = new UserMessage("Gehe zur Adresse Langendorfstrasse 19b in Solothurn");
+    private final Message assistant = new AssistantMessage("{\"requestId\":\"r\",\"steps\":[]}");
+
+    @Setup
+    public void setUp() {
+        memoryStore = "chunked".equals(store) ? new InMemoryChatMemoryStore() : new CopyOnAppendChatMemoryStore();
+    }
+
+    /**
+     * Eine vollständige Session mit {@code turns} Runden.
+     */
+    @Benchmark
+    public void conversation(Blackhole blackhole) {
+        String sessionId = "sess-" + sessions.incrementAndGet();
+        for (int i = 0; i < turns; i++) {
+            blackhole.consume(memoryStore.getMessages(sessionId));
+            memoryStore.appendMessages(sessionId, List.of(user, assistant));
+        }
+        memoryStore.deleteSession(sessionId);
+    }
+
+    /**
+     * Bisherige Implementierung als Referenz.
+     */
+    static final class CopyOnAppendChatMemoryStore implements ChatMemoryStore {
+        private final Map<String, List<Message>> memory = new ConcurrentHashMap<>();
+
+        @Override
+        public List<Message> getMessages(String sessionId) {
+            return List.copyOf(memory.getOrDefault(sessionId, List.of()));
+        }
+
+        @Override
+        public void appendMessage(String sessionId, Message message) {
+            appendMessages(sessionId, List.of(message));
+        }
+
+        @Override
+        public void appendMessages(String sessionId, List<Message> messages) {
+            memory.compute(sessionId, (id, existing) -> {
+                List<Message> updated = new ArrayList<>(existing == null ? List.of() : existing);
+                updated.addAll(messages);
+                return updated;
+            });
+        }
+
+        @Override
+        public void deleteSession(String sessionId) {
+            memory.remove(sessionId);
+        }
+    }
+}
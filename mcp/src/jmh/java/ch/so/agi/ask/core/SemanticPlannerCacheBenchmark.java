@@ -0,0 +1,103 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup-Latenz und Recall@1 des HNSW-Index hinter dem
+ * {@link SemanticPlannerCache} bei 100k Einträgen. Der Recall wird beim Setup
+ * gegen eine Brute-Force-Suche gemessen und ausgegeben.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SemanticPlannerCacheBenchmark {
+
+    private static final int QUERIES = 1000;
+    private static final int RECALL_SAMPLE = 200;
+
+    @Param({ "100000" })
+    public int entries;
+
+    @Param({ "64" })
+    public int efSearch;
+
+    private final NgramVectorizer vectorizer = new NgramVectorizer(512);
+    private final List<float[]> vectors = new ArrayList<>();
+    private final List<float[]> queries = new ArrayList<>();
+    private HnswIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        index = new HnswIndex(16, 100, 42L);
+        for (int i = 0; i < entries; i++) {
+            float[] vector = vectorizer.vectorize(prompt(random) + " " + i);
+            vectors.add(vector);
+            index.add(vector);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(vectorizer.vectorize(prompt(random)));
+        }
+
+        int found = 0;
+        for (int q = 0; q < RECALL_SAMPLE; q++) {
+            float[] query = queries.get(q);
+            float best = -Float.MAX_VALUE;
+            for (float[] vector : vectors) {
+                best = Math.max(best, NgramVectorizer.dot(query, vector));
+            }
+            List<HnswIndex.Hit> hits = index.search(query, 1, efSearch);
+            if (!hits.isEmpty() && hits.get(0).similarity() >= best - 1e-6f) {
+                found++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "%nrecall@1 (entries=%d, efSearch=%d): %.3f%n", entries, efSearch,
+                found / (double) RECALL_SAMPLE);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Hit> lookup() {
+        float[] query = queries.get(next++ % QUERIES);
+        return index.search(query, 5, efSearch);
+    }
+
+    @Benchmark
+    public float[] vectorize() {
+        return vectorizer.vectorize("Lade bitte die Gewässerschutzkarte in Solothurn");
+    }
+
+    private static String prompt(SplittableRandom random) {
+        String[] verbs = { "Lade", "Zeige", "Öffne", "Suche", "Finde", "Lade mir", "Zeig mir bitte" };
+        String[] topics = { "Gewässerschutz", "Boden", "Naturgefahren", "Lärm", "Zonenplan", "Wald", "Grundwasser",
+                "Fruchtfolge", "Altlasten", "Strassen", "Velo", "Wanderweg", "Denkmal", "Archäologie", "Solar",
+                "Erdwärme", "Hochwasser", "Gewässerraum", "Baulinien", "Nutzungsplan" };
+        String[] suffixes = { "karte", "ebene", "layer", "zonen", "plan", "kataster", "inventar" };
+        String[] places = { "", " in Solothurn", " in Grenchen", " in Olten", " bei Messen", " von Dornach" };
+        return verbs[random.nextInt(verbs.length)] + " die " + topics[random.nextInt(topics.length)]
+                + topics[random.nextInt(topics.length)].toLowerCase(Locale.ROOT)
+                + suffixes[random.nextInt(suffixes.length)] + places[random.nextInt(places.length)];
+    }
+}
@@ -0,0 +1,216 @@
+package ch.so.agi.ask.core;
+
+import java.time.Clock;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import ch.so.agi.ask.config.PlannerCacheProperties;
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.config.PlannerStreamingProperties;
+import ch.so.agi.ask.config.SemanticPlannerCacheProperties;
+import ch.so.agi.ask.config.ToolSelectionProperties;
+import ch.so.agi.ask.mcp.FeatureSearchTools;
+import ch.so.agi.ask.mcp.GeolocationTools;
+import ch.so.agi.ask.mcp.LayerTools;
+import ch.so.agi.ask.mcp.OerebTools;
+import ch.so.agi.ask.mcp.ProcessingTools;
+import ch.so.agi.ask.mcp.SpringMcpToolRegistry;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Wirkung der Tool-Auswahl ({@link ToolCatalogIndex}) auf Prompt-Grösse und
+ * Planungsgenauigkeit. Ein geskriptetes {@link ChatModel} liefert für jede
+ * Eingabe des festen Korpus den erwarteten Plan, aber nur, wenn alle dafür
+ * nötigen Capabilities im System-Prompt stehen – sonst einen leeren Plan, wie
+ * ein LLM, dem das passende Tool fehlt. Beim Setup werden Genauigkeit und
+ * durchschnittliche Prompt-Tokens (~4 Zeichen/Token) über den Korpus
+ * ausgegeben; gemessen wird die Auswahl pro Anfrage.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolSelectionBenchmark {
+
+    private record Case(String prompt, IntentType intent, Set<McpToolCapability> capabilities) {
+        Case(String prompt, IntentType intent, McpToolCapability... capabilities) {
+            this(prompt, intent, EnumSet.copyOf(List.of(capabilities)));
+        }
+    }
+
+    private static final List<Case> CORPUS = List.of(
+            new Case("Lade mir die Gewässerschutzkarte", IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH),
+            new Case("Zeige die Naturgefahrenkarte", IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH),
+            new Case("Blende den Layer Fruchtfolgeflächen ein", IntentType.LOAD_LAYER,
+                    McpToolCapability.LAYERS_SEARCH),
+            new Case("Ich brauche die Ebene Ortsplanung", IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH),
+            new Case("Gehe zur Adresse Langendorfstrasse 19b in Solothurn", IntentType.GOTO_ADDRESS,
+                    McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS),
+            new Case("Wo ist die Baselstrasse 12 in Olten?", IntentType.GOTO_ADDRESS,
+                    McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS),
+            new Case("Zoom auf Hauptgasse 5, Solothurn", IntentType.GOTO_ADDRESS,
+                    McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS),
+            new Case("Zeige die Gemeinde Grenchen", IntentType.SEARCH_PLACE,
+                    McpToolCapability.GEOLOCATION_GEOCODE_MUNICIPALITY),
+            new Case("Gehe zur Ortschaft Balsthal", IntentType.SEARCH_PLACE,
+                    McpToolCapability.GEOLOCATION_GEOCODE_MUNICIPALITY),
+            new Case("Ich will einen ÖREB-Auszug an der Koordinate 2607717, 1228737", IntentType.OEREB_EXTRACT,
+                    McpToolCapability.OEREB_EGRID_BY_XY, McpToolCapability.OEREB_EXTRACT_BY_ID),
+            new Case("Öffne den Katasterauszug für CH870679603216", IntentType.OEREB_EXTRACT,
+                    McpToolCapability.OEREB_EXTRACT_BY_ID),
+            new Case("Welche Eigentumsbeschränkungen gelten bei 2605000 1229000?", IntentType.OEREB_EXTRACT,
+                    McpToolCapability.OEREB_EGRID_BY_XY, McpToolCapability.OEREB_EXTRACT_BY_ID),
+            new Case("Ist eine Erdwärmesonde bei 2607717, 1228737 möglich?",
+                    IntentType.GEOTHERMAL_PROBE_ASSESSMENT, McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY),
+            new Case("Kann ich an der Langendorfstrasse 19b in Solothurn eine Erdwärmesonde bohren?",
+                    IntentType.GEOTHERMAL_PROBE_ASSESSMENT, McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                    McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY),
+            new Case("Ist Geotermie für eine Wärmepumpe hier machbar?", IntentType.GEOTHERMAL_PROBE_ASSESSMENT,
+                    McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY),
+            new Case("Mache mir einen Grundbuchplan für Grundstück 123 in Messen", IntentType.CADASTRAL_PLAN,
+                    McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY,
+                    McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY),
+            new Case("Drucke den Plan der Parzelle 1001 in Grenchen als PDF", IntentType.CADASTRAL_PLAN,
+                    McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY,
+                    McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY),
+            new Case("Welches EGRID hat Grundstück 55 in Bettlach?", IntentType.SEARCH_PLACE,
+                    McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY),
+            new Case("Zeige die Geometrie der Liegenschaft CH870679603216", IntentType.SEARCH_PLACE,
+                    McpToolCapability.FEATURE_SEARCH_PARCEL_BY_EGRID),
+            new Case("Gehe zur Adresse Hauptgasse 1 in Solothurn und lade die Gewässerschutzkarte",
+                    IntentType.GOTO_ADDRESS, McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                    McpToolCapability.LAYERS_SEARCH));
+
+    @Param({ "false", "true" })
+    public boolean selection;
+
+    private PlannerSystemPrompt systemPrompt;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ToolSelectionProperties properties = new ToolSelectionProperties();
+        properties.setEnabled(selection);
+        SpringMcpToolRegistry registry = registry();
+        systemPrompt = new PlannerSystemPrompt(registry, properties, new SimpleMeterRegistry());
+        ScriptedChatModel chatModel = new ScriptedChatModel();
+        PlannerLlm planner = planner(ChatClient.create(chatModel), systemPrompt, registry);
+
+        int correct = 0;
+        for (int i = 0; i < CORPUS.size(); i++) {
+            Case c = CORPUS.get(i);
+            PlannerOutput plan = planner.plan("bench-" + i, c.prompt());
+            Set<McpToolCapability> planned = plan.steps().stream()
+                    .flatMap(step -> step.toolCalls().stream())
+                    .map(PlannerOutput.ToolCall::capabilityId)
+                    .collect(Collectors.toCollection(() -> EnumSet.noneOf(McpToolCapability.class)));
+            if (planned.equals(c.capabilities())) {
+                correct++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "%nselection=%s: accuracy %.3f, avg system prompt tokens %.0f%n", selection,
+                correct / (double) CORPUS.size(), chatModel.systemChars / 4.0 / CORPUS.size());
+    }
+
+    @Benchmark
+    public PlannerSystemPrompt.Version forRequest() {
+        return systemPrompt.forRequest(CORPUS.get(next++ % CORPUS.size()).prompt());
+    }
+
+    private static SpringMcpToolRegistry registry() {
+        // Kontext wird nicht gestartet: die Registry liest nur die Bean-Typen
+        GenericApplicationContext context = new GenericApplicationContext();
+        for (Class<?> type : new Class<?>[] { FeatureSearchTools.class, GeolocationTools.class, LayerTools.class,
+                OerebTools.class, ProcessingTools.class }) {
+            context.registerBeanDefinition(type.getSimpleName(), new RootBeanDefinition(type));
+        }
+        SpringMcpToolRegistry registry = new SpringMcpToolRegistry();
+        registry.setApplicationContext(context);
+        return registry;
+    }
+
+    private static PlannerLlm planner(ChatClient chatClient, PlannerSystemPrompt systemPrompt,
+            SpringMcpToolRegistry registry) {
+        PlannerFastPathProperties fastPath = new PlannerFastPathProperties();
+        fastPath.setEnabled(false);
+        PlannerCacheProperties cache = new PlannerCacheProperties();
+        cache.setEnabled(false);
+        SemanticPlannerCacheProperties semanticCache = new SemanticPlannerCacheProperties();
+        semanticCache.setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new PlannerLlm(chatClient, new InMemoryChatMemoryStore(), systemPrompt,
+                new RuleBasedPlanner(fastPath, meterRegistry), new PlannerCache(cache, Clock.systemUTC(), meterRegistry),
+                new SemanticPlannerCache(semanticCache, meterRegistry), new PlannerStreamingProperties(),
+                PlannerRouter.disabled(registry));
+    }
+
+    /**
+     * Beantwortet jede Korpus-Eingabe mit dem erwarteten Plan, sofern der
+     * System-Prompt alle benötigten Capabilities auflistet.
+     */
+    private static final class ScriptedChatModel implements ChatModel {
+        private long systemChars;
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            String system = "";
+            String user = "";
+            for (Message message : prompt.getInstructions()) {
+                if (message.getMessageType() == MessageType.SYSTEM) {
+                    system = message.getText();
+                } else if (message.getMessageType() == MessageType.USER) {
+                    user = message.getText();
+                }
+            }
+            systemChars += system.length();
+            String listed = system;
+            String question = user;
+            String steps = CORPUS.stream()
+                    .filter(c -> c.prompt().equals(question))
+                    .filter(c -> c.capabilities().stream()
+                            .allMatch(capability -> listed.contains("\"" + capability.id() + "\": ")))
+                    .findFirst()
+                    .map(c -> "{\"intent\":\"%s\",\"toolCalls\":[%s],\"result\":{\"status\":\"pending\",\"items\":[],\"message\":\"\"}}"
+                            .formatted(c.intent().id(), c.capabilities().stream()
+                                    .map(capability -> "{\"capabilityId\":\"%s\",\"args\":{}}".formatted(capability.id()))
+                                    .collect(Collectors.joining(","))))
+                    .orElse("");
+            String content = "{\"requestId\":\"bench\",\"steps\":[" + steps + "]}";
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(content))));
+        }
+    }
+}
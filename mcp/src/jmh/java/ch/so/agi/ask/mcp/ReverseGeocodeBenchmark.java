@@ -0,0 +1,129 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.so.agi.ask.config.GazetteerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Latenz von {@code geolocation.reverse} für alle Gebäudeadressen des Kantons
+ * (synthetisch, {@code addresses} Punkte in der LV95-Ausdehnung des Kantons).
+ * {@code kd-tree} fragt {@link AddressGazetteer#nearest} ab, {@code linear-scan}
+ * durchsucht dieselben Koordinaten linear als Referenz.
+ * <p>
+ * Der Speicherbedarf wird beim Setup gemessen (belegter Heap nach GC vor und
+ * nach dem Laden) und ausgegeben, getrennt für das ganze Verzeichnis und den
+ * {@link KdTree} allein.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReverseGeocodeBenchmark {
+
+    private static final double MIN_E = 2_592_000;
+    private static final double MIN_N = 1_213_000;
+    private static final double WIDTH = 53_000;
+    private static final double HEIGHT = 49_000;
+    private static final int QUERIES = 4096;
+
+    @Param({ "kd-tree", "linear-scan" })
+    public String index;
+
+    @Param({ "100000" })
+    public int addresses;
+
+    @Param({ "1", "10" })
+    public int k;
+
+    private AddressGazetteer gazetteer;
+    private double[] east;
+    private double[] north;
+    private final double[] queryE = new double[QUERIES];
+    private final double[] queryN = new double[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        east = new double[addresses];
+        north = new double[addresses];
+        StringBuilder csv = new StringBuilder("id;strassenname;hausnummer;plz;ortschaft;e;n\n");
+        for (int i = 0; i < addresses; i++) {
+            east[i] = Math.round(MIN_E + random.nextDouble() * WIDTH);
+            north[i] = Math.round(MIN_N + random.nextDouble() * HEIGHT);
+            csv.append(i).append(";Strasse ").append(i / 40).append(';').append(i % 40 + 1).append(";4500;Ort ")
+                    .append(i / 2000).append(';').append(east[i]).append(';').append(north[i]).append('\n');
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            queryE[i] = MIN_E + random.nextDouble() * WIDTH;
+            queryN[i] = MIN_N + random.nextDouble() * HEIGHT;
+        }
+
+        long before = usedHeap();
+        gazetteer = new AddressGazetteer(new GazetteerProperties(), new SimpleMeterRegistry());
+        gazetteer.load(new StringReader(csv.toString()));
+        long gazetteerBytes = usedHeap() - before;
+        before = usedHeap();
+        KdTree tree = new KdTree(east, north);
+        long treeBytes = usedHeap() - before;
+        System.out.printf("%nfootprint: gazetteer %,d bytes, kd-tree %,d bytes (%d points)%n", gazetteerBytes,
+                treeBytes, tree.size());
+    }
+
+    @Benchmark
+    public int nearest() {
+        int i = next++ & (QUERIES - 1);
+        return "kd-tree".equals(index) ? gazetteer.nearest(queryE[i], queryN[i], k, 1_000).size()
+                : linearScan(queryE[i], queryN[i], 1_000).size();
+    }
+
+    private List<KdTree.Neighbour> linearScan(double e, double n, double maxDistance) {
+        PriorityQueue<KdTree.Neighbour> best = new PriorityQueue<>(
+                Comparator.comparingDouble(KdTree.Neighbour::distance).reversed());
+        for (int i = 0; i < east.length; i++) {
+            double distance = Math.sqrt((east[i] - e) * (east[i] - e) + (north[i] - n) * (north[i] - n));
+            if (distance <= maxDistance && (best.size() < k || distance < best.peek().distance())) {
+                best.add(new KdTree.Neighbour(i, distance));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+        List<KdTree.Neighbour> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(KdTree.Neighbour::distance));
+        return result;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,102 @@
+package ch.so.agi.ask.mcp;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+
+/**
+ * Dispatch-Overhead des {@link SpringMcpToolRegistry} ohne Netzwerk: das Tool
+ * liefert ein vorbereitetes Ergebnis. {@code reflective} bildet den früheren
+ * Pfad nach ({@code getBean}, Methodenauflösung, {@code Method.invoke},
+ * {@code instanceof}-Normalisierung), {@code compiled} ruft
+ * {@link SpringMcpToolRegistry#execute} mit den beim Refresh gebundenen
+ * Invokern auf.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolRegistryDispatchBenchmark {
+
+    private static final Map<String, Object> ARGS = Map.of("query", "Gewässerschutz");
+
+    @Param({ "reflective", "compiled" })
+    public String dispatch;
+
+    private GenericApplicationContext context;
+    private SpringMcpToolRegistry registry;
+    private Method method;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new GenericApplicationContext();
+        context.registerBean("stubTools", StubTools.class);
+        context.registerBean(SpringMcpToolRegistry.class);
+        context.refresh();
+        registry = context.getBean(SpringMcpToolRegistry.class);
+        method = ReflectionUtils.findMethod(StubTools.class, "searchLayers", Map.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PlannerOutput.Result execute() throws Exception {
+        return "compiled".equals(dispatch) ? registry.execute(McpToolCapability.LAYERS_SEARCH, ARGS)
+                : reflective();
+    }
+
+    private PlannerOutput.Result reflective() throws Exception {
+        Object bean = context.getBean("stubTools");
+        Method invocable = method;
+        if (!invocable.getDeclaringClass().isInstance(bean)) {
+            invocable = ReflectionUtils.findMethod(bean.getClass(), method.getName(), method.getParameterTypes());
+        }
+        Object result = invocable.invoke(bean, ARGS);
+        if (result instanceof PlannerOutput.Result por) {
+            return por;
+        }
+        if (result instanceof ToolResult tr) {
+            return new PlannerOutput.Result(tr.status() == ToolResult.Status.SUCCESS ? "ok" : "error", tr.items(),
+                    tr.message());
+        }
+        return new PlannerOutput.Result("error", List.of(), "Unsupported tool result type");
+    }
+
+    public static class StubTools {
+        private static final LayerTools.LayerResult RESULT = new LayerTools.LayerResult(ToolResult.Status.SUCCESS,
+                List.of(Map.of("id", "ch.so.afu.gewaesserschutz")), "Layer gefunden.");
+
+        @McpTool(name = "layers.search", description = "Sucht Kartenlayer.")
+        public LayerTools.LayerResult searchLayers(Map<String, Object> args) {
+            return RESULT;
+        }
+    }
+}
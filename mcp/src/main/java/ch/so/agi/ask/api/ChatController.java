@@ -1,26 +1,87 @@
 package ch.so.agi.ask.api;
 
+import ch.so.agi.ask.config.DeadlineProperties;
+import ch.so.agi.ask.core.ChatEventListener;
 import ch.so.agi.ask.core.ChatOrchestrator;
+import ch.so.agi.ask.mcp.RequestDeadline;
 import ch.so.agi.ask.model.ChatRequest;
 import ch.so.agi.ask.model.ChatResponse;
+import ch.so.agi.ask.model.PlannerOutput;
 import ch.so.agi.ask.model.SessionRequest;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
+    private static final Logger log = LoggerFactory.getLogger(ChatController.class);
+    private static final long STREAM_TIMEOUT_MILLIS = 120_000L;
 
     private final ChatOrchestrator orchestrator;
+    private final DeadlineProperties deadlineProperties;
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public ChatController(ChatOrchestrator orchestrator) {
+    public ChatController(ChatOrchestrator orchestrator, DeadlineProperties deadlineProperties) {
         this.orchestrator = orchestrator;
+        this.deadlineProperties = deadlineProperties;
     }
 
     @PostMapping
     public ResponseEntity<ChatResponse> chat(@Valid @RequestBody ChatRequest req) {
-        return ResponseEntity.ok(orchestrator.handleUserPrompt(req));
+        return ResponseEntity.ok(orchestrator.handleUserPrompt(req, ChatEventListener.NOOP, startDeadline()));
+    }
+
+    /**
+     * Streaming-Variante von {@code POST /api/chat}. Liefert Server-Sent-Events in
+     * der Reihenfolge {@code planner-started}, {@code plan-ready}, je ein
+     * {@code step}-Event pro abgeschlossenem Step (mit Index im Plan) und zum
+     * Schluss {@code completed} mit dem Gesamtstatus. Bei einem Fehler wird ein
+     * {@code error}-Event mit einer allgemeinen Meldung gesendet; die Details
+     * stehen nur im Log.
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@Valid @RequestBody ChatRequest req) {
+        RequestDeadline deadline = startDeadline();
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        SseChatEventListener listener = new SseChatEventListener(emitter);
+        streamExecutor.execute(() -> {
+            try {
+                orchestrator.handleUserPrompt(req, listener, deadline);
+                emitter.complete();
+            } catch (Exception e) {
+                log.error("Streaming chat request failed", e);
+                listener.send("error", Map.of("message", "Die Anfrage konnte nicht verarbeitet werden."));
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Das Zeitbudget beginnt mit dem Eingang der Anfrage (siehe
+     * {@link DeadlineProperties}).
+     */
+    private RequestDeadline startDeadline() {
+        return deadlineProperties.isEnabled()
+                ? RequestDeadline.after(Duration.ofMillis(deadlineProperties.getRequestMillis()))
+                : RequestDeadline.none();
     }
 
     @DeleteMapping
@@ -28,4 +89,73 @@ public class ChatController {
         orchestrator.clearSession(request.sessionId());
         return ResponseEntity.noContent().build();
     }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * Übersetzt die Orchestrator-Callbacks in SSE-Events. Steps können parallel
+     * fertig werden, deshalb wird das Senden synchronisiert. Ist der Client
+     * bereits weg, werden weitere Events verworfen.
+     */
+    private static final class SseChatEventListener implements ChatEventListener {
+        private final SseEmitter emitter;
+        private boolean closed;
+
+        SseChatEventListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onPlannerStarted(String sessionId) {
+            send("planner-started", Map.of("sessionId", sessionId));
+        }
+
+        @Override
+        public void onPlanReady(PlannerOutput plan) {
+            List<Map<String, Object>> steps = new ArrayList<>();
+            List<PlannerOutput.Step> planSteps = Optional.ofNullable(plan.steps()).orElse(List.of());
+            for (int i = 0; i < planSteps.size(); i++) {
+                Map<String, Object> step = new LinkedHashMap<>();
+                step.put("index", i);
+                step.put("intent", planSteps.get(i).intent());
+                steps.add(step);
+            }
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("requestId", plan.requestId());
+            data.put("steps", steps);
+            send("plan-ready", data);
+        }
+
+        @Override
+        public void onStep(String requestId, int index, ChatResponse.Step step) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("requestId", requestId);
+            data.put("index", index);
+            data.put("step", step);
+            send("step", data);
+        }
+
+        @Override
+        public void onCompleted(ChatResponse response) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("requestId", response.requestId());
+            data.put("overallStatus", response.overallStatus());
+            send("completed", data);
+        }
+
+        synchronized void send(String name, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.info("SSE client disconnected, dropping event {}", name);
+                closed = true;
+            }
+        }
+    }
 }
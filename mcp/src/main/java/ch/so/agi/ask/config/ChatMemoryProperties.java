@@ -0,0 +1,52 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Begrenzung des Gesprächsverlaufs pro Session: Token-Budget (geschätzt),
+ * Fenstergrösse in Nachrichten und Anzahl der Tool-Resultate, die ungekürzt
+ * erhalten bleiben.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.chat.memory")
+public class ChatMemoryProperties {
+    private boolean enabled = true;
+    private int maxTokens = 6000;
+    private int maxMessages = 40;
+    private int fullToolResults = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public int getFullToolResults() {
+        return fullToolResults;
+    }
+
+    public void setFullToolResults(int fullToolResults) {
+        this.fullToolResults = fullToolResults;
+    }
+}
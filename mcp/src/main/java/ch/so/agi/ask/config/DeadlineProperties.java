@@ -0,0 +1,44 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Zeitbudget einer Chat-Anfrage ({@code ask.deadline}). Das Budget beginnt im
+ * {@code ChatController}; der Planner darf höchstens {@code plannerShare} des
+ * Budgets verbrauchen, die ToolCalls den Rest. Ist das Budget aufgebraucht,
+ * werden die fertigen Steps mit Gesamtstatus {@code partial} zurückgegeben.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.deadline")
+public class DeadlineProperties {
+    private boolean enabled = true;
+    private long requestMillis = 25000;
+    private double plannerShare = 0.6;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRequestMillis() {
+        return requestMillis;
+    }
+
+    public void setRequestMillis(long requestMillis) {
+        this.requestMillis = requestMillis;
+    }
+
+    public double getPlannerShare() {
+        return plannerShare;
+    }
+
+    public void setPlannerShare(double plannerShare) {
+        this.plannerShare = plannerShare;
+    }
+}
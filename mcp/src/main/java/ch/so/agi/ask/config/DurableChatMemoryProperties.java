@@ -0,0 +1,80 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert den dauerhaften Gesprächsverlauf
+ * ({@code SegmentLogChatMemoryStore}): Verzeichnis, Anzahl Shards, Grösse der
+ * Segmentdateien, Intervall für gebündeltes fsync und Kompaktierung.
+ * Deaktiviert wird weiterhin der In-Memory-Store verwendet.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.chat.memory.durable")
+public class DurableChatMemoryProperties {
+    private boolean enabled = false;
+    private String directory = "";
+    private int shards = 16;
+    private int segmentBytes = 16 * 1024 * 1024;
+    private long fsyncIntervalMillis = 200;
+    private long compactionIntervalSeconds = 300;
+    private double compactionGarbageRatio = 0.5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    public void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    public long getCompactionIntervalSeconds() {
+        return compactionIntervalSeconds;
+    }
+
+    public void setCompactionIntervalSeconds(long compactionIntervalSeconds) {
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    public double getCompactionGarbageRatio() {
+        return compactionGarbageRatio;
+    }
+
+    public void setCompactionGarbageRatio(double compactionGarbageRatio) {
+        this.compactionGarbageRatio = compactionGarbageRatio;
+    }
+}
@@ -0,0 +1,55 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Lokales Adressverzeichnis für {@code geolocation.geocode.address}
+ * ({@code ask.gazetteer}). {@code file} ist ein CSV-Export (optional gzip) des
+ * Datensatzes {@code ch.so.agi.av.gebaeudeadressen.gebaeudeeingaenge} mit den
+ * Spalten {@code id;strassenname;hausnummer;plz;ortschaft;e;n} (LV95). Die
+ * Datei wird alle {@code refresh-interval-minutes} auf Änderungen geprüft.
+ * {@code max-edits} begrenzt die Tippfehlertoleranz beim Strassennamen.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.gazetteer")
+public class GazetteerProperties {
+    private boolean enabled = false;
+    private String file;
+    private int maxEdits = 2;
+    private long refreshIntervalMinutes = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getMaxEdits() {
+        return maxEdits;
+    }
+
+    public void setMaxEdits(int maxEdits) {
+        this.maxEdits = maxEdits;
+    }
+
+    public long getRefreshIntervalMinutes() {
+        return refreshIntervalMinutes;
+    }
+
+    public void setRefreshIntervalMinutes(long refreshIntervalMinutes) {
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+    }
+}
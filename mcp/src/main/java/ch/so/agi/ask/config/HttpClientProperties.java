@@ -0,0 +1,137 @@
+package ch.so.agi.ask.config;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Gemeinsame HTTP-Client-Konfiguration der Tools. Pro Upstream
+ * ({@code endpoints.<name>}) werden Basis-URL, Pool und Timeouts festgelegt.
+ * Upstreams mit gleichem {@code pool} teilen sich einen HTTP-Client und
+ * damit dessen Verbindungen; ohne Angabe ist der Pool der Host der
+ * Basis-URL. Der Connect-Timeout gilt pro Pool (grösster Wert seiner
+ * Upstreams), der Read-Timeout pro Upstream.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.http")
+public class HttpClientProperties {
+
+    private boolean http2 = true;
+    private boolean gzip = true;
+    private Map<String, Endpoint> endpoints = defaultEndpoints();
+
+    private static Map<String, Endpoint> defaultEndpoints() {
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        endpoints.put("geolocation", new Endpoint("https://geo.so.ch/api/search/v2/"));
+        endpoints.put("layers", new Endpoint("https://geo.so.ch/api/search/v2/"));
+        endpoints.put("oereb", new Endpoint("https://geo.so.ch/api/oereb/getegrid/xml/"));
+        endpoints.put("feature-search",
+                new Endpoint("https://geo.so.ch/api/data/v1/ch.so.agi.av.grundstuecke.rechtskraeftig/"));
+        endpoints.put("geothermal", new Endpoint("https://geo.so.ch/api/v1/featureinfo/somap"));
+        endpoints.put("municipalities", new Endpoint("https://geo.so.ch/api/data/v1/ch.so.agi.gemeindegrenzen/"));
+        endpoints.put("layer-catalog", new Endpoint("https://geo.so.ch/api/dataproduct/v1/weblayers"));
+        endpoints.put("wms", new Endpoint("https://geo.so.ch/api/wms"));
+        return endpoints;
+    }
+
+    /**
+     * Konfiguration des Upstreams; unbekannte Upstreams erhalten die
+     * Standardwerte ohne Basis-URL.
+     */
+    public Endpoint endpoint(String upstream) {
+        return endpoints.getOrDefault(upstream, new Endpoint());
+    }
+
+    /**
+     * Pool des Upstreams: {@code pool} oder der Host der Basis-URL bzw. des
+     * Fallbacks.
+     */
+    public String pool(String upstream, String fallbackBaseUrl) {
+        Endpoint endpoint = endpoint(upstream);
+        if (endpoint.getPool() != null && !endpoint.getPool().isBlank()) {
+            return endpoint.getPool();
+        }
+        String baseUrl = endpoint.baseUrlOr(fallbackBaseUrl);
+        String host = baseUrl == null ? null : URI.create(baseUrl).getHost();
+        return host == null ? upstream : host;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public Map<String, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public static class Endpoint {
+        private String baseUrl;
+        private String pool;
+        private long connectTimeoutMillis = 2000;
+        private long readTimeoutMillis = 10000;
+
+        public Endpoint() {
+        }
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrlOr(String fallback) {
+            return baseUrl == null || baseUrl.isBlank() ? fallback : baseUrl;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getPool() {
+            return pool;
+        }
+
+        public void setPool(String pool) {
+            this.pool = pool;
+        }
+
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        public long getReadTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public void setReadTimeoutMillis(long readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ch.so.agi.ask.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Lokaler Layerkatalog für {@code layers.search} ({@code ask.layers.catalog}).
+ * Der ganze Vordergrund-Katalog wird vom Upstream {@code layer-catalog} (siehe
+ * {@link HttpClientProperties}) geladen und alle
+ * {@code refresh-interval-minutes} erneuert. Treffer unter
+ * {@code relative-score} mal dem besten Score werden verworfen. Jeder Eintrag
+ * in {@code synonyms} ist eine kommagetrennte Gruppe gleichbedeutender Begriffe.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.layers.catalog")
+public class LayerCatalogProperties {
+    private boolean enabled = true;
+    private long refreshIntervalMinutes = 60;
+    private int maxResults = 25;
+    private double relativeScore = 0.5;
+    private List<String> synonyms = new ArrayList<>(List.of(
+            "luftbild,orthofoto",
+            "velo,fahrrad",
+            "wald,forst",
+            "grundstueck,parzelle,liegenschaft",
+            "gewaesser,fliessgewaesser",
+            "relief,hoehenmodell"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRefreshIntervalMinutes() {
+        return refreshIntervalMinutes;
+    }
+
+    public void setRefreshIntervalMinutes(long refreshIntervalMinutes) {
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    public double getRelativeScore() {
+        return relativeScore;
+    }
+
+    public void setRelativeScore(double relativeScore) {
+        this.relativeScore = relativeScore;
+    }
+
+    public List<String> getSynonyms() {
+        return synonyms;
+    }
+
+    public void setSynonyms(List<String> synonyms) {
+        this.synonyms = synonyms;
+    }
+}
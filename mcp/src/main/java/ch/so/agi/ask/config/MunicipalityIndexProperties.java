@@ -0,0 +1,35 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Lokaler Index der Gemeindegrenzen ({@code ask.municipalities}). Die
+ * Grenzen werden beim Start vom Upstream {@code municipalities} (siehe
+ * {@link HttpClientProperties}) geladen und alle
+ * {@code refresh-interval-minutes} im Hintergrund erneuert.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.municipalities")
+public class MunicipalityIndexProperties {
+    private boolean enabled = true;
+    private long refreshIntervalMinutes = 1440;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRefreshIntervalMinutes() {
+        return refreshIntervalMinutes;
+    }
+
+    public void setRefreshIntervalMinutes(long refreshIntervalMinutes) {
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+    }
+}
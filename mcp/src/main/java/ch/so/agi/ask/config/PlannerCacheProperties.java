@@ -0,0 +1,42 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert den Exact-Match-Cache für Planner-Ausgaben (Grösse und TTL der
+ * Einträge).
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.cache")
+public class PlannerCacheProperties {
+    private boolean enabled = true;
+    private int maxEntries = 1000;
+    private long ttlSeconds = 3600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
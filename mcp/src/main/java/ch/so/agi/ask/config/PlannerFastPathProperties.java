@@ -0,0 +1,36 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert den regelbasierten Fast-Path vor dem Planner-LLM. Eindeutige
+ * Eingaben (LV95-Koordinaten, EGRID, Grundstücksnummer + Gemeinde, Adressen)
+ * werden ab der Mindest-Konfidenz ohne LLM-Aufruf geplant. Die Vorgabe liegt
+ * über der Konfidenz mit einem unerklärten Wort, sodass jedes solche Wort (z.B.
+ * ein Layername neben einer Adresse) an das LLM geht.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.fast-path")
+public class PlannerFastPathProperties {
+    private boolean enabled = true;
+    private double minConfidence = 0.9;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getMinConfidence() {
+        return minConfidence;
+    }
+
+    public void setMinConfidence(double minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+}
@@ -0,0 +1,121 @@
+package ch.so.agi.ask.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import ch.so.agi.ask.model.IntentType;
+
+/**
+ * Konfiguriert das Routing des Planners auf ein schnelles bzw. ein starkes
+ * Modell. Kurze Eingaben mit einem Intent gehen an {@code fastModel}; welche
+ * Intents das schnelle Modell planen darf, legt {@code intents} fest. Ein
+ * leerer Modellname verwendet das in {@code spring.ai.openai.chat.options.model}
+ * konfigurierte Modell. Mit {@code hedgeEnabled} wird zusätzlich das starke
+ * Modell angefragt, wenn das schnelle nicht innerhalb seines p95 antwortet.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.routing")
+public class PlannerRoutingProperties {
+
+    public enum Tier {
+        FAST, STRONG
+    }
+
+    private boolean enabled = false;
+    private String fastModel = "gpt-5-nano";
+    private String strongModel = "";
+    private int maxFastChars = 160;
+    private Map<IntentType, Tier> intents = defaultIntents();
+    private boolean hedgeEnabled = false;
+    private long hedgeMinDelayMillis = 250;
+    private long hedgeDefaultDelayMillis = 3000;
+    private int hedgeMinSamples = 20;
+
+    private static Map<IntentType, Tier> defaultIntents() {
+        Map<IntentType, Tier> intents = new EnumMap<>(IntentType.class);
+        intents.put(IntentType.GOTO_ADDRESS, Tier.FAST);
+        intents.put(IntentType.LOAD_LAYER, Tier.FAST);
+        intents.put(IntentType.SEARCH_PLACE, Tier.FAST);
+        intents.put(IntentType.GEOTHERMAL_PROBE_ASSESSMENT, Tier.FAST);
+        intents.put(IntentType.OEREB_EXTRACT, Tier.STRONG);
+        intents.put(IntentType.CADASTRAL_PLAN, Tier.STRONG);
+        return intents;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getFastModel() {
+        return fastModel;
+    }
+
+    public void setFastModel(String fastModel) {
+        this.fastModel = fastModel;
+    }
+
+    public String getStrongModel() {
+        return strongModel;
+    }
+
+    public void setStrongModel(String strongModel) {
+        this.strongModel = strongModel;
+    }
+
+    public int getMaxFastChars() {
+        return maxFastChars;
+    }
+
+    public void setMaxFastChars(int maxFastChars) {
+        this.maxFastChars = maxFastChars;
+    }
+
+    public Map<IntentType, Tier> getIntents() {
+        return intents;
+    }
+
+    public void setIntents(Map<IntentType, Tier> intents) {
+        this.intents = intents;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public long getHedgeMinDelayMillis() {
+        return hedgeMinDelayMillis;
+    }
+
+    public void setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    public long getHedgeDefaultDelayMillis() {
+        return hedgeDefaultDelayMillis;
+    }
+
+    public void setHedgeDefaultDelayMillis(long hedgeDefaultDelayMillis) {
+        this.hedgeDefaultDelayMillis = hedgeDefaultDelayMillis;
+    }
+
+    public int getHedgeMinSamples() {
+        return hedgeMinSamples;
+    }
+
+    public void setHedgeMinSamples(int hedgeMinSamples) {
+        this.hedgeMinSamples = hedgeMinSamples;
+    }
+}
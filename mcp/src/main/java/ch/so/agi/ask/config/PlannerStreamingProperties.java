@@ -0,0 +1,24 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Schaltet den gestreamten Planner-Modus ein: Steps werden ausgeführt, sobald
+ * sie im Token-Stream vollständig vorliegen.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.streaming")
+public class PlannerStreamingProperties {
+    private boolean enabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
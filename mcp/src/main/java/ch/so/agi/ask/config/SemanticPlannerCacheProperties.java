@@ -0,0 +1,79 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert den semantischen (Nearest-Neighbour) Planner-Cache: minimale
+ * Kosinus-Ähnlichkeit für einen Treffer, Kapazität sowie die Parameter des
+ * HNSW-Index.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.semantic-cache")
+public class SemanticPlannerCacheProperties {
+    private boolean enabled = false;
+    private double minSimilarity = 0.9;
+    private int maxEntries = 10000;
+    private int dimensions = 512;
+    private int maxConnections = 16;
+    private int efConstruction = 100;
+    private int efSearch = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getMinSimilarity() {
+        return minSimilarity;
+    }
+
+    public void setMinSimilarity(double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public void setDimensions(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(int efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Lebensdauer und globale Obergrenzen der In-Memory-Session-Stores: Idle-TTL,
+ * maximale Anzahl Sessions, maximaler (geschätzter) Speicherbedarf und
+ * Intervall des Sweepers.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.session")
+public class SessionLifecycleProperties {
+    private long idleTtlSeconds = 1800;
+    private int maxSessions = 10000;
+    private long maxBytes = 256L * 1024 * 1024;
+    private long sweepIntervalSeconds = 60;
+
+    public long getIdleTtlSeconds() {
+        return idleTtlSeconds;
+    }
+
+    public void setIdleTtlSeconds(long idleTtlSeconds) {
+        this.idleTtlSeconds = idleTtlSeconds;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getSweepIntervalSeconds() {
+        return sweepIntervalSeconds;
+    }
+
+    public void setSweepIntervalSeconds(long sweepIntervalSeconds) {
+        this.sweepIntervalSeconds = sweepIntervalSeconds;
+    }
+}
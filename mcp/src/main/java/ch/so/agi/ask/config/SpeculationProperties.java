@@ -0,0 +1,77 @@
+package ch.so.agi.ask.config;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert die spekulative Ausführung des nächsten ToolCalls, solange der
+ * Benutzer eine Auswahl trifft (z. B. {@code oereb.extractById} für die besten
+ * Kandidaten von {@code oereb.egridByXY}). Standardmässig deaktiviert; kann via
+ * {@code application.properties} eingeschaltet werden.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.speculation")
+public class SpeculationProperties {
+    private boolean enabled = false;
+    private int maxCandidates = 3;
+    private int maxConcurrency = 16;
+    private long ttlSeconds = 120;
+    // Höchstens so lange wartet das Choice-Follow-up auf eine noch laufende Spekulation.
+    private long maxWaitMillis = 1500;
+
+    // Capabilities mit Seiteneffekten bzw. teuren Upstream-Aufrufen werden nie spekulativ ausgeführt.
+    private Set<String> excludedCapabilities = new LinkedHashSet<>(Set.of("processing.getCadastralPlanByGeometry"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public Set<String> getExcludedCapabilities() {
+        return excludedCapabilities;
+    }
+
+    public void setExcludedCapabilities(Set<String> excludedCapabilities) {
+        this.excludedCapabilities = excludedCapabilities;
+    }
+}
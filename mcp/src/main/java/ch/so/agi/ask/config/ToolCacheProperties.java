@@ -0,0 +1,25 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Schaltet den Ergebnis-Cache für MCP-Tools ein bzw. aus. TTL, Grösse und
+ * Schlüssel deklariert jedes Tool selbst über
+ * {@link ch.so.agi.ask.mcp.McpToolCache}.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.tools.cache")
+public class ToolCacheProperties {
+    private boolean enabled = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert die Auswahl der Capabilities, die pro Anfrage in den
+ * System-Prompt des Planners aufgenommen werden. Liegt der beste Treffer unter
+ * {@code minScore}, wird der vollständige Katalog verwendet.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.planner.tool-selection")
+public class ToolSelectionProperties {
+    private boolean enabled = false;
+    private int topK = 4;
+    private double minScore = 1.0;
+    private double relativeScore = 0.25;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    public double getRelativeScore() {
+        return relativeScore;
+    }
+
+    public void setRelativeScore(double relativeScore) {
+        this.relativeScore = relativeScore;
+    }
+}
@@ -0,0 +1,155 @@
+package ch.so.agi.ask.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Konfiguriert die Isolation der Upstream-Dienste (geo.so.ch, Landregister
+ * Print usw.). Jeder Upstream erhält ein eigenes Bulkhead aus adaptivem
+ * Parallelitätslimit (AIMD), Warteschlange und Circuit Breaker; Basis-URL,
+ * Pool und Timeouts stehen in {@link HttpClientProperties}. Einstellungen unter {@code clients.<name>} ersetzen für diesen
+ * Upstream die Werte aus {@code defaults} vollständig.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.upstream")
+public class UpstreamProperties {
+
+    private boolean enabled = true;
+    private Limits defaults = new Limits();
+    private Map<String, Limits> clients = new LinkedHashMap<>();
+
+    public Limits limits(String upstream) {
+        return clients.getOrDefault(upstream, defaults);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Limits getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Limits defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Limits> getClients() {
+        return clients;
+    }
+
+    public void setClients(Map<String, Limits> clients) {
+        this.clients = clients;
+    }
+
+    public static class Limits {
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 32;
+        private double backoffRatio = 0.75;
+        private long latencyThresholdMillis = 2000;
+        private int queueSize = 32;
+        private long maxQueueWaitMillis = 2000;
+        private double failureRateThreshold = 0.5;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private long openStateMillis = 30000;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public long getLatencyThresholdMillis() {
+            return latencyThresholdMillis;
+        }
+
+        public void setLatencyThresholdMillis(long latencyThresholdMillis) {
+            this.latencyThresholdMillis = latencyThresholdMillis;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public long getMaxQueueWaitMillis() {
+            return maxQueueWaitMillis;
+        }
+
+        public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+            this.maxQueueWaitMillis = maxQueueWaitMillis;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public long getOpenStateMillis() {
+            return openStateMillis;
+        }
+
+        public void setOpenStateMillis(long openStateMillis) {
+            this.openStateMillis = openStateMillis;
+        }
+    }
+}
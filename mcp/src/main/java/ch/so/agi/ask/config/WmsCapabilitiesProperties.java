@@ -0,0 +1,35 @@
+package ch.so.agi.ask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Metadaten-Cache aus dem WMS-GetCapabilities ({@code ask.wms.capabilities}).
+ * Das Dokument wird beim Start vom Upstream {@code wms} (siehe
+ * {@link HttpClientProperties}) geladen und alle
+ * {@code refresh-interval-minutes} im Hintergrund erneuert.
+ */
+@Component
+@Validated
+@ConfigurationProperties(prefix = "ask.wms.capabilities")
+public class WmsCapabilitiesProperties {
+    private boolean enabled = true;
+    private long refreshIntervalMinutes = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRefreshIntervalMinutes() {
+        return refreshIntervalMinutes;
+    }
+
+    public void setRefreshIntervalMinutes(long refreshIntervalMinutes) {
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+    }
+}
@@ -17,6 +17,8 @@ import static ch.so.agi.ask.model.IntentType.*;
  */
 @Service
 public class ActionPlanner {
+    private static final List<String> LAYER_METADATA_KEYS = List.of("extent", "minScale", "maxScale", "queryable",
+            "legendUrl");
 
     /**
      * Formt die MCP-Ergebnisse in eine {@link ActionPlan} um und wählt den passenden
@@ -159,6 +161,13 @@ public class ActionPlanner {
         if (label != null) {
             actionPayload.put("label", label);
         }
+        // Metadaten aus GetCapabilities (siehe WmsCapabilities), falls vorhanden
+        for (String key : LAYER_METADATA_KEYS) {
+            Object value = payload.get(key);
+            if (value != null) {
+                actionPayload.put(key, value);
+            }
+        }
         return new MapAction("addLayer", actionPayload);
     }
 }
@@ -0,0 +1,33 @@
+package ch.so.agi.ask.core;
+
+import ch.so.agi.ask.model.ChatResponse;
+import ch.so.agi.ask.model.PlannerOutput;
+
+/**
+ * Callback für den Fortschritt einer Chat-Anfrage. Der {@link ChatOrchestrator}
+ * meldet darüber Planner-Start, den fertigen Plan, jeden abgeschlossenen Step
+ * (sobald er fertig ist, nicht erst am Ende) sowie die finale
+ * {@link ChatResponse}. Wird vom Streaming-Endpoint genutzt, damit der Client
+ * MapActions früherer Steps bereits anwenden kann, während spätere noch laufen.
+ * Implementierungen müssen Aufrufe aus mehreren Threads vertragen.
+ */
+public interface ChatEventListener {
+
+    ChatEventListener NOOP = new ChatEventListener() {
+    };
+
+    default void onPlannerStarted(String sessionId) {
+    }
+
+    default void onPlanReady(PlannerOutput plan) {
+    }
+
+    /**
+     * @param index Position des Steps im Plan (Planner-Reihenfolge)
+     */
+    default void onStep(String requestId, int index, ChatResponse.Step step) {
+    }
+
+    default void onCompleted(ChatResponse response) {
+    }
+}
@@ -0,0 +1,194 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.ChatMemoryProperties;
+import ch.so.agi.ask.mcp.McpResponseItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Begrenzt den Gesprächsverlauf einer Session, bevor er gespeichert und dem
+ * Planner erneut mitgegeben wird:
+ * <ol>
+ * <li>ältere Tool-Resultate ({@code "Tool <capability> result: <json>"}) werden
+ * durch Zusammenfassungen ersetzt, die pro Item nur {@code type}, {@code id},
+ * {@code label}, {@code egrid} und {@code coord} behalten (keine Geometrien);
+ * nicht als JSON lesbare Resultate bleiben unverändert, gelten aber als
+ * gekürzt, damit sie nicht bei jedem Anfügen erneut eine Kompaktierung
+ * auslösen;</li>
+ * <li>nur die jüngsten {@code maxMessages} Nachrichten bleiben erhalten;</li>
+ * <li>liegt das geschätzte Token-Total über {@code maxTokens}, werden auch die
+ * jüngsten Tool-Resultate zusammengefasst und danach die ältesten Nachrichten
+ * verworfen (die jüngste bleibt immer erhalten).</li>
+ * </ol>
+ * Tokens werden mit ca. vier Zeichen pro Token geschätzt.
+ * <p>
+ * Metriken: {@code ask.chat.memory.tokens.saved} ({@code reason=summary|window|budget})
+ * und {@code ask.chat.memory.tokens} (Grösse des Verlaufs nach der Kompaktierung).
+ */
+@Component
+public class ChatMemoryPolicy {
+
+    private static final Pattern TOOL_RESULT = Pattern.compile("^Tool (\\S+) result: (.*)$", Pattern.DOTALL);
+    private static final Pattern TOOL_RESULT_PREFIX = Pattern.compile("Tool \\S+ result: ");
+    private static final String SUMMARY_FORMAT = "Tool %s result (gekürzt): %s";
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final ChatMemoryProperties properties;
+    private final Counter savedBySummary;
+    private final Counter savedByWindow;
+    private final Counter savedByBudget;
+    private final DistributionSummary historyTokens;
+
+    public ChatMemoryPolicy(ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.savedBySummary = savedCounter(meterRegistry, "summary");
+        this.savedByWindow = savedCounter(meterRegistry, "window");
+        this.savedByBudget = savedCounter(meterRegistry, "budget");
+        this.historyTokens = DistributionSummary.builder("ask.chat.memory.tokens")
+                .description("Geschätzte Tokens des gespeicherten Verlaufs pro Session").baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Liefert den kompaktierten Verlauf; die übergebene Liste bleibt unverändert.
+     */
+    public List<Message> compact(List<Message> messages) {
+        if (!properties.isEnabled() || messages == null || messages.isEmpty()) {
+            return messages;
+        }
+        List<Message> compacted = summarizeToolResults(messages, properties.getFullToolResults());
+
+        int overflow = compacted.size() - Math.max(1, properties.getMaxMessages());
+        if (overflow > 0) {
+            savedByWindow.increment(estimateTokens(compacted.subList(0, overflow)));
+            compacted = new ArrayList<>(compacted.subList(overflow, compacted.size()));
+        }
+
+        int tokens = estimateTokens(compacted);
+        if (tokens > properties.getMaxTokens()) {
+            compacted = summarizeToolResults(compacted, 0);
+            tokens = estimateTokens(compacted);
+        }
+        int dropped = 0;
+        while (tokens > properties.getMaxTokens() && dropped < compacted.size() - 1) {
+            int messageTokens = estimateTokens(compacted.get(dropped));
+            savedByBudget.increment(messageTokens);
+            tokens -= messageTokens;
+            dropped++;
+        }
+        if (dropped > 0) {
+            compacted = new ArrayList<>(compacted.subList(dropped, compacted.size()));
+        }
+        historyTokens.record(tokens);
+        return compacted;
+    }
+
+    /**
+     * Günstige Vorprüfung für Stores, die Anzahl, Tokens und ungekürzte
+     * Tool-Resultate pro Session mitführen: {@link #compact(List)} muss nur
+     * aufgerufen werden, wenn eine der Grenzen überschritten ist.
+     */
+    public boolean needsCompaction(int messages, int tokens, int fullToolResults) {
+        return properties.isEnabled() && (messages > Math.max(1, properties.getMaxMessages())
+                || tokens > properties.getMaxTokens() || fullToolResults > Math.max(0, properties.getFullToolResults()));
+    }
+
+    /**
+     * {@code true} für ungekürzte Tool-Resultate ({@code "Tool <capability> result: ..."}).
+     */
+    static boolean isToolResult(Message message) {
+        String text = message.getText();
+        return text != null && TOOL_RESULT_PREFIX.matcher(text).lookingAt();
+    }
+
+    private List<Message> summarizeToolResults(List<Message> messages, int keepFull) {
+        List<Message> result = new ArrayList<>(messages);
+        int fullResultsLeft = Math.max(0, keepFull);
+        for (int i = result.size() - 1; i >= 0; i--) {
+            Message message = result.get(i);
+            Matcher matcher = TOOL_RESULT.matcher(Optional.ofNullable(message.getText()).orElse(""));
+            if (!matcher.matches()) {
+                continue;
+            }
+            if (fullResultsLeft > 0) {
+                fullResultsLeft--;
+                continue;
+            }
+            Optional<String> summary = summarize(matcher.group(2));
+            Message replacement = new AssistantMessage(
+                    SUMMARY_FORMAT.formatted(matcher.group(1), summary.orElse(matcher.group(2))));
+            savedBySummary.increment(Math.max(0, estimateTokens(message) - estimateTokens(replacement)));
+            result.set(i, replacement);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<String> summarize(String resultJson) {
+        Map<String, Object> result;
+        try {
+            result = Json.read(resultJson, Map.class);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+        if (result == null) {
+            return Optional.empty();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("status", result.get("status"));
+        Optional.ofNullable(result.get("message")).ifPresent(message -> summary.put("message", message));
+        List<Map<String, Object>> items = new ArrayList<>();
+        if (result.get("items") instanceof List<?> list) {
+            for (Object element : list) {
+                if (element instanceof Map<?, ?> item) {
+                    items.add(summarizeItem((Map<String, Object>) item));
+                }
+            }
+        }
+        summary.put("items", items);
+        return Optional.of(Json.write(summary));
+    }
+
+    private Map<String, Object> summarizeItem(Map<String, Object> item) {
+        Map<String, Object> payload = McpResponseItem.payload(item);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Optional.ofNullable(McpResponseItem.itemType(item)).ifPresent(type -> summary.put("type", type));
+        Optional.ofNullable(McpResponseItem.id(item)).ifPresent(id -> summary.put("id", id));
+        Optional.ofNullable(McpResponseItem.label(item)).ifPresent(label -> summary.put("label", label));
+        Optional.ofNullable(payload.get("egrid")).ifPresent(egrid -> summary.put("egrid", egrid));
+        Optional.ofNullable(payload.get("coord")).ifPresent(coord -> summary.put("coord", coord));
+        return summary;
+    }
+
+    static int estimateTokens(Message message) {
+        String text = message.getText();
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    static int estimateTokens(List<Message> messages) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += estimateTokens(message);
+        }
+        return tokens;
+    }
+
+    private static Counter savedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ask.chat.memory.tokens.saved").tag("reason", reason)
+                .description("Geschätzte Prompt-Tokens, die durch die Kompaktierung eingespart werden")
+                .baseUnit("tokens").register(meterRegistry);
+    }
+}
@@ -1,17 +1,31 @@
 package ch.so.agi.ask.core;
 
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import ch.so.agi.ask.config.DeadlineProperties;
+import ch.so.agi.ask.config.SpeculationProperties;
 import ch.so.agi.ask.mcp.McpResponseItem;
+import ch.so.agi.ask.mcp.RequestDeadline;
 import ch.so.agi.ask.model.ChatRequest;
 import ch.so.agi.ask.model.ChatResponse;
 import ch.so.agi.ask.model.PlannerOutput;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Zentraler Ablaufkoordinator zwischen HTTP-Controller, {@link PlannerLlm},
@@ -19,10 +33,17 @@ import ch.so.agi.ask.model.PlannerOutput;
  * gelieferten Intents (Steps), orchestriert die MCP-Ausführung der vorgeschlagenen
  * ToolCalls und baut daraus gemeinsam mit dem ActionPlanner die finale
  * {@code ChatResponse}, wie im README-Sequenzdiagramm beschrieben.
+ * <p>
+ * Mit einer {@link RequestDeadline} erhält der Planner höchstens
+ * {@code ask.deadline.planner-share} des Budgets, die ToolCalls den Rest.
+ * Überschreitet der Planner oder ein ToolCall die Deadline, wird er abgebrochen
+ * und der Step erhält den Status {@code timeout}; die fertigen Steps werden mit
+ * Gesamtstatus {@code partial} zurückgegeben.
  */
 @Service
 public class ChatOrchestrator {
     private static final Logger log = LoggerFactory.getLogger(ChatOrchestrator.class);
+    private static final String TIMEOUT = "timeout";
 
     private final PlannerLlm plannerLlm;
     private final McpClient mcpClient;
@@ -30,16 +51,37 @@ public class ChatOrchestrator {
     private final ChatMemoryStore chatMemoryStore;
     private final PendingChoiceStore pendingChoiceStore;
     private final SelectionMemoryStore selectionMemoryStore;
+    private final SpeculativeChoiceExecutor speculativeChoiceExecutor;
+    private final DeadlineProperties deadlineProperties;
+    private final ExecutorService stepExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public ChatOrchestrator(PlannerLlm plannerLlm, McpClient mcpClient, ActionPlanner actionPlanner,
             ChatMemoryStore chatMemoryStore, PendingChoiceStore pendingChoiceStore,
             SelectionMemoryStore selectionMemoryStore) {
+        this(plannerLlm, mcpClient, actionPlanner, chatMemoryStore, pendingChoiceStore, selectionMemoryStore,
+                new SpeculativeChoiceExecutor(mcpClient, new SpeculationProperties(), Clock.systemUTC()));
+    }
+
+    public ChatOrchestrator(PlannerLlm plannerLlm, McpClient mcpClient, ActionPlanner actionPlanner,
+            ChatMemoryStore chatMemoryStore, PendingChoiceStore pendingChoiceStore,
+            SelectionMemoryStore selectionMemoryStore, SpeculativeChoiceExecutor speculativeChoiceExecutor) {
+        this(plannerLlm, mcpClient, actionPlanner, chatMemoryStore, pendingChoiceStore, selectionMemoryStore,
+                speculativeChoiceExecutor, new DeadlineProperties());
+    }
+
+    @Autowired
+    public ChatOrchestrator(PlannerLlm plannerLlm, McpClient mcpClient, ActionPlanner actionPlanner,
+            ChatMemoryStore chatMemoryStore, PendingChoiceStore pendingChoiceStore,
+            SelectionMemoryStore selectionMemoryStore, SpeculativeChoiceExecutor speculativeChoiceExecutor,
+            DeadlineProperties deadlineProperties) {
         this.plannerLlm = plannerLlm;
         this.mcpClient = mcpClient;
         this.actionPlanner = actionPlanner;
         this.chatMemoryStore = chatMemoryStore;
         this.pendingChoiceStore = pendingChoiceStore;
         this.selectionMemoryStore = selectionMemoryStore;
+        this.speculativeChoiceExecutor = speculativeChoiceExecutor;
+        this.deadlineProperties = deadlineProperties;
     }
 
     /**
@@ -48,54 +90,323 @@ public class ChatOrchestrator {
      * Response an den REST-Controller.
      */
     public ChatResponse handleUserPrompt(ChatRequest req) {
+        return handleUserPrompt(req, ChatEventListener.NOOP);
+    }
+
+    /**
+     * Wie {@link #handleUserPrompt(ChatRequest)}, meldet aber jeden
+     * Zwischenschritt an den übergebenen {@link ChatEventListener}.
+     */
+    public ChatResponse handleUserPrompt(ChatRequest req, ChatEventListener listener) {
+        return handleUserPrompt(req, listener, RequestDeadline.none());
+    }
+
+    /**
+     * Wie {@link #handleUserPrompt(ChatRequest, ChatEventListener)}, aber
+     * innerhalb des Zeitbudgets {@code deadline}.
+     */
+    public ChatResponse handleUserPrompt(ChatRequest req, ChatEventListener listener, RequestDeadline deadline) {
         log.info(req.toString());
 
         if (req.choiceId() != null && !req.choiceId().isBlank()) {
-            return handleChoiceFollowUp(req);
+            ChatResponse response = handleChoiceFollowUp(req, deadline);
+            for (int i = 0; i < response.steps().size(); i++) {
+                listener.onStep(response.requestId(), i, response.steps().get(i));
+            }
+            listener.onCompleted(response);
+            return response;
+        }
+
+        if (plannerLlm.isStreamingEnabled()) {
+            return handleStreamingPrompt(req, listener, deadline);
         }
 
         // 1) LLM-Plan (Intent + ToolCalls) erzeugen
-        PlannerOutput plan = plannerLlm.plan(req.sessionId(), req.userMessage());
+        listener.onPlannerStarted(req.sessionId());
+        PlannerOutput plan;
+        try {
+            plan = plannerDeadline(deadline).call(() -> plannerLlm.plan(req.sessionId(), req.userMessage()),
+                    stepExecutor);
+        } catch (TimeoutException e) {
+            log.warn("Planner exceeded deadline for session {}", req.sessionId());
+            List<ChatResponse.Step> steps = List.of(plannerTimeoutStep());
+            ChatResponse response = new ChatResponse(UUID.randomUUID().toString(), steps, aggregateStatus(steps));
+            listener.onCompleted(response);
+            return response;
+        }
         log.info(plan.toString());
+        listener.onPlanReady(plan);
 
         // 2) ToolCalls je Step ausführen (MCP) und ActionPlans erzeugen
-        List<ChatResponse.Step> steps = buildSteps(req.sessionId(), plan);
+        List<ChatResponse.Step> steps = buildSteps(req.sessionId(), plan, listener, deadline);
         log.info(steps.toString());
 
         // 3) Finale ChatResponse inklusive Gesamtstatus
-        return new ChatResponse(plan.requestId(), steps, aggregateStatus(steps));
+        ChatResponse response = new ChatResponse(plan.requestId(), steps, aggregateStatus(steps));
+        listener.onCompleted(response);
+        return response;
+    }
+
+    /**
+     * Gestreamter Planner-Modus: jeder Step wird eingeplant, sobald der Planner
+     * ihn vollständig generiert hat, sodass Tool-Ausführung und Token-Generierung
+     * der weiteren Steps überlappen. {@code plan-ready} wird erst nach Ende der
+     * Generierung gemeldet, einzelne {@code step}-Events können also davor liegen.
+     * Läuft das Planner-Budget ab, werden die bereits generierten Steps noch
+     * ausgeführt. Scheitert der Planner, wird auf die bereits eingeplanten Steps
+     * gewartet, bevor der Fehler weitergereicht wird.
+     */
+    private ChatResponse handleStreamingPrompt(ChatRequest req, ChatEventListener listener,
+            RequestDeadline deadline) {
+        String requestId = UUID.randomUUID().toString();
+        listener.onPlannerStarted(req.sessionId());
+        StepScheduler scheduler = new StepScheduler(req.sessionId(), requestId, listener, deadline);
+        boolean plannerTimedOut = false;
+        try {
+            PlannerOutput plan = plannerDeadline(deadline).call(() -> plannerLlm.planStreaming(req.sessionId(),
+                    req.userMessage(), requestId, scheduler::submit), stepExecutor);
+            log.info(plan.toString());
+            listener.onPlanReady(plan);
+        } catch (TimeoutException e) {
+            log.warn("Streaming planner exceeded deadline for request {}", requestId);
+            scheduler.close();
+            plannerTimedOut = true;
+        } catch (RuntimeException e) {
+            log.warn("Streaming planner failed for request {}", requestId);
+            scheduler.abort();
+            throw e;
+        }
+
+        List<ChatResponse.Step> steps = scheduler.join();
+        if (plannerTimedOut) {
+            steps.add(plannerTimeoutStep());
+        }
+        log.info(steps.toString());
+
+        ChatResponse response = new ChatResponse(requestId, steps, aggregateStatus(steps));
+        listener.onCompleted(response);
+        return response;
     }
 
     public void clearSession(String sessionId) {
         chatMemoryStore.deleteSession(sessionId);
         pendingChoiceStore.clear(sessionId);
         selectionMemoryStore.clear(sessionId);
+        speculativeChoiceExecutor.clear(sessionId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stepExecutor.shutdownNow();
     }
 
-    private List<ChatResponse.Step> buildSteps(String sessionId, PlannerOutput plan) {
-        List<ChatResponse.Step> steps = new ArrayList<>();
+    /**
+     * Führt die Steps des Plans aus, siehe {@link StepScheduler}.
+     */
+    private List<ChatResponse.Step> buildSteps(String sessionId, PlannerOutput plan, ChatEventListener listener,
+            RequestDeadline deadline) {
         if (plan.steps() == null) {
-            return steps;
+            return new ArrayList<>();
+        }
+        StepScheduler scheduler = new StepScheduler(sessionId, plan.requestId(), listener, deadline);
+        plan.steps().forEach(scheduler::submit);
+        return scheduler.join();
+    }
+
+    /**
+     * Plant Steps in Planner-Reihenfolge ein. Steps, die nicht auf die
+     * Session-Auswahl eines Vorgängers angewiesen sind (siehe
+     * {@link StepDependencies}), laufen parallel auf virtuellen Threads;
+     * abhängige Steps warten, bis alle bis dahin eingeplanten Steps
+     * veröffentlicht sind.
+     * <p>
+     * Die Wirkungen eines Steps (Tool-Resultate im Verlauf, Session-Auswahl,
+     * offene Auswahl) werden unabhängig von der Laufzeit in
+     * Planner-Reihenfolge veröffentlicht; so gewinnt die erste offene Auswahl
+     * und die Auswahl des letzten Steps bleibt stehen. Steps ohne offene Auswahl
+     * werden dem Listener gemeldet, sobald sie fertig sind, Steps mit offener
+     * Auswahl erst nach deren Speicherung.
+     * </p>
+     */
+    private final class StepScheduler {
+        private final String sessionId;
+        private final String requestId;
+        private final ChatEventListener listener;
+        private final RequestDeadline deadline;
+        private final List<CompletableFuture<StepOutcome>> futures = new ArrayList<>();
+        private CompletableFuture<Void> published = CompletableFuture.completedFuture(null);
+        private boolean closed;
+        private volatile boolean aborted;
+        private boolean choiceSeen;
+
+        StepScheduler(String sessionId, String requestId, ChatEventListener listener, RequestDeadline deadline) {
+            this.sessionId = sessionId;
+            this.requestId = requestId;
+            this.listener = listener;
+            this.deadline = deadline;
         }
 
-        for (PlannerOutput.Step step : plan.steps()) {
-            log.info("Executing step: " + step.intent());
-            PlannerOutput.Result aggResult = executeToolCalls(sessionId, plan.requestId(), step, 0, null);
-            log.info("aggResult: " + aggResult);
+        /**
+         * Nimmt keine weiteren Steps an (abgebrochener Planner-Stream).
+         */
+        synchronized void close() {
+            closed = true;
+        }
 
-            ActionPlan ap = actionPlanner.toActionPlan(step.intent(), aggResult);
-            var message = Optional.ofNullable(aggResult).map(PlannerOutput.Result::message).orElse(ap.message());
-            steps.add(new ChatResponse.Step(step.intent(), ap.status(), message, ap.mapActions(), ap.choices()));
-            if ("needs_user_choice".equals(ap.status()) && pendingChoiceStore.peek(sessionId).isEmpty()) {
-                int nextIndex = step.toolCalls() == null ? 0 : step.toolCalls().size();
-                pendingChoiceStore.save(sessionId,
-                        new PendingChoiceStore.PendingChoiceContext(plan.requestId(), step, nextIndex, aggResult.items()));
+        /**
+         * Nimmt keine weiteren Steps an und wartet auf die bereits eingeplanten,
+         * ohne deren Resultate oder offene Auswahlen zu übernehmen (gescheiterter
+         * Planner). So laufen nach dem Fehler keine Tool-Aufrufe mehr weiter.
+         */
+        void abort() {
+            List<CompletableFuture<StepOutcome>> submitted;
+            synchronized (this) {
+                closed = true;
+                aborted = true;
+                submitted = List.copyOf(futures);
             }
+            CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).handle((ignored, ex) -> null).join();
+        }
+
+        synchronized void submit(PlannerOutput.Step step) {
+            if (closed) {
+                return;
+            }
+            int index = futures.size();
+            boolean usesSelection = StepDependencies.usesSessionSelection(step);
+            CompletableFuture<Void> previous = published;
+            CompletableFuture<Void> start = usesSelection ? previous : CompletableFuture.completedFuture(null);
+            CompletableFuture<StepOutcome> executed = start.thenApplyAsync(ignored -> {
+                StepOutcome outcome = executeStep(sessionId, requestId, step, usesSelection, deadline);
+                if (outcome.pendingChoice() == null) {
+                    listener.onStep(requestId, index, outcome.step());
+                }
+                return outcome;
+            }, stepExecutor);
+            CompletableFuture<StepOutcome> done = previous.thenCombineAsync(executed, (ignored, outcome) -> {
+                publish(index, outcome);
+                return outcome;
+            }, stepExecutor);
+            futures.add(done);
+            published = done.handle((ignored, ex) -> null);
+        }
+
+        /**
+         * Veröffentlicht die Wirkungen eines Steps; läuft in Planner-Reihenfolge.
+         * Auswahl aus einem ToolCall mitten im Step ersetzt eine ältere offene
+         * Auswahl, eine Auswahl am Ende des Steps nur, wenn keine offen ist.
+         */
+        private void publish(int index, StepOutcome outcome) {
+            if (aborted) {
+                return;
+            }
+            publishEffects(sessionId, outcome.effects());
+            if (outcome.pendingChoice() == null) {
+                return;
+            }
+            if (!choiceSeen) {
+                choiceSeen = true;
+                if (outcome.replacesPending() || pendingChoiceStore.peek(sessionId).isEmpty()) {
+                    savePendingChoice(sessionId, outcome.pendingChoice());
+                }
+            }
+            listener.onStep(requestId, index, outcome.step());
+        }
+
+        List<ChatResponse.Step> join() {
+            List<CompletableFuture<StepOutcome>> submitted;
+            synchronized (this) {
+                submitted = List.copyOf(futures);
+            }
+            List<StepOutcome> outcomes = new ArrayList<>();
+            for (CompletableFuture<StepOutcome> future : submitted) {
+                try {
+                    outcomes.add(future.join());
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException re) {
+                        throw re;
+                    }
+                    throw e;
+                }
+            }
+            List<ChatResponse.Step> steps = new ArrayList<>();
+            for (StepOutcome outcome : outcomes) {
+                steps.add(outcome.step());
+            }
+            return steps;
+        }
+    }
+
+    /**
+     * Ergebnis eines Steps samt der offenen Auswahl, die er auslöst, und seinen
+     * noch nicht veröffentlichten Wirkungen. {@code replacesPending} ist gesetzt,
+     * wenn die Auswahl von einem ToolCall mitten im Step stammt und eine ältere
+     * offene Auswahl ersetzen darf.
+     */
+    private record StepOutcome(ChatResponse.Step step, PendingChoiceStore.PendingChoiceContext pendingChoice,
+            boolean replacesPending, StepEffects effects) {
+    }
+
+    /**
+     * Wirkungen der ToolCalls eines Steps auf die Session: Tool-Resultate für
+     * den Verlauf und die zuletzt gewählte Auswahl.
+     */
+    private static final class StepEffects {
+        private final List<Message> toolMessages = new ArrayList<>();
+        private Map<String, Object> selection;
+    }
+
+    private void publishEffects(String sessionId, StepEffects effects) {
+        if (!effects.toolMessages.isEmpty()) {
+            chatMemoryStore.appendMessages(sessionId, effects.toolMessages);
+        }
+        if (effects.selection != null) {
+            selectionMemoryStore.save(sessionId, effects.selection);
+        }
+    }
+
+    private StepOutcome executeStep(String sessionId, String requestId, PlannerOutput.Step step,
+            boolean useSessionSelection, RequestDeadline deadline) {
+        log.info("Executing step: " + step.intent());
+        AtomicReference<PendingChoiceStore.PendingChoiceContext> intermediateChoice = new AtomicReference<>();
+        StepEffects effects = new StepEffects();
+        PlannerOutput.Result aggResult = executeToolCalls(sessionId, requestId, step, 0, null, useSessionSelection,
+                null, deadline, intermediateChoice::set, effects);
+        log.info("aggResult: " + aggResult);
+        if (aggResult != null && TIMEOUT.equals(aggResult.status())) {
+            return new StepOutcome(new ChatResponse.Step(step.intent(), TIMEOUT, aggResult.message(), List.of(),
+                    List.of()), null, false, effects);
+        }
+
+        ActionPlan ap = actionPlanner.toActionPlan(step.intent(), aggResult);
+        var message = Optional.ofNullable(aggResult).map(PlannerOutput.Result::message).orElse(ap.message());
+        var result = new ChatResponse.Step(step.intent(), ap.status(), message, ap.mapActions(), ap.choices());
+        if (intermediateChoice.get() != null) {
+            return new StepOutcome(result, intermediateChoice.get(), true, effects);
+        }
+        if ("needs_user_choice".equals(ap.status())) {
+            int nextIndex = step.toolCalls() == null ? 0 : step.toolCalls().size();
+            return new StepOutcome(result,
+                    new PendingChoiceStore.PendingChoiceContext(requestId, step, nextIndex, aggResult.items()), false,
+                    effects);
+        }
+        return new StepOutcome(result, null, false, effects);
+    }
+
+    /**
+     * Speichert die offene Auswahl und berechnet den folgenden ToolCall für alle
+     * Kandidaten spekulativ vor.
+     */
+    private void savePendingChoice(String sessionId, PendingChoiceStore.PendingChoiceContext context) {
+        pendingChoiceStore.save(sessionId, context);
+        List<PlannerOutput.ToolCall> toolCalls = context.step().toolCalls();
+        if (toolCalls != null && context.nextToolCallIndex() < toolCalls.size()) {
+            speculateNextToolCall(sessionId, context.requestId(), toolCalls.get(context.nextToolCallIndex()),
+                    context.nextToolCallIndex(), context.choiceItems());
         }
-        return steps;
     }
 
-    private ChatResponse handleChoiceFollowUp(ChatRequest req) {
+    private ChatResponse handleChoiceFollowUp(ChatRequest req, RequestDeadline deadline) {
         var contextOpt = pendingChoiceStore.consume(req.sessionId());
         if (contextOpt.isEmpty()) {
             var step = new ChatResponse.Step(null, "error",
@@ -117,10 +428,22 @@ public class ChatOrchestrator {
         if (context.nextToolCallIndex() >= toolCallCount) {
             result = new PlannerOutput.Result("ok", List.of(selectedItem), "Auswahl übernommen.");
         } else {
+            PlannerOutput.Result speculative = speculativeChoiceExecutor
+                    .consume(req.sessionId(), context.requestId(), context.nextToolCallIndex(), req.choiceId(),
+                            deadline)
+                    .orElse(null);
+            StepEffects effects = new StepEffects();
             result = executeToolCalls(req.sessionId(), context.requestId(), context.step(),
-                    context.nextToolCallIndex(), selectedItem);
+                    context.nextToolCallIndex(), selectedItem, true, speculative, deadline,
+                    next -> savePendingChoice(req.sessionId(), next), effects);
+            publishEffects(req.sessionId(), effects);
         }
         selectionMemoryStore.save(req.sessionId(), selectedItem);
+        if (result != null && TIMEOUT.equals(result.status())) {
+            List<ChatResponse.Step> steps = List.of(new ChatResponse.Step(context.step().intent(), TIMEOUT,
+                    result.message(), List.of(), List.of()));
+            return new ChatResponse(context.requestId(), steps, aggregateStatus(steps));
+        }
         ActionPlan ap = actionPlanner.toActionPlan(context.step().intent(), result);
         var message = Optional.ofNullable(result).map(PlannerOutput.Result::message).orElse(ap.message());
         List<ChatResponse.Step> steps = List
@@ -133,9 +456,19 @@ public class ChatOrchestrator {
      * aus und liefert das aktuellste {@link PlannerOutput.Result}. Dabei bleibt der
      * vom Tool gesetzte Status (z. B. {@code success}, {@code needs_clarification})
      * erhalten, sodass der ActionPlanner konsistente Entscheidungen treffen kann.
+     * Ist {@code useSessionSelection} {@code false}, wird die gespeicherte
+     * Session-Auswahl nicht in die Argumente des ersten ToolCalls übernommen.
+     * Ein bereits (spekulativ) berechnetes Resultat für den ToolCall an
+     * {@code startIndex} wird nicht erneut ausgeführt. Überschreitet ein
+     * ToolCall die {@code deadline}, liefert die Methode ein Resultat mit Status
+     * {@code timeout}. Verlangt ein ToolCall vor dem letzten eine Auswahl, wird
+     * sie an {@code pendingChoice} übergeben und nicht selbst gespeichert;
+     * Tool-Resultate und Auswahl landen ebenso erst in {@code effects}.
      */
     private PlannerOutput.Result executeToolCalls(String sessionId, String requestId, PlannerOutput.Step step, int startIndex,
-            Map<String, Object> initialSelection) {
+            Map<String, Object> initialSelection, boolean useSessionSelection, PlannerOutput.Result precomputed,
+            RequestDeadline deadline, Consumer<PendingChoiceStore.PendingChoiceContext> pendingChoice,
+            StepEffects effects) {
         if (step == null) {
             return null;
         }
@@ -144,10 +477,10 @@ public class ChatOrchestrator {
             return current;
 
         // Sehr einfache Aggregation: wir nehmen das Result der letzten ToolCall-Ausführung.
-        // In echt: mergen/akkumulieren, Fehlerbehandlung, Tracing, Timeouts, …
+        // In echt: mergen/akkumulieren, Fehlerbehandlung, Tracing, …
         PlannerOutput.Result last = current;
         Map<String, Object> selection = initialSelection;
-        if (selection == null || selection.isEmpty()) {
+        if ((selection == null || selection.isEmpty()) && useSessionSelection) {
             selection = selectionMemoryStore.get(sessionId).orElse(null);
         }
         //System.out.println("initialSelection: " + initialSelection);
@@ -155,62 +488,100 @@ public class ChatOrchestrator {
         //System.out.println("toolCalls: " + toolCalls);
         for (int i = Math.max(0, startIndex); i < toolCalls.size(); i++) {
             PlannerOutput.ToolCall tc = toolCalls.get(i);
-            Map<String, Object> args = new HashMap<>();
-            if (tc.args() != null) {
-                args.putAll(tc.args());
-            }
-            if (selection != null && !selection.isEmpty()) {
-                Map<String, Object> payload = McpResponseItem.payload(selection);
-                Map<String, Object> selectionForArgs = new HashMap<>(payload);
-                Optional.ofNullable(McpResponseItem.itemType(selection)).ifPresent(type -> selectionForArgs.put("type", type));
-
-                args.put("selection", selectionForArgs);
-                String id = Optional.ofNullable(McpResponseItem.id(selection))
-                        .orElseGet(() -> Optional.ofNullable(payload.get("id")).map(String::valueOf).orElse(null));
-                if (id != null) {
-                    args.put("id", id);
-                }
-                Object egrid = Optional.ofNullable(payload.get("egrid")).orElse(id);
-                if (egrid != null) {
-                    args.put("egrid", egrid);
-                }
-                Object coord = payload.get("coord");
-                if (coord != null) {
-                    args.put("coord", coord);
-                    if (coord instanceof List<?> coords && coords.size() >= 2) {
-                        Object x = coords.get(0);
-                        Object y = coords.get(1);
-                        args.putIfAbsent("x", x);
-                        args.putIfAbsent("y", y);
-                    }
-                }
-                Object crs = payload.get("crs");
-                if (crs != null) {
-                    args.putIfAbsent("crs", crs);
+            Map<String, Object> args = buildArgs(tc, selection);
+
+            if (i == startIndex && precomputed != null) {
+                last = precomputed;
+            } else {
+                log.info("Executing tool call with args: " + args + " .... " + tc.capabilityId());
+                try {
+                    last = deadline.call(() -> mcpClient.execute(tc.capabilityId(), args), stepExecutor);
+                } catch (TimeoutException e) {
+                    log.warn("Tool call {} exceeded deadline", tc.capabilityId().id());
+                    return new PlannerOutput.Result(TIMEOUT, List.of(),
+                            "Zeitbudget überschritten bei %s.".formatted(tc.capabilityId().id()));
                 }
             }
-
-            log.info("Executing tool call with args: " + args + " .... " + tc.capabilityId());            
-            last = mcpClient.execute(tc.capabilityId(), args);
-            chatMemoryStore.appendMessage(sessionId,
+            effects.toolMessages.add(
                     new AssistantMessage("Tool %s result: %s".formatted(tc.capabilityId().id(), Json.write(last))));
 
             boolean hasNextToolCall = i < toolCalls.size() - 1;
             if (hasNextToolCall && last != null && last.items() != null && last.items().size() > 1) {
-                pendingChoiceStore.save(sessionId,
-                        new PendingChoiceStore.PendingChoiceContext(requestId, step, i + 1, last.items()));
+                pendingChoice.accept(new PendingChoiceStore.PendingChoiceContext(requestId, step, i + 1, last.items()));
                 String message = Optional.ofNullable(last.message()).orElse("Bitte wähle eine Option.");
                 return new PlannerOutput.Result("needs_user_choice", last.items(), message);
             }
 
             if (last != null && last.items() != null && !last.items().isEmpty()) {
                 selection = last.items().get(0);
-                selectionMemoryStore.save(sessionId, selection);
+                effects.selection = selection;
             }
         }
         return last;
     }
 
+    /**
+     * Baut die Argumente eines ToolCalls aus den Planner-Args und der aktuellen
+     * Auswahl (id, egrid, coord/x/y, crs und die Auswahl selbst).
+     */
+    private Map<String, Object> buildArgs(PlannerOutput.ToolCall tc, Map<String, Object> selection) {
+        Map<String, Object> args = new HashMap<>();
+        if (tc.args() != null) {
+            args.putAll(tc.args());
+        }
+        if (selection != null && !selection.isEmpty()) {
+            Map<String, Object> payload = McpResponseItem.payload(selection);
+            Map<String, Object> selectionForArgs = new HashMap<>(payload);
+            Optional.ofNullable(McpResponseItem.itemType(selection)).ifPresent(type -> selectionForArgs.put("type", type));
+
+            args.put("selection", selectionForArgs);
+            String id = Optional.ofNullable(McpResponseItem.id(selection))
+                    .orElseGet(() -> Optional.ofNullable(payload.get("id")).map(String::valueOf).orElse(null));
+            if (id != null) {
+                args.put("id", id);
+            }
+            Object egrid = Optional.ofNullable(payload.get("egrid")).orElse(id);
+            if (egrid != null) {
+                args.put("egrid", egrid);
+            }
+            Object coord = payload.get("coord");
+            if (coord != null) {
+                args.put("coord", coord);
+                if (coord instanceof List<?> coords && coords.size() >= 2) {
+                    Object x = coords.get(0);
+                    Object y = coords.get(1);
+                    args.putIfAbsent("x", x);
+                    args.putIfAbsent("y", y);
+                }
+            }
+            Object crs = payload.get("crs");
+            if (crs != null) {
+                args.putIfAbsent("crs", crs);
+            }
+        }
+        return args;
+    }
+
+    private void speculateNextToolCall(String sessionId, String requestId, PlannerOutput.ToolCall next, int index,
+            List<Map<String, Object>> candidates) {
+        Map<String, Map<String, Object>> argsByChoiceId = new LinkedHashMap<>();
+        for (Map<String, Object> candidate : candidates) {
+            String choiceId = Optional.ofNullable(McpResponseItem.id(candidate))
+                    .orElseGet(() -> String.valueOf(candidate.get("id")));
+            argsByChoiceId.putIfAbsent(choiceId, buildArgs(next, candidate));
+        }
+        speculativeChoiceExecutor.speculate(sessionId, requestId, index, next.capabilityId(), argsByChoiceId);
+    }
+
+    private RequestDeadline plannerDeadline(RequestDeadline deadline) {
+        return deadline.share(deadlineProperties.getPlannerShare());
+    }
+
+    private static ChatResponse.Step plannerTimeoutStep() {
+        return new ChatResponse.Step(null, TIMEOUT, "Der Planner hat nicht innerhalb des Zeitbudgets geantwortet.",
+                List.of(), List.of());
+    }
+
     private String aggregateStatus(List<ChatResponse.Step> steps) {
         if (steps == null || steps.isEmpty()) {
             return "ok";
@@ -218,6 +589,9 @@ public class ChatOrchestrator {
         if (steps.stream().anyMatch(s -> "error".equals(s.status()))) {
             return "error";
         }
+        if (steps.stream().anyMatch(s -> TIMEOUT.equals(s.status()))) {
+            return "partial";
+        }
         if (steps.stream().anyMatch(s -> "needs_clarification".equals(s.status()))) {
             return "needs_clarification";
         }
@@ -0,0 +1,85 @@
+package ch.so.agi.ask.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * Append-only-Log für die Nachrichten einer Session. Nachrichten liegen in
+ * Chunks fester Grösse, die nach dem Befüllen nie mehr verändert werden; die
+ * Länge wird über ein {@code volatile}-Feld publiziert. Ein {@link #snapshot()}
+ * ist deshalb eine unveränderliche Sicht ohne Kopie, und ein Append kostet
+ * amortisiert O(1) ohne das Umkopieren bestehender Nachrichten.
+ * <p>
+ * Schreibzugriffe müssen vom Aufrufer serialisiert werden; Lesen ist ohne
+ * Synchronisation möglich.
+ */
+final class ChunkedMessageLog {
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Wird nur vor dem volatile-Schreiben von size ersetzt; Leser lesen size zuerst.
+    private Message[][] chunks = new Message[4][];
+    private volatile int size;
+
+    ChunkedMessageLog() {
+    }
+
+    ChunkedMessageLog(List<Message> messages) {
+        for (Message message : messages) {
+            append(message);
+        }
+    }
+
+    void append(Message message) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Message[CHUNK_SIZE];
+        }
+        chunks[chunk][index & CHUNK_MASK] = message;
+        size = index + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<Message> snapshot() {
+        int length = size;
+        if (length == 0) {
+            return List.of();
+        }
+        return new Snapshot(chunks, length);
+    }
+
+    private static final class Snapshot extends AbstractList<Message> implements RandomAccess {
+        private final Message[][] chunks;
+        private final int size;
+
+        Snapshot(Message[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Minimaler In-Process-HNSW-Index (Hierarchical Navigable Small World) über
+ * L2-normalisierten Vektoren mit Kosinus-Ähnlichkeit. Knoten werden über
+ * fortlaufende Ids angesprochen; gelöschte Knoten bleiben als Grabstein im Graph
+ * (für die Navigation), erscheinen aber nicht mehr in Resultaten. Nicht
+ * thread-safe für Schreibzugriffe: Aufrufer synchronisieren {@link #add} und
+ * {@link #delete} gegenüber {@link #search}.
+ */
+final class HnswIndex {
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    private final List<float[]> vectors = new ArrayList<>();
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<int[]> linkCounts = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int m, int efConstruction, long seed) {
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1d / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    record Hit(int id, float similarity) {
+    }
+
+    private static final Comparator<Hit> BY_SIMILARITY = (a, b) -> Float.compare(a.similarity(), b.similarity());
+
+    /**
+     * Anfragevektor mit vorberechneten Nicht-Null-Indizes: n-Gramm-Vektoren sind
+     * dünn besetzt, das Skalarprodukt läuft daher nur über diese Indizes.
+     */
+    private record Query(float[] vector, int[] nonZero) {
+        static Query of(float[] vector) {
+            int count = 0;
+            for (float value : vector) {
+                if (value != 0f) {
+                    count++;
+                }
+            }
+            int[] nonZero = new int[count];
+            for (int i = 0, j = 0; i < vector.length; i++) {
+                if (vector[i] != 0f) {
+                    nonZero[j++] = i;
+                }
+            }
+            return new Query(vector, nonZero);
+        }
+
+        float similarity(float[] other) {
+            float sum = 0f;
+            for (int i : nonZero) {
+                sum += vector[i] * other[i];
+            }
+            return sum;
+        }
+    }
+
+    int size() {
+        return vectors.size();
+    }
+
+    int liveSize() {
+        return vectors.size() - deletedCount;
+    }
+
+    int deletedSize() {
+        return deletedCount;
+    }
+
+    float[] vector(int id) {
+        return vectors.get(id);
+    }
+
+    boolean isDeleted(int id) {
+        return deleted.get(id);
+    }
+
+    /**
+     * Fügt den Vektor ein und liefert seine Id.
+     */
+    int add(float[] vector) {
+        Query query = Query.of(vector);
+        int id = vectors.size();
+        int level = (int) Math.floor(-Math.log(1d - random.nextDouble()) * levelMultiplier);
+        int[][] nodeLinks = new int[level + 1][];
+        int[] counts = new int[level + 1];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        vectors.add(vector);
+        links.add(nodeLinks);
+        linkCounts.add(counts);
+
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return id;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Hit> candidates = searchLayer(query, current, efConstruction, l);
+            int maxLinks = l == 0 ? maxM0 : m;
+            List<Hit> selected = candidates.subList(0, Math.min(m, candidates.size()));
+            for (Hit neighbour : selected) {
+                connect(id, neighbour.id(), l, maxLinks);
+                connect(neighbour.id(), id, l, maxLinks);
+            }
+            if (!candidates.isEmpty()) {
+                current = candidates.get(0).id();
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+        return id;
+    }
+
+    void delete(int id) {
+        if (id >= 0 && id < vectors.size() && !deleted.get(id)) {
+            deleted.set(id);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Liefert die {@code k} ähnlichsten nicht gelöschten Knoten, absteigend nach
+     * Ähnlichkeit.
+     */
+    List<Hit> search(float[] vector, int k, int ef) {
+        if (entryPoint < 0 || liveSize() == 0) {
+            return List.of();
+        }
+        Query query = Query.of(vector);
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        List<Hit> hits = searchLayer(query, current, Math.max(ef, k), 0);
+        List<Hit> live = new ArrayList<>(k);
+        for (Hit hit : hits) {
+            if (!deleted.get(hit.id())) {
+                live.add(hit);
+                if (live.size() == k) {
+                    break;
+                }
+            }
+        }
+        return live;
+    }
+
+    private int greedyClosest(Query query, int start, int level) {
+        int current = start;
+        float best = query.similarity(vectors.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[][] nodeLinks = links.get(current);
+            if (level >= nodeLinks.length) {
+                break;
+            }
+            int[] neighbours = nodeLinks[level];
+            int count = linkCounts.get(current)[level];
+            for (int i = 0; i < count; i++) {
+                float similarity = query.similarity(vectors.get(neighbours[i]));
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Hit> searchLayer(Query query, int start, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(BY_SIMILARITY.reversed());
+        PriorityQueue<Hit> results = new PriorityQueue<>(BY_SIMILARITY);
+
+        Hit first = new Hit(start, query.similarity(vectors.get(start)));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Hit candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(candidate.id());
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[level];
+            int count = linkCounts.get(candidate.id())[level];
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float similarity = query.similarity(vectors.get(neighbour));
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Hit hit = new Hit(neighbour, similarity);
+                    candidates.add(hit);
+                    results.add(hit);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Hit> sorted = new ArrayList<>(results);
+        sorted.sort(BY_SIMILARITY.reversed());
+        return sorted;
+    }
+
+    private void connect(int from, int to, int level, int maxLinks) {
+        int[] neighbours = links.get(from)[level];
+        int[] counts = linkCounts.get(from);
+        neighbours[counts[level]++] = to;
+        if (counts[level] <= maxLinks) {
+            return;
+        }
+        // Überlauf: den am wenigsten ähnlichen Nachbarn verwerfen
+        float[] base = vectors.get(from);
+        int worst = 0;
+        float worstSimilarity = Float.MAX_VALUE;
+        for (int i = 0; i < counts[level]; i++) {
+            float similarity = NgramVectorizer.dot(base, vectors.get(neighbours[i]));
+            if (similarity < worstSimilarity) {
+                worstSimilarity = similarity;
+                worst = i;
+            }
+        }
+        neighbours[worst] = neighbours[--counts[level]];
+    }
+}
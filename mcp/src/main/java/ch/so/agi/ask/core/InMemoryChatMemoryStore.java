@@ -1,21 +1,59 @@
 package ch.so.agi.ask.core;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import ch.so.agi.ask.config.ChatMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Hält den Gesprächsverlauf pro Session im Speicher. Jede Session besitzt ein
+ * eigenes {@link ChunkedMessageLog}: Appends werden pro Session synchronisiert
+ * (kein globaler Lock, kein Umkopieren des Verlaufs), {@link #getMessages}
+ * liefert einen unveränderlichen Snapshot ohne Kopie. Der Verlauf wird über die
+ * {@link ChatMemoryPolicy} begrenzt; kompaktiert wird nur, wenn die pro Session
+ * mitgeführten Zähler eine Grenze überschreiten. Idle-TTL und globale
+ * Obergrenzen setzt der {@link SessionLifecycleManager} durch. Mit
+ * {@code ask.chat.memory.durable.enabled=true} ersetzt der
+ * {@link SegmentLogChatMemoryStore} diesen Store.
+ */
 @Component
-public class InMemoryChatMemoryStore implements ChatMemoryStore {
+@ConditionalOnProperty(prefix = "ask.chat.memory.durable", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class InMemoryChatMemoryStore implements ChatMemoryStore, SessionScopedStore {
+
+    private final Map<String, Session> memory = new ConcurrentHashMap<>();
+    private final ChatMemoryPolicy policy;
+    private final SessionLifecycleManager lifecycle;
+
+    public InMemoryChatMemoryStore() {
+        this(unboundedPolicy());
+    }
+
+    public InMemoryChatMemoryStore(ChatMemoryPolicy policy) {
+        this(policy, new SessionLifecycleManager());
+    }
 
-    private final Map<String, List<Message>> memory = new ConcurrentHashMap<>();
+    @Autowired
+    public InMemoryChatMemoryStore(ChatMemoryPolicy policy, SessionLifecycleManager lifecycle) {
+        this.policy = policy;
+        this.lifecycle = lifecycle;
+        lifecycle.register(this);
+    }
 
     @Override
     public List<Message> getMessages(String sessionId) {
-        return List.copyOf(memory.getOrDefault(sessionId, List.of()));
+        Session session = sessionId == null ? null : memory.get(sessionId);
+        if (session == null) {
+            return List.of();
+        }
+        lifecycle.touch(sessionId);
+        return session.log.snapshot();
     }
 
     @Override
@@ -28,11 +66,24 @@ public class InMemoryChatMemoryStore implements ChatMemoryStore {
         if (messages == null || messages.isEmpty()) {
             return;
         }
-        memory.compute(sessionId, (id, existing) -> {
-            List<Message> updated = new ArrayList<>(existing == null ? List.of() : existing);
-            updated.addAll(messages);
-            return updated;
-        });
+        long bytes;
+        while (true) {
+            Session session = memory.computeIfAbsent(sessionId, id -> new Session());
+            synchronized (session) {
+                // Session wurde zwischenzeitlich gelöscht: in einer neuen Session anfügen
+                if (memory.get(sessionId) != session) {
+                    continue;
+                }
+                session.append(messages);
+                if (policy.needsCompaction(session.log.size(), session.tokens, session.fullToolResults)) {
+                    session.reset(policy.compact(session.log.snapshot()));
+                }
+                bytes = session.bytes;
+                break;
+            }
+        }
+        // Ausserhalb des Session-Locks melden: der Manager kann dabei andere Sessions verdrängen.
+        lifecycle.recordUsage(sessionId, this, bytes);
     }
 
     @Override
@@ -41,5 +92,47 @@ public class InMemoryChatMemoryStore implements ChatMemoryStore {
             return;
         }
         memory.remove(sessionId);
+        lifecycle.release(sessionId, this);
+    }
+
+    @Override
+    public void evictSession(String sessionId) {
+        memory.remove(sessionId);
+    }
+
+    private static ChatMemoryPolicy unboundedPolicy() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.setEnabled(false);
+        return new ChatMemoryPolicy(properties, new SimpleMeterRegistry());
+    }
+
+    private static final class Session {
+        private volatile ChunkedMessageLog log = new ChunkedMessageLog();
+        private int tokens;
+        private int fullToolResults;
+        private long bytes;
+
+        void append(List<Message> messages) {
+            for (Message message : messages) {
+                log.append(message);
+                count(message);
+            }
+        }
+
+        void reset(List<Message> messages) {
+            tokens = 0;
+            fullToolResults = 0;
+            bytes = 0;
+            messages.forEach(this::count);
+            log = new ChunkedMessageLog(messages);
+        }
+
+        private void count(Message message) {
+            tokens += ChatMemoryPolicy.estimateTokens(message);
+            bytes += SessionLifecycleManager.estimateBytes(message);
+            if (ChatMemoryPolicy.isToolResult(message)) {
+                fullToolResults++;
+            }
+        }
     }
 }
@@ -4,19 +4,35 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
-public class InMemoryPendingChoiceStore implements PendingChoiceStore {
+public class InMemoryPendingChoiceStore implements PendingChoiceStore, SessionScopedStore {
 
     private final Map<String, PendingChoiceContext> pending = new ConcurrentHashMap<>();
+    private final SessionLifecycleManager lifecycle;
+
+    public InMemoryPendingChoiceStore() {
+        this(new SessionLifecycleManager());
+    }
+
+    @Autowired
+    public InMemoryPendingChoiceStore(SessionLifecycleManager lifecycle) {
+        this.lifecycle = lifecycle;
+        lifecycle.register(this);
+    }
 
     @Override
     public Optional<PendingChoiceContext> consume(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) {
             return Optional.empty();
         }
-        return Optional.ofNullable(pending.remove(sessionId));
+        PendingChoiceContext context = pending.remove(sessionId);
+        if (context != null) {
+            lifecycle.release(sessionId, this);
+        }
+        return Optional.ofNullable(context);
     }
 
     @Override
@@ -24,6 +40,7 @@ public class InMemoryPendingChoiceStore implements PendingChoiceStore {
         if (sessionId == null || sessionId.isBlank()) {
             return Optional.empty();
         }
+        lifecycle.touch(sessionId);
         return Optional.ofNullable(pending.get(sessionId));
     }
 
@@ -33,6 +50,7 @@ public class InMemoryPendingChoiceStore implements PendingChoiceStore {
             return;
         }
         pending.put(sessionId, context);
+        lifecycle.recordUsage(sessionId, this, SessionLifecycleManager.estimateBytes(context));
     }
 
     @Override
@@ -41,5 +59,11 @@ public class InMemoryPendingChoiceStore implements PendingChoiceStore {
             return;
         }
         pending.remove(sessionId);
+        lifecycle.release(sessionId, this);
+    }
+
+    @Override
+    public void evictSession(String sessionId) {
+        pending.remove(sessionId);
     }
 }
@@ -5,18 +5,31 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
-public class InMemorySelectionMemoryStore implements SelectionMemoryStore {
+public class InMemorySelectionMemoryStore implements SelectionMemoryStore, SessionScopedStore {
 
     private final Map<String, Map<String, Object>> selections = new ConcurrentHashMap<>();
+    private final SessionLifecycleManager lifecycle;
+
+    public InMemorySelectionMemoryStore() {
+        this(new SessionLifecycleManager());
+    }
+
+    @Autowired
+    public InMemorySelectionMemoryStore(SessionLifecycleManager lifecycle) {
+        this.lifecycle = lifecycle;
+        lifecycle.register(this);
+    }
 
     @Override
     public Optional<Map<String, Object>> get(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) {
             return Optional.empty();
         }
+        lifecycle.touch(sessionId);
         return Optional.ofNullable(selections.get(sessionId));
     }
 
@@ -25,7 +38,9 @@ public class InMemorySelectionMemoryStore implements SelectionMemoryStore {
         if (sessionId == null || sessionId.isBlank() || selection == null || selection.isEmpty()) {
             return;
         }
-        selections.put(sessionId, new HashMap<>(selection));
+        Map<String, Object> copy = new HashMap<>(selection);
+        selections.put(sessionId, copy);
+        lifecycle.recordUsage(sessionId, this, SessionLifecycleManager.estimateBytes(copy));
     }
 
     @Override
@@ -34,5 +49,11 @@ public class InMemorySelectionMemoryStore implements SelectionMemoryStore {
             return;
         }
         selections.remove(sessionId);
+        lifecycle.release(sessionId, this);
+    }
+
+    @Override
+    public void evictSession(String sessionId) {
+        selections.remove(sessionId);
     }
 }
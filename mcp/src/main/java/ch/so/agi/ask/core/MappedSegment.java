@@ -0,0 +1,154 @@
+package ch.so.agi.ask.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Eine Segmentdatei des {@link SegmentLogChatMemoryStore}: fest grosse Datei,
+ * die vollständig in den Speicher gemappt wird. Geschrieben und gelesen wird
+ * ausschliesslich über absolute Zugriffe auf den Mapping-Buffer, dadurch
+ * können beliebig viele Leser gleichzeitig zum (einzigen, extern
+ * synchronisierten) Schreiber zugreifen.
+ *
+ * <p>
+ * Die ersten {@value #HEADER_BYTES} Bytes sind der Datei-Header: Magic, Version
+ * und – bei Ausgaben der Kompaktierung – die höchste Segment-Id, die durch
+ * dieses Segment ersetzt wird. Danach folgen die Records lückenlos; ein
+ * Längenfeld von 0 markiert das Ende der Daten.
+ * </p>
+ */
+final class MappedSegment implements Closeable {
+    static final int MAGIC = 0x41534b4c; // "ASKL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int NO_REPLACEMENT = -1;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition = HEADER_BYTES;
+
+    private MappedSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Legt eine neue Segmentdatei mit der gegebenen Kapazität an. Mit
+     * {@code writeHeader=false} bleibt der Header leer, bis
+     * {@link #writeHeader(int)} aufgerufen wird (Ausgabe der Kompaktierung).
+     */
+    static MappedSegment create(Path path, int id, int capacity, boolean writeHeader) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedSegment segment = new MappedSegment(id, path, channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        if (writeHeader) {
+            segment.writeHeader(NO_REPLACEMENT);
+        }
+        return segment;
+    }
+
+    static MappedSegment open(Path path, int id) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Invalid segment size " + size + ": " + path);
+        }
+        return new MappedSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    int id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    void writePosition(int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    boolean hasValidHeader() {
+        return buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+    }
+
+    int replacesUpTo() {
+        return buffer.getInt(8);
+    }
+
+    void writeHeader(int replacesUpTo) {
+        buffer.putInt(8, replacesUpTo);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+    }
+
+    boolean fits(int recordBytes) {
+        // Platz für das abschliessende 0-Längenfeld freihalten
+        return writePosition + recordBytes + Integer.BYTES <= buffer.capacity();
+    }
+
+    /**
+     * Hängt einen vollständig kodierten Record an und liefert dessen Offset.
+     */
+    int append(byte[] record) {
+        int offset = writePosition;
+        buffer.put(offset, record);
+        writePosition += record.length;
+        return offset;
+    }
+
+    int readInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    void read(int offset, byte[] target, int length) {
+        buffer.get(offset, target, 0, length);
+    }
+
+    /**
+     * Überschreibt den Bereich ab {@code offset} mit Nullen, z. B. nach einem
+     * beim Absturz nur teilweise geschriebenen Record.
+     */
+    void zero(int offset, int length) {
+        int end = Math.min(buffer.capacity(), offset + length);
+        byte[] zeros = new byte[Math.min(8192, Math.max(0, end - offset))];
+        for (int position = offset; position < end; position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, end - position));
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Das Mapping bleibt bis zur Garbage Collection gültig; laufende Leser
+        // können deshalb gefahrlos fertig lesen.
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
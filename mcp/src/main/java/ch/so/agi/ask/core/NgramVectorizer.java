@@ -0,0 +1,67 @@
+package ch.so.agi.ask.core;
+
+import java.util.Locale;
+
+/**
+ * Lokale, netzwerkfreie Text-Embeddings für den semantischen Planner-Cache:
+ * Zeichen-Trigramme und Wörter werden per Feature-Hashing in einen Vektor fester
+ * Dimension abgebildet und L2-normalisiert. Das Skalarprodukt zweier Vektoren
+ * entspricht damit der Kosinus-Ähnlichkeit.
+ */
+final class NgramVectorizer {
+    private static final float WORD_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    NgramVectorizer(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive");
+        }
+        this.dimensions = dimensions;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    float[] vectorize(String text) {
+        float[] vector = new float[dimensions];
+        String normalized = " " + (text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim())
+                + " ";
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            add(vector, normalized.substring(i, i + 3).hashCode(), 1f);
+        }
+        for (String word : normalized.trim().split(" ")) {
+            if (!word.isEmpty()) {
+                add(vector, 31 * word.hashCode() + 17, WORD_WEIGHT);
+            }
+        }
+
+        double norm = 0d;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0d) {
+            float inverse = (float) (1d / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= inverse;
+            }
+        }
+        return vector;
+    }
+
+    static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        int h = hash * 0x9E3779B9;
+        h ^= h >>> 16;
+        int index = Math.floorMod(h, dimensions);
+        vector[index] += (h & 0x40000000) == 0 ? weight : -weight;
+    }
+}
@@ -0,0 +1,161 @@
+package ch.so.agi.ask.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.PlannerCacheProperties;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Begrenzter Exact-Match-Cache für {@link PlannerOutput}s. Der Schlüssel
+ * besteht aus der normalisierten Benutzereingabe, einem Hash des System-Prompts
+ * (inkl. Tool-Katalog) und einem Fingerprint des Gesprächsverlaufs: ohne
+ * Verlauf teilen sich alle Sessions dieselben Einträge, mit Verlauf trifft der
+ * Cache nur bei identischem Kontext. Einträge werden nach TTL bzw. LRU-Prinzip
+ * verdrängt; gelieferte Pläne erhalten eine neue {@code requestId}.
+ * <p>
+ * Metriken: {@code ask.planner.cache.requests} ({@code result=hit|miss}),
+ * {@code ask.planner.cache.evictions} ({@code cause=size|expired}) und
+ * {@code ask.planner.cache.size}.
+ */
+@Component
+public class PlannerCache {
+
+    static final String NO_HISTORY = "no-history";
+
+    private final PlannerCacheProperties properties;
+    private final Clock clock;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expirations;
+
+    public PlannerCache(PlannerCacheProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.hits = Counter.builder("ask.planner.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("ask.planner.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("ask.planner.cache.evictions").tag("cause", "size")
+                .register(meterRegistry);
+        this.expirations = Counter.builder("ask.planner.cache.evictions").tag("cause", "expired")
+                .register(meterRegistry);
+        meterRegistry.gauge("ask.planner.cache.size", this, PlannerCache::size);
+    }
+
+    /**
+     * Erzeugt den Cache-Schlüssel für eine Planner-Anfrage.
+     */
+    public Key key(String userMessage, String systemPrompt, List<Message> history) {
+        return new Key(normalize(userMessage), sha256(systemPrompt), contextFingerprint(history));
+    }
+
+    /**
+     * Wie {@link #key(String, String, List)}, verwendet aber den bereits
+     * berechneten Hash der System-Prompt-Fassung.
+     */
+    public Key key(String userMessage, PlannerSystemPrompt.Version systemPrompt, List<Message> history) {
+        return new Key(normalize(userMessage), systemPrompt.hash(), contextFingerprint(history));
+    }
+
+    private static String contextFingerprint(List<Message> history) {
+        return history == null || history.isEmpty() ? NO_HISTORY
+                : sha256(history.stream().map(m -> m.getMessageType() + ":" + m.getText()).toList().toString());
+    }
+
+    public Optional<PlannerOutput> get(Key key) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        PlannerOutput cached;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isBefore(clock.instant())) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            cached = entry == null ? null : entry.plan();
+        }
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new PlannerOutput(UUID.randomUUID().toString(), cached.steps()));
+    }
+
+    public void put(Key key, PlannerOutput plan) {
+        if (!properties.isEnabled() || plan == null || plan.steps() == null || plan.steps().isEmpty()) {
+            return;
+        }
+        Instant now = clock.instant();
+        synchronized (entries) {
+            entries.put(key, new Entry(plan, now.plusSeconds(properties.getTtlSeconds())));
+            evictExpired(now);
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > Math.max(0, properties.getMaxEntries()) && it.hasNext()) {
+                it.next();
+                it.remove();
+                sizeEvictions.increment();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evictExpired(Instant now) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().expiresAt().isBefore(now)) {
+                it.remove();
+                expirations.increment();
+            }
+        }
+    }
+
+    static String normalize(String userMessage) {
+        if (userMessage == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(userMessage, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        normalized = normalized.replaceAll("\\s+", " ").trim();
+        return normalized.replaceAll("[\\s.!?]+$", "");
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record Key(String userMessage, String systemPromptHash, String contextFingerprint) {
+    }
+
+    private record Entry(PlannerOutput plan, Instant expiresAt) {
+    }
+}
@@ -5,15 +5,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.*;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import ch.so.agi.ask.model.IntentType;
-import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.config.PlannerCacheProperties;
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.config.PlannerStreamingProperties;
+import ch.so.agi.ask.config.SemanticPlannerCacheProperties;
 import ch.so.agi.ask.model.PlannerOutput;
+import ch.so.agi.ask.mcp.RequestDeadline;
 import ch.so.agi.ask.mcp.ToolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
+import java.time.Clock;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Spring-AI-gestützter Planner, der Intent und ToolCalls (Capabilities) aus der
@@ -28,185 +37,168 @@ public class PlannerLlm {
     private final ChatClient chatClient;
     private final ChatMemoryStore chatMemoryStore;
 
-    private final ToolRegistry toolRegistry;
+    private final PlannerSystemPrompt systemPrompt;
+    private final RuleBasedPlanner ruleBasedPlanner;
+    private final PlannerCache plannerCache;
+    private final SemanticPlannerCache semanticPlannerCache;
+    private final PlannerStreamingProperties streamingProperties;
+    private final PlannerRouter router;
 
     public PlannerLlm(ChatClient chatClient, ChatMemoryStore chatMemoryStore, ToolRegistry toolRegistry) {
+        this(chatClient, chatMemoryStore, new PlannerSystemPrompt(toolRegistry, new SimpleMeterRegistry()),
+                disabledRuleBasedPlanner(), disabledPlannerCache(), disabledSemanticPlannerCache(),
+                new PlannerStreamingProperties(), PlannerRouter.disabled(toolRegistry));
+    }
+
+    @Autowired
+    public PlannerLlm(ChatClient chatClient, ChatMemoryStore chatMemoryStore, PlannerSystemPrompt systemPrompt,
+            RuleBasedPlanner ruleBasedPlanner, PlannerCache plannerCache, SemanticPlannerCache semanticPlannerCache,
+            PlannerStreamingProperties streamingProperties, PlannerRouter router) {
         this.chatClient = chatClient;
         this.chatMemoryStore = chatMemoryStore;
-        this.toolRegistry = toolRegistry;
+        this.systemPrompt = systemPrompt;
+        this.ruleBasedPlanner = ruleBasedPlanner;
+        this.plannerCache = plannerCache;
+        this.semanticPlannerCache = semanticPlannerCache;
+        this.streamingProperties = streamingProperties;
+        this.router = router;
+    }
+
+    public boolean isStreamingEnabled() {
+        return streamingProperties.isEnabled();
     }
 
     /**
      * Baut den Prompt aus System- und User-Message, ruft das Planner-LLM und
      * deserialisiert das JSON in das interne {@link PlannerOutput} (mit Steps,
-     * ToolCalls und initialem Result-Status {@code pending}).
+     * ToolCalls und initialem Result-Status {@code pending}). Eindeutige Eingaben
+     * werden vorab vom {@link RuleBasedPlanner} ohne LLM-Aufruf geplant, bereits
+     * bekannte Anfragen aus dem {@link PlannerCache} bzw. – für Umformulierungen –
+     * aus dem {@link SemanticPlannerCache} beantwortet. Welches Modell plant,
+     * entscheidet der {@link PlannerRouter}.
      */
     public PlannerOutput plan(String sessionId, String userMessage) {
+        return plan(sessionId, userMessage, prompt -> chatClient.prompt(prompt).call().content(), false);
+    }
+
+    /**
+     * Gestreamte Variante von {@link #plan(String, String)}: die Antwort des LLM
+     * wird über {@code ChatClient.stream()} gelesen und jeder Step an
+     * {@code onStep} übergeben, sobald sein JSON-Objekt im Stream geschlossen
+     * ist – während spätere Steps noch generiert werden. Steps, die sich nicht
+     * einzeln ohne Reparatur lesen lassen ({@link PlannerOutputRepair}), sowie Pläne aus Fast-Path und Caches werden nach
+     * Abschluss gemeldet. Weil Steps vor Ende der Generierung ausgeführt werden,
+     * gibt der Aufrufer die {@code requestId} vor.
+     */
+    public PlannerOutput planStreaming(String sessionId, String userMessage, String requestId,
+            Consumer<PlannerOutput.Step> onStep) {
+        AtomicInteger dispatched = new AtomicInteger();
+        PlannerOutput plan = plan(sessionId, userMessage, prompt -> streamContent(prompt, step -> {
+            dispatched.incrementAndGet();
+            onStep.accept(step);
+        }), true);
+        List<PlannerOutput.Step> steps = Optional.ofNullable(plan.steps()).orElse(List.of());
+        for (int i = dispatched.get(); i < steps.size(); i++) {
+            onStep.accept(steps.get(i));
+        }
+        return new PlannerOutput(requestId, plan.steps());
+    }
+
+    private PlannerOutput plan(String sessionId, String userMessage, Function<Prompt, String> llm,
+            boolean streaming) {
         String safeUserMessage = Optional.ofNullable(userMessage).orElse("");
-        List<Message> history = new ArrayList<>(chatMemoryStore.getMessages(sessionId));
         UserMessage latestUserMessage = new UserMessage(safeUserMessage);
 
+        Optional<PlannerOutput> fastPlan = ruleBasedPlanner.plan(safeUserMessage);
+        if (fastPlan.isPresent()) {
+            chatMemoryStore.appendMessages(sessionId,
+                    List.of(latestUserMessage, new AssistantMessage(Json.write(fastPlan.get()))));
+            return fastPlan.get();
+        }
+
+        List<Message> history = new ArrayList<>(chatMemoryStore.getMessages(sessionId));
+        PlannerSystemPrompt.Version prompt = systemPrompt.forRequest(safeUserMessage);
+        PlannerCache.Key cacheKey = plannerCache.key(safeUserMessage, prompt, history);
+        Optional<PlannerOutput> cachedPlan = plannerCache.get(cacheKey);
+        if (cachedPlan.isPresent()) {
+            log.info("Planner cache hit for: {}", cacheKey.userMessage());
+            chatMemoryStore.appendMessages(sessionId,
+                    List.of(latestUserMessage, new AssistantMessage(Json.write(cachedPlan.get()))));
+            return cachedPlan.get();
+        }
+        Optional<PlannerOutput> similarPlan = semanticPlannerCache.get(cacheKey, safeUserMessage);
+        if (similarPlan.isPresent()) {
+            chatMemoryStore.appendMessages(sessionId,
+                    List.of(latestUserMessage, new AssistantMessage(Json.write(similarPlan.get()))));
+            return similarPlan.get();
+        }
+
         List<Message> messages = new ArrayList<>();
-        messages.add(new SystemMessage(buildSystemPrompt()));
+        messages.add(new SystemMessage(prompt.text()));
         messages.addAll(history);
         messages.add(latestUserMessage);
 
-        var prompt = new Prompt(messages);
-        log.info(prompt.toString());
+        log.info("Calling planner LLM with system prompt {} and {} history messages", prompt.hash(), history.size());
+        log.debug("{}", messages);
         log.info("*******************************");
-        var content = chatClient.prompt(prompt).call().content(); // JSON string
+        // User-Message vorab ablegen: im Streaming-Modus schreiben früh gestartete Steps bereits Tool-Resultate
+        chatMemoryStore.appendMessage(sessionId, latestUserMessage);
+        systemPrompt.recordUse(prompt);
+        // Modellwahl, Eskalation und Hedging; liefert den bereits deserialisierten Plan
+        PlannerRouter.Answer answer = router.complete(safeUserMessage, new Prompt(messages), llm, streaming);
+        String content = answer.content(); // JSON string
         log.info(content);
         log.info("*******************************");
 
-        chatMemoryStore.appendMessages(sessionId, List.of(latestUserMessage, new AssistantMessage(content)));
+        // Nach Ablauf der Deadline hat der Client bereits eine Timeout-Antwort; der Plan gehört nicht in den Verlauf
+        if (RequestDeadline.current().map(RequestDeadline::isExpired).orElse(false)) {
+            log.info("Planner finished after deadline, not recording plan for session {}", sessionId);
+        } else {
+            chatMemoryStore.appendMessage(sessionId, new AssistantMessage(content));
+        }
 
-        // Deserialisieren in PlannerOutput (ObjectMapper empfohlen)
-        return Json.read(content, PlannerOutput.class);
+        PlannerOutput plan = answer.plan();
+        plannerCache.put(cacheKey, plan);
+        semanticPlannerCache.put(cacheKey, safeUserMessage, plan);
+        return plan;
     }
 
-    private String buildSystemPrompt() {
-        String capabilitySection = toolRegistry.listTools().values().stream()
-                .sorted(Comparator.comparing(td -> td.capability().id()))
-                .map(td -> {
-                    String params = td.params().isEmpty()
-                            ? "              Params: (keine Parameter dokumentiert)"
-                            : "              Params:\n" + td.params().stream()
-                                    .map(param -> {
-                                        String base = "                * %s%s (%s)".formatted(param.name(),
-                                                param.required() ? " (required)" : "",
-                                                Optional.ofNullable(param.type()).filter(s -> !s.isBlank())
-                                                        .orElse("unknown"));
-                                        String description = Optional.ofNullable(param.description())
-                                                .filter(s -> !s.isBlank())
-                                                .map(s -> " - " + s)
-                                                .orElse("");
-                                        String schema = Optional.ofNullable(param.schema())
-                                                .filter(s -> !s.isBlank())
-                                                .map(s -> "\n                  Schema: " + s)
-                                                .orElse("");
-                                        return base + description + schema;
-                                    })
-                                    .collect(Collectors.joining("\n"));
-
-                    return "            - \"%s\": %s\n%s".formatted(td.capability().id(),
-                            Optional.ofNullable(td.description()).orElse(""), params);
-                })
-                .collect(Collectors.joining("\n"));
-        if (capabilitySection.isBlank()) {
-            capabilitySection = "            - (keine Capabilities registriert)";
-        }
-
-        return """
-                Du bist ein "Planner" für eine interaktive Kartenanwendung. Dir stehen verschiedene
-                MCP-Funktionen zur Verfügung.
-
-                VERFÜGBARE CAPABILITIES (capabilityId: Beschreibung):
-                %s
-
-                AUFGABE:
-                - Du erhältst eine Benutzereingabe in natürlicher Sprache (z.B. Deutsch).
-                - Du bestimmst ein oder mehrere Intents (Absichten) wie z.B.:
-                  - "%s"   => Gehe zu einer Adresse und zeige sie auf der Karte.
-                  - "%s"   => Lade einen Kartenlayer (Themenkarte).
-                  - "%s"   => Suche nach einem Ort (Stadt, Berg, See, etc.).
-                  - "%s"   => Hole einen ÖREB-Auszug für ein Grundstück.
-                  - "%s"   => Prüfe die Machbarkeit einer Erdwärmesonde an einer Koordinate.
-                  - "%s"   => Erzeuge einen Grundbuchplan (PDF) für ein Grundstück (EGRID).
-                - Wenn der User mehrere Aktionen verlangt, erzeugst du mehrere Schritte (steps) und ordnest sie
-                  in der gewünschten Ausführungsreihenfolge an.
-                - Du planst MINIMALE Aufrufe gemäss den unter "VERFÜGBARE CAPABILITIES" gelisteten "Capabilities"
-                  (MCP-Funktionen).
-                - Ein Schritt (step) kann mehrere Aufrufe von "Capabilities" (MCP-Funktionen) enthalten.
-                - Falls aus der Benutzereingabe hervorgeht, dass es sich nur um einen Intent (eine Absicht)
-                  handelt, erzeuge auch zwingend nur einen einzelnen Step.
-
-                WICHTIG:
-                - Du rufst SELBST KEINE Capabilities aus, du erzeugst nur den Plan.
-                - Du erzeugst KEINE MapActions (setView, addLayer, etc.).
-                - Du gibst NUR ein JSON-Objekt zurück, kein Fliesstext.
-
-                AUSGABEFORMAT (JSON, KEIN MARKDOWN):
-
-                {
-                  "requestId": "string",            // z.B. UUID oder kurzer String
-                  "steps": [
-                    {
-                      "intent": "%s | %s | %s | %s | %s | %s | ...",
-                      "toolCalls": [
-                        {
-                          "capabilityId": "string", // z.B. "%s" oder "%s"
-                          "args": {
-                            // Beispiel für %s:
-                            // "q": "Langendorfstrasse 19b, Solothurn"
-                            // Beispiel für %s:
-                            // "query": "Gewässerschutzkarte"
-                          }
-                        }
-                      ],
-                      "result": {
-                        "status": "pending", // Der Aufrufer führt die ToolCalls aus und füllt das Ergebnis.
-                        "items": [],
-                        "message": "",
-                      }
-                    }
-                  ]
+    private String streamContent(Prompt prompt, Consumer<PlannerOutput.Step> onStep) {
+        StreamingPlanParser parser = new StreamingPlanParser();
+        AtomicBoolean dispatching = new AtomicBoolean(true);
+        chatClient.prompt(prompt).stream().content().doOnNext(chunk -> {
+            for (String stepJson : parser.feed(chunk)) {
+                if (!dispatching.get()) {
+                    continue;
+                }
+                Optional<PlannerOutput.Step> step = router.readStreamedStep(stepJson);
+                if (step.isEmpty()) {
+                    // Restliche Steps erst mit dem reparierten Plan melden, damit die Reihenfolge erhalten bleibt
+                    log.warn("Streamed planner step not usable as is, waiting for full plan");
+                    dispatching.set(false);
+                    continue;
                 }
+                onStep.accept(step.get());
+            }
+        }).blockLast();
+        return parser.content();
+    }
 
-                REGELN:
-                - Versuche in der Benutzereingabe Gemeindenamen und Ortschaftsnamen zu identifizieren. 
-                - Interpretiere eine Ortsangabe eher als Gemeinde als postalische Adresse.
-                - "steps" ist eine geordnete Liste. Jeder Eintrag beschreibt exakt einen Intent.
-                - "toolCalls" darf leer sein, wenn du alles aus dem Kontext beantworten kannst, aber standardmässig
-                  sollst du für Lokalisierungs-/Layer-/Fragen mindestens eine passende Capability vorschlagen.
-                - Typische Wörter wie "Karte", "Layer" oder "Ebene" kannst du in zusammengesetzten Wörtern für die Suche von 
-                  Layern ignorieren, z.B. "Gewässerschutzkarte" => "Gewässerschutz" oder "Ortsplanungsebene" => "Ortsplanung".
-                - Offensichtliche Orthografiefehler korrigierst du selbständig, z.B. "Strase" => "Strasse", "Gewässr" => "Gewässer".
-                - Wenn der User z.B. "Gehe zur Adresse Langendorfstrasse 19b in Solothurn" schreibt:
-                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "q": "<vollständige Adresse>" } } ] } ]
-                - Wenn der User z.B. "Lade mir die Gewässerschutzkarte" schreibt:
-                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "query": "Gewässerschutz" } } ] } ]
-                - Wenn der User "Gehe zur Adresse ... und lade die Gewässerschutzkarte" schreibt, erzeugst du zwei Schritte
-                  (erst goto_address, dann load_layer).
-                - Wenn der User "Ich will einen ÖREB-Auszug an der Koordinate 2607717, 1228737" schreibt, erzeugst du einen Schritt
-                  (oereb_extract) mit mehreren (zwei) tool calls:
-                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "x": "2607717", "y": "1228737" } },
-                    { "capabilityId": "%s", "args": { "egrid": "CH1234567891012" } }] } ]
-                - Wenn der User "mache mir einen Grundbuchplan für Grundstück 123 in Messen" schreibt, erzeuge einen Schritt
-                  (cadastral_plan) mit zwei ToolCalls:
-                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "number": "123", "municipality": "Messen" } },
-                    { "capabilityId": "%s", "args": { "geometry": { /* GeoJSON aus Auswahl */ } } } ] } ]
-
-                ANTWORT:
-                - Gib nur das JSON-Objekt entsprechend dem Schema zurück.
-                - Keine Kommentare, kein Markdown, kein zusätzlicher Text.
-                """.formatted(
-                capabilitySection,
-                IntentType.GOTO_ADDRESS.id(),
-                IntentType.LOAD_LAYER.id(),
-                IntentType.SEARCH_PLACE.id(),
-                IntentType.OEREB_EXTRACT.id(),
-                IntentType.GEOTHERMAL_PROBE_ASSESSMENT.id(),
-                IntentType.CADASTRAL_PLAN.id(),
-                IntentType.GOTO_ADDRESS.id(),
-                IntentType.LOAD_LAYER.id(),
-                IntentType.SEARCH_PLACE.id(),
-                IntentType.OEREB_EXTRACT.id(),
-                IntentType.GEOTHERMAL_PROBE_ASSESSMENT.id(),
-                IntentType.CADASTRAL_PLAN.id(),
-                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
-                McpToolCapability.LAYERS_SEARCH.id(),
-                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
-                McpToolCapability.LAYERS_SEARCH.id(),
-                IntentType.GOTO_ADDRESS.id(),
-                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
-                IntentType.LOAD_LAYER.id(),
-                McpToolCapability.LAYERS_SEARCH.id(),
-                IntentType.OEREB_EXTRACT.id(),
-                McpToolCapability.OEREB_EGRID_BY_XY.id(),
-                McpToolCapability.OEREB_EXTRACT_BY_ID.id(),
-                IntentType.CADASTRAL_PLAN.id(),
-                McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY.id(),
-                McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY.id());
+    private static RuleBasedPlanner disabledRuleBasedPlanner() {
+        PlannerFastPathProperties properties = new PlannerFastPathProperties();
+        properties.setEnabled(false);
+        return new RuleBasedPlanner(properties, new SimpleMeterRegistry());
     }
 
+    private static PlannerCache disabledPlannerCache() {
+        PlannerCacheProperties properties = new PlannerCacheProperties();
+        properties.setEnabled(false);
+        return new PlannerCache(properties, Clock.systemUTC(), new SimpleMeterRegistry());
+    }
+
+    private static SemanticPlannerCache disabledSemanticPlannerCache() {
+        SemanticPlannerCacheProperties properties = new SemanticPlannerCacheProperties();
+        properties.setEnabled(false);
+        return new SemanticPlannerCache(properties, new SimpleMeterRegistry());
+    }
 }
@@ -0,0 +1,468 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Liest die Antwort des Planner-LLM und repariert typische Formfehler lokal,
+ * statt den ganzen Request scheitern zu lassen:
+ * <ul>
+ * <li>Markdown-Fences und Text vor/nach dem JSON-Objekt werden entfernt,</li>
+ * <li>geparst wird tolerant (nachgestellte Kommas, Kommentare, einfache
+ * Anführungszeichen),</li>
+ * <li>unbekannte Intents und Capability-Ids werden auf den nächstgelegenen
+ * Enum-Wert abgebildet; ohne Intent wird er aus den ToolCalls abgeleitet,</li>
+ * <li>Schlüssel in {@code args} werden mit dem {@code McpToolArgSchema} der
+ * {@link ToolRegistry.ToolParamDescriptor}s abgeglichen und falls eindeutig
+ * umbenannt ({@code "q"} → {@code "query"}).</li>
+ * </ul>
+ * Nur wenn das nicht reicht, erzeugt {@link #fixUpPrompt(String, List)} einen
+ * kurzen Korrektur-Prompt für einen zweiten LLM-Aufruf.
+ * <p>
+ * Metriken: {@code ask.planner.repair} mit
+ * {@code outcome=clean|repaired|failed|reprompt}.
+ */
+@Component
+public class PlannerOutputRepair {
+    private static final Logger log = LoggerFactory.getLogger(PlannerOutputRepair.class);
+
+    private static final ObjectMapper LENIENT = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA, JsonReadFeature.ALLOW_JAVA_COMMENTS,
+                    JsonReadFeature.ALLOW_SINGLE_QUOTES, JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .build();
+
+    private static final Map<McpToolCapability, IntentType> INTENT_BY_CAPABILITY = new EnumMap<>(
+            Map.of(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, IntentType.GOTO_ADDRESS,
+                    McpToolCapability.GEOLOCATION_GEOCODE_MUNICIPALITY, IntentType.SEARCH_PLACE,
+                    McpToolCapability.GEOLOCATION_MUNICIPALITY_BY_XY, IntentType.SEARCH_PLACE,
+                    McpToolCapability.GEOLOCATION_REVERSE, IntentType.GOTO_ADDRESS,
+                    McpToolCapability.LAYERS_SEARCH, IntentType.LOAD_LAYER,
+                    McpToolCapability.OEREB_EGRID_BY_XY, IntentType.OEREB_EXTRACT,
+                    McpToolCapability.OEREB_EXTRACT_BY_ID, IntentType.OEREB_EXTRACT,
+                    McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY, IntentType.GEOTHERMAL_PROBE_ASSESSMENT,
+                    McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY, IntentType.CADASTRAL_PLAN));
+
+    private final ToolRegistry toolRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public PlannerOutputRepair(ToolRegistry toolRegistry) {
+        this(toolRegistry, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public PlannerOutputRepair(ToolRegistry toolRegistry, MeterRegistry meterRegistry) {
+        this.toolRegistry = toolRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Ergebnis der Reparatur: der Plan ({@code null}, wenn nicht reparierbar),
+     * die gefundenen Probleme und ob der Plan vom Original abweicht.
+     */
+    public record Outcome(PlannerOutput plan, List<String> issues, boolean repaired) {
+        public boolean valid() {
+            return plan != null;
+        }
+    }
+
+    /**
+     * Liest die Antwort des LLM und repariert sie, soweit das lokal möglich ist.
+     */
+    public Outcome read(String content) {
+        Outcome outcome = parse(content);
+        String result = !outcome.valid() ? "failed" : outcome.repaired() ? "repaired" : "clean";
+        if (!outcome.valid() || outcome.repaired()) {
+            log.info("Planner output {}: {}", result, outcome.issues());
+        }
+        Counter.builder("ask.planner.repair").tag("outcome", result)
+                .description("Planner-Antworten nach lokaler Validierung/Reparatur").register(meterRegistry)
+                .increment();
+        return outcome;
+    }
+
+    /**
+     * Prüft einen einzelnen gestreamten Step mit denselben Regeln wie
+     * {@link #read(String)}. Geliefert wird er nur, wenn er ohne Reparatur
+     * gültig ist; ein reparierter oder unbrauchbarer Step wird erst mit dem
+     * ganzen Plan gelesen.
+     */
+    public Optional<PlannerOutput.Step> readStep(String stepJson) {
+        JsonNode node;
+        try {
+            node = Json.readTree(stepJson);
+        } catch (RuntimeException e) {
+            log.info("Streamed planner step is not valid JSON: {}", e.getMessage());
+            return Optional.empty();
+        }
+        List<String> issues = new ArrayList<>();
+        StepRepair step = node.isObject() ? repairStep(node, issues) : new StepRepair(null, true);
+        if (step.step() == null || step.repaired()) {
+            log.info("Streamed planner step needs repair: {}", issues);
+            return Optional.empty();
+        }
+        return Optional.of(step.step());
+    }
+
+    /**
+     * Kurzer Korrektur-Prompt als letzter Ausweg, wenn {@link #read(String)}
+     * keinen Plan liefert. Enthält nur Schema, erlaubte Ids und die Fehler,
+     * nicht den ganzen System-Prompt.
+     */
+    public Prompt fixUpPrompt(String content, List<String> issues) {
+        Counter.builder("ask.planner.repair").tag("outcome", "reprompt")
+                .description("Planner-Antworten nach lokaler Validierung/Reparatur").register(meterRegistry)
+                .increment();
+        String system = """
+                Die folgende Antwort eines Planners ist kein gültiger Plan. Korrigiere sie und gib NUR das
+                JSON-Objekt zurück, ohne Markdown und ohne Kommentare.
+                Schema: {"requestId": "string", "steps": [{"intent": "...", "toolCalls": [{"capabilityId": "...", "args": {}}], "result": {"status": "pending", "items": [], "message": ""}}]}
+                Erlaubte intents: %s
+                Erlaubte capabilityIds: %s
+                Fehler:
+                %s
+                """.formatted(
+                Arrays.stream(IntentType.values()).map(IntentType::id).collect(Collectors.joining(", ")),
+                Arrays.stream(McpToolCapability.values()).map(McpToolCapability::id).collect(Collectors.joining(", ")),
+                issues.stream().map(issue -> "- " + issue).collect(Collectors.joining("\n")));
+        return new Prompt(List.of(new SystemMessage(system), new UserMessage(content == null ? "" : content)));
+    }
+
+    private Outcome parse(String content) {
+        List<String> issues = new ArrayList<>();
+        if (content == null || content.isBlank()) {
+            return new Outcome(null, List.of("empty response"), false);
+        }
+        boolean repaired = false;
+        JsonNode root;
+        try {
+            root = Json.readTree(content);
+        } catch (RuntimeException strict) {
+            String extracted = extractJson(content);
+            if (extracted == null) {
+                return new Outcome(null, List.of("no JSON object found"), false);
+            }
+            try {
+                root = LENIENT.readTree(extracted);
+            } catch (JsonProcessingException e) {
+                return new Outcome(null, List.of("invalid JSON: " + e.getOriginalMessage()), false);
+            }
+            issues.add(extracted.length() < content.strip().length() ? "stripped text around JSON"
+                    : "lenient JSON syntax");
+            repaired = true;
+        }
+
+        JsonNode stepsNode;
+        if (root.isArray()) {
+            stepsNode = root;
+            repaired = true;
+            issues.add("top-level steps array");
+        } else if (root.isObject() && root.has("steps")) {
+            stepsNode = root.get("steps");
+        } else if (root.isObject() && (root.has("intent") || root.has("toolCalls"))) {
+            stepsNode = LENIENT.createArrayNode().add(root);
+            repaired = true;
+            issues.add("single step without steps array");
+        } else {
+            return new Outcome(null, List.of("missing steps"), false);
+        }
+        if (!stepsNode.isArray()) {
+            return new Outcome(null, List.of("steps is not an array"), false);
+        }
+
+        List<PlannerOutput.Step> steps = new ArrayList<>();
+        boolean broken = false;
+        for (JsonNode stepNode : stepsNode) {
+            StepRepair step = repairStep(stepNode, issues);
+            repaired |= step.repaired();
+            broken |= step.step() == null;
+            if (step.step() != null) {
+                steps.add(step.step());
+            }
+        }
+        if (broken) {
+            return new Outcome(null, issues, repaired);
+        }
+        String requestId = root.isObject() && root.hasNonNull("requestId") ? root.get("requestId").asText()
+                : UUID.randomUUID().toString();
+        return new Outcome(new PlannerOutput(requestId, steps), issues, repaired);
+    }
+
+    private record StepRepair(PlannerOutput.Step step, boolean repaired) {
+    }
+
+    private StepRepair repairStep(JsonNode stepNode, List<String> issues) {
+        boolean repaired = false;
+        List<PlannerOutput.ToolCall> calls = new ArrayList<>();
+        JsonNode callsNode = stepNode.path("toolCalls");
+        if (!callsNode.isMissingNode() && !callsNode.isNull() && !callsNode.isArray()) {
+            callsNode = LENIENT.createArrayNode().add(callsNode);
+            repaired = true;
+        }
+        int index = 0;
+        for (JsonNode callNode : callsNode) {
+            String rawCapability = callNode.path("capabilityId").asText("");
+            McpToolCapability capability = nearest(rawCapability, McpToolCapability.values(),
+                    McpToolCapability::id);
+            if (capability == null) {
+                issues.add("unknown capabilityId '%s'".formatted(rawCapability));
+                return new StepRepair(null, true);
+            }
+            if (!capability.id().equals(rawCapability)) {
+                issues.add("capabilityId '%s' -> '%s'".formatted(rawCapability, capability.id()));
+                repaired = true;
+            }
+            JsonNode argsNode = callNode.path("args");
+            Map<String, Object> args = new LinkedHashMap<>();
+            if (argsNode.isObject()) {
+                args.putAll(LENIENT.convertValue(argsNode, LinkedHashMap.class));
+            } else if (!argsNode.isMissingNode() && !argsNode.isNull()) {
+                issues.add("args of '%s' is not an object".formatted(capability.id()));
+                repaired = true;
+            }
+            ArgsCheck check = checkArgs(capability, args, index == 0, issues);
+            if (check.args() == null) {
+                return new StepRepair(null, true);
+            }
+            repaired |= check.repaired();
+            calls.add(new PlannerOutput.ToolCall(capability, check.args()));
+            index++;
+        }
+
+        String rawIntent = stepNode.path("intent").asText("");
+        IntentType intent = nearest(rawIntent, IntentType.values(), IntentType::id);
+        if (intent == null && !calls.isEmpty()) {
+            intent = INTENT_BY_CAPABILITY.get(calls.get(calls.size() - 1).capabilityId());
+        }
+        if (intent == null) {
+            issues.add("unknown intent '%s'".formatted(rawIntent));
+            return new StepRepair(null, true);
+        }
+        if (!intent.id().equals(rawIntent)) {
+            issues.add("intent '%s' -> '%s'".formatted(rawIntent, intent.id()));
+            repaired = true;
+        }
+
+        JsonNode resultNode = stepNode.path("result");
+        PlannerOutput.Result result = new PlannerOutput.Result("pending", List.of(), "");
+        if (resultNode.isObject()) {
+            try {
+                result = LENIENT.convertValue(resultNode, PlannerOutput.Result.class);
+            } catch (IllegalArgumentException e) {
+                issues.add("invalid result: " + e.getMessage());
+                repaired = true;
+            }
+        }
+        if (result.status() == null || result.items() == null) {
+            result = new PlannerOutput.Result(result.status() == null ? "pending" : result.status(),
+                    result.items() == null ? List.of() : result.items(),
+                    result.message() == null ? "" : result.message());
+        }
+        return new StepRepair(new PlannerOutput.Step(intent, calls, result), repaired);
+    }
+
+    private record ArgsCheck(Map<String, Object> args, boolean repaired) {
+    }
+
+    /**
+     * Gleicht die Argumente mit dem Schema der Capability ab. Unbekannte
+     * Schlüssel werden auf einen eindeutig passenden Schema-Schlüssel
+     * umbenannt; ein erster ToolCall ohne Argumente trotz Pflichtparameter ist
+     * nicht reparierbar (Folgeaufrufe erhalten ihre Argumente aus dem
+     * vorherigen Schritt).
+     */
+    private ArgsCheck checkArgs(McpToolCapability capability, Map<String, Object> args, boolean first,
+            List<String> issues) {
+        ToolRegistry.ToolDescriptor descriptor = toolRegistry.listTools().get(capability);
+        if (descriptor == null || descriptor.params() == null) {
+            return new ArgsCheck(args, false);
+        }
+        Set<String> allowed = new LinkedHashSet<>();
+        boolean required = false;
+        for (ToolRegistry.ToolParamDescriptor param : descriptor.params()) {
+            allowed.addAll(schemaKeys(param.schema()));
+            required |= param.required();
+        }
+        if (first && required && args.isEmpty()) {
+            issues.add("missing args for '%s' (expected: %s)".formatted(capability.id(), allowed));
+            return new ArgsCheck(null, false);
+        }
+        if (allowed.isEmpty()) {
+            return new ArgsCheck(args, false);
+        }
+        boolean repaired = false;
+        Map<String, Object> checked = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> arg : args.entrySet()) {
+            String key = arg.getKey();
+            if (!allowed.contains(key)) {
+                String renamed = nearest(key, allowed.toArray(String[]::new), Function.identity());
+                if (renamed == null) {
+                    renamed = uniquePrefixMatch(key, allowed);
+                }
+                if (renamed != null && !args.containsKey(renamed)) {
+                    issues.add("arg '%s' of '%s' -> '%s'".formatted(key, capability.id(), renamed));
+                    key = renamed;
+                    repaired = true;
+                }
+            }
+            checked.put(key, arg.getValue());
+        }
+        return new ArgsCheck(checked, repaired);
+    }
+
+    /**
+     * Liest die obersten Schlüssel aus einem {@code McpToolArgSchema} wie
+     * {@code { 'x': 'number', 'selection': { 'id': 'string' } }}.
+     */
+    static List<String> schemaKeys(String schema) {
+        if (schema == null || schema.isBlank()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i < schema.length(); i++) {
+            char c = schema.charAt(i);
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            } else if (c == '\'' && depth == 1) {
+                int end = schema.indexOf('\'', i + 1);
+                if (end < 0) {
+                    break;
+                }
+                int next = end + 1;
+                while (next < schema.length() && Character.isWhitespace(schema.charAt(next))) {
+                    next++;
+                }
+                if (next < schema.length() && schema.charAt(next) == ':') {
+                    keys.add(schema.substring(i + 1, end));
+                }
+                i = end;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Schneidet Markdown-Fences und Text vor dem ersten bzw. nach dem letzten
+     * JSON-Klammerpaar ab.
+     */
+    static String extractJson(String content) {
+        String text = content.strip();
+        int fence = text.indexOf("```");
+        if (fence >= 0) {
+            int bodyStart = text.indexOf('\n', fence);
+            int fenceEnd = text.indexOf("```", fence + 3);
+            if (bodyStart >= 0 && fenceEnd > bodyStart) {
+                text = text.substring(bodyStart + 1, fenceEnd).strip();
+            }
+        }
+        int object = text.indexOf('{');
+        int array = text.indexOf('[');
+        int start = object < 0 ? array : array < 0 ? object : Math.min(object, array);
+        if (start < 0) {
+            return null;
+        }
+        char close = text.charAt(start) == '{' ? '}' : ']';
+        int end = text.lastIndexOf(close);
+        return end > start ? text.substring(start, end + 1) : null;
+    }
+
+    /**
+     * Nächstgelegener Wert nach Normalisierung (Kleinschreibung, ohne
+     * Trennzeichen) und Levenshtein-Distanz; {@code null}, wenn kein Wert
+     * eindeutig nahe genug liegt.
+     */
+    static <T> T nearest(String raw, T[] values, Function<T, String> id) {
+        String wanted = normalize(raw);
+        if (wanted.isEmpty()) {
+            return null;
+        }
+        T best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        boolean tie = false;
+        for (T value : values) {
+            String candidate = normalize(id.apply(value));
+            int distance = wanted.equals(candidate) ? 0 : levenshtein(wanted, candidate);
+            if (distance < bestDistance) {
+                best = value;
+                bestDistance = distance;
+                tie = false;
+            } else if (distance == bestDistance) {
+                tie = true;
+            }
+        }
+        int maxDistance = Math.max(1, (wanted.length() + 2) / 3);
+        return bestDistance <= maxDistance && !(tie && bestDistance > 0) ? best : null;
+    }
+
+    private static String uniquePrefixMatch(String key, Set<String> allowed) {
+        String wanted = normalize(key);
+        if (wanted.isEmpty()) {
+            return null;
+        }
+        List<String> matches = allowed.stream()
+                .filter(candidate -> {
+                    String normalized = normalize(candidate);
+                    return normalized.startsWith(wanted) || wanted.startsWith(normalized);
+                })
+                .toList();
+        return matches.size() == 1 ? matches.get(0) : null;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,342 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.config.PlannerRoutingProperties;
+import ch.so.agi.ask.config.PlannerRoutingProperties.Tier;
+import ch.so.agi.ask.mcp.RequestDeadline;
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Verteilt Planner-Aufrufe auf ein schnelles und ein starkes Modell
+ * ({@link PlannerRoutingProperties}). Kurze Eingaben mit höchstens einem
+ * erkannten Intent gehen zuerst an das schnelle Modell. Dessen Plan wird
+ * verworfen und das starke Modell gefragt, wenn
+ * <ul>
+ * <li>die Antwort auch nach der lokalen Reparatur ({@link PlannerOutputRepair})
+ * kein gültiges {@link PlannerOutput} ist ({@code parse}),</li>
+ * <li>der Plan mehrere Steps hat ({@code multi_intent}),</li>
+ * <li>ein Step einen Intent hat, der dem starken Modell zugeordnet ist
+ * ({@code strong_intent}), oder</li>
+ * <li>der Plan keine Steps bzw. Steps ohne ToolCalls enthält
+ * ({@code low_confidence}).</li>
+ * </ul>
+ * Mit Hedging wird das starke Modell zusätzlich gestartet, sobald das schnelle
+ * länger als sein p95 braucht; verwendet wird der erste akzeptierte Plan, der
+ * andere Aufruf wird abgebrochen. Nebenläufige Aufrufe laufen unter der
+ * {@link RequestDeadline} des Aufrufers.
+ * <p>
+ * Metriken: {@code ask.planner.llm.latency} (Histogramm mit p95) pro
+ * {@code tier}, {@code ask.planner.routing.escalations} pro {@code reason} und
+ * {@code ask.planner.routing.hedges}.
+ */
+@Component
+public class PlannerRouter {
+    private static final Logger log = LoggerFactory.getLogger(PlannerRouter.class);
+    private static final String DEFAULT_TIER = "default";
+
+    private final PlannerRoutingProperties properties;
+    private final RuleBasedPlanner ruleBasedPlanner;
+    private final PlannerOutputRepair repair;
+    private final MeterRegistry meterRegistry;
+    private final Map<Tier, Timer> latency = new EnumMap<>(Tier.class);
+    private final Timer defaultLatency;
+    private final Counter hedges;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PlannerRouter(PlannerRoutingProperties properties, RuleBasedPlanner ruleBasedPlanner,
+            PlannerOutputRepair repair, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ruleBasedPlanner = ruleBasedPlanner;
+        this.repair = repair;
+        this.meterRegistry = meterRegistry;
+        for (Tier tier : Tier.values()) {
+            latency.put(tier, latencyTimer(tier.name().toLowerCase(Locale.ROOT)));
+        }
+        this.defaultLatency = latencyTimer(DEFAULT_TIER);
+        this.hedges = Counter.builder("ask.planner.routing.hedges")
+                .description("Planner-Aufrufe, bei denen zusätzlich das starke Modell gestartet wurde")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Router ohne Routing: jeder Aufruf geht unverändert an das Standardmodell.
+     */
+    static PlannerRouter disabled(ToolRegistry toolRegistry) {
+        PlannerFastPathProperties fastPath = new PlannerFastPathProperties();
+        fastPath.setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new PlannerRouter(new PlannerRoutingProperties(), new RuleBasedPlanner(fastPath, meterRegistry),
+                new PlannerOutputRepair(toolRegistry, meterRegistry), meterRegistry);
+    }
+
+    /**
+     * Rohantwort des LLM und der daraus gelesene Plan.
+     */
+    public record Answer(String content, PlannerOutput plan, String tier) {
+    }
+
+    private record Attempt(Tier tier, String content, PlannerOutput plan, RuntimeException error) {
+    }
+
+    /**
+     * Wählt das Modell für die Eingabe vor dem ersten Aufruf.
+     */
+    Tier initialTier(String userMessage) {
+        if (userMessage.length() > properties.getMaxFastChars() || ruleBasedPlanner.hasMultipleIntents(userMessage)) {
+            return Tier.STRONG;
+        }
+        boolean strongKeyword = ruleBasedPlanner.keywordIntents(userMessage).stream()
+                .anyMatch(intent -> tierOf(intent) == Tier.STRONG);
+        return strongKeyword ? Tier.STRONG : Tier.FAST;
+    }
+
+    /**
+     * Liefert den Grund, weshalb ein Plan des schnellen Modells verworfen wird,
+     * oder {@code null}, wenn er akzeptiert werden kann.
+     */
+    String escalationReason(PlannerOutput plan) {
+        List<PlannerOutput.Step> steps = Optional.ofNullable(plan.steps()).orElse(List.of());
+        if (steps.size() > 1) {
+            return "multi_intent";
+        }
+        if (steps.isEmpty() || steps.stream().anyMatch(step -> step.toolCalls() == null || step.toolCalls().isEmpty())) {
+            return "low_confidence";
+        }
+        if (steps.stream().anyMatch(step -> step.intent() == null || tierOf(step.intent()) == Tier.STRONG)) {
+            return "strong_intent";
+        }
+        return null;
+    }
+
+    /**
+     * Ruft das LLM gemäss Routing auf und liefert den ersten akzeptierten Plan.
+     * Im Streaming-Modus werden Steps bereits während der Generierung
+     * ausgeführt; dann wird nur das Modell gewählt, ohne Eskalation und
+     * Hedging.
+     */
+    public Answer complete(String userMessage, Prompt prompt, Function<Prompt, String> llm, boolean streaming) {
+        if (!properties.isEnabled()) {
+            return answer(call(null, prompt, llm, !streaming));
+        }
+        Tier primary = initialTier(userMessage);
+        log.info("Planner routed to {} tier", primary);
+        if (streaming) {
+            return answer(call(primary, prompt, llm, false));
+        }
+
+        BlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        List<Future<?>> running = new ArrayList<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        try {
+            Attempt first;
+            // Gehedgt wird nur das schnelle Modell; ein zweiter Aufruf des starken Modells brächte nichts
+            if (properties.isHedgeEnabled() && primary == Tier.FAST) {
+                running.add(submit(primary, prompt, llm, done, settled));
+                first = poll(done, hedgeDelayMillis(primary));
+            } else {
+                first = call(primary, prompt, llm, true);
+            }
+            int pending;
+            if (first == null) {
+                hedges.increment();
+                log.info("Planner {} tier slower than {} ms, hedging with strong tier", primary,
+                        hedgeDelayMillis(primary));
+                running.add(submit(Tier.STRONG, prompt, llm, done, settled));
+                pending = 2;
+            } else if (accepted(first) || first.tier() == Tier.STRONG) {
+                return answer(first);
+            } else {
+                escalate(first);
+                running.add(submit(Tier.STRONG, prompt, llm, done, settled));
+                pending = 1;
+            }
+
+            Attempt fallback = first;
+            while (pending-- > 0) {
+                Attempt attempt = take(done);
+                if (accepted(attempt)) {
+                    return answer(attempt);
+                }
+                if (fallback == null || fallback.plan() == null) {
+                    fallback = attempt;
+                }
+            }
+            return answer(fallback);
+        } finally {
+            // Der unterlegene Aufruf wird nicht mehr gebraucht
+            settled.set(true);
+            running.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Liest einen gestreamten Step; siehe {@link PlannerOutputRepair#readStep(String)}.
+     */
+    public Optional<PlannerOutput.Step> readStreamedStep(String stepJson) {
+        return repair.readStep(stepJson);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean accepted(Attempt attempt) {
+        return attempt.plan() != null && (attempt.tier() == Tier.STRONG || escalationReason(attempt.plan()) == null);
+    }
+
+    private void escalate(Attempt attempt) {
+        String reason = attempt.plan() == null ? "parse" : escalationReason(attempt.plan());
+        log.info("Escalating planner from fast to strong tier: {}", reason);
+        Counter.builder("ask.planner.routing.escalations").tag("reason", reason)
+                .description("Pläne des schnellen Modells, die das starke Modell neu geplant hat")
+                .register(meterRegistry).increment();
+    }
+
+    /**
+     * Startet einen Aufruf nebenläufig unter der Deadline des aufrufenden
+     * Threads; sie ist nur dort über {@link RequestDeadline#current()} sichtbar.
+     */
+    private Future<?> submit(Tier tier, Prompt prompt, Function<Prompt, String> llm, BlockingQueue<Attempt> done,
+            AtomicBoolean settled) {
+        RequestDeadline deadline = RequestDeadline.current().orElse(RequestDeadline.none());
+        return executor.submit(() -> {
+            Attempt attempt;
+            try {
+                attempt = deadline.call(() -> call(tier, prompt, llm, true, settled), executor);
+            } catch (TimeoutException e) {
+                attempt = new Attempt(tier, null, null, new IllegalStateException("Planner deadline exceeded", e));
+            }
+            done.add(attempt);
+        });
+    }
+
+    private Attempt call(Tier tier, Prompt prompt, Function<Prompt, String> llm, boolean allowFixUp) {
+        return call(tier, prompt, llm, allowFixUp, new AtomicBoolean());
+    }
+
+    /**
+     * Ein Aufruf auf einem Tier. Die Antwort wird vom {@link PlannerOutputRepair}
+     * gelesen; bleibt sie unbrauchbar, folgt – ausser auf dem schnellen Tier,
+     * das stattdessen eskaliert – ein kurzer Korrektur-Prompt an dasselbe
+     * Modell. Ist {@code settled} bereits gesetzt, wurde der Aufruf abgebrochen
+     * und seine Laufzeit fliesst nicht in das p95 für das Hedging ein.
+     */
+    private Attempt call(Tier tier, Prompt prompt, Function<Prompt, String> llm, boolean allowFixUp,
+            AtomicBoolean settled) {
+        Timer timer = tier == null ? defaultLatency : latency.get(tier);
+        long start = System.nanoTime();
+        String content = null;
+        try {
+            content = llm.apply(withModel(prompt, tier));
+            PlannerOutputRepair.Outcome outcome = repair.read(content);
+            if (!outcome.valid() && allowFixUp && tier != Tier.FAST) {
+                content = llm.apply(withModel(repair.fixUpPrompt(content, outcome.issues()), tier));
+                outcome = repair.read(content);
+            }
+            if (!outcome.valid()) {
+                throw new IllegalStateException("Planner JSON parse failed: " + outcome.issues());
+            }
+            return new Attempt(tier, outcome.repaired() ? Json.write(outcome.plan()) : content, outcome.plan(),
+                    null);
+        } catch (RuntimeException e) {
+            log.warn("Planner {} tier failed: {}", tier == null ? DEFAULT_TIER : tier, e.getMessage());
+            return new Attempt(tier, content, null, e);
+        } finally {
+            if (!settled.get()) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Prompt withModel(Prompt prompt, Tier tier) {
+        String model = tier == Tier.FAST ? properties.getFastModel()
+                : tier == Tier.STRONG ? properties.getStrongModel() : null;
+        if (model == null || model.isBlank()) {
+            return prompt;
+        }
+        return new Prompt(prompt.getInstructions(), ChatOptions.builder().model(model).build());
+    }
+
+    private long hedgeDelayMillis(Tier tier) {
+        Timer timer = latency.get(tier);
+        if (timer.count() < properties.getHedgeMinSamples()) {
+            return properties.getHedgeDefaultDelayMillis();
+        }
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return Math.max(properties.getHedgeMinDelayMillis(),
+                        (long) percentile.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return properties.getHedgeDefaultDelayMillis();
+    }
+
+    private Tier tierOf(IntentType intent) {
+        return properties.getIntents().getOrDefault(intent, Tier.STRONG);
+    }
+
+    private Answer answer(Attempt attempt) {
+        if (attempt.plan() == null) {
+            throw attempt.error();
+        }
+        return new Answer(attempt.content(), attempt.plan(),
+                attempt.tier() == null ? DEFAULT_TIER : attempt.tier().name().toLowerCase(Locale.ROOT));
+    }
+
+    private Timer latencyTimer(String tier) {
+        return Timer.builder("ask.planner.llm.latency").tag("tier", tier)
+                .description("Antwortzeit des Planner-LLM pro Modell-Tier")
+                .publishPercentiles(0.95)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Attempt poll(BlockingQueue<Attempt> done, long timeoutMillis) {
+        try {
+            return done.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for planner", e);
+        }
+    }
+
+    private static Attempt take(BlockingQueue<Attempt> done) {
+        try {
+            return done.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for planner", e);
+        }
+    }
+}
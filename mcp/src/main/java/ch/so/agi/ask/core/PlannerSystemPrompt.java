@@ -0,0 +1,335 @@
+package ch.so.agi.ask.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.ToolSelectionProperties;
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * System-Prompt des {@link PlannerLlm}. Der Text wird einmal aus dem
+ * Tool-Katalog erzeugt und nur neu gebaut, wenn sich die
+ * {@link ToolRegistry#version() Version} der Registry ändert. Capabilities
+ * werden nach Id sortiert, damit der Text byte-stabil bleibt und das
+ * Prompt-Prefix-Caching des LLM-Providers greift.
+ *
+ * <p>
+ * Jede Fassung trägt einen Hash über ihren Inhalt ({@link Version#hash()}),
+ * der in Logs, im {@link PlannerCache}-Schlüssel und als Tag der Metriken
+ * {@code ask.planner.system-prompt.chars} und
+ * {@code ask.planner.system-prompt.requests} erscheint.
+ * </p>
+ *
+ * <p>
+ * Mit {@code ask.planner.tool-selection.enabled=true} liefert
+ * {@link #forRequest(String)} pro Anfrage eine Fassung mit den relevanten
+ * Capabilities statt des ganzen Katalogs (siehe {@link ToolCatalogIndex}).
+ * </p>
+ */
+@Component
+public class PlannerSystemPrompt {
+    private static final Logger log = LoggerFactory.getLogger(PlannerSystemPrompt.class);
+    private static final int HASH_LENGTH = 12;
+
+    private final ToolRegistry toolRegistry;
+    private final ToolSelectionProperties selection;
+    private final MeterRegistry meterRegistry;
+    // Starke Referenzen auf die Gauge-Werte; die Fassung im Einsatz hat die Länge, ältere 0.
+    private final Map<String, AtomicInteger> promptChars = new ConcurrentHashMap<>();
+    private final DistributionSummary selectedCapabilities;
+    private volatile Catalog catalog;
+
+    public PlannerSystemPrompt(ToolRegistry toolRegistry, MeterRegistry meterRegistry) {
+        this(toolRegistry, new ToolSelectionProperties(), meterRegistry);
+    }
+
+    @Autowired
+    public PlannerSystemPrompt(ToolRegistry toolRegistry, ToolSelectionProperties selection,
+            MeterRegistry meterRegistry) {
+        this.toolRegistry = toolRegistry;
+        this.selection = selection;
+        this.meterRegistry = meterRegistry;
+        this.selectedCapabilities = DistributionSummary.builder("ask.planner.tool-selection.capabilities")
+                .register(meterRegistry);
+        this.catalog = build(toolRegistry.version());
+    }
+
+    /**
+     * Eine Fassung des System-Prompts: Text, Inhalts-Hash und die Version der
+     * Registry, aus der sie erzeugt wurde.
+     */
+    public record Version(String text, String hash, long registryVersion) {
+    }
+
+    /**
+     * Vollständige Fassung, Index und die bereits erzeugten Teil-Fassungen zu
+     * einer Registry-Version.
+     */
+    private record Catalog(Version full, Map<McpToolCapability, ToolRegistry.ToolDescriptor> tools,
+            ToolCatalogIndex index, Map<Set<McpToolCapability>, Version> subsets) {
+    }
+
+    /**
+     * Liefert die aktuelle Fassung; gebaut wird nur nach einer Änderung der
+     * Registry.
+     */
+    public Version current() {
+        return catalog().full();
+    }
+
+    /**
+     * Liefert die Fassung für eine Benutzereingabe. Bei aktivierter Tool-Auswahl
+     * enthält sie nur die Capabilities, die der {@link ToolCatalogIndex} für die
+     * Eingabe als relevant einstuft; ohne genügend sicheren Treffer die
+     * vollständige Fassung. Teil-Fassungen werden pro Capability-Menge einmal
+     * gebaut und bleiben wie die vollständige byte-stabil.
+     */
+    public Version forRequest(String userMessage) {
+        Catalog state = catalog();
+        if (!selection.isEnabled()) {
+            return state.full();
+        }
+        ToolCatalogIndex.Selection selected = state.index().select(userMessage, selection.getTopK(),
+                selection.getMinScore(), selection.getRelativeScore());
+        if (selected.fallback() || selected.capabilities().size() >= state.tools().size()) {
+            countSelection("fallback");
+            selectedCapabilities.record(state.tools().size());
+            return state.full();
+        }
+        countSelection("selected");
+        selectedCapabilities.record(selected.capabilities().size());
+        return state.subsets().computeIfAbsent(selected.capabilities(), capabilities -> {
+            String text = render(capabilities.stream().map(state.tools()::get).toList());
+            Version version = new Version(text, hash(text), state.full().registryVersion());
+            log.debug("Planner system prompt {} built for {}: {} chars", version.hash(), capabilities, text.length());
+            return version;
+        });
+    }
+
+    /**
+     * Zählt einen LLM-Aufruf mit der gegebenen Fassung.
+     */
+    public void recordUse(Version version) {
+        Counter.builder("ask.planner.system-prompt.requests").tag("hash", version.hash()).register(meterRegistry)
+                .increment();
+    }
+
+    private Catalog catalog() {
+        Catalog state = catalog;
+        long registryVersion = toolRegistry.version();
+        if (state.full().registryVersion() == registryVersion) {
+            return state;
+        }
+        synchronized (this) {
+            if (catalog.full().registryVersion() != registryVersion) {
+                catalog = build(registryVersion);
+            }
+            return catalog;
+        }
+    }
+
+    private void countSelection(String result) {
+        Counter.builder("ask.planner.tool-selection.requests").tag("result", result).register(meterRegistry)
+                .increment();
+    }
+
+    private Catalog build(long registryVersion) {
+        Map<McpToolCapability, ToolRegistry.ToolDescriptor> tools = new EnumMap<>(McpToolCapability.class);
+        tools.putAll(toolRegistry.listTools());
+        String text = render(tools.values());
+        String hash = hash(text);
+        ToolCatalogIndex index = new ToolCatalogIndex(tools.values());
+        Version previous = catalog == null ? null : catalog.full();
+        if (previous != null && previous.hash().equals(hash)) {
+            // Registry neu geladen, Inhalt unverändert: gleiche Fassung behalten
+            return new Catalog(new Version(previous.text(), hash, registryVersion), tools, index,
+                    new ConcurrentHashMap<>());
+        }
+        if (previous != null) {
+            promptChars.get(previous.hash()).set(0);
+        }
+        AtomicInteger chars = promptChars.computeIfAbsent(hash, h -> meterRegistry.gauge(
+                "ask.planner.system-prompt.chars", List.of(Tag.of("hash", h)), new AtomicInteger(), AtomicInteger::get));
+        chars.set(text.length());
+        log.info("Planner system prompt {} built: {} chars, {} capabilities (registry version {})", hash,
+                text.length(), tools.size(), registryVersion);
+        return new Catalog(new Version(text, hash, registryVersion), tools, index, new ConcurrentHashMap<>());
+    }
+
+    static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String render(Collection<ToolRegistry.ToolDescriptor> tools) {
+        String capabilitySection = tools.stream()
+                .sorted(Comparator.comparing(td -> td.capability().id()))
+                .map(td -> {
+                    String params = td.params().isEmpty()
+                            ? "              Params: (keine Parameter dokumentiert)"
+                            : "              Params:\n" + td.params().stream()
+                                    .map(param -> {
+                                        String base = "                * %s%s (%s)".formatted(param.name(),
+                                                param.required() ? " (required)" : "",
+                                                Optional.ofNullable(param.type()).filter(s -> !s.isBlank())
+                                                        .orElse("unknown"));
+                                        String description = Optional.ofNullable(param.description())
+                                                .filter(s -> !s.isBlank())
+                                                .map(s -> " - " + s)
+                                                .orElse("");
+                                        String schema = Optional.ofNullable(param.schema())
+                                                .filter(s -> !s.isBlank())
+                                                .map(s -> "\n                  Schema: " + s)
+                                                .orElse("");
+                                        return base + description + schema;
+                                    })
+                                    .collect(Collectors.joining("\n"));
+
+                    return "            - \"%s\": %s\n%s".formatted(td.capability().id(),
+                            Optional.ofNullable(td.description()).orElse(""), params);
+                })
+                .collect(Collectors.joining("\n"));
+        if (capabilitySection.isBlank()) {
+            capabilitySection = "            - (keine Capabilities registriert)";
+        }
+
+        return """
+                Du bist ein "Planner" für eine interaktive Kartenanwendung. Dir stehen verschiedene
+                MCP-Funktionen zur Verfügung.
+
+                VERFÜGBARE CAPABILITIES (capabilityId: Beschreibung):
+                %s
+
+                AUFGABE:
+                - Du erhältst eine Benutzereingabe in natürlicher Sprache (z.B. Deutsch).
+                - Du bestimmst ein oder mehrere Intents (Absichten) wie z.B.:
+                  - "%s"   => Gehe zu einer Adresse und zeige sie auf der Karte.
+                  - "%s"   => Lade einen Kartenlayer (Themenkarte).
+                  - "%s"   => Suche nach einem Ort (Stadt, Berg, See, etc.).
+                  - "%s"   => Hole einen ÖREB-Auszug für ein Grundstück.
+                  - "%s"   => Prüfe die Machbarkeit einer Erdwärmesonde an einer Koordinate.
+                  - "%s"   => Erzeuge einen Grundbuchplan (PDF) für ein Grundstück (EGRID).
+                - Wenn der User mehrere Aktionen verlangt, erzeugst du mehrere Schritte (steps) und ordnest sie
+                  in der gewünschten Ausführungsreihenfolge an.
+                - Du planst MINIMALE Aufrufe gemäss den unter "VERFÜGBARE CAPABILITIES" gelisteten "Capabilities"
+                  (MCP-Funktionen).
+                - Ein Schritt (step) kann mehrere Aufrufe von "Capabilities" (MCP-Funktionen) enthalten.
+                - Falls aus der Benutzereingabe hervorgeht, dass es sich nur um einen Intent (eine Absicht)
+                  handelt, erzeuge auch zwingend nur einen einzelnen Step.
+
+                WICHTIG:
+                - Du rufst SELBST KEINE Capabilities aus, du erzeugst nur den Plan.
+                - Du erzeugst KEINE MapActions (setView, addLayer, etc.).
+                - Du gibst NUR ein JSON-Objekt zurück, kein Fliesstext.
+
+                AUSGABEFORMAT (JSON, KEIN MARKDOWN):
+
+                {
+                  "requestId": "string",            // z.B. UUID oder kurzer String
+                  "steps": [
+                    {
+                      "intent": "%s | %s | %s | %s | %s | %s | ...",
+                      "toolCalls": [
+                        {
+                          "capabilityId": "string", // z.B. "%s" oder "%s"
+                          "args": {
+                            // Beispiel für %s:
+                            // "q": "Langendorfstrasse 19b, Solothurn"
+                            // Beispiel für %s:
+                            // "query": "Gewässerschutzkarte"
+                          }
+                        }
+                      ],
+                      "result": {
+                        "status": "pending", // Der Aufrufer führt die ToolCalls aus und füllt das Ergebnis.
+                        "items": [],
+                        "message": "",
+                      }
+                    }
+                  ]
+                }
+
+                REGELN:
+                - Versuche in der Benutzereingabe Gemeindenamen und Ortschaftsnamen zu identifizieren. 
+                - Interpretiere eine Ortsangabe eher als Gemeinde als postalische Adresse.
+                - "steps" ist eine geordnete Liste. Jeder Eintrag beschreibt exakt einen Intent.
+                - "toolCalls" darf leer sein, wenn du alles aus dem Kontext beantworten kannst, aber standardmässig
+                  sollst du für Lokalisierungs-/Layer-/Fragen mindestens eine passende Capability vorschlagen.
+                - Typische Wörter wie "Karte", "Layer" oder "Ebene" kannst du in zusammengesetzten Wörtern für die Suche von 
+                  Layern ignorieren, z.B. "Gewässerschutzkarte" => "Gewässerschutz" oder "Ortsplanungsebene" => "Ortsplanung".
+                - Offensichtliche Orthografiefehler korrigierst du selbständig, z.B. "Strase" => "Strasse", "Gewässr" => "Gewässer".
+                - Wenn der User z.B. "Gehe zur Adresse Langendorfstrasse 19b in Solothurn" schreibt:
+                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "q": "<vollständige Adresse>" } } ] } ]
+                - Wenn der User z.B. "Lade mir die Gewässerschutzkarte" schreibt:
+                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "query": "Gewässerschutz" } } ] } ]
+                - Wenn der User "Gehe zur Adresse ... und lade die Gewässerschutzkarte" schreibt, erzeugst du zwei Schritte
+                  (erst goto_address, dann load_layer).
+                - Wenn der User "Ich will einen ÖREB-Auszug an der Koordinate 2607717, 1228737" schreibt, erzeugst du einen Schritt
+                  (oereb_extract) mit mehreren (zwei) tool calls:
+                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "x": "2607717", "y": "1228737" } },
+                    { "capabilityId": "%s", "args": { "egrid": "CH1234567891012" } }] } ]
+                - Wenn der User "mache mir einen Grundbuchplan für Grundstück 123 in Messen" schreibt, erzeuge einen Schritt
+                  (cadastral_plan) mit zwei ToolCalls:
+                  - steps: [ { "intent": "%s", "toolCalls": [ { "capabilityId": "%s", "args": { "number": "123", "municipality": "Messen" } },
+                    { "capabilityId": "%s", "args": { "geometry": { /* GeoJSON aus Auswahl */ } } } ] } ]
+
+                ANTWORT:
+                - Gib nur das JSON-Objekt entsprechend dem Schema zurück.
+                - Keine Kommentare, kein Markdown, kein zusätzlicher Text.
+                """.formatted(
+                capabilitySection,
+                IntentType.GOTO_ADDRESS.id(),
+                IntentType.LOAD_LAYER.id(),
+                IntentType.SEARCH_PLACE.id(),
+                IntentType.OEREB_EXTRACT.id(),
+                IntentType.GEOTHERMAL_PROBE_ASSESSMENT.id(),
+                IntentType.CADASTRAL_PLAN.id(),
+                IntentType.GOTO_ADDRESS.id(),
+                IntentType.LOAD_LAYER.id(),
+                IntentType.SEARCH_PLACE.id(),
+                IntentType.OEREB_EXTRACT.id(),
+                IntentType.GEOTHERMAL_PROBE_ASSESSMENT.id(),
+                IntentType.CADASTRAL_PLAN.id(),
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
+                McpToolCapability.LAYERS_SEARCH.id(),
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
+                McpToolCapability.LAYERS_SEARCH.id(),
+                IntentType.GOTO_ADDRESS.id(),
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS.id(),
+                IntentType.LOAD_LAYER.id(),
+                McpToolCapability.LAYERS_SEARCH.id(),
+                IntentType.OEREB_EXTRACT.id(),
+                McpToolCapability.OEREB_EGRID_BY_XY.id(),
+                McpToolCapability.OEREB_EXTRACT_BY_ID.id(),
+                IntentType.CADASTRAL_PLAN.id(),
+                McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY.id(),
+                McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY.id());
+    }
+}
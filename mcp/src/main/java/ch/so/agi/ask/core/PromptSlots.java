@@ -0,0 +1,333 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ch.so.agi.ask.model.PlannerOutput;
+
+/**
+ * Zerlegt eine Benutzereingabe in eine Schablone und die darin enthaltenen
+ * "Slots" (EGRIDs, Koordinaten, Adressen, Ortsnamen, Nummern, Themen). Der
+ * semantische Planner-Cache vergleicht nur die Schablonen und setzt die
+ * Slot-Werte der neuen Eingabe anschliessend in die Args des gecachten Plans ein.
+ * <p>
+ * Die Schablone besteht nur aus bekanntem Vokabular: Befehlsverben werden auf
+ * eine Grundform gebracht ("lade", "zeig mir" → "zeige"), Füllwörter und
+ * Artikel entfallen, jede Folge unbekannter Wörter wird zum Themen-Slot
+ * ("Gewässerschutzkarte" → {@code <topic>} mit Wert "Gewässerschutz").
+ * Umformulierungen ergeben so dieselbe Schablone, während verschiedene Themen
+ * nur über ihre Slot-Werte unterschieden werden. Ein Thema, das nicht in den
+ * Args des Plans vorkommt, ist Teil der Bedeutung und muss bei einem Treffer
+ * übereinstimmen (siehe {@link #substitute}).
+ * <p>
+ * Slot-Werte werden nur als ganze Tokens in einzelnen String-Args gesucht und
+ * ersetzt ("1" trifft also nicht "19" oder "CH1…"); kommt ein Wert mehrfach
+ * vor, ist die Zuordnung mehrdeutig und der Plan wird nicht als Schablone
+ * verwendet.
+ */
+final class PromptSlots {
+
+    enum SlotType {
+        EGRID, COORDINATE, ADDRESS, PLACE, NUMBER, TOPIC
+    }
+
+    private static final Pattern EGRID = Pattern.compile("\\b(CH\\d{12})\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COORDINATE = Pattern
+            .compile("\\b(2\\d{6}(?:\\.\\d+)?)\\s*(?:[,;/]\\s*|\\s+)(1\\d{6}(?:\\.\\d+)?)\\b");
+    private static final Pattern ADDRESS = Pattern.compile(
+            "((?:(?:Alte|Obere|Untere|Hintere|Vordere|Innere|Äussere|Neue|Kleine|Grosse)\\s+)?\\p{Lu}[\\p{L}\\-]*"
+                    + "(?:strasse|str\\.|weg|gasse|platz|allee|ring|rain|matt|quai|steig|stutz|halde|hof)"
+                    + "\\s+\\d+[a-zA-Z]?)\\b");
+    private static final Pattern PLACE = Pattern
+            .compile("(?:(?<=\\b(?:in|von|bei)\\s)|(?<=,\\s)(?:\\d{4}\\s+)?)(\\p{Lu}[\\p{L}\\-]+)");
+    private static final Pattern NUMBER = Pattern.compile("\\b(\\d+[a-zA-Z]?)\\b");
+    private static final Pattern PUNCTUATION = Pattern.compile("^[^\\p{L}\\p{N}<]+|[^\\p{L}\\p{N}>]+$");
+    private static final Pattern MAP_SUFFIX = Pattern.compile("(?i)(?<=\\p{L}{3})karten?$");
+    private static final String TOKEN_START = "(?<![\\p{L}\\p{N}])";
+    private static final String TOKEN_END = "(?![\\p{L}\\p{N}])";
+
+    private static final Map<String, String> SYNONYMS = synonyms(Map.of(
+            "zeige", List.of("zeig", "zeigen", "zeigt", "lade", "lad", "laden", "ladet", "öffne", "öffnen", "anzeigen",
+                    "einblenden", "darstellen", "hinzufügen", "aktiviere", "aktivieren"),
+            "entferne", List.of("entfernen", "lösche", "löschen", "ausblenden", "verstecke", "verstecken"),
+            "gehe", List.of("geh", "gehen", "springe", "spring", "zoome", "zoom", "zoomen", "navigiere", "zentriere",
+                    "zentrieren"),
+            "suche", List.of("such", "suchen", "finde", "find", "finden"),
+            "ist", List.of("liegt", "liegen", "befindet", "sind")));
+    private static final Set<String> LEADING_COMMANDS = Set.of("zeige", "entferne", "gehe", "suche");
+    private static final Set<String> FILLERS = Set.of("der", "die", "das", "den", "dem", "des", "eine", "einen",
+            "einem", "einer", "mir", "mich", "uns", "ich", "du", "bitte", "mal", "doch", "gerne", "gern", "noch",
+            "auch", "jetzt", "kurz", "kannst", "könntest", "kann", "möchte", "will", "würde", "hätte", "gib", "zu",
+            "zum", "zur", "auf", "sich");
+    private static final Set<String> VOCABULARY = Set.of(
+            // Präpositionen, Konjunktionen, Fragen
+            "in", "im", "von", "vom", "bei", "beim", "für", "nach", "an", "am", "mit", "um", "über", "unter", "aus", "ein", "und", "oder", "sowie", "nicht", "ohne", "neben", "nähe", "umgebung",
+            "hier", "dort", "da", "wo", "was", "wie", "welche", "welcher", "welches", "welchen", "wer", "wieviel",
+            "viele", "gibt", "es", "hat", "haben", "hoch", "tief", "gross", "weit", "alle", "alles", "stelle", "dar",
+            "blende", "man", "darf", "dürfen", "bohren",
+            // Begriffe der Tools
+            "adresse", "adressen", "grundstück", "grundstücke", "grundstücks", "parzelle", "parzellen",
+            "liegenschaft", "egrid", "öreb", "oereb", "öreb-auszug", "oereb-auszug", "auszug", "kataster",
+            "katasterplan", "grundbuchplan", "plan", "geothermie", "erdwärme", "erdwärmesonde", "erdwärmesonden",
+            "sonde", "sonden", "bohrung", "bohrtiefe", "gemeinde", "gemeinden", "ort", "ortschaft", "koordinate",
+            "koordinaten", "punkt", "karte", "karten", "layer", "ebene", "ebenen", "thema", "themen", "themenkarte",
+            "standort", "position", "marker", "nächste", "höhe", "distanz", "entfernung", "fläche");
+
+    record Extraction(String template, Map<SlotType, List<String>> slots) {
+        int slotCount() {
+            return slots.values().stream().mapToInt(List::size).sum();
+        }
+
+        boolean sameShape(Extraction other) {
+            for (SlotType type : SlotType.values()) {
+                if (values(type).size() != other.values(type).size()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<String> values(SlotType type) {
+            return slots.getOrDefault(type, List.of());
+        }
+    }
+
+    private PromptSlots() {
+    }
+
+    static Extraction extract(String message) {
+        Map<SlotType, List<String>> slots = new EnumMap<>(SlotType.class);
+        String text = Optional.ofNullable(message).orElse("").strip();
+        text = mask(text, EGRID, SlotType.EGRID, " <egrid> ", slots);
+        text = maskCoordinates(text, slots);
+        text = mask(text, ADDRESS, SlotType.ADDRESS, " <address> ", slots);
+        text = mask(text, PLACE, SlotType.PLACE, "<place>", slots);
+        text = mask(text, NUMBER, SlotType.NUMBER, " <num> ", slots);
+        return new Extraction(template(text, slots), slots);
+    }
+
+    /**
+     * Prüft, ob jeder Slot-Wert der ursprünglichen Eingabe in den Args des Plans
+     * wiederzufinden ist. Nur dann lässt sich der Plan später gefahrlos mit neuen
+     * Werten befüllen (hat das LLM z.B. eine Adresse korrigiert, fehlt der
+     * Originalwert und der Plan ist nicht wiederverwendbar). Themen sind davon
+     * ausgenommen, siehe {@link #fixedTopics}. Kommt ein Wert mehrfach vor, ist
+     * der Plan ebenfalls nicht wiederverwendbar.
+     */
+    static boolean isTemplatable(PlannerOutput plan, Extraction extraction) {
+        List<String> args = argValues(plan);
+        return extraction.slots().entrySet().stream().allMatch(e -> e.getValue().stream().allMatch(value -> {
+            long occurrences = occurrences(args, value);
+            return occurrences == 1 || occurrences == 0 && e.getKey() == SlotType.TOPIC;
+        }));
+    }
+
+    /**
+     * Themen der Eingabe, die nicht in den Args des Plans vorkommen (z. B.
+     * "Erdwärme" bei einem Koordinaten-Tool). Sie bestimmen die Bedeutung des
+     * Plans und lassen sich nicht ersetzen.
+     */
+    static List<String> fixedTopics(PlannerOutput plan, Extraction extraction) {
+        List<String> args = argValues(plan);
+        return extraction.values(SlotType.TOPIC).stream()
+                .filter(topic -> occurrences(args, topic) == 0)
+                .map(topic -> topic.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    /**
+     * Ersetzt die Slot-Werte von {@code cached} in den Args des Plans durch die
+     * Werte gleichen Typs und gleicher Position aus {@code current}. Slot-Werte,
+     * die nicht in den Args vorkommen, müssen in beiden Eingaben gleich sein.
+     */
+    static Optional<PlannerOutput> substitute(PlannerOutput plan, Extraction cached, Extraction current) {
+        if (!cached.sameShape(current)) {
+            return Optional.empty();
+        }
+        List<String> planArgs = argValues(plan);
+        Map<String, String> replacements = new LinkedHashMap<>();
+        for (SlotType type : SlotType.values()) {
+            List<String> oldValues = cached.values(type);
+            List<String> newValues = current.values(type);
+            for (int i = 0; i < oldValues.size(); i++) {
+                long occurrences = occurrences(planArgs, oldValues.get(i));
+                if (occurrences > 1) {
+                    return Optional.empty();
+                }
+                if (occurrences == 0) {
+                    if (!oldValues.get(i).equalsIgnoreCase(newValues.get(i))) {
+                        return Optional.empty();
+                    }
+                    continue;
+                }
+                String previous = replacements.putIfAbsent(oldValues.get(i), newValues.get(i));
+                if (previous != null && !previous.equals(newValues.get(i))) {
+                    return Optional.empty();
+                }
+            }
+        }
+        if (replacements.isEmpty()) {
+            return Optional.of(plan);
+        }
+
+        Pattern alternatives = Pattern.compile(TOKEN_START + "(?:" + replacements.keySet().stream()
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .map(Pattern::quote)
+                .reduce((a, b) -> a + "|" + b)
+                .orElseThrow() + ")" + TOKEN_END);
+
+        List<PlannerOutput.Step> steps = new ArrayList<>();
+        for (PlannerOutput.Step step : Optional.ofNullable(plan.steps()).orElse(List.of())) {
+            List<PlannerOutput.ToolCall> toolCalls = new ArrayList<>();
+            for (PlannerOutput.ToolCall toolCall : Optional.ofNullable(step.toolCalls()).orElse(List.of())) {
+                Map<String, Object> args = new LinkedHashMap<>();
+                Optional.ofNullable(toolCall.args()).orElse(Map.of())
+                        .forEach((key, value) -> args.put(key, replace(value, alternatives, replacements)));
+                toolCalls.add(new PlannerOutput.ToolCall(toolCall.capabilityId(), args));
+            }
+            steps.add(new PlannerOutput.Step(step.intent(), toolCalls, step.result()));
+        }
+        return Optional.of(new PlannerOutput(plan.requestId(), steps));
+    }
+
+    private static Object replace(Object value, Pattern alternatives, Map<String, String> replacements) {
+        if (value instanceof String s) {
+            return alternatives.matcher(s).replaceAll(m -> Matcher.quoteReplacement(replacements.get(m.group())));
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, replace(v, alternatives, replacements)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(v -> replace(v, alternatives, replacements)).toList();
+        }
+        return value;
+    }
+
+    /**
+     * Alle String-Werte in den Args des Plans, auch in verschachtelten Maps und
+     * Listen. Nur sie werden von {@link #replace} ersetzt.
+     */
+    private static List<String> argValues(PlannerOutput plan) {
+        List<String> values = new ArrayList<>();
+        for (PlannerOutput.Step step : Optional.ofNullable(plan.steps()).orElse(List.of())) {
+            for (PlannerOutput.ToolCall toolCall : Optional.ofNullable(step.toolCalls()).orElse(List.of())) {
+                collectStrings(Optional.ofNullable(toolCall.args()).orElse(Map.of()).values(), values);
+            }
+        }
+        return values;
+    }
+
+    private static void collectStrings(Iterable<?> source, List<String> values) {
+        for (Object value : source) {
+            if (value instanceof String s) {
+                values.add(s);
+            } else if (value instanceof Map<?, ?> map) {
+                collectStrings(map.values(), values);
+            } else if (value instanceof List<?> list) {
+                collectStrings(list, values);
+            }
+        }
+    }
+
+    private static long occurrences(List<String> values, String slotValue) {
+        Pattern token = Pattern.compile(TOKEN_START + Pattern.quote(slotValue) + TOKEN_END);
+        return values.stream().mapToLong(value -> token.matcher(value).results().count()).sum();
+    }
+
+    /**
+     * Baut die Schablone aus dem maskierten Text und legt dabei Folgen
+     * unbekannter Wörter als Themen-Slots ab.
+     */
+    private static String template(String text, Map<SlotType, List<String>> slots) {
+        List<String> template = new ArrayList<>();
+        List<String> topic = new ArrayList<>();
+        for (String token : text.strip().split("\\s+")) {
+            String word = PUNCTUATION.matcher(token).replaceAll("");
+            boolean endsRun = !token.endsWith(word);
+            if (word.isEmpty()) {
+                addTopic(topic, template, slots);
+                continue;
+            }
+            String folded = word.toLowerCase(Locale.ROOT);
+            if (folded.startsWith("<") && folded.endsWith(">") || VOCABULARY.contains(folded)) {
+                addTopic(topic, template, slots);
+                template.add(folded);
+            } else if (SYNONYMS.containsKey(folded)) {
+                addTopic(topic, template, slots);
+                template.add(SYNONYMS.get(folded));
+            } else if (FILLERS.contains(folded)) {
+                addTopic(topic, template, slots);
+            } else {
+                topic.add(word);
+            }
+            if (endsRun) {
+                addTopic(topic, template, slots);
+            }
+        }
+        addTopic(topic, template, slots);
+        // "Gewässerschutzkarte laden" wie "Lade die Gewässerschutzkarte"
+        int last = template.size() - 1;
+        if (last > 0 && LEADING_COMMANDS.contains(template.get(last))
+                && !LEADING_COMMANDS.contains(template.get(0))) {
+            template.add(0, template.remove(last));
+        }
+        return String.join(" ", template);
+    }
+
+    private static void addTopic(List<String> words, List<String> template, Map<SlotType, List<String>> slots) {
+        if (words.isEmpty()) {
+            return;
+        }
+        String value = MAP_SUFFIX.matcher(String.join(" ", words)).replaceAll("");
+        slots.computeIfAbsent(SlotType.TOPIC, t -> new ArrayList<>()).add(value);
+        template.add("<topic>");
+        words.clear();
+    }
+
+    private static Map<String, String> synonyms(Map<String, List<String>> formsByCanonical) {
+        Map<String, String> synonyms = new HashMap<>();
+        formsByCanonical.forEach((canonical, forms) -> {
+            synonyms.put(canonical, canonical);
+            forms.forEach(form -> synonyms.put(form, canonical));
+        });
+        return Map.copyOf(synonyms);
+    }
+
+    private static String mask(String text, Pattern pattern, SlotType type, String placeholder,
+            Map<SlotType, List<String>> slots) {
+        Matcher matcher = pattern.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            slots.computeIfAbsent(type, t -> new ArrayList<>()).add(matcher.group(1));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(
+                    text.substring(matcher.start(), matcher.start(1)) + placeholder));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String maskCoordinates(String text, Map<SlotType, List<String>> slots) {
+        Matcher matcher = COORDINATE.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            List<String> values = slots.computeIfAbsent(SlotType.COORDINATE, t -> new ArrayList<>());
+            values.add(matcher.group(1));
+            values.add(matcher.group(2));
+            matcher.appendReplacement(sb, " <coord> ");
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Deterministische Vorstufe zum {@link PlannerLlm}. Erkennt eindeutige Eingaben
+ * – LV95-Koordinatenpaare, EGRIDs, Grundstücksnummer + Gemeinde und einfache
+ * Adressen – und erzeugt daraus direkt ein {@link PlannerOutput} mit denselben
+ * Intent-/Capability-Zuordnungen wie die Beispiele im System-Prompt. Die
+ * Konfidenz sinkt mit jedem Wort, das keiner Regel zugeordnet werden kann;
+ * Mehrfach-Intents ("... und ...") werden nie lokal geplant. Unterhalb der
+ * konfigurierten Schwelle entscheidet das LLM.
+ * <p>
+ * Metriken: {@code ask.planner.fastpath} mit {@code outcome=hit|miss} (und
+ * {@code rule} bei Treffern) ergibt die Trefferquote.
+ */
+@Component
+public class RuleBasedPlanner {
+    private static final Logger log = LoggerFactory.getLogger(RuleBasedPlanner.class);
+
+    private static final double PENALTY_PER_UNKNOWN_WORD = 0.2;
+
+    private static final Pattern COORDINATE = Pattern
+            .compile("\\b(2\\d{6}(?:\\.\\d+)?)\\s*(?:[,;/]\\s*|\\s+)(1\\d{6}(?:\\.\\d+)?)\\b");
+    private static final Pattern EGRID = Pattern.compile("\\b(CH\\d{12})\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARCEL = Pattern.compile(
+            "(?iu:grundstück|grundstueck|parzelle|liegenschaft|gb)\\s*(?iu:nr\\.?|nummer)?\\s*(\\d+[a-z]?)\\s+(?iu:in|von)\\s+"
+                    + "(\\p{Lu}[\\p{L}.\\-]+(?:\\s+\\p{Lu}[\\p{L}.\\-]+)*)");
+    private static final Pattern ADDRESS = Pattern.compile(
+            "((?:(?:Alte|Obere|Untere|Hintere|Vordere|Innere|Äussere|Neue|Kleine|Grosse)\\s+)?\\p{Lu}[\\p{L}\\-]*"
+                    + "(?:strasse|str\\.|weg|gasse|platz|allee|ring|rain|matt|quai|steig|stutz|halde|hof))"
+                    + "\\s+(\\d+[a-zA-Z]?)"
+                    + "(?:(?:\\s*,\\s*|\\s+in\\s+|\\s+)(?:\\d{4}\\s+)?(\\p{Lu}[\\p{L}.\\-]+(?:\\s+\\p{Lu}[\\p{L}.\\-]+)*))?");
+
+    private static final Pattern OEREB_KEYWORD = Pattern.compile("(?iu)(?<!\\p{L})(ö|oe|o)reb\\S*|katasterauszug");
+    private static final Pattern GEOTHERMAL_KEYWORD = Pattern.compile("(?iu)\\S*(erdwärme|erdwaerme|wärmesonde|erdsonde|geotherm)\\S*");
+    private static final Pattern CADASTRAL_PLAN_KEYWORD = Pattern.compile("(?iu)\\S*grundbuchplan\\S*");
+    private static final Pattern MULTI_INTENT = Pattern.compile("(?iu)\\b(und|dann|danach|anschliessend|sowie)\\b");
+
+    private static final Set<String> FILLER_WORDS = Set.of("gehe", "geh", "zur", "zum", "zu", "nach", "zeige", "zeig",
+            "mir", "mich", "bitte", "ich", "will", "möchte", "moechte", "hätte", "haette", "gerne", "gern", "einen",
+            "eine", "ein", "den", "die", "das", "der", "dem", "an", "am", "auf", "für", "fuer", "mache", "mach",
+            "erstelle", "erzeuge", "hole", "gib", "brauche", "suche", "finde", "adresse", "koordinate", "koordinaten",
+            "punkt", "grundstück", "grundstueck", "parzelle", "liegenschaft", "gb", "nr", "nummer", "in", "von", "bei",
+            "auszug", "kann", "hier", "bohren", "machbarkeit", "prüfe", "pruefe", "abfrage", "lv95", "egrid", "pdf");
+
+    private final PlannerFastPathProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Counter misses;
+
+    public RuleBasedPlanner(PlannerFastPathProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.misses = Counter.builder("ask.planner.fastpath").tag("outcome", "miss").tag("rule", "none")
+                .description("Planner-Anfragen, die lokal bzw. vom LLM geplant wurden").register(meterRegistry);
+    }
+
+    /**
+     * Liefert einen lokal erzeugten Plan, falls eine Regel mit ausreichender
+     * Konfidenz greift; sonst {@link Optional#empty()} (Fallback auf das LLM).
+     */
+    public Optional<PlannerOutput> plan(String userMessage) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        Optional<Match> match = match(userMessage).filter(m -> m.confidence() >= properties.getMinConfidence());
+        if (match.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        Match m = match.get();
+        Counter.builder("ask.planner.fastpath").tag("outcome", "hit").tag("rule", m.rule())
+                .description("Planner-Anfragen, die lokal bzw. vom LLM geplant wurden").register(meterRegistry)
+                .increment();
+        log.info("Fast-path planner hit: rule={} confidence={}", m.rule(), m.confidence());
+        return Optional.of(new PlannerOutput(UUID.randomUUID().toString(), List.of(m.step())));
+    }
+
+    /**
+     * Wendet die Regeln an und liefert den besten Treffer inklusive Konfidenz,
+     * unabhängig von der konfigurierten Schwelle.
+     */
+    Optional<Match> match(String userMessage) {
+        if (userMessage == null || userMessage.isBlank() || MULTI_INTENT.matcher(userMessage).find()) {
+            return Optional.empty();
+        }
+        String text = userMessage.strip();
+        List<IntentType> keywordIntents = keywordIntents(text);
+        if (keywordIntents.size() > 1) {
+            return Optional.empty();
+        }
+        IntentType keywordIntent = keywordIntents.isEmpty() ? null : keywordIntents.get(0);
+        String residual = stripKeywords(text);
+
+        Matcher coordinate = COORDINATE.matcher(residual);
+        if (coordinate.find()) {
+            if (keywordIntent == null) {
+                return Optional.empty();
+            }
+            Map<String, Object> xy = new LinkedHashMap<>();
+            xy.put("x", coordinate.group(1));
+            xy.put("y", coordinate.group(2));
+            List<PlannerOutput.ToolCall> calls = switch (keywordIntent) {
+            case OEREB_EXTRACT -> List.of(call(McpToolCapability.OEREB_EGRID_BY_XY, xy),
+                    call(McpToolCapability.OEREB_EXTRACT_BY_ID, Map.of()));
+            case CADASTRAL_PLAN -> List.of(call(McpToolCapability.OEREB_EGRID_BY_XY, xy),
+                    call(McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY, Map.of()));
+            default -> List.of(call(McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY, xy));
+            };
+            return Optional.of(match("coordinate", keywordIntent, calls, remove(residual, coordinate)));
+        }
+
+        Matcher egrid = EGRID.matcher(residual);
+        if (egrid.find()) {
+            if (keywordIntent != IntentType.OEREB_EXTRACT && keywordIntent != IntentType.CADASTRAL_PLAN) {
+                return Optional.empty();
+            }
+            Map<String, Object> args = Map.of("egrid", egrid.group(1).toUpperCase(Locale.ROOT));
+            McpToolCapability followUp = keywordIntent == IntentType.OEREB_EXTRACT
+                    ? McpToolCapability.OEREB_EXTRACT_BY_ID
+                    : McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY;
+            return Optional.of(match("egrid", keywordIntent,
+                    List.of(call(McpToolCapability.FEATURE_SEARCH_PARCEL_BY_EGRID, args), call(followUp, Map.of())),
+                    remove(residual, egrid)));
+        }
+
+        Matcher parcel = PARCEL.matcher(residual);
+        if (parcel.find()) {
+            if (keywordIntent != IntentType.OEREB_EXTRACT && keywordIntent != IntentType.CADASTRAL_PLAN) {
+                return Optional.empty();
+            }
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("number", parcel.group(1));
+            args.put("municipality", trimPlaceName(parcel.group(2)));
+            McpToolCapability followUp = keywordIntent == IntentType.OEREB_EXTRACT
+                    ? McpToolCapability.OEREB_EXTRACT_BY_ID
+                    : McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY;
+            return Optional.of(match("parcel", keywordIntent,
+                    List.of(call(McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY, args),
+                            call(followUp, Map.of())),
+                    remove(residual, parcel)));
+        }
+
+        Matcher address = ADDRESS.matcher(residual);
+        if (address.find()) {
+            String q = address.group(1) + " " + address.group(2)
+                    + Optional.ofNullable(address.group(3)).map(locality -> ", " + trimPlaceName(locality)).orElse("");
+            PlannerOutput.ToolCall geocode = call(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of("q", q));
+            IntentType intent = keywordIntent == null ? IntentType.GOTO_ADDRESS : keywordIntent;
+            List<PlannerOutput.ToolCall> calls = switch (intent) {
+            case OEREB_EXTRACT -> List.of(geocode, call(McpToolCapability.OEREB_EGRID_BY_XY, Map.of()),
+                    call(McpToolCapability.OEREB_EXTRACT_BY_ID, Map.of()));
+            case CADASTRAL_PLAN -> List.of(geocode, call(McpToolCapability.OEREB_EGRID_BY_XY, Map.of()),
+                    call(McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY, Map.of()));
+            case GEOTHERMAL_PROBE_ASSESSMENT -> List.of(geocode,
+                    call(McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY, Map.of()));
+            default -> List.of(geocode);
+            };
+            return Optional.of(match("address", intent, calls, remove(residual, address)));
+        }
+        return Optional.empty();
+    }
+
+    private Match match(String rule, IntentType intent, List<PlannerOutput.ToolCall> calls, String unmatched) {
+        long unknownWords = Arrays.stream(unmatched.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isBlank())
+                .filter(word -> !FILLER_WORDS.contains(word))
+                .count();
+        double confidence = Math.max(0d, 1d - PENALTY_PER_UNKNOWN_WORD * unknownWords);
+        var step = new PlannerOutput.Step(intent, new ArrayList<>(calls),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        return new Match(rule, step, confidence);
+    }
+
+    private PlannerOutput.ToolCall call(McpToolCapability capability, Map<String, Object> args) {
+        return new PlannerOutput.ToolCall(capability, args);
+    }
+
+    /**
+     * Erkennt, ob die Eingabe mehrere Aktionen verlangt: Konjunktionen wie
+     * "und"/"danach" oder Schlüsselwörter mehrerer Intents.
+     */
+    boolean hasMultipleIntents(String userMessage) {
+        return userMessage != null
+                && (MULTI_INTENT.matcher(userMessage).find() || keywordIntents(userMessage).size() > 1);
+    }
+
+    List<IntentType> keywordIntents(String text) {
+        List<IntentType> intents = new ArrayList<>();
+        if (OEREB_KEYWORD.matcher(text).find()) {
+            intents.add(IntentType.OEREB_EXTRACT);
+        }
+        if (GEOTHERMAL_KEYWORD.matcher(text).find()) {
+            intents.add(IntentType.GEOTHERMAL_PROBE_ASSESSMENT);
+        }
+        if (CADASTRAL_PLAN_KEYWORD.matcher(text).find()) {
+            intents.add(IntentType.CADASTRAL_PLAN);
+        }
+        return intents;
+    }
+
+    private String stripKeywords(String text) {
+        String stripped = OEREB_KEYWORD.matcher(text).replaceAll(" ");
+        stripped = GEOTHERMAL_KEYWORD.matcher(stripped).replaceAll(" ");
+        return CADASTRAL_PLAN_KEYWORD.matcher(stripped).replaceAll(" ");
+    }
+
+    private String trimPlaceName(String name) {
+        return name.replaceAll("[.\\s]+$", "");
+    }
+
+    private String remove(String text, Matcher matcher) {
+        return text.substring(0, matcher.start()) + " " + text.substring(matcher.end());
+    }
+
+    record Match(String rule, PlannerOutput.Step step, double confidence) {
+    }
+}
@@ -0,0 +1,589 @@
+package ch.so.agi.ask.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import ch.so.agi.ask.config.DurableChatMemoryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Dauerhafter Gesprächsverlauf in append-only Segmentdateien. Sessions werden
+ * per Hash auf Shards verteilt; jeder Shard besitzt eigene Segmente
+ * ({@link MappedSegment}) und einen eigenen Lock für Schreiber. Auf dem Heap
+ * liegt pro Session nur ein Index mit den Positionen der Records, die Texte
+ * selbst werden beim Lesen direkt aus den gemappten Segmenten dekodiert.
+ *
+ * <p>
+ * Record-Format: {@code int Länge | int CRC32 | byte Operation | byte
+ * Message-Typ | byte Flags | int Tokens | short Länge Session-Id | Session-Id |
+ * Text} (UTF-8). Die Länge der Session-Id ist vorzeichenlos; längere Ids als
+ * {@value #MAX_SESSION_ID_BYTES} Bytes werden abgewiesen. {@code CLEAR} verwirft alle vorherigen Records einer Session
+ * (Löschen, Verdrängen, Kompaktierung des Verlaufs durch die
+ * {@link ChatMemoryPolicy}).
+ * </p>
+ *
+ * <p>
+ * Geschriebene Records landen sofort im Page-Cache; {@link #flush()} bündelt
+ * das fsync der geänderten Segmente. Beim Start wird der Index aus den
+ * Record-Headern neu aufgebaut; ein beim Absturz abgeschnittener Record am Ende
+ * wird verworfen. {@link #compact()} schreibt Shards mit hohem Anteil an toten
+ * Records (gelöschte, verdrängte oder kompaktierte Sessions) in ein neues
+ * Segment um. Das neue Segment erhält seinen Header erst, wenn seine Daten
+ * persistiert sind; ohne Header wird es beim Start verworfen, mit Header
+ * ersetzt es alle älteren Segmente des Shards.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ask.chat.memory.durable", name = "enabled", havingValue = "true")
+public class SegmentLogChatMemoryStore implements ChatMemoryStore, SessionScopedStore {
+    private static final Logger log = LoggerFactory.getLogger(SegmentLogChatMemoryStore.class);
+
+    static final byte OP_APPEND = 1;
+    static final byte OP_CLEAR = 2;
+    private static final byte FLAG_TOOL_RESULT = 1;
+    static final int RECORD_HEADER_BYTES = 4 + 4 + 1 + 1 + 1 + 4 + 2;
+    static final int MAX_SESSION_ID_BYTES = 0xffff;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final DurableChatMemoryProperties properties;
+    private final ChatMemoryPolicy policy;
+    private final SessionLifecycleManager lifecycle;
+    private final Shard[] shards;
+    private final Counter appendedBytes;
+    private final Counter compactions;
+
+    public SegmentLogChatMemoryStore(DurableChatMemoryProperties properties, ChatMemoryPolicy policy,
+            SessionLifecycleManager lifecycle, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.policy = policy;
+        this.lifecycle = lifecycle;
+        this.appendedBytes = Counter.builder("ask.chat.memory.durable.appended").baseUnit("bytes")
+                .register(meterRegistry);
+        this.compactions = Counter.builder("ask.chat.memory.durable.compactions").register(meterRegistry);
+        Path baseDir = resolveBaseDir();
+        this.shards = new Shard[Math.max(1, properties.getShards())];
+        long started = System.nanoTime();
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(baseDir.resolve("shard-%03d".formatted(i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chat memory segments in " + baseDir, e);
+        }
+        meterRegistry.gauge("ask.chat.memory.durable.disk.bytes", this, SegmentLogChatMemoryStore::diskBytes);
+        int sessions = 0;
+        for (Shard shard : shards) {
+            sessions += shard.sessions.size();
+        }
+        log.info("Rebuilt chat memory index from {}: {} sessions in {} ms", baseDir, sessions,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        lifecycle.register(this);
+        // Wiederhergestellte Sessions unterliegen ab jetzt der Idle-TTL
+        for (Shard shard : shards) {
+            shard.sessions.forEach((id, session) -> lifecycle.recordUsage(id, this, session.heapBytes(id)));
+        }
+    }
+
+    @Override
+    public List<Message> getMessages(String sessionId) {
+        if (sessionId == null) {
+            return List.of();
+        }
+        Shard shard = shardFor(sessionId);
+        while (true) {
+            SessionIndex session = shard.sessions.get(sessionId);
+            if (session == null) {
+                return List.of();
+            }
+            List<Message> messages = shard.read(session);
+            if (messages != null) {
+                lifecycle.touch(sessionId);
+                return messages;
+            }
+            // Segment wurde während des Lesens kompaktiert: neuen Index lesen
+        }
+    }
+
+    @Override
+    public void appendMessage(String sessionId, Message message) {
+        appendMessages(sessionId, List.of(message));
+    }
+
+    @Override
+    public void appendMessages(String sessionId, List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        sessionIdBytes(sessionId);
+        Shard shard = shardFor(sessionId);
+        long heapBytes;
+        synchronized (shard) {
+            SessionIndex session = shard.sessions.computeIfAbsent(sessionId, id -> new SessionIndex());
+            for (Message message : messages) {
+                shard.append(session, encode(OP_APPEND, sessionId, message));
+            }
+            if (policy.needsCompaction(session.size, session.tokens, session.fullToolResults)) {
+                session = shard.replace(sessionId, session, policy.compact(shard.read(session)));
+            }
+            heapBytes = session.heapBytes(sessionId);
+            if (properties.getFsyncIntervalMillis() <= 0) {
+                shard.active.force();
+            } else {
+                shard.dirty = true;
+            }
+        }
+        lifecycle.recordUsage(sessionId, this, heapBytes);
+    }
+
+    @Override
+    public void deleteSession(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        evictSession(sessionId);
+        lifecycle.release(sessionId, this);
+    }
+
+    @Override
+    public void evictSession(String sessionId) {
+        Shard shard = shardFor(sessionId);
+        synchronized (shard) {
+            if (shard.sessions.containsKey(sessionId)) {
+                shard.clear(sessionId);
+                shard.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Gebündeltes fsync aller seit dem letzten Aufruf geänderten Shards.
+     */
+    @Scheduled(fixedDelayString = "#{T(java.lang.Math).max(10, ${ask.chat.memory.durable.fsync-interval-millis:200})}")
+    public void flush() {
+        for (Shard shard : shards) {
+            MappedSegment active;
+            synchronized (shard) {
+                if (!shard.dirty) {
+                    continue;
+                }
+                shard.dirty = false;
+                active = shard.active;
+            }
+            active.force();
+        }
+    }
+
+    /**
+     * Schreibt Shards um, deren Anteil toter Records die konfigurierte Schwelle
+     * überschreitet.
+     */
+    @Scheduled(fixedDelayString = "${ask.chat.memory.durable.compaction-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void compact() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                long garbage = shard.totalBytes - shard.liveBytes;
+                if (garbage > 0 && garbage >= shard.totalBytes * properties.getCompactionGarbageRatio()) {
+                    try {
+                        shard.compact();
+                        compactions.increment();
+                    } catch (IOException e) {
+                        log.warn("Compacting chat memory shard {} failed: {}", shard.dir, e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (MappedSegment segment : shard.segments.values()) {
+                    try {
+                        segment.force();
+                        segment.close();
+                    } catch (IOException e) {
+                        log.warn("Closing chat memory segment {} failed: {}", segment.path(), e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    double diskBytes() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.totalBytes;
+        }
+        return total;
+    }
+
+    private Shard shardFor(String sessionId) {
+        return shards[Math.floorMod(sessionId.hashCode(), shards.length)];
+    }
+
+    private Path resolveBaseDir() {
+        if (StringUtils.hasText(properties.getDirectory())) {
+            return Paths.get(properties.getDirectory());
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "ask-sogis-chat-memory");
+    }
+
+    static byte[] encode(byte op, String sessionId, Message message) {
+        byte[] id = sessionIdBytes(sessionId);
+        byte[] text = message == null || message.getText() == null ? new byte[0]
+                : message.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + id.length + text.length);
+        record.putInt(record.capacity() - Integer.BYTES);
+        record.putInt(0);
+        record.put(op);
+        record.put(message == null ? 0 : typeCode(message));
+        record.put(message != null && ChatMemoryPolicy.isToolResult(message) ? FLAG_TOOL_RESULT : 0);
+        record.putInt(message == null ? 0 : ChatMemoryPolicy.estimateTokens(message));
+        record.putShort((short) id.length); // vorzeichenlos gelesen
+        record.put(id);
+        record.put(text);
+        byte[] bytes = record.array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 8, bytes.length - 8);
+        ByteBuffer.wrap(bytes).putInt(4, (int) crc.getValue());
+        return bytes;
+    }
+
+    private static byte[] sessionIdBytes(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_SESSION_ID_BYTES) {
+            throw new IllegalArgumentException(
+                    "Session id exceeds " + MAX_SESSION_ID_BYTES + " bytes: " + id.length);
+        }
+        return id;
+    }
+
+    private static byte typeCode(Message message) {
+        return switch (message.getMessageType()) {
+            case USER -> 0;
+            case SYSTEM -> 2;
+            // Tool-Antworten werden wie im In-Memory-Store als Text des Assistenten gehalten
+            default -> 1;
+        };
+    }
+
+    private static Message decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int idLength = Short.toUnsignedInt(buffer.getShort(RECORD_HEADER_BYTES - 2));
+        int textOffset = RECORD_HEADER_BYTES + idLength;
+        String text = new String(record, textOffset, record.length - textOffset, StandardCharsets.UTF_8);
+        return switch (record[9]) {
+            case 0 -> new UserMessage(text);
+            case 2 -> new SystemMessage(text);
+            default -> new AssistantMessage(text);
+        };
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Heap-Index einer Session. Geschrieben wird nur unter dem Lock des Shards;
+     * Leser lesen zuerst {@link #size}, danach {@link #locations}. Das Array
+     * wächst nur (Kopie mit gleichem Präfix), daher sind die ersten
+     * {@code size} Einträge immer gültig.
+     */
+    private static final class SessionIndex {
+        volatile long[] locations = new long[8];
+        volatile int size;
+        int tokens;
+        int fullToolResults;
+        long liveBytes;
+
+        void add(long location, int recordBytes, int recordTokens, boolean toolResult) {
+            long[] current = locations;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                current[size] = location;
+                locations = current;
+            } else {
+                current[size] = location;
+            }
+            size = size + 1;
+            tokens += recordTokens;
+            if (toolResult) {
+                fullToolResults++;
+            }
+            liveBytes += recordBytes;
+        }
+
+        long heapBytes(String sessionId) {
+            return 64 + 8L * locations.length + SessionLifecycleManager.estimateBytes(sessionId);
+        }
+    }
+
+    private final class Shard {
+        private final Path dir;
+        private final NavigableMap<Integer, MappedSegment> segments = new ConcurrentSkipListMap<>();
+        private final Map<String, SessionIndex> sessions = new ConcurrentHashMap<>();
+        private MappedSegment active;
+        private long totalBytes;
+        private long liveBytes;
+        private boolean dirty;
+
+        Shard(Path dir) throws IOException {
+            this.dir = dir;
+            Files.createDirectories(dir);
+            rebuild();
+        }
+
+        /**
+         * Baut den Index aus den Segmentdateien neu auf. Segmente ohne Header
+         * (abgebrochene Kompaktierung) und durch eine Kompaktierung ersetzte
+         * Segmente werden gelöscht.
+         */
+        private void rebuild() throws IOException {
+            List<MappedSegment> found = new ArrayList<>();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                    String name = file.getFileName().toString();
+                    found.add(MappedSegment.open(file,
+                            Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+                }
+            }
+            int replacedUpTo = MappedSegment.NO_REPLACEMENT;
+            for (MappedSegment segment : found) {
+                if (segment.hasValidHeader()) {
+                    replacedUpTo = Math.max(replacedUpTo, segment.replacesUpTo());
+                }
+            }
+            for (MappedSegment segment : found) {
+                if (!segment.hasValidHeader() || segment.id() <= replacedUpTo) {
+                    log.info("Discarding chat memory segment {}", segment.path());
+                    segment.delete();
+                } else {
+                    segments.put(segment.id(), segment);
+                }
+            }
+            for (MappedSegment segment : segments.values()) {
+                replay(segment);
+            }
+            if (segments.isEmpty()) {
+                roll(properties.getSegmentBytes());
+            } else {
+                active = segments.lastEntry().getValue();
+            }
+        }
+
+        private void replay(MappedSegment segment) {
+            CRC32 crc = new CRC32();
+            byte[] record = new byte[256];
+            int position = MappedSegment.HEADER_BYTES;
+            while (position + Integer.BYTES <= segment.capacity()) {
+                int length = segment.readInt(position);
+                if (length == 0) {
+                    break;
+                }
+                int recordBytes = length + Integer.BYTES;
+                if (length < RECORD_HEADER_BYTES - Integer.BYTES || position + recordBytes > segment.capacity()) {
+                    truncate(segment, position, segment.capacity() - position);
+                    break;
+                }
+                if (record.length < recordBytes) {
+                    record = new byte[Math.max(recordBytes, record.length * 2)];
+                }
+                segment.read(position, record, recordBytes);
+                crc.reset();
+                crc.update(record, 8, recordBytes - 8);
+                if ((int) crc.getValue() != ByteBuffer.wrap(record).getInt(4)) {
+                    truncate(segment, position, recordBytes);
+                    break;
+                }
+                ByteBuffer header = ByteBuffer.wrap(record, 0, RECORD_HEADER_BYTES);
+                int idLength = Short.toUnsignedInt(header.getShort(RECORD_HEADER_BYTES - 2));
+                if (RECORD_HEADER_BYTES + idLength > recordBytes) {
+                    // Header passt nicht zum Record (z.B. alte, vorzeichenbehaftete Längen): überspringen
+                    log.warn("Skipping chat memory record with invalid header in {} at offset {}", segment.path(),
+                            position);
+                    totalBytes += recordBytes;
+                    position += recordBytes;
+                    continue;
+                }
+                String sessionId = new String(record, RECORD_HEADER_BYTES, idLength, StandardCharsets.UTF_8);
+                totalBytes += recordBytes;
+                if (record[8] == OP_CLEAR) {
+                    SessionIndex removed = sessions.remove(sessionId);
+                    if (removed != null) {
+                        liveBytes -= removed.liveBytes;
+                    }
+                } else {
+                    sessions.computeIfAbsent(sessionId, id -> new SessionIndex()).add(
+                            location(segment.id(), position), recordBytes, header.getInt(11),
+                            (record[10] & FLAG_TOOL_RESULT) != 0);
+                    liveBytes += recordBytes;
+                }
+                position += recordBytes;
+            }
+            segment.writePosition(position);
+        }
+
+        private void truncate(MappedSegment segment, int position, int length) {
+            log.warn("Truncating incomplete chat memory record in {} at offset {}", segment.path(), position);
+            segment.zero(position, length);
+        }
+
+        void append(SessionIndex session, byte[] record) {
+            if (!active.fits(record.length)) {
+                active.force();
+                try {
+                    roll(Math.max(properties.getSegmentBytes(),
+                            MappedSegment.HEADER_BYTES + record.length + Integer.BYTES));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to roll chat memory segment in " + dir, e);
+                }
+            }
+            int offset = active.append(record);
+            totalBytes += record.length;
+            appendedBytes.increment(record.length);
+            if (session != null) {
+                session.add(location(active.id(), offset), record.length, ByteBuffer.wrap(record).getInt(11),
+                        (record[10] & FLAG_TOOL_RESULT) != 0);
+                liveBytes += record.length;
+            }
+        }
+
+        /**
+         * Ersetzt den Verlauf einer Session ({@code CLEAR} gefolgt von den neuen
+         * Messages). Leser sehen bis zum Austausch den alten Index.
+         */
+        SessionIndex replace(String sessionId, SessionIndex previous, List<Message> messages) {
+            append(null, encode(OP_CLEAR, sessionId, null));
+            SessionIndex session = new SessionIndex();
+            for (Message message : messages) {
+                append(session, encode(OP_APPEND, sessionId, message));
+            }
+            sessions.put(sessionId, session);
+            liveBytes -= previous.liveBytes;
+            return session;
+        }
+
+        void clear(String sessionId) {
+            SessionIndex removed = sessions.remove(sessionId);
+            if (removed != null) {
+                liveBytes -= removed.liveBytes;
+            }
+            append(null, encode(OP_CLEAR, sessionId, null));
+        }
+
+        /**
+         * Liest alle Messages einer Session, oder {@code null}, wenn eines ihrer
+         * Segmente inzwischen durch eine Kompaktierung ersetzt wurde.
+         */
+        List<Message> read(SessionIndex session) {
+            int size = session.size;
+            long[] locations = session.locations;
+            List<Message> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte[] record = readRecord(locations[i]);
+                if (record == null) {
+                    return null;
+                }
+                messages.add(decode(record));
+            }
+            return List.copyOf(messages);
+        }
+
+        private byte[] readRecord(long location) {
+            MappedSegment segment = segments.get(segmentId(location));
+            if (segment == null) {
+                return null;
+            }
+            int offset = offset(location);
+            byte[] record = new byte[segment.readInt(offset) + Integer.BYTES];
+            segment.read(offset, record, record.length);
+            return record;
+        }
+
+        /**
+         * Kopiert alle lebenden Records in ein neues Segment und ersetzt damit
+         * alle bisherigen Segmente des Shards.
+         */
+        void compact() throws IOException {
+            int replacesUpTo = segments.lastKey();
+            int capacity = Math.toIntExact(Math.max(properties.getSegmentBytes(),
+                    MappedSegment.HEADER_BYTES + liveBytes + Integer.BYTES));
+            int id = replacesUpTo + 1;
+            MappedSegment target = MappedSegment.create(segmentPath(id), id, capacity, false);
+            Map<String, SessionIndex> relocated = new ConcurrentHashMap<>();
+            for (Map.Entry<String, SessionIndex> entry : sessions.entrySet()) {
+                SessionIndex source = entry.getValue();
+                SessionIndex copy = new SessionIndex();
+                for (int i = 0; i < source.size; i++) {
+                    byte[] record = readRecord(source.locations[i]);
+                    copy.add(location(id, target.append(record)), record.length, ByteBuffer.wrap(record).getInt(11),
+                            (record[10] & FLAG_TOOL_RESULT) != 0);
+                }
+                relocated.put(entry.getKey(), copy);
+            }
+            target.force();
+            target.writeHeader(replacesUpTo);
+            target.force();
+
+            segments.put(id, target);
+            sessions.putAll(relocated);
+            List<MappedSegment> replaced = new ArrayList<>(segments.headMap(id, false).values());
+            segments.headMap(id, false).clear();
+            long before = totalBytes;
+            active = target;
+            totalBytes = target.writePosition() - MappedSegment.HEADER_BYTES;
+            liveBytes = totalBytes;
+            for (MappedSegment segment : replaced) {
+                segment.delete();
+            }
+            log.debug("Compacted chat memory shard {}: {} -> {} bytes", dir, before, totalBytes);
+        }
+
+        private void roll(int capacity) throws IOException {
+            int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+            active = MappedSegment.create(segmentPath(id), id, capacity, true);
+            segments.put(id, active);
+        }
+
+        private Path segmentPath(int id) {
+            return dir.resolve("%08d%s".formatted(id, SEGMENT_SUFFIX));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ch.so.agi.ask.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.SemanticPlannerCacheProperties;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Semantischer Planner-Cache für Umformulierungen bereits geplanter Anfragen.
+ * Eingaben werden mit {@link PromptSlots} in Schablone und Slots zerlegt, die
+ * Schablone als Zeichen-n-Gramm-Vektor ({@link NgramVectorizer}) in einem
+ * {@link HnswIndex} abgelegt. Bei einem Treffer oberhalb der konfigurierten
+ * Ähnlichkeit werden die Slot-Werte der neuen Eingabe in den gecachten Plan
+ * eingesetzt; passt die Slot-Struktur oder ein nicht ersetzbares Thema nicht,
+ * gilt der Treffer als Miss. Da das Thema eines Layers ein Slot ist, kann ein
+ * Treffer nie das Thema eines anderen Prompts wiederholen.
+ * <p>
+ * Wie der {@link PlannerCache} greift der Cache nur für Anfragen ohne
+ * Gesprächsverlauf und nur bei unverändertem System-Prompt. Bei Überschreiten
+ * der Kapazität werden die ältesten Einträge verdrängt; der Index wird neu
+ * aufgebaut, sobald er mehr gelöschte als lebende Knoten enthält.
+ * <p>
+ * Metriken: {@code ask.planner.semantic-cache.requests} ({@code result=hit|miss}),
+ * {@code ask.planner.semantic-cache.evictions},
+ * {@code ask.planner.semantic-cache.similarity} (Ähnlichkeit des besten
+ * Kandidaten) und {@code ask.planner.semantic-cache.size}.
+ */
+@Component
+public class SemanticPlannerCache {
+    private static final Logger log = LoggerFactory.getLogger(SemanticPlannerCache.class);
+
+    private static final int CANDIDATES = 5;
+    private static final long INDEX_SEED = 42L;
+
+    private final SemanticPlannerCacheProperties properties;
+    private final NgramVectorizer vectorizer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Integer> idsByTemplate = new HashMap<>();
+    private HnswIndex index;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final DistributionSummary similarity;
+
+    public SemanticPlannerCache(SemanticPlannerCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.vectorizer = new NgramVectorizer(properties.getDimensions());
+        this.index = newIndex();
+        this.hits = Counter.builder("ask.planner.semantic-cache.requests").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ask.planner.semantic-cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("ask.planner.semantic-cache.evictions").register(meterRegistry);
+        this.similarity = DistributionSummary.builder("ask.planner.semantic-cache.similarity")
+                .description("Ähnlichkeit des besten Kandidaten pro Lookup").register(meterRegistry);
+        meterRegistry.gauge("ask.planner.semantic-cache.size", this, SemanticPlannerCache::size);
+    }
+
+    /**
+     * Sucht einen ähnlichen, bereits geplanten Prompt und liefert dessen Plan mit
+     * den Slot-Werten von {@code userMessage} und neuer {@code requestId}.
+     */
+    public Optional<PlannerOutput> get(PlannerCache.Key key, String userMessage) {
+        if (!properties.isEnabled() || !PlannerCache.NO_HISTORY.equals(key.contextFingerprint())) {
+            return Optional.empty();
+        }
+        PromptSlots.Extraction extraction = PromptSlots.extract(userMessage);
+        float[] vector = vectorizer.vectorize(extraction.template());
+
+        lock.readLock().lock();
+        try {
+            List<HnswIndex.Hit> candidates = index.search(vector, CANDIDATES, properties.getEfSearch());
+            if (!candidates.isEmpty()) {
+                similarity.record(candidates.get(0).similarity());
+            }
+            for (HnswIndex.Hit candidate : candidates) {
+                if (candidate.similarity() < properties.getMinSimilarity()) {
+                    break;
+                }
+                Entry entry = entries.get(candidate.id());
+                if (entry == null || !entry.systemPromptHash().equals(key.systemPromptHash())) {
+                    continue;
+                }
+                Optional<PlannerOutput> plan = PromptSlots.substitute(entry.plan(), entry.extraction(), extraction);
+                if (plan.isPresent()) {
+                    hits.increment();
+                    log.info("Semantic planner cache hit: '{}' ~ '{}' (similarity={})", extraction.template(),
+                            entry.extraction().template(), candidate.similarity());
+                    return Optional.of(new PlannerOutput(UUID.randomUUID().toString(), plan.get().steps()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Nimmt einen vom LLM erzeugten Plan auf. Pläne, deren Args nicht alle
+     * Slot-Werte der Eingabe wörtlich enthalten, werden ignoriert, weil sie sich
+     * nicht zuverlässig auf andere Werte übertragen lassen.
+     */
+    public void put(PlannerCache.Key key, String userMessage, PlannerOutput plan) {
+        if (!properties.isEnabled() || !PlannerCache.NO_HISTORY.equals(key.contextFingerprint()) || plan == null
+                || plan.steps() == null || plan.steps().isEmpty()) {
+            return;
+        }
+        PromptSlots.Extraction extraction = PromptSlots.extract(userMessage);
+        if (!PromptSlots.isTemplatable(plan, extraction)) {
+            return;
+        }
+        float[] vector = vectorizer.vectorize(extraction.template());
+        // Pläne mit gleicher Schablone, aber anderem festem Thema, sind verschiedene Einträge
+        String templateKey = key.systemPromptHash() + "|" + extraction.template() + "|"
+                + PromptSlots.fixedTopics(plan, extraction);
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = idsByTemplate.remove(templateKey);
+            if (previous != null) {
+                entries.remove(previous);
+                index.delete(previous);
+            }
+            int id = index.add(vector);
+            entries.put(id, new Entry(templateKey, key.systemPromptHash(), extraction, plan, vector));
+            idsByTemplate.put(templateKey, id);
+
+            Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > Math.max(0, properties.getMaxEntries()) && it.hasNext()) {
+                Map.Entry<Integer, Entry> eldest = it.next();
+                it.remove();
+                idsByTemplate.remove(eldest.getValue().templateKey());
+                index.delete(eldest.getKey());
+                evictions.increment();
+            }
+            if (index.deletedSize() > index.liveSize()) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        HnswIndex rebuilt = newIndex();
+        Map<Integer, Entry> remapped = new LinkedHashMap<>();
+        idsByTemplate.clear();
+        for (Entry entry : entries.values()) {
+            int id = rebuilt.add(entry.vector());
+            remapped.put(id, entry);
+            idsByTemplate.put(entry.templateKey(), id);
+        }
+        entries.clear();
+        entries.putAll(remapped);
+        index = rebuilt;
+    }
+
+    private HnswIndex newIndex() {
+        return new HnswIndex(properties.getMaxConnections(), properties.getEfConstruction(), INDEX_SEED);
+    }
+
+    private record Entry(String templateKey, String systemPromptHash, PromptSlots.Extraction extraction,
+            PlannerOutput plan, float[] vector) {
+    }
+}
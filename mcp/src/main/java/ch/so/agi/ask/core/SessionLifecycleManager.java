@@ -0,0 +1,330 @@
+package ch.so.agi.ask.core;
+
+import ch.so.agi.ask.config.SessionLifecycleProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.RecordComponent;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verwaltet die Lebensdauer aller Sessions über die registrierten
+ * {@link SessionScopedStore}s hinweg.
+ *
+ * <p>
+ * Die Stores melden jeden Zugriff ({@link #touch}) sowie nach jedem Schreiben
+ * den geschätzten Speicherbedarf ihrer Daten pro Session
+ * ({@link #recordUsage}). Der Manager entfernt Sessions, die länger als die
+ * Idle-TTL nicht mehr benutzt wurden, und verdrängt die am längsten nicht
+ * benutzten Sessions (LRU), sobald die maximale Anzahl Sessions oder der
+ * maximale Speicherbedarf überschritten wird. Verdrängt wird bis auf 90 % der
+ * Grenze, damit nicht jeder weitere Schreibzugriff erneut eine Verdrängung
+ * auslöst.
+ * </p>
+ *
+ * <p>
+ * Der Zugriff selbst ist lock-frei (Zeitstempel pro Session); nur das
+ * Verdrängen ist serialisiert. Die Stores werden beim Verdrängen ausserhalb
+ * ihrer eigenen Locks aufgerufen.
+ * </p>
+ */
+@Component
+public class SessionLifecycleManager {
+    private static final Logger log = LoggerFactory.getLogger(SessionLifecycleManager.class);
+    private static final double LOW_WATERMARK = 0.9;
+
+    private final SessionLifecycleProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final List<SessionScopedStore> stores = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Manager mit Default-Grenzen ohne Metriken, für Stores, die ausserhalb von
+     * Spring erzeugt werden. Ohne Scheduler läuft hier kein Idle-Sweep.
+     */
+    public SessionLifecycleManager() {
+        this(new SessionLifecycleProperties(), Clock.systemUTC(), new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public SessionLifecycleManager(SessionLifecycleProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("ask.session.live", sessions, Map::size);
+        meterRegistry.gauge("ask.session.retained.bytes", retainedBytes, AtomicLong::get);
+    }
+
+    /**
+     * Registriert einen Store; er wird beim Verdrängen einer Session informiert.
+     */
+    public void register(SessionScopedStore store) {
+        stores.add(store);
+    }
+
+    /**
+     * Markiert einen lesenden Zugriff. Unbekannte Sessions werden dabei nicht
+     * angelegt.
+     */
+    public void touch(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Entry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastAccessMillis = clock.millis();
+        }
+    }
+
+    /**
+     * Meldet den aktuellen geschätzten Speicherbedarf eines Stores für eine
+     * Session und markiert den Zugriff. Überschreitet der Manager danach eine
+     * seiner Grenzen, werden andere Sessions verdrängt.
+     */
+    public void recordUsage(String sessionId, SessionScopedStore store, long bytes) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return;
+        }
+        long now = clock.millis();
+        while (true) {
+            Entry entry = sessions.computeIfAbsent(sessionId, id -> new Entry(now));
+            entry.lastAccessMillis = now;
+            long delta = entry.setBytes(store, Math.max(0, bytes));
+            if (delta != Entry.REMOVED) {
+                retainedBytes.addAndGet(delta);
+                break;
+            }
+            // Die Session wurde gleichzeitig verdrängt: neu anlegen.
+        }
+        if (overCaps(1.0)) {
+            enforceCaps(sessionId);
+        }
+    }
+
+    /**
+     * Meldet, dass ein Store die Daten einer Session selbst entfernt hat. Hält
+     * danach kein Store mehr Daten der Session, wird sie vergessen, ohne als
+     * Verdrängung gezählt zu werden (z.B. {@code DELETE /api/chat}).
+     */
+    public void release(String sessionId, SessionScopedStore store) {
+        if (sessionId == null) {
+            return;
+        }
+        Entry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return;
+        }
+        long delta = entry.release(store);
+        if (delta == Entry.REMOVED) {
+            return;
+        }
+        retainedBytes.addAndGet(delta);
+        if (entry.isRemoved()) {
+            sessions.remove(sessionId, entry);
+        }
+    }
+
+    /**
+     * Entfernt Sessions, deren letzter Zugriff länger als die Idle-TTL zurückliegt,
+     * und setzt danach die globalen Grenzen durch.
+     */
+    @Scheduled(fixedDelayString = "${ask.session.sweep-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void sweep() {
+        long cutoff = clock.millis() - TimeUnit.SECONDS.toMillis(properties.getIdleTtlSeconds());
+        int evicted = 0;
+        for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+            if (e.getValue().lastAccessMillis < cutoff && evict(e.getKey(), e.getValue(), "idle")) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Session sweep evicted {} idle sessions, {} remaining", evicted, sessions.size());
+        }
+        if (overCaps(1.0)) {
+            enforceCaps(null);
+        }
+    }
+
+    public int liveSessions() {
+        return sessions.size();
+    }
+
+    public long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    private boolean overCaps(double factor) {
+        return sessions.size() > properties.getMaxSessions() * factor
+                || retainedBytes.get() > properties.getMaxBytes() * factor;
+    }
+
+    private void enforceCaps(String protectedSessionId) {
+        synchronized (evictionLock) {
+            if (!overCaps(1.0)) {
+                return;
+            }
+            // Zeitstempel einfrieren, da sie sich während des Sortierens ändern können.
+            List<Candidate> candidates = new ArrayList<>(sessions.size());
+            sessions.forEach((id, entry) -> candidates.add(new Candidate(id, entry, entry.lastAccessMillis)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccessMillis));
+            for (Candidate candidate : candidates) {
+                if (!overCaps(LOW_WATERMARK)) {
+                    break;
+                }
+                if (candidate.sessionId().equals(protectedSessionId)) {
+                    continue;
+                }
+                String cause = sessions.size() > properties.getMaxSessions() * LOW_WATERMARK ? "sessions" : "bytes";
+                evict(candidate.sessionId(), candidate.entry(), cause);
+            }
+        }
+    }
+
+    private boolean evict(String sessionId, Entry entry, String cause) {
+        if (!sessions.remove(sessionId, entry)) {
+            return false;
+        }
+        retainedBytes.addAndGet(-entry.markRemoved());
+        for (SessionScopedStore store : stores) {
+            try {
+                store.evictSession(sessionId);
+            } catch (RuntimeException e) {
+                log.warn("Evicting session {} from {} failed: {}", sessionId, store.getClass().getSimpleName(),
+                        e.getMessage());
+            }
+        }
+        Counter.builder("ask.session.evictions").tag("cause", cause).register(meterRegistry).increment();
+        return true;
+    }
+
+    /**
+     * Grobe Schätzung des Heap-Bedarfs eines Werts (Strings, Zahlen, Maps,
+     * Collections, Records und Chat-Messages). Genauigkeit ist zweitrangig, die
+     * Schätzung muss nur proportional zum tatsächlichen Bedarf wachsen.
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null || value instanceof Enum<?>) {
+            return 0;
+        }
+        if (value instanceof CharSequence s) {
+            return 40 + 2L * s.length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof Message m) {
+            return 64 + estimateBytes(m.getText());
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                bytes += 32 + estimateBytes(e.getKey()) + estimateBytes(e.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 40;
+            for (Object element : collection) {
+                bytes += 8 + estimateBytes(element);
+            }
+            return bytes;
+        }
+        if (value instanceof double[] array) {
+            return 16 + 8L * array.length;
+        }
+        if (value instanceof Record record) {
+            long bytes = 16;
+            for (RecordComponent component : record.getClass().getRecordComponents()) {
+                try {
+                    bytes += 8 + estimateBytes(component.getAccessor().invoke(record));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    bytes += 8;
+                }
+            }
+            return bytes;
+        }
+        return 16;
+    }
+
+    private record Candidate(String sessionId, Entry entry, long lastAccessMillis) {
+    }
+
+    /**
+     * Zustand einer Session: letzter Zugriff und gemeldeter Speicherbedarf pro
+     * Store.
+     */
+    private static final class Entry {
+        static final long REMOVED = Long.MIN_VALUE;
+
+        volatile long lastAccessMillis;
+        private final Map<SessionScopedStore, Long> bytesByStore = new HashMap<>(4);
+        private boolean removed;
+
+        Entry(long now) {
+            this.lastAccessMillis = now;
+        }
+
+        /**
+         * Setzt den Bedarf eines Stores und liefert die Differenz zum bisherigen
+         * Wert, oder {@link #REMOVED}, wenn die Session bereits verdrängt wurde.
+         */
+        synchronized long setBytes(SessionScopedStore store, long bytes) {
+            if (removed) {
+                return REMOVED;
+            }
+            Long previous = bytes == 0 ? bytesByStore.remove(store) : bytesByStore.put(store, bytes);
+            return bytes - (previous == null ? 0 : previous);
+        }
+
+        /**
+         * Entfernt den Bedarf eines Stores und liefert die Differenz, oder
+         * {@link #REMOVED}. Hält danach kein Store mehr Daten, gilt die Session
+         * als entfernt.
+         */
+        synchronized long release(SessionScopedStore store) {
+            if (removed) {
+                return REMOVED;
+            }
+            Long previous = bytesByStore.remove(store);
+            removed = bytesByStore.isEmpty();
+            return previous == null ? 0 : -previous;
+        }
+
+        synchronized boolean isRemoved() {
+            return removed;
+        }
+
+        /**
+         * Markiert die Session als verdrängt und liefert ihren gesamten Bedarf.
+         */
+        synchronized long markRemoved() {
+            removed = true;
+            long total = 0;
+            for (long bytes : bytesByStore.values()) {
+                total += bytes;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ch.so.agi.ask.core;
+
+/**
+ * Store mit Daten pro Session, deren Lebensdauer der
+ * {@link SessionLifecycleManager} verwaltet.
+ */
+public interface SessionScopedStore {
+
+    /**
+     * Entfernt alle Daten der Session, ohne den Manager erneut zu informieren.
+     */
+    void evictSession(String sessionId);
+}
@@ -0,0 +1,242 @@
+package ch.so.agi.ask.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.SpeculationProperties;
+import ch.so.agi.ask.mcp.RequestDeadline;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+
+/**
+ * Führt den auf eine offene Auswahl folgenden ToolCall für die besten
+ * Kandidaten bereits im Hintergrund aus, während der Benutzer noch wählt. Die
+ * Resultate liegen pro Session neben dem
+ * {@link PendingChoiceStore.PendingChoiceContext} und werden beim Choice-
+ * Follow-up verwendet, sofern Request, ToolCall-Index und Choice-ID passen und
+ * die TTL nicht abgelaufen ist. Die Anzahl gleichzeitig laufender Spekulationen
+ * ist über ein globales Budget begrenzt; ohne freies Budget wird nicht
+ * spekuliert. Nicht mehr benötigte Aufrufe (ersetzt, verworfen, nicht gewählt)
+ * werden abgebrochen und geben ihr Budget sofort zurück.
+ * <p>
+ * Abgelaufene Spekulationen werden periodisch entfernt; die Lebensdauer der
+ * Session selbst verwaltet der {@link SessionLifecycleManager}.
+ */
+@Component
+public class SpeculativeChoiceExecutor implements SessionScopedStore {
+    private static final Logger log = LoggerFactory.getLogger(SpeculativeChoiceExecutor.class);
+
+    private final McpClient mcpClient;
+    private final SpeculationProperties properties;
+    private final Clock clock;
+    private final Semaphore budget;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Speculation> speculations = new ConcurrentHashMap<>();
+    private final SessionLifecycleManager lifecycle;
+
+    public SpeculativeChoiceExecutor(McpClient mcpClient, SpeculationProperties properties, Clock clock) {
+        this(mcpClient, properties, clock, new SessionLifecycleManager());
+    }
+
+    @Autowired
+    public SpeculativeChoiceExecutor(McpClient mcpClient, SpeculationProperties properties, Clock clock,
+            SessionLifecycleManager lifecycle) {
+        this.mcpClient = mcpClient;
+        this.properties = properties;
+        this.clock = clock;
+        this.budget = new Semaphore(Math.max(0, properties.getMaxConcurrency()));
+        this.lifecycle = lifecycle;
+        lifecycle.register(this);
+    }
+
+    /**
+     * Startet den ToolCall spekulativ für die ersten {@code maxCandidates}
+     * Einträge von {@code argsByChoiceId} (Reihenfolge = Ranking des Tools).
+     * Eine bestehende Spekulation der Session wird ersetzt und abgebrochen.
+     */
+    public void speculate(String sessionId, String requestId, int toolCallIndex, McpToolCapability capability,
+            Map<String, Map<String, Object>> argsByChoiceId) {
+        if (!properties.isEnabled() || sessionId == null || capability == null || argsByChoiceId == null
+                || properties.getExcludedCapabilities().contains(capability.id())) {
+            return;
+        }
+        // Die ersetzte Spekulation gibt ihr Budget vor der neuen frei
+        clear(sessionId);
+
+        Map<String, Candidate> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : argsByChoiceId.entrySet()) {
+            if (results.size() >= properties.getMaxCandidates()) {
+                break;
+            }
+            if (!budget.tryAcquire()) {
+                log.info("Speculation budget exhausted, skipping remaining candidates for {}", capability.id());
+                break;
+            }
+            results.put(entry.getKey(), new Candidate(capability, entry.getValue()));
+        }
+
+        if (results.isEmpty()) {
+            return;
+        }
+        Instant expiresAt = clock.instant().plusSeconds(properties.getTtlSeconds());
+        Speculation previous = speculations.put(sessionId,
+                new Speculation(requestId, toolCallIndex, expiresAt, results));
+        if (previous != null) {
+            previous.cancel();
+        }
+        // Die Resultate sind noch offen; grob wie die Argumente geschätzt
+        lifecycle.recordUsage(sessionId, this, 2 * SessionLifecycleManager.estimateBytes(argsByChoiceId));
+        log.info("Speculatively executing {} for {} candidate(s)", capability.id(), results.size());
+    }
+
+    /**
+     * Liefert (und verbraucht) das spekulative Resultat für die gewählte Option.
+     * Läuft der Aufruf noch, wird höchstens {@code max-wait-millis} und nicht
+     * über die {@code deadline} hinaus gewartet; danach wird die Spekulation
+     * verworfen und der Aufrufer führt den ToolCall selbst aus. Die Aufrufe der
+     * übrigen Kandidaten werden abgebrochen.
+     */
+    public Optional<PlannerOutput.Result> consume(String sessionId, String requestId, int toolCallIndex,
+            String choiceId, RequestDeadline deadline) {
+        if (sessionId == null || choiceId == null) {
+            return Optional.empty();
+        }
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation == null) {
+            return Optional.empty();
+        }
+        lifecycle.release(sessionId, this);
+        if (speculation.toolCallIndex() != toolCallIndex || !Objects.equals(speculation.requestId(), requestId)) {
+            speculation.cancel();
+            return Optional.empty();
+        }
+        Duration remaining = Duration.between(clock.instant(), speculation.expiresAt());
+        Candidate chosen = remaining.isNegative() ? null : speculation.results().get(choiceId);
+        speculation.results().values().stream().filter(candidate -> candidate != chosen).forEach(Candidate::cancel);
+        if (chosen == null) {
+            return Optional.empty();
+        }
+        Duration wait = Duration.ofMillis(properties.getMaxWaitMillis());
+        if (deadline.remaining().compareTo(wait) < 0) {
+            wait = deadline.remaining();
+        }
+        try {
+            PlannerOutput.Result result = chosen.future.get(wait.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Serving choice {} from speculative result", choiceId);
+            return Optional.ofNullable(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            log.info("Speculative tool call for choice {} still running after {} ms, executing live", choiceId,
+                    wait.toMillis());
+            chosen.cancel();
+            return Optional.empty();
+        } catch (CancellationException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("Speculative tool call for choice {} not usable: {}", choiceId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void clear(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation != null) {
+            speculation.cancel();
+            lifecycle.release(sessionId, this);
+        }
+    }
+
+    /**
+     * Entfernt Spekulationen, deren TTL abgelaufen ist; nicht gewählte
+     * Auswahlen würden ihre Resultate sonst bis zum Ende der Session halten.
+     */
+    @Scheduled(fixedDelayString = "${ask.speculation.ttl-seconds:120}", timeUnit = TimeUnit.SECONDS)
+    public void sweep() {
+        Instant now = clock.instant();
+        speculations.forEach((sessionId, speculation) -> {
+            if (speculation.expiresAt().isBefore(now) && speculations.remove(sessionId, speculation)) {
+                speculation.cancel();
+                lifecycle.release(sessionId, this);
+            }
+        });
+    }
+
+    @Override
+    public void evictSession(String sessionId) {
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation != null) {
+            speculation.cancel();
+        }
+    }
+
+    int size() {
+        return speculations.size();
+    }
+
+    int availableBudget() {
+        return budget.availablePermits();
+    }
+
+    private record Speculation(String requestId, int toolCallIndex, Instant expiresAt,
+            Map<String, Candidate> results) {
+
+        void cancel() {
+            results.values().forEach(Candidate::cancel);
+        }
+    }
+
+    /**
+     * Spekulativer Aufruf für einen Kandidaten. Das Budget wird genau einmal
+     * zurückgegeben: beim Ende des Aufrufs oder beim Abbruch, was zuerst eintritt.
+     */
+    private final class Candidate {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Future<PlannerOutput.Result> future;
+
+        Candidate(McpToolCapability capability, Map<String, Object> args) {
+            this.future = executor.submit(() -> {
+                try {
+                    return mcpClient.execute(capability, args);
+                } finally {
+                    release();
+                }
+            });
+        }
+
+        void cancel() {
+            future.cancel(true);
+            release();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                budget.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ch.so.agi.ask.core;
+
+import java.util.Map;
+
+import ch.so.agi.ask.model.PlannerOutput;
+
+/**
+ * Einfache Abhängigkeitsanalyse für die Steps eines {@link PlannerOutput}. Ein
+ * Step ist von seinen Vorgängern abhängig, wenn einer seiner ToolCalls keine
+ * eigenen Argumente mitbringt und deshalb auf die Session-Auswahl (Selection)
+ * eines vorangehenden Steps angewiesen sein kann – z. B. {@code oereb.egridByXY}
+ * ohne Koordinate nach einem {@code goto_address}. Das gilt auch für spätere
+ * ToolCalls: liefert der vorangehende ToolCall im selben Step keine Treffer,
+ * greifen sie auf die Session-Auswahl zurück. Alle übrigen Steps sind in sich
+ * geschlossen und können parallel ausgeführt werden.
+ */
+final class StepDependencies {
+
+    private StepDependencies() {
+    }
+
+    /**
+     * Liefert {@code true}, wenn der Step die Session-Auswahl benötigt und daher
+     * erst nach allen vorangehenden Steps ausgeführt werden darf.
+     */
+    static boolean usesSessionSelection(PlannerOutput.Step step) {
+        if (step == null || step.toolCalls() == null || step.toolCalls().isEmpty()) {
+            return false;
+        }
+        return step.toolCalls().stream().anyMatch(toolCall -> toolCall == null || !hasOwnArgs(toolCall.args()));
+    }
+
+    private static boolean hasOwnArgs(Map<String, Object> args) {
+        if (args == null || args.isEmpty()) {
+            return false;
+        }
+        return args.values().stream().anyMatch(value -> value != null && !(value instanceof String s && s.isBlank())
+                && !(value instanceof Map<?, ?> m && m.isEmpty()));
+    }
+}
@@ -0,0 +1,105 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inkrementeller Scanner für die gestreamte Planner-Antwort. Die Tokens werden
+ * blockweise zugeführt; sobald ein Objekt im Array {@code steps} des
+ * Top-Level-Objekts geschlossen wird, liefert {@link #feed(String)} dessen
+ * JSON-Text. Der Scanner validiert nichts – er verfolgt nur Verschachtelung,
+ * Strings und Escapes; Text vor der ersten öffnenden Klammer (z. B. ein
+ * Markdown-Fence) wird ignoriert.
+ */
+final class StreamingPlanParser {
+    private static final String STEPS_KEY = "steps";
+
+    private final StringBuilder content = new StringBuilder();
+    private int position;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int stringStart = -1;
+    private String lastString;
+    private String currentKey;
+    private int stepsArrayDepth = -1;
+    private int stepStart = -1;
+    private boolean topLevelClosed;
+
+    /**
+     * Hängt den nächsten Block an und liefert die darin abgeschlossenen Steps
+     * (JSON-Text je Step, in Planner-Reihenfolge).
+     */
+    List<String> feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return List.of();
+        }
+        content.append(chunk);
+        List<String> completed = new ArrayList<>();
+        for (; position < content.length(); position++) {
+            char c = content.charAt(position);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1) {
+                        lastString = content.substring(stringStart, position);
+                    }
+                }
+                continue;
+            }
+            if (topLevelClosed || (depth == 0 && c != '{')) {
+                continue;
+            }
+            switch (c) {
+            case '"' -> {
+                inString = true;
+                stringStart = position + 1;
+            }
+            case ':' -> {
+                if (depth == 1) {
+                    currentKey = lastString;
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    currentKey = null;
+                }
+            }
+            case '{', '[' -> {
+                depth++;
+                if (c == '[' && depth == 2 && STEPS_KEY.equals(currentKey)) {
+                    stepsArrayDepth = depth;
+                } else if (c == '{' && stepsArrayDepth > 0 && depth == stepsArrayDepth + 1) {
+                    stepStart = position;
+                }
+            }
+            case '}', ']' -> {
+                if (c == '}' && stepStart >= 0 && depth == stepsArrayDepth + 1) {
+                    completed.add(content.substring(stepStart, position + 1));
+                    stepStart = -1;
+                } else if (c == ']' && depth == stepsArrayDepth) {
+                    stepsArrayDepth = -1;
+                }
+                depth--;
+                if (depth == 0) {
+                    topLevelClosed = true;
+                }
+            }
+            default -> {
+            }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Der bisher empfangene Text der Antwort.
+     */
+    String content() {
+        return content.toString();
+    }
+}
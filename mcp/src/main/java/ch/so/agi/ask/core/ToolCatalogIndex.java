@@ -0,0 +1,228 @@
+package ch.so.agi.ask.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.McpToolCapability;
+
+/**
+ * Lexikalischer Index über den Tool-Katalog, mit dem pro Anfrage nur die
+ * relevanten Capabilities in den Planner-Prompt aufgenommen werden.
+ *
+ * <p>
+ * Indexiert werden Capability-Id, Beschreibung, Parameterbeschreibungen und die
+ * {@code McpToolHints}-Keywords (doppelt gewichtet), jeweils klein geschrieben
+ * und mit aufgelösten Umlauten. Ein Token der Anfrage trifft einen Term exakt,
+ * als Teil eines zusammengesetzten Worts ("Gewässerschutzkarte" → "karte") oder
+ * unscharf über Trigramme ("Strase" → "strasse"). Der Score einer Capability
+ * ist die Summe der IDF-gewichteten besten Treffer pro Token. LV95-Koordinaten
+ * und EGRIDs in der Anfrage zählen als Terme "koordinate" bzw. "egrid".
+ * </p>
+ */
+final class ToolCatalogIndex {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern CAMEL_CASE = Pattern.compile("(?<=\\p{Ll})(?=\\p{Lu})");
+    private static final Pattern LV95 = Pattern.compile("\\b2\\d{6}(?:\\.\\d+)?\\D+1\\d{6}\\b");
+    private static final Pattern EGRID = Pattern.compile("\\bCH\\d{9,12}\\b", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> STOPWORDS = Set.of("der", "die", "das", "den", "dem", "des", "ein", "eine",
+            "einen", "einer", "eines", "einem", "und", "oder", "mit", "von", "vom", "zu", "zur", "zum", "im", "in",
+            "an", "am", "auf", "aus", "bei", "nach", "fuer", "ueber", "als", "da", "wie", "was", "sie", "ich", "mir",
+            "mich", "du", "dir", "es", "ist", "sind", "wird", "werden", "soll", "sollten", "kann", "will", "bitte",
+            "the", "a", "of", "for", "and", "or", "to", "at", "using", "via", "api", "ch", "so", "string", "number",
+            "must", "include", "keys", "expecting");
+    private static final double KEYWORD_WEIGHT = 2.0;
+    private static final double EXACT = 1.0;
+    private static final double COMPOUND = 0.7;
+    private static final double FUZZY = 0.5;
+
+    private final List<String> terms = new ArrayList<>();
+    private final List<Set<String>> termTrigrams = new ArrayList<>();
+    private final List<Map<McpToolCapability, Double>> postings = new ArrayList<>();
+    private final double[] idf;
+    private final Map<McpToolCapability, List<McpToolCapability>> related = new EnumMap<>(McpToolCapability.class);
+    private final Set<McpToolCapability> catalog = EnumSet.noneOf(McpToolCapability.class);
+
+    /**
+     * Ergebnis einer Auswahl: die ausgewählten Capabilities, der Score des besten
+     * Treffers und ob mangels Konfidenz der ganze Katalog verwendet wird.
+     */
+    record Selection(Set<McpToolCapability> capabilities, double confidence, boolean fallback) {
+    }
+
+    ToolCatalogIndex(Collection<ToolRegistry.ToolDescriptor> tools) {
+        Map<String, Integer> termIds = new HashMap<>();
+        for (ToolRegistry.ToolDescriptor tool : tools) {
+            McpToolCapability capability = tool.capability();
+            catalog.add(capability);
+            related.put(capability, tool.related() == null ? List.of() : tool.related());
+            index(termIds, capability, capabilityTerms(capability), 1.0);
+            index(termIds, capability, tokenize(tool.description()), 1.0);
+            if (tool.params() != null) {
+                for (ToolRegistry.ToolParamDescriptor param : tool.params()) {
+                    index(termIds, capability, tokenize(param.description()), 1.0);
+                }
+            }
+            if (tool.keywords() != null) {
+                for (String keyword : tool.keywords()) {
+                    index(termIds, capability, tokenize(keyword), KEYWORD_WEIGHT);
+                }
+            }
+        }
+        idf = new double[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            idf[i] = Math.log(1.0 + (double) catalog.size() / postings.get(i).size());
+        }
+    }
+
+    /**
+     * Wählt bis zu {@code topK} Capabilities, deren Score mindestens
+     * {@code relativeScore} mal dem besten Score entspricht, plus deren
+     * {@code related}-Capabilities. Liegt der beste Score unter {@code minScore},
+     * wird der ganze Katalog geliefert.
+     */
+    Selection select(String query, int topK, double minScore, double relativeScore) {
+        Map<McpToolCapability, Double> scores = score(query);
+        double best = scores.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        if (best < minScore) {
+            return new Selection(EnumSet.copyOf(catalogOrAll()), best, true);
+        }
+        Set<McpToolCapability> selected = EnumSet.noneOf(McpToolCapability.class);
+        scores.entrySet().stream()
+                .filter(e -> e.getValue() >= best * relativeScore)
+                .sorted(Map.Entry.<McpToolCapability, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.max(1, topK))
+                .forEach(e -> selected.add(e.getKey()));
+        addRelated(selected);
+        return new Selection(selected, best, false);
+    }
+
+    Map<McpToolCapability, Double> score(String query) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (query != null && LV95.matcher(query).find()) {
+            tokens.add("koordinate");
+        }
+        if (query != null && EGRID.matcher(query).find()) {
+            tokens.add("egrid");
+        }
+        Map<McpToolCapability, Double> scores = new EnumMap<>(McpToolCapability.class);
+        Map<McpToolCapability, Double> tokenBest = new EnumMap<>(McpToolCapability.class);
+        for (String token : tokens) {
+            tokenBest.clear();
+            Set<String> tokenTrigrams = null;
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                double match;
+                if (token.equals(term)) {
+                    match = EXACT;
+                } else if (term.length() >= 4 && token.contains(term)
+                        || token.length() >= 5 && term.contains(token)) {
+                    match = COMPOUND;
+                } else if (token.length() >= 5 && term.length() >= 5
+                        && Math.abs(token.length() - term.length()) <= 2) {
+                    if (tokenTrigrams == null) {
+                        tokenTrigrams = trigrams(token);
+                    }
+                    match = dice(tokenTrigrams, termTrigrams.get(i)) >= 0.6 ? FUZZY : 0;
+                } else {
+                    match = 0;
+                }
+                if (match == 0) {
+                    continue;
+                }
+                double termIdf = idf[i];
+                for (Map.Entry<McpToolCapability, Double> posting : postings.get(i).entrySet()) {
+                    tokenBest.merge(posting.getKey(), match * termIdf * posting.getValue(), Math::max);
+                }
+            }
+            tokenBest.forEach((capability, score) -> scores.merge(capability, score, Double::sum));
+        }
+        return scores;
+    }
+
+    private Set<McpToolCapability> catalogOrAll() {
+        return catalog.isEmpty() ? EnumSet.allOf(McpToolCapability.class) : catalog;
+    }
+
+    private void addRelated(Set<McpToolCapability> selected) {
+        List<McpToolCapability> pending = new ArrayList<>(selected);
+        while (!pending.isEmpty()) {
+            McpToolCapability capability = pending.remove(pending.size() - 1);
+            for (McpToolCapability companion : related.getOrDefault(capability, List.of())) {
+                if (catalog.contains(companion) && selected.add(companion)) {
+                    pending.add(companion);
+                }
+            }
+        }
+    }
+
+    private void index(Map<String, Integer> termIds, McpToolCapability capability, List<String> tokens,
+            double weight) {
+        for (String token : tokens) {
+            int id = termIds.computeIfAbsent(token, t -> {
+                terms.add(t);
+                termTrigrams.add(trigrams(t));
+                postings.add(new EnumMap<>(McpToolCapability.class));
+                return terms.size() - 1;
+            });
+            postings.get(id).merge(capability, weight, Math::max);
+        }
+    }
+
+    private static List<String> capabilityTerms(McpToolCapability capability) {
+        List<String> parts = new ArrayList<>();
+        for (String segment : capability.id().split("\\.")) {
+            for (String part : CAMEL_CASE.split(segment)) {
+                parts.addAll(tokenize(part));
+            }
+        }
+        return parts;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String raw : NON_WORD.split(fold(text))) {
+            if (raw.length() >= 2 && !STOPWORDS.contains(raw)) {
+                tokens.add(raw);
+            }
+        }
+        return tokens;
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT).replace("ä", "ae").replace("ö", "oe").replace("ü", "ue")
+                .replace("ß", "ss");
+    }
+
+    private static Set<String> trigrams(String term) {
+        Set<String> grams = new java.util.HashSet<>();
+        String padded = " " + term + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static double dice(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String gram : a) {
+            if (b.contains(gram)) {
+                common++;
+            }
+        }
+        return 2.0 * common / (a.size() + b.size());
+    }
+}
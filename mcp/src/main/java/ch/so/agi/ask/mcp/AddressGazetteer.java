@@ -0,0 +1,521 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.GazetteerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Lokales Verzeichnis der Gebäudeadressen für
+ * {@code geolocation.geocode.address}. Die Adressen liegen in parallelen
+ * Arrays, gruppiert nach normalisiertem Strassennamen (Kleinbuchstaben,
+ * Umlaute ausgeschrieben, {@code str.} → {@code strasse}, ohne Leer- und
+ * Satzzeichen). Strassennamen mit Tippfehlern werden über einen
+ * Trigramm-Index vorausgewählt und per Damerau-Levenshtein-Distanz geprüft
+ * (0 Fehler bis 4 Zeichen, 1 bis 8 Zeichen, sonst {@code max-edits}).
+ * Hausnummer und, falls angegeben, PLZ/Ortschaft müssen passen; sonst gilt
+ * die Anfrage als Fehltreffer und der Remote-Geocoder wird verwendet.
+ * <p>
+ * Für {@code geolocation.reverse} sind die Adresspunkte zusätzlich in einem
+ * {@link KdTree} indexiert ({@link #nearest(double, double, int, double)}).
+ * <p>
+ * Metriken: {@code ask.gazetteer.lookups} ({@code result=hit|miss}),
+ * {@code ask.gazetteer.reverse} ({@code result=hit|miss}) und
+ * {@code ask.gazetteer.entries}.
+ */
+@Component
+public class AddressGazetteer {
+    private static final Logger log = LoggerFactory.getLogger(AddressGazetteer.class);
+    private static final Pattern HOUSE_NUMBER = Pattern.compile("\\d+[a-z]?");
+    private static final Pattern POSTCODE = Pattern.compile("\\d{4}");
+
+    public record Address(String id, String label, double e, double n) {
+    }
+
+    /**
+     * Adresse mit Distanz in Metern zum angefragten Punkt.
+     */
+    public record Nearby(Address address, double distance) {
+    }
+
+    private final GazetteerProperties properties;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter reverseHits;
+    private final Counter reverseMisses;
+    private volatile Index index = Index.EMPTY;
+    private volatile long loadedModified = -1;
+
+    public AddressGazetteer(GazetteerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = Counter.builder("ask.gazetteer.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("ask.gazetteer.lookups").tag("result", "miss").register(meterRegistry);
+        this.reverseHits = Counter.builder("ask.gazetteer.reverse").tag("result", "hit").register(meterRegistry);
+        this.reverseMisses = Counter.builder("ask.gazetteer.reverse").tag("result", "miss").register(meterRegistry);
+        meterRegistry.gauge("ask.gazetteer.entries", this, AddressGazetteer::size);
+    }
+
+    /**
+     * Leeres Verzeichnis ohne Datei; jede Anfrage geht an den Remote-Geocoder.
+     */
+    public static AddressGazetteer empty() {
+        return new AddressGazetteer(new GazetteerProperties(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Lädt die Datei beim Start und danach, sobald sie sich geändert hat.
+     */
+    @Scheduled(fixedDelayString = "${ask.gazetteer.refresh-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        if (!properties.isEnabled() || properties.getFile() == null || properties.getFile().isBlank()) {
+            return;
+        }
+        Path path = Path.of(properties.getFile());
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == loadedModified) {
+                return;
+            }
+            try (Reader reader = open(path)) {
+                load(reader);
+            }
+            loadedModified = modified;
+            log.info("Gazetteer loaded {} addresses from {}", size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Gazetteer file {} could not be loaded, keeping {} addresses", path, size(), e);
+        }
+    }
+
+    private static Reader open(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ersetzt das Verzeichnis durch den CSV-Inhalt von {@code reader}
+     * (Kopfzeile mit {@code id;strassenname;hausnummer;plz;ortschaft;e;n},
+     * Trennzeichen {@code ;} oder {@code ,}).
+     */
+    void load(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String header = in.readLine();
+        if (header == null) {
+            throw new IOException("Gazetteer file is empty");
+        }
+        header = header.replace("\uFEFF", "");
+        char delimiter = header.indexOf(';') >= 0 ? ';' : ',';
+        List<String> columns = split(header, delimiter).stream().map(c -> c.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int id = column(columns, "id");
+        int street = column(columns, "strassenname");
+        int number = column(columns, "hausnummer");
+        int postcode = column(columns, "plz");
+        int locality = column(columns, "ortschaft");
+        int east = column(columns, "e");
+        int north = column(columns, "n");
+
+        Index.Builder builder = new Index.Builder();
+        int skipped = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = split(line, delimiter);
+            try {
+                builder.add(fields.get(id), fields.get(street), fields.get(number), fields.get(postcode),
+                        fields.get(locality), Double.parseDouble(fields.get(east)),
+                        Double.parseDouble(fields.get(north)));
+            } catch (RuntimeException e) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Gazetteer skipped {} malformed rows", skipped);
+        }
+        index = builder.build();
+    }
+
+    /**
+     * Adressen zur Anfrage (z.B. {@code Langendorfstr. 19b, Solothurn}),
+     * beste Strassen-Übereinstimmung zuerst. Leer bei Fehltreffer oder wenn
+     * kein Verzeichnis geladen ist.
+     */
+    public List<Address> lookup(String query, int limit) {
+        Index current = index;
+        if (current.size() == 0 || query == null) {
+            return List.of();
+        }
+        Query parsed = Query.parse(query);
+        List<Address> result = parsed == null ? List.of()
+                : current.find(parsed, properties.getMaxEdits(), limit);
+        (result.isEmpty() ? misses : hits).increment();
+        return result;
+    }
+
+    /**
+     * Höchstens {@code k} Adressen im Umkreis von {@code maxDistance} Metern um
+     * die LV95-Koordinate, nächste zuerst.
+     */
+    public List<Nearby> nearest(double east, double north, int k, double maxDistance) {
+        Index current = index;
+        if (current.size() == 0) {
+            return List.of();
+        }
+        List<Nearby> result = current.nearest(east, north, k, maxDistance);
+        (result.isEmpty() ? reverseMisses : reverseHits).increment();
+        return result;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    static String fold(String value) {
+        String folded = value.toLowerCase(Locale.ROOT)
+                .replace("ä", "ae").replace("ö", "oe").replace("ü", "ue").replace("ß", "ss");
+        folded = Normalizer.normalize(folded, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        folded = folded.replaceAll("str\\.", "strasse ");
+        return folded.replaceAll("[^a-z0-9,]+", " ").replaceAll("\\s+", " ").trim();
+    }
+
+    private static String key(String value) {
+        return fold(value).replace(" ", "").replace(",", "");
+    }
+
+    private static int column(List<String> columns, String name) throws IOException {
+        int index = columns.indexOf(name);
+        if (index < 0) {
+            throw new IOException("Gazetteer file lacks column " + name);
+        }
+        return index;
+    }
+
+    private static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Optimal-String-Alignment-Distanz; {@code max + 1}, sobald sie
+     * {@code max} sicher übersteigt.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static int allowedEdits(int length, int maxEdits) {
+        if (length <= 4) {
+            return 0;
+        }
+        return length <= 8 ? Math.min(1, maxEdits) : maxEdits;
+    }
+
+    private static Set<String> trigrams(String key) {
+        String padded = "$" + key + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Zerlegte Anfrage: Strassen-Schlüssel, Hausnummer und optional PLZ bzw.
+     * Ortschafts-Schlüssel. Ohne Hausnummer {@code null}.
+     */
+    record Query(String street, String number, String postcode, String locality) {
+
+        static Query parse(String raw) {
+            String folded = fold(raw);
+            String streetPart = folded;
+            String localityPart = "";
+            int comma = folded.indexOf(',');
+            if (comma >= 0) {
+                streetPart = folded.substring(0, comma);
+                localityPart = folded.substring(comma + 1).replace(",", " ");
+            }
+            String[] tokens = streetPart.trim().split(" ");
+            int numberAt = -1;
+            for (int i = 1; i < tokens.length; i++) {
+                if (Character.isDigit(tokens[i].charAt(0))) {
+                    numberAt = i;
+                    break;
+                }
+            }
+            if (numberAt < 0) {
+                return null;
+            }
+            String number = tokens[numberAt];
+            int next = numberAt + 1;
+            if (next < tokens.length && tokens[next].length() == 1 && Character.isLetter(tokens[next].charAt(0))
+                    && number.chars().allMatch(Character::isDigit)) {
+                number += tokens[next];
+                next++;
+            }
+            if (!HOUSE_NUMBER.matcher(number).matches()) {
+                return null;
+            }
+            String street = String.join("", List.of(tokens).subList(0, numberAt));
+
+            String postcode = null;
+            StringBuilder locality = new StringBuilder();
+            List<String> rest = new ArrayList<>(List.of(tokens).subList(next, tokens.length));
+            rest.addAll(List.of(localityPart.trim().split(" ")));
+            for (String token : rest) {
+                if (POSTCODE.matcher(token).matches()) {
+                    postcode = token;
+                } else {
+                    locality.append(token);
+                }
+            }
+            return new Query(street, number, postcode, locality.toString());
+        }
+    }
+
+    private record Candidate(int street, int distance) {
+    }
+
+    private record Match(int entry, int distance) {
+    }
+
+    /**
+     * Unveränderlicher Index; wird beim Laden als Ganzes ersetzt.
+     */
+    private static final class Index {
+        static final Index EMPTY = new Builder().build();
+
+        private final String[] ids;
+        private final String[] labels;
+        private final double[] east;
+        private final double[] north;
+        private final String[] numbers;
+        private final String[] postcodes;
+        private final String[] localities;
+        private final String[] streets;
+        private final int[][] entriesByStreet;
+        private final Map<String, Integer> streetIds;
+        private final Map<String, int[]> streetsByTrigram;
+        private final KdTree points;
+
+        private Index(Builder builder) {
+            int size = builder.ids.size();
+            ids = builder.ids.toArray(String[]::new);
+            labels = builder.labels.toArray(String[]::new);
+            numbers = builder.numbers.toArray(String[]::new);
+            postcodes = builder.postcodes.toArray(String[]::new);
+            localities = builder.localities.toArray(String[]::new);
+            east = new double[size];
+            north = new double[size];
+            for (int i = 0; i < size; i++) {
+                east[i] = builder.east.get(i);
+                north[i] = builder.north.get(i);
+            }
+            points = new KdTree(east, north);
+            streets = builder.entries.keySet().toArray(String[]::new);
+            entriesByStreet = new int[streets.length][];
+            streetIds = new HashMap<>();
+            Map<String, List<Integer>> grams = new HashMap<>();
+            for (int s = 0; s < streets.length; s++) {
+                entriesByStreet[s] = builder.entries.get(streets[s]).stream().mapToInt(Integer::intValue).toArray();
+                streetIds.put(streets[s], s);
+                for (String gram : trigrams(streets[s])) {
+                    grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(s);
+                }
+            }
+            streetsByTrigram = new HashMap<>();
+            grams.forEach((gram, list) -> streetsByTrigram.put(gram,
+                    list.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        List<Nearby> nearest(double e, double n, int k, double maxDistance) {
+            return points.nearest(e, n, k, maxDistance).stream()
+                    .map(neighbour -> new Nearby(address(neighbour.index()), neighbour.distance()))
+                    .toList();
+        }
+
+        private Address address(int entry) {
+            return new Address(ids[entry], labels[entry], east[entry], north[entry]);
+        }
+
+        List<Address> find(Query query, int maxEdits, int limit) {
+            List<Candidate> candidates = candidates(query.street(), maxEdits);
+            List<Match> matches = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                for (int entry : entriesByStreet[candidate.street()]) {
+                    if (numbers[entry].equals(query.number()) && localityMatches(entry, query)) {
+                        matches.add(new Match(entry, candidate.distance()));
+                    }
+                }
+            }
+            return matches.stream()
+                    .sorted(Comparator.comparingInt(Match::distance).thenComparing(match -> labels[match.entry()]))
+                    .limit(limit)
+                    .map(match -> address(match.entry()))
+                    .toList();
+        }
+
+        private List<Candidate> candidates(String street, int maxEdits) {
+            Integer exact = streetIds.get(street);
+            if (exact != null) {
+                return List.of(new Candidate(exact, 0));
+            }
+            int allowed = allowedEdits(street.length(), maxEdits);
+            if (allowed == 0) {
+                return List.of();
+            }
+            Set<String> grams = trigrams(street);
+            int threshold = Math.max(1, grams.size() - 3 * allowed);
+            int[] counts = new int[streets.length];
+            List<Integer> touched = new ArrayList<>();
+            for (String gram : grams) {
+                for (int s : streetsByTrigram.getOrDefault(gram, new int[0])) {
+                    if (counts[s]++ == 0) {
+                        touched.add(s);
+                    }
+                }
+            }
+            List<Candidate> candidates = new ArrayList<>();
+            int best = allowed;
+            for (int s : touched) {
+                if (counts[s] < threshold) {
+                    continue;
+                }
+                int distance = distance(street, streets[s], best);
+                if (distance < best) {
+                    candidates.clear();
+                    best = distance;
+                }
+                if (distance <= best) {
+                    candidates.add(new Candidate(s, distance));
+                }
+            }
+            return candidates;
+        }
+
+        private boolean localityMatches(int entry, Query query) {
+            if (query.postcode() != null && !query.postcode().equals(postcodes[entry])) {
+                return false;
+            }
+            String locality = query.locality();
+            if (locality.isEmpty()) {
+                return true;
+            }
+            return localities[entry].startsWith(locality)
+                    || (locality.length() >= 5 && distance(locality, localities[entry], 1) <= 1);
+        }
+
+        private static final class Builder {
+            private final List<String> ids = new ArrayList<>();
+            private final List<String> labels = new ArrayList<>();
+            private final List<String> numbers = new ArrayList<>();
+            private final List<String> postcodes = new ArrayList<>();
+            private final List<String> localities = new ArrayList<>();
+            private final List<Double> east = new ArrayList<>();
+            private final List<Double> north = new ArrayList<>();
+            private final Map<String, List<Integer>> entries = new LinkedHashMap<>();
+
+            void add(String id, String street, String number, String postcode, String locality, double e, double n) {
+                String streetKey = key(street);
+                String numberKey = key(number);
+                if (id.isBlank() || streetKey.isEmpty() || numberKey.isEmpty()) {
+                    throw new IllegalArgumentException("Incomplete address " + id);
+                }
+                entries.computeIfAbsent(streetKey, k -> new ArrayList<>()).add(ids.size());
+                ids.add(id.trim());
+                labels.add("%s %s, %s %s".formatted(street.trim(), number.trim(), postcode.trim(), locality.trim()));
+                numbers.add(numberKey);
+                postcodes.add(postcode.trim());
+                localities.add(key(locality));
+                east.add(e);
+                north.add(n);
+            }
+
+            Index build() {
+                return new Index(this);
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
@@ -34,7 +35,13 @@ public class FeatureSearchTools {
     private final ObjectMapper objectMapper;
 
     public FeatureSearchTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper) {
-        this.restClient = restClientBuilder.baseUrl(BASE_URL).build();
+        this(restClientBuilder, objectMapper, UpstreamClients.direct());
+    }
+
+    @Autowired
+    public FeatureSearchTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients) {
+        this.restClient = upstreamClients.builder("feature-search", restClientBuilder, BASE_URL).build();
         this.objectMapper = objectMapper;
     }
 
@@ -53,6 +60,10 @@ public class FeatureSearchTools {
                     Mehrere Treffer werden als Auswahloptionen zurückgegeben (Status NEEDS_USER_CHOICE).
                     """
     )
+    @McpToolHints(
+            keywords = { "grundstück", "parzelle", "liegenschaft", "nummer", "grundbuch", "gb" },
+            related = { "featureSearch.getParcelByEgrid" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 2000, keyArgs = { "number", "municipality" })
     public FeatureSearchResult getEgridByNumberAndMunicipality(
             @McpToolParam(
                     description = """
@@ -111,6 +122,8 @@ public class FeatureSearchTools {
                     Liefert Geometrie und Grundbuch-Attribute eines Grundstücks anhand des EGRID über den geo.so.ch-Feature-Service.
                     """
     )
+    @McpToolHints(keywords = { "grundstück", "parzelle", "liegenschaft", "egrid", "geometrie", "fläche" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 2000, keyArgs = { "egrid" })
     public FeatureSearchResult getParcelByEgrid(
             @McpToolParam(
                     description = "Erwartet das EGRID des Grundstücks (z.B. \"CH123456789\").",
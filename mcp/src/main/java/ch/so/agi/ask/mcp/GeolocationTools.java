@@ -8,6 +8,7 @@ import ch.so.agi.ask.mcp.McpToolArgSchema;
 import ch.so.agi.ask.mcp.ToolResult.Status;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
@@ -18,6 +19,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -29,16 +31,36 @@ public class GeolocationTools {
     private static final String BASE_URL = "https://geo.so.ch/api/search/v2/";
     private static final String ADDRESS_FILTER = "ch.so.agi.av.gebaeudeadressen.gebaeudeeingaenge";
     private static final String MUNICIPALITY_FILTER = "ch.so.agi.gemeindegrenzen";
+    private static final String LV95 = "EPSG:2056";
     private static final int DEFAULT_LIMIT = 25;
+    private static final double DEFAULT_REVERSE_RADIUS = 250;
 
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
+    private final AddressGazetteer gazetteer;
+    private final MunicipalityIndex municipalities;
 
     public GeolocationTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper) {
-        this.restClient = restClientBuilder
-                .baseUrl(BASE_URL)
-                .build();
+        this(restClientBuilder, objectMapper, UpstreamClients.direct());
+    }
+
+    public GeolocationTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients) {
+        this(restClientBuilder, objectMapper, upstreamClients, AddressGazetteer.empty());
+    }
+
+    public GeolocationTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, AddressGazetteer gazetteer) {
+        this(restClientBuilder, objectMapper, upstreamClients, gazetteer, MunicipalityIndex.empty());
+    }
+
+    @Autowired
+    public GeolocationTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, AddressGazetteer gazetteer, MunicipalityIndex municipalities) {
+        this.restClient = upstreamClients.builder("geolocation", restClientBuilder, BASE_URL).build();
         this.objectMapper = objectMapper;
+        this.gazetteer = gazetteer;
+        this.municipalities = municipalities;
     }
 
     public record GeolocationResult(
@@ -49,8 +71,11 @@ public class GeolocationTools {
 
     @McpTool(
             name = "geolocation.geocode.address",
-            description = "Geocoder for Swiss Solothurn addresses using the geo.so.ch API."
+            description = "Geocoder for Swiss Solothurn addresses using a local address index and the geo.so.ch API."
     )
+    @McpToolHints(
+            keywords = { "adresse", "strasse", "gasse", "weg", "platz", "hausnummer", "gehe", "zeige", "zoom", "wo" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 5000, keyArgs = { "q" })
     public GeolocationResult geocodeAddress(
             @McpToolParam(description = "Query string that represents an address", required = true)
             @McpToolArgSchema("{ 'q': 'string - full address query' }")
@@ -62,14 +87,26 @@ public class GeolocationTools {
             return new GeolocationResult(Status.ERROR, List.of(), "Parameter 'q' darf nicht leer sein.");
         }
 
+        List<AddressGazetteer.Address> local = gazetteer.lookup(q, DEFAULT_LIMIT);
+        if (!local.isEmpty()) {
+            List<McpResponseItem> items = local.stream()
+                    .map(address -> toItem(address.id(), address.label(),
+                            List.of(address.e(), address.n(), address.e(), address.n()), LV95, false))
+                    .toList();
+            return new GeolocationResult(items.size() > 1 ? Status.NEEDS_USER_CHOICE : Status.SUCCESS,
+                    McpResponseItem.toMapList(items), String.format("%d Treffer gefunden.", items.size()));
+        }
+
         return executeGeocode(q, ADDRESS_FILTER, this::sanitizeAddressLabel, true, false,
                 "Keine Treffer gefunden.", "%d Treffer gefunden.");
     }
 
     @McpTool(
             name = "geolocation.geocode.municipality",
-            description = "Geocoder for Swiss Solothurn municipalities using the geo.so.ch API."
+            description = "Geocoder for Swiss Solothurn municipalities using a local boundary index and the geo.so.ch API."
     )
+    @McpToolHints(keywords = { "gemeinde", "ortschaft", "ort", "stadt", "dorf", "gehe", "zeige", "zoom", "wo" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 500, keyArgs = { "q" })
     public GeolocationResult geocodeMunicipality(
             @McpToolParam(description = "Query string that represents a municipality", required = true)
             @McpToolArgSchema("{ 'q': 'string - municipality name' }")
@@ -81,10 +118,45 @@ public class GeolocationTools {
             return new GeolocationResult(Status.ERROR, List.of(), "Parameter 'q' darf nicht leer sein.");
         }
 
+        List<MunicipalityIndex.Municipality> local = municipalities.byName(q, DEFAULT_LIMIT);
+        if (!local.isEmpty()) {
+            List<McpResponseItem> items = local.stream().map(this::toItem).toList();
+            return new GeolocationResult(items.size() > 1 ? Status.NEEDS_USER_CHOICE : Status.SUCCESS,
+                    McpResponseItem.toMapList(items), String.format("%d Gemeinden gefunden.", items.size()));
+        }
+
         return executeGeocode(q, MUNICIPALITY_FILTER, this::sanitizeMunicipalityLabel, false, true,
                 "Keine Gemeinden gefunden.", "%d Gemeinden gefunden.");
     }
 
+    @McpTool(
+            name = "geolocation.municipalityByXY",
+            description = "Returns the Solothurn municipality containing an LV95 coordinate."
+    )
+    @McpToolHints(keywords = { "gemeinde", "welche", "liegt", "koordinate", "punkt" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 5000, keyArgs = { "x", "y", "coord" })
+    public GeolocationResult municipalityByXY(
+            @McpToolParam(description = "Coordinate input, expecting keys 'x' and 'y' or 'coord' array", required = true)
+            @McpToolArgSchema("{ 'x': 'number - LV95 east', 'y': 'number - LV95 north', 'coord': '[east, north]' }")
+            Map<String, Object> args) {
+        log.info("MCP geolocation.municipalityByXY called with args={}", args);
+        List<Double> coord = coordinate(args);
+
+        if (coord.size() < 2) {
+            return new GeolocationResult(Status.ERROR, List.of(), "Ungültige Koordinate übergeben.");
+        }
+        if (!municipalities.isReady()) {
+            return new GeolocationResult(Status.ERROR, List.of(), "Gemeindegrenzen sind noch nicht geladen.");
+        }
+
+        return municipalities.containing(coord.get(0), coord.get(1))
+                .map(municipality -> new GeolocationResult(Status.SUCCESS,
+                        McpResponseItem.toMapList(List.of(toItem(municipality))),
+                        "Koordinate liegt in " + municipality.name() + "."))
+                .orElseGet(() -> new GeolocationResult(Status.ERROR, List.of(),
+                        "Koordinate liegt in keiner Gemeinde des Kantons."));
+    }
+
     private GeolocationResult executeGeocode(String query, String filterValue, UnaryOperator<String> labelNormalizer,
             boolean allowExactMatches, boolean includeDisplayName, String emptyMessage, String messageTemplate) {
         try {
@@ -178,6 +250,65 @@ public class GeolocationTools {
 
         List<Double> bboxValues = new ArrayList<>();
         bboxNode.forEach(coord -> bboxValues.add(coord.asDouble()));
+        return Optional.of(toItem(id, label, bboxValues, srid, includeDisplayName));
+    }
+
+    /**
+     * Nächste Gebäudeadressen zu einer LV95-Koordinate aus dem lokalen
+     * Adressverzeichnis. Als Tool wird die Methode nur bei aktiviertem
+     * Verzeichnis angeboten, siehe {@link ReverseGeocodingTools}.
+     */
+    public GeolocationResult reverse(Map<String, Object> args) {
+        log.info("MCP geolocation.reverse called with args={}", args);
+        List<Double> coord = coordinate(args);
+        if (coord.size() < 2) {
+            return new GeolocationResult(Status.ERROR, List.of(), "Ungültige Koordinate übergeben.");
+        }
+        if (gazetteer.size() == 0) {
+            return new GeolocationResult(Status.ERROR, List.of(), "Adressverzeichnis ist nicht geladen.");
+        }
+        Double k = asDouble(args.get("k"));
+        Double maxDistance = asDouble(args.get("maxDistance"));
+        int limit = k == null ? 1 : Math.max(1, Math.min(DEFAULT_LIMIT, k.intValue()));
+        double radius = maxDistance == null || maxDistance <= 0 ? DEFAULT_REVERSE_RADIUS : maxDistance;
+
+        List<McpResponseItem> items = gazetteer.nearest(coord.get(0), coord.get(1), limit, radius).stream()
+                .map(this::toItem)
+                .toList();
+        if (items.isEmpty()) {
+            return new GeolocationResult(Status.ERROR, List.of(),
+                    String.format("Keine Adresse im Umkreis von %.0f m gefunden.", radius));
+        }
+        return new GeolocationResult(items.size() > 1 ? Status.NEEDS_USER_CHOICE : Status.SUCCESS,
+                McpResponseItem.toMapList(items), String.format("%d Adressen gefunden.", items.size()));
+    }
+
+    private List<Double> coordinate(Map<String, Object> args) {
+        Double x = asDouble(args.get("x"));
+        Double y = asDouble(args.get("y"));
+        return args.get("coord") instanceof List<?> raw
+                ? raw.stream().map(this::asDouble).filter(Objects::nonNull).toList()
+                : (x != null && y != null ? List.of(x, y) : List.of());
+    }
+
+    private McpResponseItem toItem(AddressGazetteer.Nearby nearby) {
+        AddressGazetteer.Address address = nearby.address();
+        McpResponseItem item = toItem(address.id(), address.label(),
+                List.of(address.e(), address.n(), address.e(), address.n()), LV95, false);
+        Map<String, Object> payload = new LinkedHashMap<>(item.payload());
+        payload.put("distance", Math.round(nearby.distance() * 10) / 10d);
+        return new McpResponseItem(item.type(), payload, item.options(), item.clientAction());
+    }
+
+    private McpResponseItem toItem(MunicipalityIndex.Municipality municipality) {
+        String label = municipality.bfsNr() == null ? municipality.name() + " (Gemeinde)"
+                : municipality.name() + " | " + municipality.bfsNr() + " (Gemeinde)";
+        String id = municipality.bfsNr() == null ? municipality.name() : municipality.bfsNr();
+        return toItem(id, label, municipality.extent(), LV95, true);
+    }
+
+    private McpResponseItem toItem(String id, String label, List<Double> bboxValues, String srid,
+            boolean includeDisplayName) {
         List<Double> centroid = computeCentroidFromExtent(bboxValues);
 
         Map<String, Object> payload = new LinkedHashMap<>();
@@ -200,7 +331,7 @@ public class GeolocationTools {
             actionPayload.put("extent", bboxValues);
         }
         Map<String, Object> clientAction = Map.of("type", "setView", "payload", actionPayload);
-        return Optional.of(new McpResponseItem("geolocation", payload, List.of(), clientAction));
+        return new McpResponseItem("geolocation", payload, List.of(), clientAction);
     }
 
     private List<Double> computeCentroidFromExtent(List<Double> extent) {
@@ -220,6 +351,20 @@ public class GeolocationTools {
         return List.of((minX + maxX) / 2d, (minY + maxY) / 2d);
     }
 
+    private Double asDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException ignore) {
+                // ignore
+            }
+        }
+        return null;
+    }
+
     private String sanitizeAddressLabel(String display) {
         if (display == null) {
             return "";
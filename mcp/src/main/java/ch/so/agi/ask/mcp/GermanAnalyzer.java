@@ -0,0 +1,119 @@
+package ch.so.agi.ask.mcp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Textanalyse für deutschsprachige Layernamen: Normalisierung (Kleinbuchstaben,
+ * Umlaute ausgeschrieben, ohne Akzente), Stoppwörter, ein leichter
+ * Suffix-Stemmer und wörterbuchbasierte Kompositazerlegung
+ * ("gewaesserschutzkarte" → "gewaesser", "schutz", "karte"), wobei Fugenelemente
+ * ({@code s}, {@code es}, {@code n}, {@code en}) zwischen den Teilen erlaubt sind.
+ */
+final class GermanAnalyzer {
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+    private static final List<String> SUFFIXES = List.of("ern", "en", "er", "es", "em", "e", "n", "s");
+    private static final List<String> LINKS = List.of("es", "en", "s", "n");
+    private static final int MIN_STEM = 4;
+    private static final int MIN_PART = 3;
+    static final Set<String> STOPWORDS = Set.of("der", "die", "das", "den", "dem", "des", "ein", "eine", "einen",
+            "und", "oder", "mit", "von", "vom", "zu", "zur", "zum", "im", "in", "an", "am", "auf", "aus", "bei",
+            "fuer", "ueber", "nach", "bitte", "mir", "ch", "so", "karte", "karten", "layer", "ebene", "ebenen",
+            "thema", "themen", "themenkarte", "lade", "laden", "zeige", "zeigen", "anzeigen", "einblenden");
+
+    private GermanAnalyzer() {
+    }
+
+    static String fold(String text) {
+        String folded = text.toLowerCase(Locale.ROOT).replace("ä", "ae").replace("ö", "oe").replace("ü", "ue")
+                .replace("ß", "ss");
+        return Normalizer.normalize(folded, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    /**
+     * Normalisierte Wörter ohne Stoppwörter.
+     */
+    static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(fold(text)))
+                .filter(word -> word.length() >= 2 && !STOPWORDS.contains(word))
+                .toList();
+    }
+
+    /**
+     * Entfernt eine Flexionsendung, solange mindestens vier Zeichen bleiben.
+     */
+    static String stem(String word) {
+        if (word.chars().allMatch(Character::isDigit)) {
+            return word;
+        }
+        for (String suffix : SUFFIXES) {
+            if (word.endsWith(suffix) && word.length() - suffix.length() >= MIN_STEM) {
+                return word.substring(0, word.length() - suffix.length());
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Zerlegt {@code word} in möglichst wenige bekannte Teile (Teil selbst
+     * oder dessen Stamm ist {@code known} oder ein Stoppwort wie "karte").
+     * Leer, wenn keine Zerlegung in mindestens zwei Teile existiert.
+     */
+    static List<String> decompound(String word, Predicate<String> known) {
+        int length = word.length();
+        if (length < 2 * MIN_PART) {
+            return List.of();
+        }
+        int[] parts = new int[length + 1];
+        int[] from = new int[length + 1];
+        int[] partStart = new int[length + 1];
+        Arrays.fill(parts, Integer.MAX_VALUE);
+        parts[0] = 0;
+        for (int end = MIN_PART; end <= length; end++) {
+            for (int start = 0; start <= end - MIN_PART; start++) {
+                if (start == 0 && end == length) {
+                    continue;
+                }
+                String part = word.substring(start, end);
+                if (!isKnown(part, known)) {
+                    continue;
+                }
+                // direkt anschliessend oder nach einem Fugenelement
+                for (int link = 0; link <= 2 && link <= start; link++) {
+                    int previous = start - link;
+                    if (parts[previous] == Integer.MAX_VALUE
+                            || link > 0 && (previous == 0 || !LINKS.contains(word.substring(previous, start)))) {
+                        continue;
+                    }
+                    if (parts[previous] + 1 < parts[end]) {
+                        parts[end] = parts[previous] + 1;
+                        from[end] = previous;
+                        partStart[end] = start;
+                    }
+                }
+            }
+        }
+        if (parts[length] == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        for (int end = length; end > 0; end = from[end]) {
+            result.add(word.substring(partStart[end], end));
+        }
+        return result.reversed();
+    }
+
+    private static boolean isKnown(String part, Predicate<String> known) {
+        // nur inhaltliche Stoppwörter ("karte", "ebene") taugen als Wortteil
+        return part.length() >= 5 && STOPWORDS.contains(part) || known.test(part) || known.test(stem(part));
+    }
+}
@@ -0,0 +1,209 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statischer, balancierter 2D-KD-Baum für k-nächste-Nachbarn-Abfragen. Der
+ * Baum ist implizit: die Punkte liegen nach dem Aufbau (Median-Split per
+ * Quickselect, abwechselnd nach x und y) in Baumreihenfolge in flachen
+ * Arrays, das mittlere Element eines Bereichs ist dessen Wurzel. Pro Punkt
+ * werden damit nur ein {@code int} und zwei {@code double} gehalten.
+ */
+final class KdTree {
+
+    /**
+     * Treffer mit Index in den beim Aufbau übergebenen Arrays und
+     * euklidischer Distanz.
+     */
+    record Neighbour(int index, double distance) {
+    }
+
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    KdTree(double[] x, double[] y) {
+        int size = x.length;
+        ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        build(x, y, 0, size, 0);
+        xs = new double[size];
+        ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = x[ids[i]];
+            ys[i] = y[ids[i]];
+        }
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Höchstens {@code k} Punkte im Umkreis {@code maxDistance}, nächster
+     * zuerst.
+     */
+    List<Neighbour> nearest(double x, double y, int k, double maxDistance) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        Heap heap = new Heap(Math.min(k, ids.length), maxDistance * maxDistance);
+        search(0, ids.length, 0, x, y, heap);
+        return heap.sorted(ids);
+    }
+
+    private void search(int lo, int hi, int depth, double x, double y, Heap heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        heap.offer(mid, dx * dx + dy * dy);
+        double split = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (split < 0) {
+            search(lo, mid, depth + 1, x, y, heap);
+            if (split * split < heap.bound()) {
+                search(mid + 1, hi, depth + 1, x, y, heap);
+            }
+        } else {
+            search(mid + 1, hi, depth + 1, x, y, heap);
+            if (split * split < heap.bound()) {
+                search(lo, mid, depth + 1, x, y, heap);
+            }
+        }
+    }
+
+    private void build(double[] x, double[] y, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select((depth & 1) == 0 ? x : y, lo, hi - 1, mid);
+        build(x, y, lo, mid, depth + 1);
+        build(x, y, mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Quickselect auf {@code ids[lo..hi]}: danach liegt an {@code nth} das
+     * Element, das dort auch nach vollständigem Sortieren läge.
+     */
+    private void select(double[] coord, int lo, int hi, int nth) {
+        while (hi > lo) {
+            double pivot = coord[ids[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coord[ids[i]] < pivot) {
+                    i++;
+                }
+                while (coord[ids[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Max-Heap der besten {@code k} Kandidaten (quadrierte Distanzen).
+     */
+    private static final class Heap {
+        private final int[] slots;
+        private final double[] distances;
+        private final double maxSquared;
+        private int size;
+
+        Heap(int capacity, double maxSquared) {
+            this.slots = new int[capacity];
+            this.distances = new double[capacity];
+            this.maxSquared = maxSquared;
+        }
+
+        double bound() {
+            return size < slots.length ? maxSquared : distances[0];
+        }
+
+        void offer(int slot, double squared) {
+            if (squared > maxSquared) {
+                return;
+            }
+            if (size < slots.length) {
+                slots[size] = slot;
+                distances[size] = squared;
+                siftUp(size++);
+            } else if (squared < distances[0]) {
+                slots[0] = slot;
+                distances[0] = squared;
+                siftDown(0);
+            }
+        }
+
+        List<Neighbour> sorted(int[] ids) {
+            List<Neighbour> result = new ArrayList<>(size);
+            while (size > 0) {
+                result.add(new Neighbour(ids[slots[0]], Math.sqrt(distances[0])));
+                size--;
+                slots[0] = slots[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return result.reversed();
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = slots[a];
+            slots[a] = slots[b];
+            slots[b] = slot;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import ch.so.agi.ask.config.LayerCatalogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Vordergrund-Layerkatalog im Speicher für {@code layers.search}. Der ganze
+ * Katalog wird beim Start und danach periodisch vom Upstream
+ * {@code layer-catalog} geladen (Einträge mit {@code dataproduct_id} bzw.
+ * {@code identifier}, {@code display} bzw. {@code title}, {@code type} und
+ * {@code sublayers}) und als Ganzes ersetzt; schlägt das Laden fehl, bleibt der
+ * alte Katalog aktiv.
+ * <p>
+ * Layergruppen und ihre Sublayer sind einzeln in einem invertierten Index
+ * erfasst: Anzeigename und Id-Segmente werden mit {@link GermanAnalyzer}
+ * normalisiert, gestemmt und in Wortteile zerlegt. Ein Suchwort trifft einen
+ * Term exakt oder über ein Synonym, sonst über seine Wortteile
+ * ("Gewässerschutzkarte" → "gewaesser", "schutz") oder als Präfix. Alle
+ * Suchwörter müssen treffen; der Score ist die Summe der IDF-gewichteten
+ * Treffer.
+ * <p>
+ * Metriken: {@code ask.layers.catalog.entries},
+ * {@code ask.layers.catalog.lookups} ({@code result=hit|miss}) und
+ * {@code ask.layers.catalog.refresh} ({@code outcome=success|failure}).
+ */
+@Component
+public class LayerCatalog {
+    private static final Logger log = LoggerFactory.getLogger(LayerCatalog.class);
+    private static final double LABEL_WEIGHT = 1.0;
+    private static final double ID_WEIGHT = 0.5;
+    private static final double EXACT = 1.0;
+    private static final double COMPOUND = 0.7;
+    private static final double PREFIX = 0.6;
+    private static final int MIN_PREFIX = 4;
+
+    private record Doc(String id, String parentId, String label, JsonNode dataproduct) {
+    }
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final LayerCatalogProperties properties;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+    private volatile Index index;
+
+    @Autowired
+    public LayerCatalog(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, LayerCatalogProperties properties, MeterRegistry meterRegistry) {
+        this.restClient = upstreamClients.builder("layer-catalog", restClientBuilder).build();
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.index = new Index(List.of(), properties.getSynonyms());
+        this.hits = Counter.builder("ask.layers.catalog.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("ask.layers.catalog.lookups").tag("result", "miss").register(meterRegistry);
+        this.refreshSuccess = Counter.builder("ask.layers.catalog.refresh").tag("outcome", "success")
+                .register(meterRegistry);
+        this.refreshFailure = Counter.builder("ask.layers.catalog.refresh").tag("outcome", "failure")
+                .register(meterRegistry);
+        meterRegistry.gauge("ask.layers.catalog.entries", this, LayerCatalog::size);
+    }
+
+    /**
+     * Leerer Katalog ohne Refresh; jede Suche geht an die Remote-Suche.
+     */
+    public static LayerCatalog empty() {
+        LayerCatalogProperties properties = new LayerCatalogProperties();
+        properties.setEnabled(false);
+        return new LayerCatalog(RestClient.builder(), new ObjectMapper(), UpstreamClients.direct(), properties,
+                new SimpleMeterRegistry());
+    }
+
+    @Scheduled(fixedDelayString = "${ask.layers.catalog.refresh-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            load(restClient.get().retrieve().body(String.class));
+            refreshSuccess.increment();
+            log.info("Layer catalog loaded {} layers", size());
+        } catch (IOException | RuntimeException e) {
+            refreshFailure.increment();
+            log.warn("Layer catalog refresh failed, keeping {} layers", size(), e);
+        }
+    }
+
+    /**
+     * Ersetzt den Katalog durch {@code json}: ein Array von Dataprodukten
+     * oder eine Antwort der Suche ({@code results[].dataproduct}).
+     */
+    void load(String json) throws IOException {
+        JsonNode root = objectMapper.readTree(json);
+        JsonNode entries = root.isArray() ? root : root.path("results");
+        List<Doc> docs = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (JsonNode entry : entries) {
+            ObjectNode dataproduct = canonical(entry.has("dataproduct") ? entry.get("dataproduct") : entry);
+            if (dataproduct != null) {
+                addDocs(dataproduct, null, docs, seen);
+            }
+        }
+        if (docs.isEmpty()) {
+            throw new IOException("No layers in catalog response");
+        }
+        index = new Index(docs, properties.getSynonyms());
+    }
+
+    public boolean isReady() {
+        return size() > 0;
+    }
+
+    public int size() {
+        return index.docs.size();
+    }
+
+    /**
+     * Passende Dataprodukte (Felder {@code dataproduct_id}, {@code display},
+     * {@code type}, {@code sublayers} wie in der Remote-Suche), bester Treffer
+     * zuerst. Sublayer entfallen, wenn ihre Gruppe selbst trifft.
+     */
+    public List<JsonNode> search(String query) {
+        List<JsonNode> result = index.search(query, properties.getMaxResults(), properties.getRelativeScore());
+        (result.isEmpty() ? misses : hits).increment();
+        return result;
+    }
+
+    private ObjectNode canonical(JsonNode node) {
+        String id = text(node, "dataproduct_id", "identifier");
+        if (id == null) {
+            return null;
+        }
+        ObjectNode dataproduct = objectMapper.createObjectNode();
+        dataproduct.put("dataproduct_id", id);
+        String display = text(node, "display", "title");
+        dataproduct.put("display", display == null ? id : display);
+        dataproduct.put("type", node.path("type").asText("layer"));
+        if (node.path("sublayers").isArray()) {
+            ArrayNode sublayers = dataproduct.putArray("sublayers");
+            for (JsonNode sublayer : node.path("sublayers")) {
+                ObjectNode child = canonical(sublayer);
+                if (child != null) {
+                    sublayers.add(child);
+                }
+            }
+        }
+        return dataproduct;
+    }
+
+    private static void addDocs(JsonNode dataproduct, String parentId, List<Doc> docs, Set<String> seen) {
+        String id = dataproduct.path("dataproduct_id").asText();
+        if (seen.add(id + "|" + parentId)) {
+            docs.add(new Doc(id, parentId, dataproduct.path("display").asText(id), dataproduct));
+        }
+        for (JsonNode sublayer : dataproduct.path("sublayers")) {
+            addDocs(sublayer, id, docs, seen);
+        }
+    }
+
+    private static String text(JsonNode node, String field, String fallbackField) {
+        JsonNode value = node.hasNonNull(field) ? node.get(field) : node.path(fallbackField);
+        String text = value.isValueNode() ? value.asText().trim() : null;
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Unveränderlicher invertierter Index; wird beim Laden als Ganzes ersetzt.
+     */
+    private static final class Index {
+        private final List<Doc> docs;
+        private final TreeMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+        private final TreeMap<String, String> reversedTerms = new TreeMap<>();
+        private final Map<String, Set<String>> synonyms = new HashMap<>();
+
+        Index(List<Doc> docs, List<String> synonymGroups) {
+            this.docs = List.copyOf(docs);
+            Set<String> vocabulary = new HashSet<>();
+            for (String group : synonymGroups == null ? List.<String>of() : synonymGroups) {
+                Set<String> terms = new LinkedHashSet<>();
+                for (String term : group.split(",")) {
+                    if (!term.isBlank()) {
+                        terms.add(GermanAnalyzer.stem(GermanAnalyzer.fold(term.trim())));
+                    }
+                }
+                for (String term : terms) {
+                    synonyms.computeIfAbsent(term, t -> new LinkedHashSet<>()).addAll(terms);
+                }
+                vocabulary.addAll(terms);
+            }
+            for (Doc doc : this.docs) {
+                for (String word : docWords(doc)) {
+                    vocabulary.add(word);
+                    vocabulary.add(GermanAnalyzer.stem(word));
+                }
+            }
+            for (int d = 0; d < this.docs.size(); d++) {
+                Doc doc = this.docs.get(d);
+                index(d, GermanAnalyzer.words(doc.label()), LABEL_WEIGHT, vocabulary);
+                index(d, GermanAnalyzer.words(doc.id()), ID_WEIGHT, vocabulary);
+            }
+            postings.keySet().forEach(term -> reversedTerms.put(reverse(term), term));
+        }
+
+        private static List<String> docWords(Doc doc) {
+            List<String> words = new ArrayList<>(GermanAnalyzer.words(doc.label()));
+            words.addAll(GermanAnalyzer.words(doc.id()));
+            return words;
+        }
+
+        private void index(int doc, List<String> words, double weight, Set<String> vocabulary) {
+            for (String word : words) {
+                post(GermanAnalyzer.stem(word), doc, weight);
+                for (String part : GermanAnalyzer.decompound(word, vocabulary::contains)) {
+                    if (!GermanAnalyzer.STOPWORDS.contains(part)) {
+                        post(GermanAnalyzer.stem(part), doc, weight * COMPOUND);
+                    }
+                }
+            }
+        }
+
+        private void post(String term, int doc, double weight) {
+            postings.computeIfAbsent(term, t -> new HashMap<>()).merge(doc, weight, Math::max);
+        }
+
+        List<JsonNode> search(String query, int limit, double relativeScore) {
+            List<String> words = GermanAnalyzer.words(query);
+            if (docs.isEmpty() || words.isEmpty()) {
+                return List.of();
+            }
+            List<Map<Integer, Double>> matches = new ArrayList<>();
+            words.forEach(word -> matches.addAll(groups(word)));
+            Map<Integer, Double> scores = new HashMap<>(matches.getFirst());
+            for (Map<Integer, Double> group : matches.subList(1, matches.size())) {
+                scores.keySet().retainAll(group.keySet());
+                group.forEach((doc, score) -> scores.computeIfPresent(doc, (d, sum) -> sum + score));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+            double best = scores.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+            List<Doc> ranked = scores.entrySet().stream()
+                    .filter(e -> e.getValue() >= best * relativeScore)
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(e -> docs.get(e.getKey()).label()))
+                    .limit(Math.max(1, limit))
+                    .map(e -> docs.get(e.getKey()))
+                    .toList();
+            Set<String> rankedIds = new HashSet<>();
+            ranked.forEach(doc -> rankedIds.add(doc.id()));
+            Map<String, JsonNode> result = new LinkedHashMap<>();
+            for (Doc doc : ranked) {
+                if (doc.parentId() == null || !rankedIds.contains(doc.parentId())) {
+                    result.putIfAbsent(doc.id(), doc.dataproduct());
+                }
+            }
+            return List.copyOf(result.values());
+        }
+
+        /**
+         * Trefferlisten (Dokument → Score), die alle erfüllt sein müssen:
+         * eine für das Wort selbst oder je eine pro Wortteil. Eine leere
+         * Liste bedeutet, dass das Wort nicht trifft.
+         */
+        private List<Map<Integer, Double>> groups(String word) {
+            String stem = GermanAnalyzer.stem(word);
+            Map<Integer, Double> direct = new HashMap<>();
+            for (String term : synonyms.getOrDefault(stem, Set.of(stem))) {
+                collect(term, EXACT, direct);
+            }
+            collect(stem, EXACT, direct);
+            if (stem.length() >= MIN_PREFIX) {
+                // Bestimmungs- bzw. Grundwort eines Kompositums ("wald" → "waldstandort",
+                // "laerm" → "strassenlaerm")
+                postings.subMap(stem, stem + Character.MAX_VALUE).keySet()
+                        .forEach(term -> collect(term, PREFIX, direct));
+                String reversed = reverse(stem);
+                reversedTerms.subMap(reversed, reversed + Character.MAX_VALUE).values()
+                        .forEach(term -> collect(term, PREFIX, direct));
+            }
+            if (!direct.isEmpty()) {
+                return List.of(direct);
+            }
+
+            List<String> parts = GermanAnalyzer.decompound(word,
+                    term -> postings.containsKey(term) || synonyms.containsKey(term)).stream()
+                    .filter(part -> !GermanAnalyzer.STOPWORDS.contains(part))
+                    .toList();
+            if (!parts.isEmpty()) {
+                List<Map<Integer, Double>> groups = new ArrayList<>();
+                for (String part : parts) {
+                    Map<Integer, Double> group = new HashMap<>();
+                    String partStem = GermanAnalyzer.stem(part);
+                    for (String term : synonyms.getOrDefault(partStem, Set.of(partStem))) {
+                        collect(term, COMPOUND, group);
+                    }
+                    collect(part, COMPOUND, group);
+                    collect(partStem, COMPOUND, group);
+                    groups.add(group);
+                }
+                if (groups.stream().noneMatch(Map::isEmpty)) {
+                    return groups;
+                }
+            }
+
+            // längster Term, mit dem das Wort beginnt ("gewaesserschutzkarte")
+            Map<Integer, Double> prefix = new HashMap<>();
+            for (int end = word.length() - 1; end >= 5; end--) {
+                if (postings.containsKey(word.substring(0, end))) {
+                    collect(word.substring(0, end), COMPOUND, prefix);
+                    break;
+                }
+            }
+            return List.of(prefix);
+        }
+
+        private static String reverse(String term) {
+            return new StringBuilder(term).reverse().toString();
+        }
+
+        private void collect(String term, double match, Map<Integer, Double> scores) {
+            Map<Integer, Double> posting = postings.get(term);
+            if (posting == null) {
+                return;
+            }
+            double idf = Math.log(1.0 + (double) docs.size() / posting.size());
+            posting.forEach((doc, weight) -> scores.merge(doc, match * idf * weight, Math::max));
+        }
+    }
+}
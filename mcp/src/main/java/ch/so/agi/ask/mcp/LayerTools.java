@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
@@ -29,10 +30,30 @@ public class LayerTools {
 
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
+    private final LayerCatalog catalog;
+    private final WmsCapabilities capabilities;
 
     public LayerTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper) {
-        this.restClient = restClientBuilder.baseUrl(SEARCH_BASE_URL).build();
+        this(restClientBuilder, objectMapper, UpstreamClients.direct());
+    }
+
+    public LayerTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients) {
+        this(restClientBuilder, objectMapper, upstreamClients, LayerCatalog.empty());
+    }
+
+    public LayerTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, LayerCatalog catalog) {
+        this(restClientBuilder, objectMapper, upstreamClients, catalog, WmsCapabilities.empty());
+    }
+
+    @Autowired
+    public LayerTools(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, LayerCatalog catalog, WmsCapabilities capabilities) {
+        this.restClient = upstreamClients.builder("layers", restClientBuilder, SEARCH_BASE_URL).build();
         this.objectMapper = objectMapper;
+        this.catalog = catalog;
+        this.capabilities = capabilities;
     }
 
     public record LayerResult(
@@ -45,6 +66,9 @@ public class LayerTools {
             name = "layers.search",
             description = "Sucht Kartenlayer (aka WMS layer) in der Geodateninfrastruktur des Kantons Solothurn."
     )
+    @McpToolHints(
+            keywords = { "karte", "layer", "ebene", "thema", "themenkarte", "lade", "laden", "einblenden", "anzeigen" })
+    @McpToolCache(ttlSeconds = 3600, maxEntries = 2000, keyArgs = { "query" })
     public LayerResult searchLayers(@McpToolArgSchema("{ 'query': 'string - name of the desired map layer' }") Map<String,Object> args) {
 
         String query = Optional.ofNullable(args.get("query")).map(Object::toString).orElse("").trim();
@@ -54,6 +78,13 @@ public class LayerTools {
 
         log.info("MCP layers-search called with query={}", query);
 
+        if (catalog.isReady()) {
+            List<McpResponseItem> local = mapDataproducts(catalog.search(query));
+            if (!local.isEmpty()) {
+                return toResult(local, query);
+            }
+        }
+
         try {
             String body = restClient.get()
                     .uri(uriBuilder -> uriBuilder.queryParam("filter", "foreground")
@@ -63,17 +94,7 @@ public class LayerTools {
                     .retrieve()
                     .body(String.class);
 
-            List<McpResponseItem> items = mapLayers(body);
-            if (items.isEmpty()) {
-                return new LayerResult(Status.ERROR, List.of(),
-                        "Keine Layer zu \"" + query + "\" gefunden.");
-            }
-
-            Status status = items.size() > 1 ? Status.NEEDS_USER_CHOICE : Status.SUCCESS;
-            String message = status == Status.SUCCESS
-                    ? "Layer gefunden."
-                    : "Mehrere Layer gefunden. Bitte Auswahl treffen.";
-            return new LayerResult(status, McpResponseItem.toMapList(items), message);
+            return toResult(mapLayers(body), query);
         } catch (RestClientResponseException e) {
             log.warn("Layer search call failed with status {}", e.getStatusCode(), e);
             return new LayerResult(Status.ERROR, List.of(),
@@ -87,6 +108,19 @@ public class LayerTools {
         }
     }
 
+    private LayerResult toResult(List<McpResponseItem> items, String query) {
+        if (items.isEmpty()) {
+            return new LayerResult(Status.ERROR, List.of(),
+                    "Keine Layer zu \"" + query + "\" gefunden.");
+        }
+
+        Status status = items.size() > 1 ? Status.NEEDS_USER_CHOICE : Status.SUCCESS;
+        String message = status == Status.SUCCESS
+                ? "Layer gefunden."
+                : "Mehrere Layer gefunden. Bitte Auswahl treffen.";
+        return new LayerResult(status, McpResponseItem.toMapList(items), message);
+    }
+
     List<McpResponseItem> mapLayers(String json) throws IOException {
         JsonNode root = objectMapper.readTree(json);
         JsonNode results = root.path("results");
@@ -94,12 +128,20 @@ public class LayerTools {
             return List.of();
         }
 
-        List<McpResponseItem> items = new ArrayList<>();
+        List<JsonNode> dataproducts = new ArrayList<>();
         for (JsonNode result : results) {
             JsonNode dataproduct = result.path("dataproduct");
             if (dataproduct == null || dataproduct.isMissingNode()) {
                 continue;
             }
+            dataproducts.add(dataproduct);
+        }
+        return mapDataproducts(dataproducts);
+    }
+
+    private List<McpResponseItem> mapDataproducts(List<JsonNode> dataproducts) {
+        List<McpResponseItem> items = new ArrayList<>();
+        for (JsonNode dataproduct : dataproducts) {
             String type = dataproduct.path("type").asText("");
             if ("layergroup".equalsIgnoreCase(type)) {
                 items.addAll(mapLayerGroup(dataproduct));
@@ -143,6 +185,7 @@ public class LayerTools {
         groupPayload.put("type", "wms-group");
         groupPayload.put("layerId", groupId);
         groupPayload.put("sublayers", sublayerPayloads);
+        enrich(groupPayload, groupId);
         items.add(0, new McpResponseItem("layer", groupPayload, List.of(), Map.of()));
         return items;
     }
@@ -169,7 +212,30 @@ public class LayerTools {
         payload.put("type", "wms");
         payload.put("crs", CRS);
         payload.put("source", source);
+        enrich(payload, id);
 
         return new McpResponseItem("layer", payload, List.of(), Map.of());
     }
+
+    /**
+     * Ergänzt Ausdehnung, Massstabsbereich, Abfragbarkeit und Legende aus dem
+     * GetCapabilities-Dokument, sofern der Layer dort bekannt ist.
+     */
+    private void enrich(Map<String, Object> payload, String layerName) {
+        capabilities.layer(layerName).ifPresent(metadata -> {
+            if (metadata.extent() != null) {
+                payload.put("extent", metadata.extent());
+            }
+            if (metadata.minScale() != null) {
+                payload.put("minScale", metadata.minScale());
+            }
+            if (metadata.maxScale() != null) {
+                payload.put("maxScale", metadata.maxScale());
+            }
+            payload.put("queryable", metadata.queryable());
+            if (metadata.legendUrl() != null) {
+                payload.put("legendUrl", metadata.legendUrl());
+            }
+        });
+    }
 }
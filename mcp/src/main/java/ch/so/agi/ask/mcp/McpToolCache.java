@@ -0,0 +1,48 @@
+package ch.so.agi.ask.mcp;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Optionale Annotation für {@code @McpTool}-Methoden, deren Ergebnisse der
+ * {@link ToolResultCache} zwischenspeichern darf.
+ * <p>
+ * Den Cache-Schlüssel bilden nur die in {@link #keyArgs()} genannten Argumente
+ * (alle, wenn leer). Strings werden getrimmt und kleingeschrieben, Zahlen auf
+ * {@link #coordinateDecimals()} gerundet, sodass wenige Zentimeter
+ * auseinanderliegende LV95-Koordinaten denselben Eintrag teilen. Tools mit
+ * Seiteneffekten (z.B. Druckaufträge) dürfen nicht annotiert werden.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface McpToolCache {
+    /**
+     * Zeit in Sekunden, während der ein Ergebnis ohne Anfrage an den
+     * Upstream-Dienst ausgeliefert wird.
+     */
+    long ttlSeconds() default 3600;
+
+    /**
+     * Zusätzliche Zeit in Sekunden, während der ein abgelaufenes Ergebnis noch
+     * ausgeliefert wird, wenn der Upstream-Dienst fehlschlägt.
+     */
+    long staleSeconds() default 86400;
+
+    /**
+     * Maximale Anzahl gespeicherter Ergebnisse dieses Tools (LRU).
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Namen der Argumente, die den Cache-Schlüssel bilden; leer bedeutet alle
+     * Argumente.
+     */
+    String[] keyArgs() default {};
+
+    /**
+     * Anzahl Nachkommastellen, auf die numerische Argumente gerundet werden.
+     */
+    int coordinateDecimals() default 1;
+}
@@ -0,0 +1,29 @@
+package ch.so.agi.ask.mcp;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Optional annotation on an {@code @McpTool} method that helps the planner to
+ * pick the relevant tools for a user prompt.
+ * <p>
+ * Tool descriptions are often English or technical while users ask in German.
+ * The keywords bridge that gap (synonyms, typical nouns and verbs of the user
+ * request); {@link #related()} lists capabilities that are usually planned
+ * together with this one, e.g. the EGRID lookup that precedes an ÖREB extract.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface McpToolHints {
+    /**
+     * Lower-case keywords users typically mention when they need this tool.
+     */
+    String[] keywords() default {};
+
+    /**
+     * Capability ids that should be offered together with this tool.
+     */
+    String[] related() default {};
+}
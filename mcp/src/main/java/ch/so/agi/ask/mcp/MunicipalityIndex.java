@@ -0,0 +1,187 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.so.agi.ask.config.MunicipalityIndexProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Gemeindenamen, Ausdehnungen und Grenzen aller Gemeinden im Speicher. Die
+ * Grenzen sind als {@link PreparedPolygon} vorbereitet und über einen
+ * {@link StrTree} nach Bounding Box indexiert, sodass
+ * {@link #containing(double, double)} ohne Netzwerkzugriff in wenigen
+ * Mikrosekunden antwortet. Der Snapshot wird beim Start und danach periodisch
+ * vom Upstream {@code municipalities} (GeoJSON des Data-Service) geladen und
+ * als Ganzes ersetzt; schlägt das Laden fehl, bleibt der alte Snapshot aktiv.
+ * <p>
+ * Metriken: {@code ask.municipalities.entries} und
+ * {@code ask.municipalities.refresh} ({@code outcome=success|failure}).
+ */
+@Component
+public class MunicipalityIndex {
+    private static final Logger log = LoggerFactory.getLogger(MunicipalityIndex.class);
+
+    public record Municipality(String name, String bfsNr, List<Double> extent) {
+    }
+
+    private record Entry(Municipality municipality, String key, PreparedPolygon boundary) {
+    }
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    private final MunicipalityIndexProperties properties;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Autowired
+    public MunicipalityIndex(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+            UpstreamClients upstreamClients, MunicipalityIndexProperties properties, MeterRegistry meterRegistry) {
+        this.restClient = upstreamClients.builder("municipalities", restClientBuilder).build();
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.refreshSuccess = Counter.builder("ask.municipalities.refresh").tag("outcome", "success")
+                .register(meterRegistry);
+        this.refreshFailure = Counter.builder("ask.municipalities.refresh").tag("outcome", "failure")
+                .register(meterRegistry);
+        meterRegistry.gauge("ask.municipalities.entries", this, MunicipalityIndex::size);
+    }
+
+    /**
+     * Leerer Index ohne Refresh; Anfragen gehen an den Remote-Geocoder.
+     */
+    public static MunicipalityIndex empty() {
+        MunicipalityIndexProperties properties = new MunicipalityIndexProperties();
+        properties.setEnabled(false);
+        return new MunicipalityIndex(RestClient.builder(), new ObjectMapper(), UpstreamClients.direct(), properties,
+                new SimpleMeterRegistry());
+    }
+
+    @Scheduled(fixedDelayString = "${ask.municipalities.refresh-interval-minutes:1440}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            String body = restClient.get().retrieve().body(String.class);
+            load(body);
+            refreshSuccess.increment();
+            log.info("Municipality index loaded {} municipalities", size());
+        } catch (IOException | RuntimeException e) {
+            refreshFailure.increment();
+            log.warn("Municipality index refresh failed, keeping {} municipalities", size(), e);
+        }
+    }
+
+    /**
+     * Ersetzt den Snapshot durch die Features der GeoJSON-FeatureCollection
+     * ({@code gemeindename}/{@code name}, {@code bfs_gemeindenummer}/
+     * {@code bfs_nr}, Geometrie in LV95).
+     */
+    void load(String geojson) throws IOException {
+        JsonNode features = objectMapper.readTree(geojson).path("features");
+        List<Entry> entries = new ArrayList<>();
+        for (JsonNode feature : features) {
+            JsonNode props = feature.path("properties");
+            String name = text(props, "gemeindename", "name");
+            PreparedPolygon boundary = PreparedPolygon.of(feature.path("geometry"));
+            if (name == null || boundary == null) {
+                continue;
+            }
+            double[] bbox = boundary.bbox();
+            Municipality municipality = new Municipality(name, text(props, "bfs_gemeindenummer", "bfs_nr"),
+                    List.of(bbox[0], bbox[1], bbox[2], bbox[3]));
+            entries.add(new Entry(municipality, key(name), boundary));
+        }
+        if (entries.isEmpty()) {
+            throw new IOException("No municipalities in response");
+        }
+        snapshot = new Snapshot(entries);
+    }
+
+    public boolean isReady() {
+        return size() > 0;
+    }
+
+    public int size() {
+        return snapshot.entries.size();
+    }
+
+    /**
+     * Gemeinde, in der die LV95-Koordinate liegt.
+     */
+    public Optional<Municipality> containing(double east, double north) {
+        List<Municipality> hits = new ArrayList<>(1);
+        snapshot.tree.query(east, north, entry -> {
+            if (hits.isEmpty() && entry.boundary().contains(east, north)) {
+                hits.add(entry.municipality());
+            }
+        });
+        return hits.stream().findFirst();
+    }
+
+    /**
+     * Gemeinden zum Namen: exakte Treffer, sonst Präfix-, Teilstring- und
+     * zuletzt tippfehlertolerante Treffer (die erste nicht leere Stufe).
+     */
+    public List<Municipality> byName(String query, int limit) {
+        String key = key(query == null ? "" : query);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        int maxEdits = key.length() <= 4 ? 0 : (key.length() <= 8 ? 1 : 2);
+        List<Predicate<Entry>> tiers = List.of(
+                entry -> entry.key().equals(key),
+                entry -> entry.key().startsWith(key),
+                entry -> entry.key().contains(key),
+                entry -> maxEdits > 0 && AddressGazetteer.distance(key, entry.key(), maxEdits) <= maxEdits);
+        for (Predicate<Entry> tier : tiers) {
+            List<Municipality> matches = snapshot.entries.stream().filter(tier).map(Entry::municipality)
+                    .sorted(Comparator.comparing(Municipality::name)).limit(limit).toList();
+            if (!matches.isEmpty()) {
+                return matches;
+            }
+        }
+        return List.of();
+    }
+
+    private static String key(String value) {
+        return AddressGazetteer.fold(value).replace(" ", "").replace(",", "");
+    }
+
+    private static String text(JsonNode node, String field, String fallbackField) {
+        JsonNode value = node.hasNonNull(field) ? node.get(field) : node.path(fallbackField);
+        String text = value.isMissingNode() || value.isNull() ? null : value.asText().trim();
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(List.of());
+
+        final List<Entry> entries;
+        final StrTree<Entry> tree;
+
+        Snapshot(List<Entry> entries) {
+            this.entries = List.copyOf(entries);
+            this.tree = new StrTree<>(this.entries, entry -> entry.boundary().bbox());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
@@ -41,13 +42,22 @@ public class OerebTools {
     private final RestClient restClient;
 
     public OerebTools(RestClient.Builder restClientBuilder) {
-        this.restClient = restClientBuilder.baseUrl(BASE_URL).build();
+        this(restClientBuilder, UpstreamClients.direct());
+    }
+
+    @Autowired
+    public OerebTools(RestClient.Builder restClientBuilder, UpstreamClients upstreamClients) {
+        this.restClient = upstreamClients.builder("oereb", restClientBuilder, BASE_URL).build();
     }
 
     public record OerebResult(Status status, List<Map<String, Object>> items, String message) implements ToolResult {
     }
 
     @McpTool(name = "oereb.egridByXY", description = "Ermittelt ÖREB-EGRID(s) und Geometrie anhand von LV95-Koordinaten")
+    @McpToolHints(
+            keywords = { "öreb", "oereb", "auszug", "koordinate", "egrid", "grundstück", "eigentumsbeschränkung" },
+            related = { "oereb.extractById" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 5000, keyArgs = { "x", "y", "coord" })
     public OerebResult getOerebEgridByXY(
             @McpToolParam(description = "Coordinate input, expecting keys 'x' and 'y' or 'coord' array", required = true)
             @McpToolArgSchema("{ 'x': 'number - LV95 east', 'y': 'number - LV95 north', 'coord': '[east, north]' }")
@@ -95,6 +105,10 @@ public class OerebTools {
     }
 
     @McpTool(name = "oereb.extractById", description = "Erzeugt ÖREB-Auszug-URLs für ein EGRID")
+    @McpToolHints(
+            keywords = { "öreb", "oereb", "auszug", "katasterauszug", "eigentumsbeschränkung", "egrid" },
+            related = { "oereb.egridByXY" })
+    @McpToolCache(ttlSeconds = 3600, maxEntries = 2000, keyArgs = { "egrid", "id", "selection" })
     public OerebResult getOerebExtractById(
             @McpToolParam(description = "Must include 'egrid' or 'selection' with an id")
             @McpToolArgSchema("{ 'egrid': 'string id', 'selection': { 'egrid'|'id': 'string', 'coord': [east, north] } }")
@@ -0,0 +1,146 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Vorbereitete (Multi-)Polygon-Geometrie für schnelle Punkt-in-Polygon-Tests.
+ * Alle Kanten aller Ringe liegen in flachen Arrays und sind zusätzlich nach
+ * horizontalen Bändern indexiert; ein Test prüft per Strahlenwurf
+ * (gerade/ungerade) nur die Kanten im Band des Punkts. Löcher und mehrere
+ * Teilflächen ergeben sich aus der Gerade/Ungerade-Regel.
+ */
+final class PreparedPolygon {
+    private static final int EDGES_PER_BAND = 8;
+    private static final int MAX_BANDS = 512;
+
+    private final double[] x1;
+    private final double[] y1;
+    private final double[] x2;
+    private final double[] y2;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final double bandHeight;
+    private final int[][] edgesByBand;
+
+    private PreparedPolygon(List<double[]> rings) {
+        int edges = 0;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            edges += ring.length / 2;
+            for (int i = 0; i < ring.length; i += 2) {
+                minX = Math.min(minX, ring[i]);
+                maxX = Math.max(maxX, ring[i]);
+                minY = Math.min(minY, ring[i + 1]);
+                maxY = Math.max(maxY, ring[i + 1]);
+            }
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.x1 = new double[edges];
+        this.y1 = new double[edges];
+        this.x2 = new double[edges];
+        this.y2 = new double[edges];
+        int edge = 0;
+        for (double[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0; i < points; i++) {
+                int next = (i + 1) % points;
+                x1[edge] = ring[2 * i];
+                y1[edge] = ring[2 * i + 1];
+                x2[edge] = ring[2 * next];
+                y2[edge] = ring[2 * next + 1];
+                edge++;
+            }
+        }
+
+        int bands = Math.max(1, Math.min(MAX_BANDS, edges / EDGES_PER_BAND));
+        this.bandHeight = Math.max(Double.MIN_NORMAL, (maxY - minY) / bands);
+        List<List<Integer>> buckets = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int e = 0; e < edges; e++) {
+            int from = band(Math.min(y1[e], y2[e]), bands);
+            int to = band(Math.max(y1[e], y2[e]), bands);
+            for (int b = from; b <= to; b++) {
+                buckets.get(b).add(e);
+            }
+        }
+        this.edgesByBand = buckets.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    /**
+     * Aus einer GeoJSON-Geometrie vom Typ {@code Polygon} oder
+     * {@code MultiPolygon}; {@code null} für andere Typen oder leere
+     * Geometrien.
+     */
+    static PreparedPolygon of(JsonNode geometry) {
+        if (geometry == null) {
+            return null;
+        }
+        String type = geometry.path("type").asText("");
+        JsonNode coordinates = geometry.path("coordinates");
+        List<double[]> rings = new ArrayList<>();
+        if ("Polygon".equals(type)) {
+            addRings(coordinates, rings);
+        } else if ("MultiPolygon".equals(type)) {
+            coordinates.forEach(polygon -> addRings(polygon, rings));
+        }
+        return rings.isEmpty() ? null : new PreparedPolygon(rings);
+    }
+
+    private static void addRings(JsonNode polygon, List<double[]> rings) {
+        for (JsonNode ring : polygon) {
+            int points = ring.size();
+            // geschlossene Ringe wiederholen den ersten Punkt
+            if (points > 1 && ring.get(0).equals(ring.get(points - 1))) {
+                points--;
+            }
+            if (points < 3) {
+                continue;
+            }
+            double[] coords = new double[points * 2];
+            for (int i = 0; i < points; i++) {
+                coords[2 * i] = ring.get(i).get(0).asDouble();
+                coords[2 * i + 1] = ring.get(i).get(1).asDouble();
+            }
+            rings.add(coords);
+        }
+    }
+
+    boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        boolean inside = false;
+        for (int e : edgesByBand[band(y, edgesByBand.length)]) {
+            if ((y1[e] > y) != (y2[e] > y)
+                    && x < (x2[e] - x1[e]) * (y - y1[e]) / (y2[e] - y1[e]) + x1[e]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * {@code [minX, minY, maxX, maxY]}.
+     */
+    double[] bbox() {
+        return new double[] { minX, minY, maxX, maxY };
+    }
+
+    private int band(double y, int bands) {
+        return Math.max(0, Math.min(bands - 1, (int) ((y - minY) / bandHeight)));
+    }
+}
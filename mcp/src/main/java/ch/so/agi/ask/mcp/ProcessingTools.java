@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -50,15 +51,26 @@ public class ProcessingTools {
     private static final Pattern HREF_PATTERN = Pattern.compile("href=['\\\"]([^'\\\"]+)['\\\"]", Pattern.CASE_INSENSITIVE);
     private static final Pattern LINK_TEXT_PATTERN = Pattern.compile(">([^<]+)<");
 
+    private final String geothermalUrl;
     private final RestClient geothermalClient;
+    private final String landregPrintUrl;
     private final RestClient landregPrintClient;
     private final LandregPrintProperties landregPrintProperties;
     private final PrintFileStorage printFileStorage;
 
     public ProcessingTools(RestClient.Builder restClientBuilder, LandregPrintProperties landregPrintProperties,
             PrintFileStorage printFileStorage) {
-        this.geothermalClient = restClientBuilder.baseUrl(BASE_URL).build();
-        this.landregPrintClient = restClientBuilder.baseUrl(landregPrintProperties.getService()).build();
+        this(restClientBuilder, landregPrintProperties, printFileStorage, UpstreamClients.direct());
+    }
+
+    @Autowired
+    public ProcessingTools(RestClient.Builder restClientBuilder, LandregPrintProperties landregPrintProperties,
+            PrintFileStorage printFileStorage, UpstreamClients upstreamClients) {
+        this.geothermalUrl = upstreamClients.baseUrl("geothermal", BASE_URL);
+        this.geothermalClient = upstreamClients.builder("geothermal", restClientBuilder, BASE_URL).build();
+        this.landregPrintUrl = upstreamClients.baseUrl("landreg-print", landregPrintProperties.getService());
+        this.landregPrintClient = upstreamClients.builder("landreg-print", restClientBuilder, landregPrintUrl)
+                .build();
         this.landregPrintProperties = landregPrintProperties;
         this.printFileStorage = printFileStorage;
     }
@@ -83,6 +95,10 @@ public class ProcessingTools {
     }
 
     @McpTool(name = "processing.getGeothermalBoreInfoByXY", description = "Checks geothermal probe feasibility at LV95 coordinates.")
+    @McpToolHints(
+            keywords = { "erdwärme", "erdwärmesonde", "sonde", "geothermie", "wärmepumpe", "bohrung", "machbarkeit" },
+            related = { "geolocation.geocode.address" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 5000, keyArgs = { "x", "y", "coord", "resolution" })
     public ProcessingResult getGeothermalBoreInfoByXY(
             @McpToolParam(description = "Coordinate input, expecting keys 'x' and 'y' or 'coord' array. Optional 'resolution' (m/px).", required = true)
             @McpToolArgSchema("{ 'x': 'number - LV95 east', 'y': 'number - LV95 north', 'coord': '[east, north]', 'resolution': 'number - map resolution in meters per pixel (optional)' }")
@@ -102,7 +118,7 @@ public class ProcessingTools {
         String bbox = buildBbox(coord.get(0), coord.get(1), resolution);
 
         try {
-            var uri = UriComponentsBuilder.fromUriString(BASE_URL)
+            var uri = UriComponentsBuilder.fromUriString(geothermalUrl)
                     .queryParam("SERVICE", "WMS")
                     .queryParam("REQUEST", "GetFeatureInfo")
                     .queryParam("VERSION", "1.3.0")
@@ -185,6 +201,9 @@ public class ProcessingTools {
     }
 
     @McpTool(name = "processing.getCadastralPlanByGeometry", description = "Erzeugt einen Grundbuchplan-PDF aus einer GeoJSON-Geometrie via Landregister-Print-Service")
+    @McpToolHints(
+            keywords = { "grundbuchplan", "plan", "pdf", "drucken", "druck" },
+            related = { "featureSearch.getEgridByNumberAndMunicipality", "featureSearch.getParcelByEgrid" })
     public ProcessingResult getCadastralPlanByGeometry(
             @McpToolParam(description = "GeoJSON-Geometrie des Grundstücks", required = true)
             @McpToolArgSchema("{ 'geometry': 'GeoJSON' }")
@@ -204,7 +223,7 @@ public class ProcessingTools {
 
         try {
             MultiValueMap<String, String> body = buildPrintFormBody(printRequest);
-            ResponseEntity<byte[]> response = landregPrintClient.post().uri(landregPrintProperties.getService())
+            ResponseEntity<byte[]> response = landregPrintClient.post().uri(landregPrintUrl)
                     .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                     .body(body)
                     .retrieve()
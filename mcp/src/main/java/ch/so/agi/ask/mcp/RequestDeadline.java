@@ -0,0 +1,123 @@
+package ch.so.agi.ask.mcp;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deadline einer Chat-Anfrage ({@link System#nanoTime()}-Basis). Planner und
+ * ToolCalls laufen über {@link #call(Supplier, ExecutorService)}: die Aufgabe
+ * läuft auf einem eigenen Thread, der bei Ablauf unterbrochen wird (der
+ * JDK-HttpClient bricht dann die laufende Anfrage ab). Während der Aufgabe ist
+ * die Deadline über {@link #current()} sichtbar, z.B. für die
+ * Upstream-Bulkheads in {@link UpstreamClients}.
+ */
+public final class RequestDeadline {
+
+    private static final RequestDeadline NONE = new RequestDeadline(Long.MAX_VALUE, false);
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private RequestDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Ohne Zeitbudget; {@link #call(Supplier, ExecutorService)} führt die
+     * Aufgabe direkt aus.
+     */
+    public static RequestDeadline none() {
+        return NONE;
+    }
+
+    public static RequestDeadline after(Duration budget) {
+        return new RequestDeadline(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    /**
+     * Deadline der auf diesem Thread laufenden Aufgabe.
+     */
+    public static Optional<RequestDeadline> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public Duration remaining() {
+        if (!bounded) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Teilbudget: höchstens {@code fraction} der verbleibenden Zeit.
+     */
+    public RequestDeadline share(double fraction) {
+        if (!bounded) {
+            return this;
+        }
+        long now = System.nanoTime();
+        long remaining = Math.max(0, deadlineNanos - now);
+        return new RequestDeadline(now + (long) (remaining * fraction), true);
+    }
+
+    /**
+     * Führt {@code task} bis zur Deadline aus. Läuft die Zeit ab, wird der
+     * Thread der Aufgabe unterbrochen und eine {@link TimeoutException}
+     * geworfen.
+     */
+    public <T> T call(Supplier<T> task, ExecutorService executor) throws TimeoutException {
+        if (!bounded) {
+            return task.get();
+        }
+        if (isExpired()) {
+            throw new TimeoutException("Deadline already expired");
+        }
+        Future<T> future = executor.submit(() -> {
+            CURRENT.set(this);
+            try {
+                return task.get();
+            } finally {
+                CURRENT.remove();
+            }
+        });
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for task");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.Map;
+
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stellt {@code geolocation.reverse} bereit. Das Tool setzt das lokale
+ * Adressverzeichnis ({@link AddressGazetteer}) voraus und ist deshalb nur bei
+ * {@code ask.gazetteer.enabled=true} registriert; sonst erscheint es weder im
+ * Tool-Katalog noch im Planner-Prompt.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ask.gazetteer", name = "enabled", havingValue = "true")
+public class ReverseGeocodingTools {
+
+    private final GeolocationTools geolocationTools;
+
+    public ReverseGeocodingTools(GeolocationTools geolocationTools) {
+        this.geolocationTools = geolocationTools;
+    }
+
+    @McpTool(
+            name = "geolocation.reverse",
+            description = "Reverse geocoder: returns the nearest Solothurn building addresses to an LV95 coordinate."
+    )
+    @McpToolHints(keywords = { "adresse", "welche", "hier", "koordinate", "punkt", "nächste", "naechste" })
+    @McpToolCache(ttlSeconds = 86400, maxEntries = 5000, keyArgs = { "x", "y", "coord", "k", "maxDistance" })
+    public GeolocationTools.GeolocationResult reverse(
+            @McpToolParam(description = "Coordinate input ('x' and 'y' or 'coord' array), optional 'k' and 'maxDistance' in meters", required = true)
+            @McpToolArgSchema("{ 'x': 'number - LV95 east', 'y': 'number - LV95 north', 'coord': '[east, north]', 'k': 'number - max. addresses (default 1)', 'maxDistance': 'number - radius in meters (default 250)' }")
+            Map<String, Object> args) {
+        return geolocationTools.reverse(args);
+    }
+}
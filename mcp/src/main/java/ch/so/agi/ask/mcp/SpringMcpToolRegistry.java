@@ -4,8 +4,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
@@ -14,25 +17,54 @@ import ch.so.agi.ask.model.McpToolCapability;
 import ch.so.agi.ask.model.PlannerOutput;
 import ch.so.agi.ask.mcp.McpToolArgSchema;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Spring-basierte Implementierung des {@link ToolRegistry}, die @McpTool-
  * Beans findet, für den MCP-Client registriert und deren Rückgaben in das im
  * README beschriebene PlannerResult-Schema (Status, Items, Message) überführt.
+ * <p>
+ * Nach dem Refresh des Kontexts wird jedes Tool einmal gebunden: die Bean wird
+ * aufgelöst, die Methode über {@link LambdaMetafactory} zu einem direkten
+ * {@link ToolInvoker} kompiliert (Fallback: {@link MethodHandle}) und die
+ * Normalisierung des Ergebnisses anhand des Rückgabetyps festgelegt.
+ * {@link #execute} kommt so ohne {@code getBean}, Reflection-Lookup und
+ * {@code Method.invoke} aus. Tools ohne Singleton-Bean sowie Aufrufe vor dem
+ * Refresh werden beim ersten Aufruf gebunden.
+ * <p>
+ * Ergebnisse von Tools mit {@link McpToolCache} laufen über den
+ * {@link ToolResultCache}.
  */
 @Component
-public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAware {
+public class SpringMcpToolRegistry
+        implements ToolRegistry, ApplicationContextAware, ApplicationListener<ContextRefreshedEvent> {
 
     private static final Logger log = LoggerFactory.getLogger(SpringMcpToolRegistry.class);
 
     private final Map<McpToolCapability, RegisteredTool> tools = new EnumMap<>(McpToolCapability.class);
+    private volatile Map<McpToolCapability, ToolDescriptor> descriptors = Map.of();
+    private volatile Map<McpToolCapability, Binding> bindings = Map.of();
+    private volatile long version;
     private ApplicationContext applicationContext;
+    private ToolResultCache resultCache;
+
+    @Autowired(required = false)
+    public void setResultCache(ToolResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) {
@@ -40,6 +72,23 @@ public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAw
         discoverTools();
     }
 
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext) {
+            return;
+        }
+        Map<McpToolCapability, Binding> bound = new EnumMap<>(McpToolCapability.class);
+        tools.forEach((capability, rt) -> {
+            try {
+                bound.put(capability, bind(rt));
+            } catch (RuntimeException e) {
+                log.warn("Could not bind MCP tool {} after refresh: {}", capability.id(), e.getMessage());
+            }
+        });
+        bindings = Collections.unmodifiableMap(bound);
+        log.info("Bound {} MCP tools", bound.size());
+    }
+
     private void discoverTools() {
         log.info("Discovering @McpTool methods...");
         String[] beanNames = applicationContext.getBeanDefinitionNames();
@@ -69,15 +118,27 @@ public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAw
 
                 method.setAccessible(true);
                 List<ToolRegistry.ToolParamDescriptor> params = extractParamDescriptors(method);
-
-                RegisteredTool rt = new RegisteredTool(capability, description, beanName, method, userType, params);
+                McpToolHints hints = method.getAnnotation(McpToolHints.class);
+                List<String> keywords = hints != null ? List.of(hints.keywords()) : List.of();
+                List<McpToolCapability> related = hints != null
+                        ? Arrays.stream(hints.related()).map(McpToolCapability::fromId).toList()
+                        : List.of();
+
+                RegisteredTool rt = new RegisteredTool(capability, description, beanName, method, userType, params,
+                        keywords, related, method.getAnnotation(McpToolCache.class));
                 tools.put(capability, rt);
 
                 log.info("Registered MCP tool: {} -> {}#{}", capability.id(), userType.getSimpleName(), method.getName());
             }
         }
 
-        log.info("Total MCP tools discovered: {}", tools.size());
+        Map<McpToolCapability, ToolDescriptor> snapshot = new EnumMap<>(McpToolCapability.class);
+        tools.forEach((capability, rt) -> snapshot.put(capability,
+                new ToolDescriptor(capability, rt.description(), rt.userType(), rt.method().getName(), rt.params(),
+                        rt.keywords(), rt.related())));
+        descriptors = Collections.unmodifiableMap(snapshot);
+        version++;
+        log.info("Total MCP tools discovered: {} (catalog version {})", tools.size(), version);
     }
 
     @Override
@@ -87,38 +148,28 @@ public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAw
             log.warn("Unknown MCP tool capabilityId={}", capabilityId);
             return new PlannerOutput.Result("error", List.of(), "Unknown capabilityId: " + capabilityId);
         }
+        if (rt.cache() != null && resultCache != null) {
+            return resultCache.get(capabilityId, rt.cache(), args, () -> invoke(rt, args));
+        }
+        return invoke(rt, args);
+    }
 
+    private PlannerOutput.Result invoke(RegisteredTool rt, Map<String, Object> args) {
+        McpToolCapability capabilityId = rt.capability();
         try {
-            Object bean = applicationContext.getBean(rt.beanName());
-            Method invocableMethod = resolveInvocableMethod(bean, rt);
-
-            Object result;
+            Binding binding = bindings.get(capabilityId);
+            if (binding == null) {
+                binding = bindLazily(rt);
+            }
+            Object bean = binding.bean() != null ? binding.bean() : applicationContext.getBean(rt.beanName());
 
             // Erwartung: Methoden-Signatur: XxxResult method(Map<String,Object> args)
-            if (invocableMethod.getParameterCount() == 0) {
-                result = invocableMethod.invoke(bean);
-            } else {
-                result = invocableMethod.invoke(bean, args);
-            }
+            Object result = binding.invoker().invoke(bean, args);
 
             if (result == null) {
                 return new PlannerOutput.Result("error", List.of(), "Tool returned null: " + capabilityId);
             }
-
-            // Already a PlannerOutput.Result
-            if (result instanceof PlannerOutput.Result por) {
-                return por;
-            }
-
-            // Implements ToolResult
-            if (result instanceof ToolResult tr) {
-                // Tool-Ergebnis-Normalisierung: vereinheitlicht Status/Items/Message für den Orchestrator
-                return new PlannerOutput.Result(mapStatus(tr.status()), tr.items(), tr.message());
-            }
-
-            // Fallback: nicht unterstützter Typ
-            return new PlannerOutput.Result("error", List.of(),
-                    "Unsupported tool result type: " + result.getClass().getName());
+            return binding.normalizer().apply(result);
 
         } catch (Exception e) {
             log.error("Error executing MCP tool {}: {}", capabilityId, e.getMessage(), e);
@@ -128,13 +179,119 @@ public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAw
 
     @Override
     public Map<McpToolCapability, ToolDescriptor> listTools() {
-        Map<McpToolCapability, ToolDescriptor> map = new EnumMap<>(McpToolCapability.class);
-        tools.forEach((capability, rt) -> map.put(capability,
-                new ToolDescriptor(capability, rt.description(), rt.userType(), rt.method().getName(), rt.params())));
-        return map;
+        return descriptors;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    private synchronized Binding bindLazily(RegisteredTool rt) {
+        Binding binding = bindings.get(rt.capability());
+        if (binding == null) {
+            binding = bind(rt);
+            Map<McpToolCapability, Binding> bound = new EnumMap<>(McpToolCapability.class);
+            bound.putAll(bindings);
+            bound.put(rt.capability(), binding);
+            bindings = Collections.unmodifiableMap(bound);
+        }
+        return binding;
     }
 
-    private String mapStatus(ToolResult.Status status) {
+    private Binding bind(RegisteredTool rt) {
+        Object bean = applicationContext.getBean(rt.beanName());
+        Method method = resolveInvocableMethod(bean, rt);
+        // Nur Singletons werden festgehalten; andere Scopes lösen pro Aufruf auf.
+        Object boundBean = applicationContext.isSingleton(rt.beanName()) ? bean : null;
+        return new Binding(boundBean, compileInvoker(method), normalizer(method.getReturnType()));
+    }
+
+    /**
+     * Kompiliert die Tool-Methode zu einem {@link ToolInvoker}. Öffentliche
+     * Instanzmethoden mit einem {@code Map}-Parameter werden über
+     * {@link LambdaMetafactory} zu einer eigenen Klasse, die der JIT wie einen
+     * direkten Aufruf inlinen kann; alle anderen Signaturen laufen über ein
+     * angepasstes {@link MethodHandle}.
+     */
+    static ToolInvoker compileInvoker(Method method) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle target;
+        try {
+            target = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access MCP tool method " + method, e);
+        }
+
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic && method.getParameterCount() == 1 && method.getParameterTypes()[0] == Map.class
+                && Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(ToolInvoker.class),
+                        MethodType.methodType(Object.class, Object.class, Map.class), target,
+                        MethodType.methodType(method.getReturnType(), method.getDeclaringClass(), Map.class));
+                return (ToolInvoker) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("LambdaMetafactory not applicable for {}, using MethodHandle: {}", method, e.getMessage());
+            }
+        }
+
+        MethodHandle handle = target;
+        if (method.getParameterCount() == 0) {
+            handle = MethodHandles.dropArguments(handle, isStatic ? 0 : 1, Map.class);
+        }
+        if (isStatic) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        MethodHandle adapted = handle.asType(MethodType.methodType(Object.class, Object.class, Map.class));
+        return (bean, args) -> {
+            try {
+                return adapted.invokeExact(bean, args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e, e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Wählt die Ergebnis-Normalisierung einmal pro Rückgabetyp statt bei jedem
+     * Aufruf per {@code instanceof}-Kette.
+     */
+    static Function<Object, PlannerOutput.Result> normalizer(Class<?> returnType) {
+        if (PlannerOutput.Result.class.isAssignableFrom(returnType)) {
+            return result -> (PlannerOutput.Result) result;
+        }
+        if (ToolResult.class.isAssignableFrom(returnType)) {
+            return result -> toResult((ToolResult) result);
+        }
+        return SpringMcpToolRegistry::normalize;
+    }
+
+    private static PlannerOutput.Result normalize(Object result) {
+        // Already a PlannerOutput.Result
+        if (result instanceof PlannerOutput.Result por) {
+            return por;
+        }
+
+        // Implements ToolResult
+        if (result instanceof ToolResult tr) {
+            return toResult(tr);
+        }
+
+        // Fallback: nicht unterstützter Typ
+        return new PlannerOutput.Result("error", List.of(),
+                "Unsupported tool result type: " + result.getClass().getName());
+    }
+
+    private static PlannerOutput.Result toResult(ToolResult tr) {
+        // Tool-Ergebnis-Normalisierung: vereinheitlicht Status/Items/Message für den Orchestrator
+        return new PlannerOutput.Result(mapStatus(tr.status()), tr.items(), tr.message());
+    }
+
+    private static String mapStatus(ToolResult.Status status) {
         if (status == null) {
             return "error";
         }
@@ -203,7 +360,19 @@ public class SpringMcpToolRegistry implements ToolRegistry, ApplicationContextAw
         return method;
     }
 
+    /**
+     * Direkter Aufruf einer Tool-Methode auf der Bean.
+     */
+    @FunctionalInterface
+    interface ToolInvoker {
+        Object invoke(Object bean, Map<String, Object> args);
+    }
+
+    private record Binding(Object bean, ToolInvoker invoker, Function<Object, PlannerOutput.Result> normalizer) {
+    }
+
     private record RegisteredTool(McpToolCapability capability, String description, String beanName, Method method,
-            Class<?> userType, List<ToolRegistry.ToolParamDescriptor> params) {
+            Class<?> userType, List<ToolRegistry.ToolParamDescriptor> params, List<String> keywords,
+            List<McpToolCapability> related, McpToolCache cache) {
     }
 }
@@ -0,0 +1,126 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Statischer R-Tree, gepackt nach Sort-Tile-Recursive (STR): die Blätter
+ * werden nach x in senkrechte Streifen und darin nach y sortiert, sodass die
+ * Knoten kaum überlappen. Der Baum wird einmal gebaut und danach nur gelesen.
+ */
+final class StrTree<T> {
+    private static final int NODE_CAPACITY = 8;
+
+    private final Node root;
+    private final int size;
+
+    /**
+     * {@code bbox} liefert {@code [minX, minY, maxX, maxY]} eines Elements.
+     */
+    StrTree(List<T> items, Function<T, double[]> bbox) {
+        List<Node> level = new ArrayList<>(items.size());
+        for (T item : items) {
+            double[] box = bbox.apply(item);
+            level.add(new Node(box[0], box[1], box[2], box[3], null, item));
+        }
+        while (level.size() > 1) {
+            level = pack(level);
+        }
+        this.root = level.isEmpty() ? null : level.get(0);
+        this.size = items.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Meldet alle Elemente, deren Bounding Box den Punkt enthält.
+     */
+    @SuppressWarnings("unchecked")
+    void query(double x, double y, Consumer<T> visitor) {
+        if (root == null) {
+            return;
+        }
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (!node.contains(x, y)) {
+                continue;
+            }
+            if (node.children == null) {
+                visitor.accept((T) node.item);
+            } else {
+                for (Node child : node.children) {
+                    stack.add(child);
+                }
+            }
+        }
+    }
+
+    private static List<Node> pack(List<Node> nodes) {
+        int parents = (int) Math.ceil(nodes.size() / (double) NODE_CAPACITY);
+        int slices = (int) Math.ceil(Math.sqrt(parents));
+        int sliceSize = slices * NODE_CAPACITY;
+
+        List<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparingDouble(Node::centerX));
+        List<Node> packed = new ArrayList<>(parents);
+        for (int start = 0; start < sorted.size(); start += sliceSize) {
+            List<Node> slice = new ArrayList<>(sorted.subList(start, Math.min(sorted.size(), start + sliceSize)));
+            slice.sort(Comparator.comparingDouble(Node::centerY));
+            for (int i = 0; i < slice.size(); i += NODE_CAPACITY) {
+                packed.add(Node.parentOf(slice.subList(i, Math.min(slice.size(), i + NODE_CAPACITY))));
+            }
+        }
+        return packed;
+    }
+
+    private static final class Node {
+        final double minX;
+        final double minY;
+        final double maxX;
+        final double maxY;
+        final Node[] children;
+        final Object item;
+
+        Node(double minX, double minY, double maxX, double maxY, Node[] children, Object item) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.children = children;
+            this.item = item;
+        }
+
+        static Node parentOf(List<Node> children) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                minX = Math.min(minX, child.minX);
+                minY = Math.min(minY, child.minY);
+                maxX = Math.max(maxX, child.maxX);
+                maxY = Math.max(maxY, child.maxY);
+            }
+            return new Node(minX, minY, maxX, maxY, children.toArray(Node[]::new), null);
+        }
+
+        boolean contains(double x, double y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        double centerX() {
+            return (minX + maxX) / 2d;
+        }
+
+        double centerY() {
+            return (minY + maxY) / 2d;
+        }
+    }
+}
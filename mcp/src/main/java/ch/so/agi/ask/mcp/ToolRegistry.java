@@ -19,13 +19,29 @@ public interface ToolRegistry {
      */
     Map<McpToolCapability, ToolDescriptor> listTools();
 
+    /**
+     * Version des Tool-Katalogs; ändert sich, sobald sich die registrierten
+     * Tools ändern. Abgeleitete Daten (z.B. der Planner-System-Prompt) werden nur
+     * bei einem Wechsel neu berechnet.
+     */
+    default long version() {
+        return 0;
+    }
+
     record ToolDescriptor(
             McpToolCapability capability,
             String description,
             Class<?> beanType,
             String methodName,
-            List<ToolParamDescriptor> params
-    ) {}
+            List<ToolParamDescriptor> params,
+            List<String> keywords,
+            List<McpToolCapability> related
+    ) {
+        public ToolDescriptor(McpToolCapability capability, String description, Class<?> beanType, String methodName,
+                List<ToolParamDescriptor> params) {
+            this(capability, description, beanType, methodName, params, List.of(), List.of());
+        }
+    }
 
     record ToolParamDescriptor(
             String name,
@@ -0,0 +1,279 @@
+package ch.so.agi.ask.mcp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Normalizer;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import ch.so.agi.ask.config.ToolCacheProperties;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * Ergebnis-Cache für MCP-Tools, die mit {@link McpToolCache} annotiert sind.
+ * Pro {@link McpToolCapability} gibt es einen eigenen LRU-Bereich mit der
+ * deklarierten TTL und Grösse; der Schlüssel besteht aus den kanonisierten
+ * Schlüssel-Argumenten.
+ * <ul>
+ * <li>Gleichzeitige Anfragen mit demselben Schlüssel lösen nur einen Aufruf
+ * des Upstream-Dienstes aus (Single-Flight); die übrigen warten auf dessen
+ * Ergebnis, höchstens bis zu ihrer eigenen {@link RequestDeadline}. Scheitert
+ * der Aufruf, weil die Deadline der ladenden Anfrage abgelaufen ist, laden die
+ * Wartenden selbst.</li>
+ * <li>Liefert der Dienst nach Ablauf der TTL einen Fehler, wird der alte
+ * Eintrag noch bis {@code staleSeconds} danach ausgeliefert.</li>
+ * <li>Fehlerergebnisse werden nie gespeichert.</li>
+ * </ul>
+ * Metriken: {@code ask.tools.cache.requests} ({@code capability},
+ * {@code result=hit|miss|stale|coalesced}), {@code ask.tools.cache.evictions}
+ * und {@code ask.tools.cache.size} je Capability.
+ */
+@Component
+public class ToolResultCache {
+    private static final Logger log = LoggerFactory.getLogger(ToolResultCache.class);
+
+    private static final Pattern DECIMAL = Pattern.compile("-?\\d+\\.\\d+");
+
+    private final ToolCacheProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<McpToolCapability, Region> regions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<FlightKey, CompletableFuture<PlannerOutput.Result>> inFlight = new ConcurrentHashMap<>();
+
+    public ToolResultCache(ToolCacheProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Liefert das Ergebnis aus dem Cache oder lädt es über {@code loader}.
+     */
+    public PlannerOutput.Result get(McpToolCapability capability, McpToolCache spec, Map<String, Object> args,
+            Supplier<PlannerOutput.Result> loader) {
+        if (!properties.isEnabled() || spec == null) {
+            return loader.get();
+        }
+        Region region = regions.computeIfAbsent(capability, c -> new Region(c, spec));
+        String key = key(spec, args);
+        Entry entry = region.get(key);
+        if (entry != null && clock.instant().isBefore(entry.freshUntil())) {
+            region.hits.increment();
+            return entry.result();
+        }
+
+        FlightKey flightKey = new FlightKey(capability, key);
+        CompletableFuture<PlannerOutput.Result> own = new CompletableFuture<>();
+        CompletableFuture<PlannerOutput.Result> running = inFlight.putIfAbsent(flightKey, own);
+        if (running != null) {
+            region.coalesced.increment();
+            return await(capability, spec, args, loader, running);
+        }
+        try {
+            PlannerOutput.Result loaded = loader.get();
+            Instant now = clock.instant();
+            PlannerOutput.Result served = loaded;
+            if (loaded == null || "error".equals(loaded.status())) {
+                if (entry != null && now.isBefore(entry.staleUntil())) {
+                    log.info("Serving stale {} result after upstream error: {}", capability.id(),
+                            loaded == null ? null : loaded.message());
+                    region.stale.increment();
+                    served = entry.result();
+                } else {
+                    region.misses.increment();
+                }
+            } else {
+                region.misses.increment();
+                Instant freshUntil = now.plusSeconds(spec.ttlSeconds());
+                region.put(key, new Entry(loaded, freshUntil, freshUntil.plusSeconds(spec.staleSeconds())));
+            }
+            if ((served == null || "error".equals(served.status())) && abandoned()) {
+                own.cancel(false);
+            } else {
+                own.complete(served);
+            }
+            return served;
+        } catch (RuntimeException | Error e) {
+            if (abandoned()) {
+                own.cancel(false);
+            } else {
+                own.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, own);
+        }
+    }
+
+    /**
+     * Wartet auf den laufenden Aufruf eines anderen Threads, höchstens bis zur
+     * Deadline der eigenen Anfrage. Wurde der Aufruf abgebrochen, wird selbst
+     * geladen.
+     */
+    private PlannerOutput.Result await(McpToolCapability capability, McpToolCache spec, Map<String, Object> args,
+            Supplier<PlannerOutput.Result> loader, CompletableFuture<PlannerOutput.Result> running) {
+        RequestDeadline deadline = RequestDeadline.current().orElse(RequestDeadline.none());
+        try {
+            return deadline.isBounded() ? running.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS)
+                    : running.get();
+        } catch (CancellationException e) {
+            return get(capability, spec, args, loader);
+        } catch (TimeoutException e) {
+            return new PlannerOutput.Result("error", List.of(), "Timeout waiting for " + capability.id());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PlannerOutput.Result("error", List.of(), "Interrupted waiting for " + capability.id());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Der ladende Thread wurde wegen der Deadline seiner Anfrage abgebrochen;
+     * sein Fehler gilt nicht für die übrigen Wartenden.
+     */
+    private static boolean abandoned() {
+        return Thread.currentThread().isInterrupted()
+                || RequestDeadline.current().map(RequestDeadline::isExpired).orElse(false);
+    }
+
+    public int size(McpToolCapability capability) {
+        Region region = regions.get(capability);
+        return region == null ? 0 : region.size();
+    }
+
+    /**
+     * Kanonischer Schlüssel aus den deklarierten Argumenten: sortiert,
+     * Strings getrimmt und kleingeschrieben, Zahlen gerundet.
+     */
+    static String key(McpToolCache spec, Map<String, Object> args) {
+        Map<String, Object> selected = new TreeMap<>();
+        if (args != null) {
+            if (spec.keyArgs().length == 0) {
+                selected.putAll(args);
+            } else {
+                Arrays.stream(spec.keyArgs()).filter(args::containsKey)
+                        .forEach(name -> selected.put(name, args.get(name)));
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        append(key, selected, spec.coordinateDecimals());
+        return key.toString();
+    }
+
+    private static void append(StringBuilder key, Object value, int decimals) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            key.append('{');
+            sorted.forEach((k, v) -> {
+                key.append(k).append('=');
+                append(key, v, decimals);
+                key.append(';');
+            });
+            key.append('}');
+        } else if (value instanceof Collection<?> list) {
+            key.append('[');
+            list.forEach(v -> {
+                append(key, v, decimals);
+                key.append(',');
+            });
+            key.append(']');
+        } else if (value instanceof Number number) {
+            key.append(round(new BigDecimal(number.toString()), decimals));
+        } else if (value instanceof String text) {
+            String canonical = Normalizer.normalize(text, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ")
+                    .toLowerCase(Locale.ROOT);
+            key.append(DECIMAL.matcher(canonical).matches() ? round(new BigDecimal(canonical), decimals)
+                    : '"' + canonical + '"');
+        } else {
+            key.append(value);
+        }
+    }
+
+    private static String round(BigDecimal value, int decimals) {
+        return value.setScale(decimals, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    private record FlightKey(McpToolCapability capability, String key) {
+    }
+
+    private record Entry(PlannerOutput.Result result, Instant freshUntil, Instant staleUntil) {
+    }
+
+    private final class Region {
+        private final int maxEntries;
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter stale;
+        private final Counter coalesced;
+        private final Counter evictions;
+
+        Region(McpToolCapability capability, McpToolCache spec) {
+            this.maxEntries = Math.max(1, spec.maxEntries());
+            this.hits = requests(capability, "hit");
+            this.misses = requests(capability, "miss");
+            this.stale = requests(capability, "stale");
+            this.coalesced = requests(capability, "coalesced");
+            this.evictions = Counter.builder("ask.tools.cache.evictions").tag("capability", capability.id())
+                    .register(meterRegistry);
+            meterRegistry.gauge("ask.tools.cache.size", List.of(Tag.of("capability", capability.id())), this,
+                    Region::size);
+        }
+
+        private Counter requests(McpToolCapability capability, String result) {
+            return Counter.builder("ask.tools.cache.requests").tag("capability", capability.id())
+                    .tag("result", result).register(meterRegistry);
+        }
+
+        synchronized Entry get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, Entry entry) {
+            entries.put(key, entry);
+            Iterator<String> it = entries.keySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.so.agi.ask.config.UpstreamProperties;
+import ch.so.agi.ask.mcp.UpstreamRejectedException.Reason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Isoliert einen Upstream-Dienst, damit ein langsamer Endpunkt nicht alle
+ * Servlet-Threads bindet:
+ * <ul>
+ * <li><b>Adaptives Limit (AIMD):</b> erfolgreiche, schnelle Aufrufe erhöhen
+ * das Parallelitätslimit um {@code 1/limit}; Fehler und Antworten über
+ * {@code latencyThresholdMillis} senken es mit {@code backoffRatio}.</li>
+ * <li><b>Warteschlange:</b> über dem Limit warten höchstens
+ * {@code queueSize} Aufrufe. Ein Aufruf wird sofort abgewiesen, wenn die
+ * geschätzte Wartezeit (Position × mittlere Latenz / Limit) seine Deadline
+ * überschreitet, sonst spätestens bei Ablauf der Deadline.</li>
+ * <li><b>Circuit Breaker:</b> überschreitet die Fehlerquote im gleitenden
+ * Fenster {@code failureRateThreshold}, werden Aufrufe für
+ * {@code openStateMillis} abgewiesen; danach prüft ein einzelner Aufruf, ob
+ * der Dienst wieder antwortet.</li>
+ * </ul>
+ * Metriken (alle mit {@code upstream}-Tag): {@code ask.upstream.limit},
+ * {@code ask.upstream.inflight}, {@code ask.upstream.queued},
+ * {@code ask.upstream.circuit.state} (0=closed, 1=half-open, 2=open),
+ * {@code ask.upstream.rejections} ({@code reason}) und
+ * {@code ask.upstream.latency} ({@code outcome=success|failure}).
+ */
+public class UpstreamBulkhead {
+    private static final Logger log = LoggerFactory.getLogger(UpstreamBulkhead.class);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Berechtigung für einen laufenden Aufruf; muss mit
+     * {@link UpstreamBulkhead#release(Permit, boolean)} zurückgegeben werden.
+     */
+    public static final class Permit {
+        private final long startNanos;
+        private final boolean probe;
+
+        private Permit(long startNanos, boolean probe) {
+            this.startNanos = startNanos;
+            this.probe = probe;
+        }
+    }
+
+    private final String name;
+    private final UpstreamProperties.Limits limits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final boolean[] window;
+    private final Map<Reason, Counter> rejections = new LinkedHashMap<>();
+    private final Timer successLatency;
+    private final Timer failureLatency;
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double averageLatencyNanos;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    public UpstreamBulkhead(String name, UpstreamProperties.Limits limits, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.limits = limits;
+        this.limit = Math.max(limits.getMinLimit(), Math.min(limits.getMaxLimit(), limits.getInitialLimit()));
+        this.window = new boolean[Math.max(1, limits.getSlidingWindowSize())];
+        for (Reason reason : Reason.values()) {
+            rejections.put(reason, Counter.builder("ask.upstream.rejections").tag("upstream", name)
+                    .tag("reason", reason.name().toLowerCase()).register(meterRegistry));
+        }
+        this.successLatency = latency(meterRegistry, "success");
+        this.failureLatency = latency(meterRegistry, "failure");
+        List<Tag> tags = List.of(Tag.of("upstream", name));
+        meterRegistry.gauge("ask.upstream.limit", tags, this, UpstreamBulkhead::limit);
+        meterRegistry.gauge("ask.upstream.inflight", tags, this, UpstreamBulkhead::inFlight);
+        meterRegistry.gauge("ask.upstream.queued", tags, this, UpstreamBulkhead::queued);
+        meterRegistry.gauge("ask.upstream.circuit.state", tags, this, b -> b.state().ordinal());
+    }
+
+    private Timer latency(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("ask.upstream.latency").tag("upstream", name).tag("outcome", outcome)
+                .publishPercentiles(0.95).register(meterRegistry);
+    }
+
+    /**
+     * Wartet auf einen freien Platz, höchstens bis {@code deadlineNanos}
+     * ({@link System#nanoTime()}-Basis) bzw. {@code maxQueueWaitMillis}. Ist
+     * die Deadline bereits abgelaufen, wird der Aufruf sofort abgewiesen.
+     */
+    public Permit acquire(long deadlineNanos) throws UpstreamRejectedException {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (deadlineNanos - now <= 0) {
+                throw reject(Reason.DEADLINE);
+            }
+            if (state == State.OPEN) {
+                if (now - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(limits.getOpenStateMillis())) {
+                    throw reject(Reason.CIRCUIT_OPEN);
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    throw reject(Reason.CIRCUIT_OPEN);
+                }
+                probeInFlight = true;
+                inFlight++;
+                return new Permit(now, true);
+            }
+            if (inFlight < currentLimit()) {
+                inFlight++;
+                return new Permit(now, false);
+            }
+            if (queued >= limits.getQueueSize()) {
+                throw reject(Reason.QUEUE_FULL);
+            }
+            long deadline = Math.min(deadlineNanos, now + TimeUnit.MILLISECONDS.toNanos(limits.getMaxQueueWaitMillis()));
+            double expectedWait = (queued + 1) * averageLatencyNanos / currentLimit();
+            if (now + expectedWait > deadline) {
+                throw reject(Reason.DEADLINE);
+            }
+            queued++;
+            try {
+                while (state == State.CLOSED && inFlight >= currentLimit()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw reject(Reason.DEADLINE);
+                    }
+                    available.awaitNanos(remaining);
+                }
+                if (state != State.CLOSED) {
+                    throw reject(Reason.CIRCUIT_OPEN);
+                }
+                inFlight++;
+                return new Permit(System.nanoTime(), false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(Reason.DEADLINE);
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gibt den Platz frei und aktualisiert Limit und Circuit Breaker.
+     * {@code success=false} für Verbindungsfehler und 5xx-Antworten.
+     */
+    public void release(Permit permit, boolean success) {
+        long latencyNanos = System.nanoTime() - permit.startNanos;
+        (success ? successLatency : failureLatency).record(latencyNanos, TimeUnit.NANOSECONDS);
+        lock.lock();
+        try {
+            inFlight--;
+            averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos
+                    : averageLatencyNanos * 0.8 + latencyNanos * 0.2;
+
+            boolean slow = latencyNanos > TimeUnit.MILLISECONDS.toNanos(limits.getLatencyThresholdMillis());
+            if (!success || slow) {
+                limit = Math.max(limits.getMinLimit(), limit * limits.getBackoffRatio());
+            } else if (inFlight + 1 >= limit / 2) {
+                // nur wachsen, wenn das Limit tatsächlich ausgeschöpft wird
+                limit = Math.min(limits.getMaxLimit(), limit + 1.0 / limit);
+            }
+
+            if (permit.probe) {
+                probeInFlight = false;
+                if (success) {
+                    resetWindow();
+                    transition(State.CLOSED);
+                } else {
+                    openedAtNanos = System.nanoTime();
+                    transition(State.OPEN);
+                }
+            } else if (state == State.CLOSED) {
+                record(!success);
+                if (windowCount >= limits.getMinimumCalls()
+                        && (double) windowFailures / windowCount >= limits.getFailureRateThreshold()) {
+                    openedAtNanos = System.nanoTime();
+                    transition(State.OPEN);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public double limit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int currentLimit() {
+        return Math.max(1, (int) limit);
+    }
+
+    private UpstreamRejectedException reject(Reason reason) {
+        rejections.get(reason).increment();
+        return new UpstreamRejectedException(name, reason);
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            log.info("Upstream {} circuit {} -> {}", name, state, next);
+            state = next;
+            available.signalAll();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,250 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import ch.so.agi.ask.config.HttpClientProperties;
+import ch.so.agi.ask.config.UpstreamProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Gemeinsame HTTP-Infrastruktur der Tools. Jeder Upstream (z.B. {@code oereb}
+ * oder {@code landreg-print}) erhält einen {@link RestClient.Builder} mit
+ * <ul>
+ * <li>Basis-URL und Read-Timeout aus {@link HttpClientProperties},</li>
+ * <li>dem geteilten JDK-{@link HttpClient} seines Pools (standardmässig pro
+ * Host; HTTP/2 per ALPN, sonst HTTP/1.1 mit Keep-Alive),</li>
+ * <li>{@code Accept-Encoding: gzip} samt Dekomprimierung der Antwort,</li>
+ * <li>einem eigenen {@link UpstreamBulkhead} als Interceptor.</li>
+ * </ul>
+ * Metrik: {@code ask.http.pool.active} (laufende Anfragen je {@code pool}).
+ */
+@Component
+public class UpstreamClients {
+
+    private final UpstreamProperties properties;
+    private final HttpClientProperties httpProperties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, UpstreamBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HttpClient> pools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> activeByPool = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> poolByUpstream = new ConcurrentHashMap<>();
+
+    public UpstreamClients(UpstreamProperties properties, MeterRegistry meterRegistry) {
+        this(properties, new HttpClientProperties(), meterRegistry);
+    }
+
+    @Autowired
+    public UpstreamClients(UpstreamProperties properties, HttpClientProperties httpProperties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.httpProperties = httpProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Ohne eigenen HTTP-Client und Bulkhead: {@link #builder(String, RestClient.Builder)}
+     * setzt nur die Basis-URL auf dem übergebenen Builder (für Tests und
+     * manuelle Konstruktion der Tools).
+     */
+    public static UpstreamClients direct() {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.setEnabled(false);
+        return new UpstreamClients(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Konfigurierte Basis-URL des Upstreams oder {@code fallback}.
+     */
+    public String baseUrl(String upstream, String fallback) {
+        return httpProperties.endpoint(upstream).baseUrlOr(fallback);
+    }
+
+    public RestClient.Builder builder(String upstream, RestClient.Builder base) {
+        return builder(upstream, base, null);
+    }
+
+    /**
+     * Kopie von {@code base} für {@code upstream}; ohne konfigurierte
+     * Basis-URL wird {@code fallbackBaseUrl} verwendet.
+     */
+    public RestClient.Builder builder(String upstream, RestClient.Builder base, String fallbackBaseUrl) {
+        String baseUrl = baseUrl(upstream, fallbackBaseUrl);
+        if (!properties.isEnabled()) {
+            return baseUrl == null ? base : base.baseUrl(baseUrl);
+        }
+        String pool = httpProperties.pool(upstream, fallbackBaseUrl);
+        poolByUpstream.put(upstream, pool);
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient(pool));
+        requestFactory.setReadTimeout(Duration.ofMillis(httpProperties.endpoint(upstream).getReadTimeoutMillis()));
+
+        RestClient.Builder builder = base.clone()
+                .requestFactory(requestFactory)
+                .requestInterceptor(bulkheadInterceptor(bulkhead(upstream),
+                        TimeUnit.MILLISECONDS.toNanos(properties.limits(upstream).getMaxQueueWaitMillis())))
+                .requestInterceptor(occupancyInterceptor(activeByPool.get(pool)));
+        if (httpProperties.isGzip()) {
+            builder.requestInterceptor(UpstreamClients::gzip);
+        }
+        return baseUrl == null ? builder : builder.baseUrl(baseUrl);
+    }
+
+    public UpstreamBulkhead bulkhead(String upstream) {
+        return bulkheads.computeIfAbsent(upstream,
+                name -> new UpstreamBulkhead(name, properties.limits(name), meterRegistry));
+    }
+
+    /**
+     * Zustand aller Bulkheads samt Pool, sortiert nach Upstream (für den
+     * Actuator-Endpoint {@code upstreams}).
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        bulkheads.forEach((name, bulkhead) -> {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("state", bulkhead.state().name());
+            state.put("limit", bulkhead.limit());
+            state.put("inFlight", bulkhead.inFlight());
+            state.put("queued", bulkhead.queued());
+            String pool = poolByUpstream.get(name);
+            if (pool != null) {
+                state.put("pool", pool);
+                state.put("poolActive", activeByPool.get(pool).get());
+            }
+            snapshot.put(name, state);
+        });
+        return snapshot;
+    }
+
+    private HttpClient httpClient(String pool) {
+        return pools.computeIfAbsent(pool, name -> {
+            activeByPool.put(name, meterRegistry.gauge("ask.http.pool.active", List.of(Tag.of("pool", name)),
+                    new AtomicInteger()));
+            return HttpClient.newBuilder()
+                    .version(httpProperties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis(name)))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+        });
+    }
+
+    private long connectTimeoutMillis(String pool) {
+        return httpProperties.getEndpoints().keySet().stream()
+                .filter(upstream -> Objects.equals(httpProperties.pool(upstream, null), pool))
+                .mapToLong(upstream -> httpProperties.endpoint(upstream).getConnectTimeoutMillis())
+                .max()
+                .orElse(new HttpClientProperties.Endpoint().getConnectTimeoutMillis());
+    }
+
+    private static ClientHttpRequestInterceptor bulkheadInterceptor(UpstreamBulkhead bulkhead,
+            long maxQueueWaitNanos) {
+        return (request, body, execution) -> {
+            // Antwortkörper werden erst nach dem Interceptor gelesen und
+            // zählen nicht zur gemessenen Latenz.
+            // Die Deadline der Chat-Anfrage begrenzt die Wartezeit zusätzlich.
+            long deadline = RequestDeadline.current().map(RequestDeadline::deadlineNanos)
+                    .orElse(System.nanoTime() + maxQueueWaitNanos);
+            UpstreamBulkhead.Permit permit = bulkhead.acquire(deadline);
+            boolean success = false;
+            try {
+                var response = execution.execute(request, body);
+                success = !response.getStatusCode().is5xxServerError();
+                return response;
+            } finally {
+                bulkhead.release(permit, success);
+            }
+        };
+    }
+
+    private static ClientHttpRequestInterceptor occupancyInterceptor(AtomicInteger active) {
+        return (request, body, execution) -> {
+            active.incrementAndGet();
+            try {
+                return execution.execute(request, body);
+            } finally {
+                active.decrementAndGet();
+            }
+        };
+    }
+
+    private static ClientHttpResponse gzip(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        ClientHttpResponse response = execution.execute(request, body);
+        String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        return "gzip".equalsIgnoreCase(encoding) ? new GzipResponse(response) : response;
+    }
+
+    /**
+     * Antwort mit dekomprimiertem Körper; {@code Content-Encoding} und
+     * {@code Content-Length} entfallen.
+     */
+    private static final class GzipResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final HttpHeaders headers = new HttpHeaders();
+        private InputStream body;
+
+        GzipResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            headers.putAll(delegate.getHeaders());
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new GZIPInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
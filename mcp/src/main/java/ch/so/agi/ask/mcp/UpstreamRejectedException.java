@@ -0,0 +1,33 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+
+/**
+ * Ein Upstream-Aufruf wurde vom {@link UpstreamBulkhead} abgewiesen, bevor er
+ * den Dienst erreicht hat. Als {@link IOException} wird sie vom
+ * {@code RestClient} in eine {@code ResourceAccessException} verpackt und von
+ * den Tools wie ein Verbindungsfehler behandelt.
+ */
+public class UpstreamRejectedException extends IOException {
+
+    public enum Reason {
+        CIRCUIT_OPEN, QUEUE_FULL, DEADLINE
+    }
+
+    private final String upstream;
+    private final Reason reason;
+
+    public UpstreamRejectedException(String upstream, Reason reason) {
+        super("Upstream " + upstream + " rejected call: " + reason.name().toLowerCase());
+        this.upstream = upstream;
+        this.reason = reason;
+    }
+
+    public String upstream() {
+        return upstream;
+    }
+
+    public Reason reason() {
+        return reason;
+    }
+}
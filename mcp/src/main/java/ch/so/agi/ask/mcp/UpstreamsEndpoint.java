@@ -0,0 +1,28 @@
+package ch.so.agi.ask.mcp;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator-Endpoint {@code /actuator/upstreams}: Circuit-Zustand, aktuelles
+ * Limit, laufende und wartende Aufrufe je Upstream. Muss über
+ * {@code management.endpoints.web.exposure.include} freigegeben werden.
+ */
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamsEndpoint {
+
+    private final UpstreamClients upstreamClients;
+
+    public UpstreamsEndpoint(UpstreamClients upstreamClients) {
+        this.upstreamClients = upstreamClients;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> upstreams() {
+        return upstreamClients.snapshot();
+    }
+}
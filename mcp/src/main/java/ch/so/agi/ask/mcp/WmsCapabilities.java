@@ -0,0 +1,267 @@
+package ch.so.agi.ask.mcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import ch.so.agi.ask.config.WmsCapabilitiesProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Layer-Metadaten aus dem GetCapabilities-Dokument des WMS (Upstream
+ * {@code wms}, standardmässig {@code https://geo.so.ch/api/wms}). Das Dokument
+ * wird per StAX gestreamt gelesen und nicht als DOM gehalten; pro benanntem
+ * Layer bleiben nur Ausdehnung in EPSG:2056, Massstabsbereich,
+ * Abfragbarkeit und Legenden-URL. Ausdehnung, Massstäbe und
+ * {@code queryable} werden gemäss WMS 1.3.0 von übergeordneten Layern geerbt.
+ * Die Tabelle wird beim Start und danach periodisch als Ganzes ersetzt;
+ * schlägt das Laden fehl, bleibt die alte Tabelle aktiv.
+ * <p>
+ * Metriken: {@code ask.wms.capabilities.layers} und
+ * {@code ask.wms.capabilities.refresh} ({@code outcome=success|failure}).
+ */
+@Component
+public class WmsCapabilities {
+    private static final Logger log = LoggerFactory.getLogger(WmsCapabilities.class);
+    private static final String BASE_URL = "https://geo.so.ch/api/wms";
+    private static final String CRS = "EPSG:2056";
+
+    /**
+     * Metadaten eines Layers; {@code extent} ist {@code [minx, miny, maxx, maxy]}
+     * in EPSG:2056, die Massstäbe sind Massstabszahlen (null = unbegrenzt).
+     */
+    public record LayerMetadata(String name, String title, List<Double> extent, Double minScale, Double maxScale,
+            boolean queryable, String legendUrl) {
+    }
+
+    private final RestClient restClient;
+    private final WmsCapabilitiesProperties properties;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+    private volatile Map<String, LayerMetadata> layers = Map.of();
+
+    @Autowired
+    public WmsCapabilities(RestClient.Builder restClientBuilder, UpstreamClients upstreamClients,
+            WmsCapabilitiesProperties properties, MeterRegistry meterRegistry) {
+        this.restClient = upstreamClients.builder("wms", restClientBuilder, BASE_URL).build();
+        this.properties = properties;
+        this.refreshSuccess = Counter.builder("ask.wms.capabilities.refresh").tag("outcome", "success")
+                .register(meterRegistry);
+        this.refreshFailure = Counter.builder("ask.wms.capabilities.refresh").tag("outcome", "failure")
+                .register(meterRegistry);
+        meterRegistry.gauge("ask.wms.capabilities.layers", this, WmsCapabilities::size);
+    }
+
+    /**
+     * Leere Tabelle ohne Refresh; Layer werden ohne Metadaten ausgeliefert.
+     */
+    public static WmsCapabilities empty() {
+        WmsCapabilitiesProperties properties = new WmsCapabilitiesProperties();
+        properties.setEnabled(false);
+        return new WmsCapabilities(RestClient.builder(), UpstreamClients.direct(), properties,
+                new SimpleMeterRegistry());
+    }
+
+    @Scheduled(fixedDelayString = "${ask.wms.capabilities.refresh-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            restClient.get()
+                    .uri(uriBuilder -> uriBuilder.queryParam("SERVICE", "WMS")
+                            .queryParam("REQUEST", "GetCapabilities")
+                            .queryParam("VERSION", "1.3.0")
+                            .build())
+                    .exchange((request, response) -> {
+                        if (!response.getStatusCode().is2xxSuccessful()) {
+                            throw new IOException("GetCapabilities failed with HTTP " + response.getStatusCode());
+                        }
+                        load(response.getBody());
+                        return null;
+                    });
+            refreshSuccess.increment();
+            log.info("WMS capabilities loaded for {} layers", size());
+        } catch (RuntimeException e) {
+            refreshFailure.increment();
+            log.warn("WMS capabilities refresh failed, keeping {} layers", size(), e);
+        }
+    }
+
+    /**
+     * Ersetzt die Tabelle durch die Layer des GetCapabilities-Dokuments.
+     */
+    void load(InputStream capabilities) throws IOException {
+        Map<String, LayerMetadata> parsed = new HashMap<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory().createXMLStreamReader(capabilities);
+            parse(reader, parsed);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid GetCapabilities document", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignore) {
+                    // ignore
+                }
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IOException("No named layers in GetCapabilities document");
+        }
+        layers = Map.copyOf(parsed);
+    }
+
+    public Optional<LayerMetadata> layer(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(layers.get(name));
+    }
+
+    public int size() {
+        return layers.size();
+    }
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    private static void parse(XMLStreamReader reader, Map<String, LayerMetadata> result) throws XMLStreamException {
+        Deque<Frame> frames = new ArrayDeque<>();
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String element = reader.getLocalName();
+                Frame frame = frames.peek();
+                if ("Layer".equals(element)) {
+                    Frame child = new Frame(depth, frame);
+                    String queryable = reader.getAttributeValue(null, "queryable");
+                    if (queryable != null) {
+                        child.queryable = "1".equals(queryable) || "true".equalsIgnoreCase(queryable);
+                    }
+                    frames.push(child);
+                } else if (frame != null) {
+                    frame.read(reader, element, depth);
+                    if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                        // getElementText() hat das Element bereits abgeschlossen
+                        depth--;
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("Layer".equals(reader.getLocalName()) && !frames.isEmpty()) {
+                    Frame frame = frames.pop();
+                    if (frame.name != null && !frame.name.isBlank()) {
+                        result.put(frame.name, frame.toMetadata());
+                    }
+                }
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Zustand eines offenen {@code <Layer>}-Elements; vererbbare Werte werden
+     * vom übergeordneten Layer übernommen.
+     */
+    private static final class Frame {
+        private final int depth;
+        private String name;
+        private String title;
+        private List<Double> extent;
+        private Double minScale;
+        private Double maxScale;
+        private boolean queryable;
+        private String legendUrl;
+        private boolean inLegend;
+
+        Frame(int depth, Frame parent) {
+            this.depth = depth;
+            if (parent != null) {
+                this.extent = parent.extent;
+                this.minScale = parent.minScale;
+                this.maxScale = parent.maxScale;
+                this.queryable = parent.queryable;
+            }
+        }
+
+        void read(XMLStreamReader reader, String element, int elementDepth) throws XMLStreamException {
+            if (elementDepth == depth + 1) {
+                switch (element) {
+                case "Name" -> name = reader.getElementText().trim();
+                case "Title" -> title = reader.getElementText().trim();
+                case "BoundingBox" -> boundingBox(reader);
+                case "MinScaleDenominator" -> minScale = number(reader.getElementText());
+                case "MaxScaleDenominator" -> maxScale = number(reader.getElementText());
+                default -> {
+                }
+                }
+                return;
+            }
+            // Style/LegendURL/OnlineResource: erste Legende des Layers
+            if ("LegendURL".equals(element) && elementDepth == depth + 2) {
+                inLegend = legendUrl == null;
+            } else if ("OnlineResource".equals(element) && inLegend && elementDepth == depth + 3) {
+                legendUrl = reader.getAttributeValue("http://www.w3.org/1999/xlink", "href");
+                inLegend = false;
+            }
+        }
+
+        private void boundingBox(XMLStreamReader reader) {
+            String crs = reader.getAttributeValue(null, "CRS");
+            if (crs == null) {
+                crs = reader.getAttributeValue(null, "SRS");
+            }
+            if (!CRS.equalsIgnoreCase(crs)) {
+                return;
+            }
+            Double minx = number(reader.getAttributeValue(null, "minx"));
+            Double miny = number(reader.getAttributeValue(null, "miny"));
+            Double maxx = number(reader.getAttributeValue(null, "maxx"));
+            Double maxy = number(reader.getAttributeValue(null, "maxy"));
+            if (minx != null && miny != null && maxx != null && maxy != null) {
+                extent = List.of(minx, miny, maxx, maxy);
+            }
+        }
+
+        LayerMetadata toMetadata() {
+            return new LayerMetadata(name, title, extent, minScale, maxScale, queryable, legendUrl);
+        }
+
+        private static Double number(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
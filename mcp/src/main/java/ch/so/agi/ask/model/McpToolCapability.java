@@ -10,6 +10,8 @@ import com.fasterxml.jackson.annotation.JsonValue;
 public enum McpToolCapability {
     GEOLOCATION_GEOCODE_ADDRESS("geolocation.geocode.address"),
     GEOLOCATION_GEOCODE_MUNICIPALITY("geolocation.geocode.municipality"),
+    GEOLOCATION_MUNICIPALITY_BY_XY("geolocation.municipalityByXY"),
+    GEOLOCATION_REVERSE("geolocation.reverse"),
     LAYERS_SEARCH("layers.search"),
     OEREB_EGRID_BY_XY("oereb.egridByXY"),
     OEREB_EXTRACT_BY_ID("oereb.extractById"),
@@ -0,0 +1,100 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import ch.so.agi.ask.config.ChatMemoryProperties;
+import ch.so.agi.ask.mcp.McpResponseItem;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChatMemoryPolicyTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void summarizesOlderToolResultsWithoutGeometry() {
+        ChatMemoryPolicy policy = new ChatMemoryPolicy(new ChatMemoryProperties(), meterRegistry);
+        Message older = toolResult("featureSearch.getParcelByEgrid", parcel("CH111"));
+        Message latest = toolResult("oereb.extractById", parcel("CH222"));
+
+        List<Message> compacted = policy.compact(List.of(new UserMessage("ÖREB für CH111"), older, latest));
+
+        assertThat(compacted).hasSize(3);
+        String summary = compacted.get(1).getText();
+        assertThat(summary).startsWith("Tool featureSearch.getParcelByEgrid result (gekürzt): ");
+        assertThat(summary).contains("\"id\":\"CH111\"", "\"label\":\"GB 42\"", "\"egrid\":\"CH111\"", "\"coord\":[2600000.0,1200000.0]");
+        assertThat(summary).doesNotContain("geometry", "Polygon");
+        assertThat(compacted.get(2).getText()).isEqualTo(latest.getText());
+        assertThat(meterRegistry.get("ask.chat.memory.tokens.saved").tag("reason", "summary").counter().count())
+                .isGreaterThan(0d);
+    }
+
+    @Test
+    void marksToolResultsThatCannotBeSummarizedAsCompacted() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.setFullToolResults(1);
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore(new ChatMemoryPolicy(properties, meterRegistry));
+
+        store.appendMessage("sess-raw", new AssistantMessage("Tool layers.search result: Upstream nicht erreichbar"));
+        store.appendMessage("sess-raw", new AssistantMessage("Tool layers.search result: Timeout"));
+
+        List<Message> messages = store.getMessages("sess-raw");
+        assertThat(messages).extracting(Message::getText).containsExactly(
+                "Tool layers.search result (gekürzt): Upstream nicht erreichbar",
+                "Tool layers.search result: Timeout");
+        assertThat(messages.stream().filter(ChatMemoryPolicy::isToolResult).count()).isEqualTo(1L);
+    }
+
+    @Test
+    void keepsSlidingWindowWithinTokenBudget() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.setMaxMessages(3);
+        properties.setMaxTokens(10);
+        ChatMemoryPolicy policy = new ChatMemoryPolicy(properties, meterRegistry);
+        List<Message> messages = List.of(new UserMessage("eins-eins-eins-eins."), new UserMessage("zwei-zwei-zwei-zwei."),
+                new UserMessage("drei-drei-drei-drei."), new UserMessage("vier-vier-vier-vier."),
+                new UserMessage("fuenf-fuenf-fuenf-fu"));
+
+        List<Message> compacted = policy.compact(messages);
+
+        assertThat(compacted).extracting(Message::getText).containsExactly("vier-vier-vier-vier.",
+                "fuenf-fuenf-fuenf-fu");
+        assertThat(meterRegistry.get("ask.chat.memory.tokens.saved").tag("reason", "window").counter().count())
+                .isEqualTo(10d);
+        assertThat(meterRegistry.get("ask.chat.memory.tokens.saved").tag("reason", "budget").counter().count())
+                .isEqualTo(5d);
+    }
+
+    @Test
+    void storeAppliesPolicyOnAppend() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.setMaxMessages(2);
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore(new ChatMemoryPolicy(properties, meterRegistry));
+
+        store.appendMessages("sess-mem", List.of(new UserMessage("a"), new AssistantMessage("b")));
+        store.appendMessage("sess-mem", new UserMessage("c"));
+
+        assertThat(store.getMessages("sess-mem")).extracting(Message::getText).containsExactly("b", "c");
+    }
+
+    private Message toolResult(String capability, Map<String, Object> item) {
+        PlannerOutput.Result result = new PlannerOutput.Result("ok", List.of(item), "Grundstück gefunden");
+        return new AssistantMessage("Tool %s result: %s".formatted(capability, Json.write(result)));
+    }
+
+    private Map<String, Object> parcel(String egrid) {
+        return McpResponseItem.of("parcel", Map.of("id", egrid, "label", "GB 42", "egrid", egrid, "coord",
+                List.of(2600000d, 1200000d), "geometry", Map.of("type", "Polygon", "coordinates",
+                        List.of(List.of(List.of(2600000d, 1200000d), List.of(2600010d, 1200000d),
+                                List.of(2600010d, 1200010d), List.of(2600000d, 1200000d))))))
+                .toMap();
+    }
+}
@@ -1,19 +1,38 @@
 package ch.so.agi.ask.core;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import ch.so.agi.ask.config.SpeculationProperties;
 import ch.so.agi.ask.core.ChatMemoryStore;
 import ch.so.agi.ask.core.InMemoryChatMemoryStore;
 import ch.so.agi.ask.model.ChatRequest;
@@ -22,6 +41,7 @@ import ch.so.agi.ask.model.IntentType;
 import ch.so.agi.ask.model.McpToolCapability;
 import ch.so.agi.ask.model.PlannerOutput;
 import ch.so.agi.ask.mcp.McpResponseItem;
+import ch.so.agi.ask.mcp.RequestDeadline;
 import ch.so.agi.ask.core.PendingChoiceStore;
 import ch.so.agi.ask.core.InMemoryPendingChoiceStore;
 import org.springframework.ai.chat.messages.AbstractMessage;
@@ -31,6 +51,8 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 
+import reactor.core.publisher.Flux;
+
 class ChatOrchestratorTests {
 
     @Test
@@ -393,6 +415,478 @@ class ChatOrchestratorTests {
         assertThat(forwardedArgs.get("selection")).isInstanceOf(Map.class);
     }
 
+    @Test
+    void runsIndependentStepsConcurrentlyAndKeepsPlannerOrder() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ActionPlanner actionPlanner = new ActionPlanner();
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        PendingChoiceStore pendingChoiceStore = new InMemoryPendingChoiceStore();
+        SelectionMemoryStore selectionMemoryStore = new InMemorySelectionMemoryStore();
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, actionPlanner, chatMemoryStore,
+                pendingChoiceStore, selectionMemoryStore);
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                        Map.of("q", "Langendorfstrasse 19b, Solothurn"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var layerStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+
+        when(planner.plan(anyString(), anyString())).thenReturn(new PlannerOutput("req-par", List.of(gotoStep, layerStep)));
+
+        // Beide Tools warten aufeinander: bei serieller Ausführung liefe der Latch in den Timeout.
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap())).thenAnswer(inv -> {
+            bothStarted.countDown();
+            boolean concurrent = bothStarted.await(5, TimeUnit.SECONDS);
+            return new PlannerOutput.Result(concurrent ? "ok" : "error",
+                    List.of(Map.of("coord", List.of(2609767.1, 1228437.4), "id", "7568", "crs", "EPSG:2056")),
+                    "Adresse gefunden");
+        });
+        when(mcpClient.execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap())).thenAnswer(inv -> {
+            bothStarted.countDown();
+            boolean concurrent = bothStarted.await(5, TimeUnit.SECONDS);
+            return new PlannerOutput.Result(concurrent ? "ok" : "error",
+                    List.of(Map.of("layerId", "ch.so.afu.gewaesserschutz", "type", "wms", "source",
+                            Map.of("url", "https://geo.so.ch/api/wms"))),
+                    "Layer gefunden");
+        });
+
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-par", "Adresse und Layer", null));
+
+        assertThat(response.overallStatus()).isEqualTo("ok");
+        assertThat(response.steps()).extracting(ChatResponse.Step::intent)
+                .containsExactly(IntentType.GOTO_ADDRESS, IntentType.LOAD_LAYER);
+    }
+
+    @Test
+    void keepsPendingChoiceOfFirstStepWhenLaterStepFinishesFirst() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        PendingChoiceStore pendingChoiceStore = new InMemoryPendingChoiceStore();
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, new ActionPlanner(),
+                new InMemoryChatMemoryStore(), pendingChoiceStore, new InMemorySelectionMemoryStore());
+
+        var waldStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "wald"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var wasserStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "wasser"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        when(planner.plan(anyString(), anyString()))
+                .thenReturn(new PlannerOutput("req-choices", List.of(waldStep, wasserStep)));
+
+        // Der erste Step antwortet erst, wenn der zweite bereits geantwortet hat.
+        CountDownLatch secondStepAnswered = new CountDownLatch(1);
+        when(mcpClient.execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> args = inv.getArgument(1);
+            String query = (String) args.get("query");
+            if ("wald".equals(query)) {
+                secondStepAnswered.await(5, TimeUnit.SECONDS);
+                Thread.sleep(50);
+            } else {
+                secondStepAnswered.countDown();
+            }
+            return new PlannerOutput.Result("ok",
+                    List.of(Map.of("id", query + "-a", "label", "A"), Map.of("id", query + "-b", "label", "B")),
+                    "Mehrere Layer gefunden.");
+        });
+
+        // Ein Step mit offener Auswahl wird erst gemeldet, wenn die Auswahl gespeichert ist
+        List<Boolean> pendingWhenEmitted = new CopyOnWriteArrayList<>();
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-choices", "Wald und Wasser", null),
+                new ChatEventListener() {
+                    @Override
+                    public void onStep(String requestId, int index, ChatResponse.Step step) {
+                        pendingWhenEmitted.add(pendingChoiceStore.peek("sess-choices").isPresent());
+                    }
+                });
+
+        assertThat(response.overallStatus()).isEqualTo("needs_user_choice");
+        var pending = pendingChoiceStore.peek("sess-choices");
+        assertThat(pending).isPresent();
+        assertThat(pending.get().step()).isEqualTo(waldStep);
+        assertThat(pendingWhenEmitted).containsExactly(true, true);
+    }
+
+    @Test
+    void publishesSelectionAndToolResultsInPlanOrder() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        SelectionMemoryStore selectionMemoryStore = new InMemorySelectionMemoryStore();
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, new ActionPlanner(),
+                chatMemoryStore, new InMemoryPendingChoiceStore(), selectionMemoryStore);
+
+        var waldStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "wald"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var wasserStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "wasser"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        when(planner.plan(anyString(), anyString()))
+                .thenReturn(new PlannerOutput("req-order", List.of(waldStep, wasserStep)));
+
+        // Der zweite Step ist zuerst fertig, seine Auswahl muss trotzdem stehen bleiben.
+        CountDownLatch secondStepAnswered = new CountDownLatch(1);
+        when(mcpClient.execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> args = inv.getArgument(1);
+            String query = (String) args.get("query");
+            if ("wald".equals(query)) {
+                secondStepAnswered.await(5, TimeUnit.SECONDS);
+                Thread.sleep(50);
+            } else {
+                secondStepAnswered.countDown();
+            }
+            return new PlannerOutput.Result("ok", List.of(Map.of("layerId", query, "type", "wmts")),
+                    "Layer gefunden.");
+        });
+
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-order", "Wald und Wasser", null));
+
+        assertThat(response.overallStatus()).isEqualTo("ok");
+        assertThat(selectionMemoryStore.get("sess-order")).map(selection -> selection.get("layerId"))
+                .contains("wasser");
+        List<String> toolMessages = chatMemoryStore.getMessages("sess-order").stream()
+                .map(this::messageText)
+                .filter(text -> text.startsWith("Tool "))
+                .toList();
+        assertThat(toolMessages).hasSize(2);
+        assertThat(toolMessages.get(0)).contains("wald");
+        assertThat(toolMessages.get(1)).contains("wasser");
+    }
+
+    @Test
+    void waitsForPreviousStepsWhenLaterToolCallReliesOnSelection() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, new ActionPlanner(),
+                new InMemoryChatMemoryStore(), new InMemoryPendingChoiceStore(), new InMemorySelectionMemoryStore());
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                        Map.of("q", "Langendorfstrasse 19b, Solothurn"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var oerebStep = new PlannerOutput.Step(IntentType.OEREB_EXTRACT,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.OEREB_EGRID_BY_XY,
+                        Map.of("coord", List.of(2600000d, 1200000d))),
+                        new PlannerOutput.ToolCall(McpToolCapability.OEREB_EXTRACT_BY_ID, Map.of())),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        when(planner.plan(anyString(), anyString())).thenReturn(new PlannerOutput("req-dep", List.of(gotoStep, oerebStep)));
+
+        List<String> events = new CopyOnWriteArrayList<>();
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap())).thenAnswer(inv -> {
+            Thread.sleep(100);
+            events.add("geocode");
+            return new PlannerOutput.Result("ok", List.of(Map.of("id", "7568", "coord", List.of(2609767.1, 1228437.4))),
+                    "Adresse gefunden");
+        });
+        when(mcpClient.execute(eq(McpToolCapability.OEREB_EGRID_BY_XY), anyMap())).thenAnswer(inv -> {
+            events.add("egrid");
+            return new PlannerOutput.Result("ok", List.of(), "Kein Grundstück gefunden.");
+        });
+        when(mcpClient.execute(eq(McpToolCapability.OEREB_EXTRACT_BY_ID), anyMap()))
+                .thenReturn(new PlannerOutput.Result("ok", List.of(), ""));
+
+        orchestrator.handleUserPrompt(new ChatRequest("sess-dep", "Adresse und ÖREB", null));
+
+        assertThat(events).containsExactly("geocode", "egrid");
+    }
+
+    @Test
+    void reportsProgressEventsToListener() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ActionPlanner actionPlanner = new ActionPlanner();
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        PendingChoiceStore pendingChoiceStore = new InMemoryPendingChoiceStore();
+        SelectionMemoryStore selectionMemoryStore = new InMemorySelectionMemoryStore();
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, actionPlanner, chatMemoryStore,
+                pendingChoiceStore, selectionMemoryStore);
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of("q", "addr"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        when(planner.plan(anyString(), anyString())).thenReturn(new PlannerOutput("req-events", List.of(gotoStep)));
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap()))
+                .thenReturn(new PlannerOutput.Result("ok",
+                        List.of(Map.of("coord", List.of(2609767.1, 1228437.4), "id", "7568", "crs", "EPSG:2056")),
+                        "Adresse gefunden"));
+
+        List<String> events = new CopyOnWriteArrayList<>();
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-events", "Adresse", null),
+                new ChatEventListener() {
+                    @Override
+                    public void onPlannerStarted(String sessionId) {
+                        events.add("planner-started");
+                    }
+
+                    @Override
+                    public void onPlanReady(PlannerOutput plan) {
+                        events.add("plan-ready");
+                    }
+
+                    @Override
+                    public void onStep(String requestId, int index, ChatResponse.Step step) {
+                        events.add("step-" + index + "-" + step.status());
+                    }
+
+                    @Override
+                    public void onCompleted(ChatResponse r) {
+                        events.add("completed-" + r.overallStatus());
+                    }
+                });
+
+        assertThat(response.overallStatus()).isEqualTo("ok");
+        assertThat(events).containsExactly("planner-started", "plan-ready", "step-0-ok", "completed-ok");
+    }
+
+    @Test
+    void answersChoiceFollowUpFromSpeculativeResult() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ActionPlanner actionPlanner = new ActionPlanner();
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        PendingChoiceStore pendingChoiceStore = new InMemoryPendingChoiceStore();
+        SelectionMemoryStore selectionMemoryStore = new InMemorySelectionMemoryStore();
+        SpeculationProperties properties = new SpeculationProperties();
+        properties.setEnabled(true);
+        SpeculativeChoiceExecutor speculativeExecutor = new SpeculativeChoiceExecutor(mcpClient, properties,
+                Clock.systemUTC());
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, actionPlanner, chatMemoryStore,
+                pendingChoiceStore, selectionMemoryStore, speculativeExecutor);
+
+        var step = new PlannerOutput.Step(IntentType.OEREB_EXTRACT,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.OEREB_EGRID_BY_XY,
+                        Map.of("coord", List.of(2600000d, 1200000d))),
+                        new PlannerOutput.ToolCall(McpToolCapability.OEREB_EXTRACT_BY_ID, Map.of())),
+                new PlannerOutput.Result("pending", List.of(), ""));
+
+        when(planner.plan(anyString(), anyString())).thenReturn(new PlannerOutput("req-spec", List.of(step)));
+        when(mcpClient.execute(eq(McpToolCapability.OEREB_EGRID_BY_XY), anyMap())).thenReturn(new PlannerOutput.Result("ok",
+                List.of(Map.of("id", "CH1", "label", "EGRID 1", "coord", List.of(2600000d, 1200000d)),
+                        Map.of("id", "CH2", "label", "EGRID 2", "coord", List.of(2600000d, 1200000d))),
+                "Mehrere Grundstücke gefunden."));
+        when(mcpClient.execute(eq(McpToolCapability.OEREB_EXTRACT_BY_ID), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> args = inv.getArgument(1);
+            return new PlannerOutput.Result("ok",
+                    List.of(Map.of("id", args.get("egrid"), "egrid", args.get("egrid"), "label", "Auszug")),
+                    "ÖREB-Auszug erstellt.");
+        });
+
+        orchestrator.handleUserPrompt(new ChatRequest("sess-spec", "ÖREB Auszug", null));
+        verify(mcpClient, timeout(2000).times(2)).execute(eq(McpToolCapability.OEREB_EXTRACT_BY_ID), anyMap());
+
+        ChatResponse selection = orchestrator.handleUserPrompt(new ChatRequest("sess-spec", null, "CH2"));
+
+        assertThat(selection.overallStatus()).isEqualTo("ok");
+        assertThat(selection.steps().get(0).message()).isEqualTo("ÖREB-Auszug erstellt.");
+        verify(mcpClient, times(2)).execute(eq(McpToolCapability.OEREB_EXTRACT_BY_ID), anyMap());
+    }
+
+    @Test
+    void executesStreamedStepsBeforePlanningCompletes() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ActionPlanner actionPlanner = new ActionPlanner();
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        PendingChoiceStore pendingChoiceStore = new InMemoryPendingChoiceStore();
+        SelectionMemoryStore selectionMemoryStore = new InMemorySelectionMemoryStore();
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, actionPlanner, chatMemoryStore,
+                pendingChoiceStore, selectionMemoryStore);
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of("q", "addr"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var layerStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+
+        CountDownLatch firstToolStarted = new CountDownLatch(1);
+        when(planner.isStreamingEnabled()).thenReturn(true);
+        when(planner.planStreaming(eq("sess-stream"), anyString(), anyString(), any())).thenAnswer(inv -> {
+            Consumer<PlannerOutput.Step> onStep = inv.getArgument(3);
+            onStep.accept(gotoStep);
+            // Step 1 wird erst "generiert", wenn Step 0 bereits läuft
+            boolean overlapped = firstToolStarted.await(5, TimeUnit.SECONDS);
+            onStep.accept(overlapped ? layerStep : gotoStep);
+            return new PlannerOutput(inv.getArgument(2), List.of(gotoStep, layerStep));
+        });
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap())).thenAnswer(inv -> {
+            firstToolStarted.countDown();
+            return new PlannerOutput.Result("ok",
+                    List.of(Map.of("coord", List.of(2609767.1, 1228437.4), "id", "7568", "crs", "EPSG:2056")),
+                    "Adresse gefunden");
+        });
+        when(mcpClient.execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap()))
+                .thenReturn(new PlannerOutput.Result("ok",
+                        List.of(Map.of("layerId", "ch.so.afu.gewaesserschutz", "type", "wms", "source",
+                                Map.of("url", "https://geo.so.ch/api/wms"))),
+                        "Layer gefunden"));
+
+        List<String> stepRequestIds = new CopyOnWriteArrayList<>();
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-stream", "Adresse und Layer", null),
+                new ChatEventListener() {
+                    @Override
+                    public void onStep(String requestId, int index, ChatResponse.Step step) {
+                        stepRequestIds.add(requestId);
+                    }
+                });
+
+        assertThat(response.overallStatus()).isEqualTo("ok");
+        assertThat(response.steps()).extracting(ChatResponse.Step::intent)
+                .containsExactly(IntentType.GOTO_ADDRESS, IntentType.LOAD_LAYER);
+        assertThat(stepRequestIds).containsExactly(response.requestId(), response.requestId());
+    }
+
+    @Test
+    void waitsForStreamedStepsWhenPlannerFails() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, new ActionPlanner(),
+                new InMemoryChatMemoryStore(), new InMemoryPendingChoiceStore(), new InMemorySelectionMemoryStore());
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of("q", "addr"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+        var layerStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz"))),
+                new PlannerOutput.Result("pending", List.of(), ""));
+
+        CountDownLatch toolStarted = new CountDownLatch(1);
+        AtomicInteger finishedTools = new AtomicInteger();
+        AtomicReference<Consumer<PlannerOutput.Step>> stepSink = new AtomicReference<>();
+        when(planner.isStreamingEnabled()).thenReturn(true);
+        when(planner.planStreaming(eq("sess-stream-fail"), anyString(), anyString(), any())).thenAnswer(inv -> {
+            Consumer<PlannerOutput.Step> onStep = inv.getArgument(3);
+            stepSink.set(onStep);
+            onStep.accept(gotoStep);
+            toolStarted.await(5, TimeUnit.SECONDS);
+            // Reparatur des finalen Plans schlägt fehl
+            throw new IllegalStateException("Planner output could not be parsed");
+        });
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap())).thenAnswer(inv -> {
+            toolStarted.countDown();
+            Thread.sleep(200);
+            finishedTools.incrementAndGet();
+            return new PlannerOutput.Result("ok",
+                    List.of(Map.of("coord", List.of(2609767.1, 1228437.4), "id", "7568", "crs", "EPSG:2056")),
+                    "Adresse gefunden");
+        });
+
+        assertThatThrownBy(() -> orchestrator.handleUserPrompt(new ChatRequest("sess-stream-fail", "Adresse", null)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(finishedTools.get()).isEqualTo(1);
+
+        // Nach dem Fehler eintreffende Steps werden nicht mehr ausgeführt
+        stepSink.get().accept(layerStep);
+        verify(mcpClient, never()).execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap());
+    }
+
+    @Test
+    void plannerDispatchesStepsWhileStreamIsOpen() {
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        var toolRegistry = mock(ch.so.agi.ask.mcp.ToolRegistry.class);
+        when(toolRegistry.listTools()).thenReturn(Map.of());
+        PlannerLlm planner = new PlannerLlm(chatClient, chatMemoryStore, toolRegistry);
+
+        var plan = new PlannerOutput("llm-id", List.of(
+                new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                        List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                                Map.of("q", "Langendorfstrasse 19b, Solothurn"))),
+                        new PlannerOutput.Result("pending", List.of(), "")),
+                new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                        List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH,
+                                Map.of("query", "Gewässerschutz"))),
+                        new PlannerOutput.Result("pending", List.of(), ""))));
+        String json = Json.write(plan);
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < json.length(); i += 8) {
+            chunks.add(json.substring(i, Math.min(json.length(), i + 8)));
+        }
+        AtomicInteger emitted = new AtomicInteger();
+        when(chatClient.prompt(any(Prompt.class)).stream().content())
+                .thenReturn(Flux.fromIterable(chunks).doOnNext(chunk -> emitted.incrementAndGet()));
+
+        List<Integer> emittedAtDispatch = new ArrayList<>();
+        List<PlannerOutput.Step> dispatched = new ArrayList<>();
+        PlannerOutput result = planner.planStreaming("sess-llm-stream", "Adresse und Layer", "req-fixed", step -> {
+            emittedAtDispatch.add(emitted.get());
+            dispatched.add(step);
+        });
+
+        assertThat(result.requestId()).isEqualTo("req-fixed");
+        assertThat(dispatched).isEqualTo(plan.steps());
+        assertThat(emittedAtDispatch.get(0)).isLessThan(chunks.size());
+        assertThat(chatMemoryStore.getMessages("sess-llm-stream")).hasSize(2);
+    }
+
+    @Test
+    void plannerDoesNotRecordPlanAfterDeadline() throws Exception {
+        ChatMemoryStore chatMemoryStore = new InMemoryChatMemoryStore();
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        var toolRegistry = mock(ch.so.agi.ask.mcp.ToolRegistry.class);
+        when(toolRegistry.listTools()).thenReturn(Map.of());
+        PlannerLlm planner = new PlannerLlm(chatClient, chatMemoryStore, toolRegistry);
+
+        String json = Json.write(new PlannerOutput("llm-id", List.of(new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz"))),
+                new PlannerOutput.Result("pending", List.of(), "")))));
+        when(chatClient.prompt(any(Prompt.class)).call().content()).thenAnswer(inv -> {
+            // Langsames Modell, das nicht auf Unterbrechung reagiert
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return json;
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertThatThrownBy(() -> RequestDeadline.after(Duration.ofMillis(100))
+                .call(() -> planner.plan("sess-late", "Lade die Gewässerschutzkarte"), executor))
+                .isInstanceOf(TimeoutException.class);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(chatMemoryStore.getMessages("sess-late")).hasSize(1);
+        assertThat(chatMemoryStore.getMessages("sess-late").get(0)).isInstanceOf(UserMessage.class);
+    }
+
+    @Test
+    void returnsCompletedStepsAsPartialWhenDeadlineExpires() {
+        PlannerLlm planner = mock(PlannerLlm.class);
+        McpClient mcpClient = mock(McpClient.class);
+        ChatOrchestrator orchestrator = new ChatOrchestrator(planner, mcpClient, new ActionPlanner(),
+                new InMemoryChatMemoryStore(), new InMemoryPendingChoiceStore(), new InMemorySelectionMemoryStore());
+
+        var gotoStep = new PlannerOutput.Step(IntentType.GOTO_ADDRESS,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of("q", "Solothurn"))),
+                new PlannerOutput.Result("pending", List.of(), null));
+        var layerStep = new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Wald"))),
+                new PlannerOutput.Result("pending", List.of(), null));
+        when(planner.plan(anyString(), anyString())).thenReturn(new PlannerOutput("req-slow", List.of(gotoStep, layerStep)));
+        when(mcpClient.execute(eq(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS), anyMap()))
+                .thenReturn(new PlannerOutput.Result("ok",
+                        List.of(Map.of("id", "a-1", "coord", List.of(2608000d, 1229000d), "crs", "EPSG:2056")),
+                        "Adresse gefunden."));
+        when(mcpClient.execute(eq(McpToolCapability.LAYERS_SEARCH), anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return new PlannerOutput.Result("ok", List.of(), "zu spät");
+        });
+
+        long start = System.nanoTime();
+        ChatResponse response = orchestrator.handleUserPrompt(new ChatRequest("sess-slow", "Solothurn und Wald", null),
+                ChatEventListener.NOOP, RequestDeadline.after(Duration.ofMillis(500)));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000L);
+        assertThat(response.overallStatus()).isEqualTo("partial");
+        assertThat(response.steps()).extracting(ChatResponse.Step::status).containsExactly("ok", "timeout");
+    }
+
     private String messageText(Message message) {
         if (message instanceof AbstractMessage abstractMessage) {
             return abstractMessage.getText();
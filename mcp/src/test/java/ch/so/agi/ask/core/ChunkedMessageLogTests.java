@@ -0,0 +1,65 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+class ChunkedMessageLogTests {
+
+    @Test
+    void snapshotsAreStableAcrossLaterAppends() {
+        ChunkedMessageLog log = new ChunkedMessageLog();
+        for (int i = 0; i < 40; i++) {
+            log.append(new UserMessage("m" + i));
+        }
+        List<Message> snapshot = log.snapshot();
+
+        for (int i = 40; i < 300; i++) {
+            log.append(new UserMessage("m" + i));
+        }
+
+        assertThat(snapshot).hasSize(40);
+        assertThat(snapshot.get(39).getText()).isEqualTo("m39");
+        assertThat(log.snapshot()).hasSize(300);
+        assertThat(log.snapshot().get(299).getText()).isEqualTo("m299");
+    }
+
+    @Test
+    void storeKeepsConcurrentSessionsApart() throws Exception {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        int sessions = 32;
+        int messagesPerSession = 500;
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int s = 0; s < sessions; s++) {
+                String sessionId = "sess-" + s;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < messagesPerSession; i++) {
+                        store.appendMessage(sessionId, new UserMessage(sessionId + ":" + i));
+                        store.getMessages(sessionId);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int s = 0; s < sessions; s++) {
+            List<Message> messages = store.getMessages("sess-" + s);
+            assertThat(messages).hasSize(messagesPerSession);
+            assertThat(messages.get(messagesPerSession - 1).getText()).isEqualTo("sess-" + s + ":" + (messagesPerSession - 1));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTests {
+
+    private final NgramVectorizer vectorizer = new NgramVectorizer(256);
+
+    @Test
+    void findsExactNeighbourWithHighRecall() {
+        SplittableRandom random = new SplittableRandom(7);
+        HnswIndex index = new HnswIndex(16, 100, 42L);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = vectorizer.vectorize(syntheticPrompt(random));
+            vectors.add(vector);
+            index.add(vector);
+        }
+
+        int found = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = vectorizer.vectorize(syntheticPrompt(random));
+            int expected = bruteForceNearest(vectors, query);
+            List<HnswIndex.Hit> hits = index.search(query, 1, 64);
+            if (!hits.isEmpty() && NgramVectorizer.dot(query, vectors.get(hits.get(0).id())) >= NgramVectorizer
+                    .dot(query, vectors.get(expected)) - 1e-6f) {
+                found++;
+            }
+        }
+
+        assertThat(found / (double) queries).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void skipsDeletedNodes() {
+        HnswIndex index = new HnswIndex(4, 20, 42L);
+        int first = index.add(vectorizer.vectorize("Lade die Gewässerschutzkarte"));
+        int second = index.add(vectorizer.vectorize("Lade die Bodenkarte"));
+
+        index.delete(first);
+
+        List<HnswIndex.Hit> hits = index.search(vectorizer.vectorize("Lade die Gewässerschutzkarte"), 2, 10);
+        assertThat(hits).extracting(HnswIndex.Hit::id).containsExactly(second);
+        assertThat(index.liveSize()).isEqualTo(1);
+        assertThat(index.deletedSize()).isEqualTo(1);
+    }
+
+    static String syntheticPrompt(SplittableRandom random) {
+        String[] verbs = { "Lade", "Zeige", "Öffne", "Suche", "Finde", "Lade mir", "Zeig mir bitte" };
+        String[] topics = { "Gewässerschutz", "Boden", "Naturgefahren", "Lärm", "Zonenplan", "Wald", "Grundwasser",
+                "Fruchtfolge", "Altlasten", "Strassen", "Velo", "Wanderweg", "Denkmal", "Archäologie", "Solar",
+                "Erdwärme", "Hochwasser", "Gewässerraum", "Baulinien", "Nutzungsplan" };
+        String[] suffixes = { "karte", "ebene", "layer", "zonen", "plan", "kataster", "inventar" };
+        String[] places = { "", " in Solothurn", " in Grenchen", " in Olten", " bei Messen", " von Dornach" };
+        return verbs[random.nextInt(verbs.length)] + " die " + topics[random.nextInt(topics.length)]
+                + topics[random.nextInt(topics.length)].toLowerCase(Locale.ROOT) + suffixes[random.nextInt(suffixes.length)]
+                + places[random.nextInt(places.length)];
+    }
+
+    private int bruteForceNearest(List<float[]> vectors, float[] query) {
+        int best = 0;
+        float bestSimilarity = -Float.MAX_VALUE;
+        for (int i = 0; i < vectors.size(); i++) {
+            float similarity = NgramVectorizer.dot(query, vectors.get(i));
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,105 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import ch.so.agi.ask.config.PlannerCacheProperties;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PlannerCacheTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-19T10:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void servesNormalisedPromptWithFreshRequestId() {
+        PlannerCache cache = new PlannerCache(new PlannerCacheProperties(), clock, meterRegistry);
+        cache.put(cache.key("Lade die Gewässerschutzkarte", "system", List.of()), layerPlan());
+
+        var cached = cache.get(cache.key("  lade die   GEWÄSSERSCHUTZKARTE. ", "system", List.of()));
+
+        assertThat(cached).isPresent();
+        assertThat(cached.get().requestId()).isNotEqualTo("req-1");
+        assertThat(cached.get().steps()).isEqualTo(layerPlan().steps());
+        assertThat(meterRegistry.get("ask.planner.cache.requests").tag("result", "hit").counter().count())
+                .isEqualTo(1d);
+    }
+
+    @Test
+    void separatesSystemPromptAndHistory() {
+        PlannerCache cache = new PlannerCache(new PlannerCacheProperties(), clock, meterRegistry);
+        cache.put(cache.key("Nummer 9", "system", List.of(new UserMessage("Burgunderstrasse 19"))), layerPlan());
+
+        assertThat(cache.get(cache.key("Nummer 9", "system", List.of()))).isEmpty();
+        assertThat(cache.get(cache.key("Nummer 9", "system-v2", List.of(new UserMessage("Burgunderstrasse 19")))))
+                .isEmpty();
+        assertThat(cache.get(cache.key("Nummer 9", "system", List.of(new UserMessage("Burgunderstrasse 19")))))
+                .isPresent();
+    }
+
+    @Test
+    void evictsBySizeAndTtl() {
+        PlannerCacheProperties properties = new PlannerCacheProperties();
+        properties.setMaxEntries(1);
+        properties.setTtlSeconds(60);
+        PlannerCache cache = new PlannerCache(properties, clock, meterRegistry);
+
+        cache.put(cache.key("a", "system", List.of()), layerPlan());
+        cache.put(cache.key("b", "system", List.of()), layerPlan());
+        assertThat(cache.get(cache.key("a", "system", List.of()))).isEmpty();
+        assertThat(cache.get(cache.key("b", "system", List.of()))).isPresent();
+
+        clock.advance(Duration.ofSeconds(61));
+        assertThat(cache.get(cache.key("b", "system", List.of()))).isEmpty();
+        assertThat(meterRegistry.get("ask.planner.cache.evictions").tag("cause", "size").counter().count())
+                .isEqualTo(1d);
+        assertThat(meterRegistry.get("ask.planner.cache.evictions").tag("cause", "expired").counter().count())
+                .isEqualTo(1d);
+    }
+
+    private PlannerOutput layerPlan() {
+        return new PlannerOutput("req-1", List.of(new PlannerOutput.Step(IntentType.LOAD_LAYER,
+                List.of(new PlannerOutput.ToolCall(McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz"))),
+                new PlannerOutput.Result("pending", List.of(), ""))));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
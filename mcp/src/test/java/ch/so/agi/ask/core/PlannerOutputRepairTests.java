@@ -0,0 +1,122 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PlannerOutputRepairTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PlannerOutputRepair repair = new PlannerOutputRepair(registry(), meterRegistry);
+
+    @Test
+    void acceptsCleanPlanUnchanged() {
+        PlannerOutputRepair.Outcome outcome = repair.read("""
+                {"requestId":"r1","steps":[{"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Gewässerschutz"}}],"result":{"status":"pending","items":[],"message":""}}]}
+                """);
+
+        assertThat(outcome.valid()).isTrue();
+        assertThat(outcome.repaired()).isFalse();
+        assertThat(outcome.plan().requestId()).isEqualTo("r1");
+        assertThat(meterRegistry.get("ask.planner.repair").tag("outcome", "clean").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void stripsFencesAndToleratesTrailingCommas() {
+        PlannerOutputRepair.Outcome outcome = repair.read("""
+                Hier ist der Plan:
+                ```json
+                {"requestId":"r1","steps":[{"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Gewässerschutz",},},],},],}
+                ```
+                """);
+
+        assertThat(outcome.valid()).isTrue();
+        assertThat(outcome.repaired()).isTrue();
+        assertThat(outcome.plan().steps()).hasSize(1);
+        assertThat(outcome.plan().steps().get(0).result().status()).isEqualTo("pending");
+        assertThat(meterRegistry.get("ask.planner.repair").tag("outcome", "repaired").counter().count())
+                .isEqualTo(1d);
+    }
+
+    @Test
+    void mapsNearMissIdsAndArgumentKeys() {
+        PlannerOutputRepair.Outcome outcome = repair.read("""
+                {"steps":[{"intent":"loadLayer","toolCalls":[{"capabilityId":"layer.search","args":{"q":"Gewässerschutz"}}]}]}
+                """);
+
+        assertThat(outcome.valid()).isTrue();
+        PlannerOutput.Step step = outcome.plan().steps().get(0);
+        assertThat(step.intent()).isEqualTo(IntentType.LOAD_LAYER);
+        assertThat(step.toolCalls().get(0).capabilityId()).isEqualTo(McpToolCapability.LAYERS_SEARCH);
+        assertThat(step.toolCalls().get(0).args()).containsEntry("query", "Gewässerschutz");
+    }
+
+    @Test
+    void derivesMissingIntentFromToolCalls() {
+        PlannerOutputRepair.Outcome outcome = repair.read("""
+                {"intent":"","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Naturgefahren"}}]}
+                """);
+
+        assertThat(outcome.valid()).isTrue();
+        assertThat(outcome.plan().steps().get(0).intent()).isEqualTo(IntentType.LOAD_LAYER);
+    }
+
+    @Test
+    void readsOnlyStreamedStepsThatNeedNoRepair() {
+        assertThat(repair.readStep("""
+                {"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Wald"}}],"result":{"status":"pending","items":[],"message":""}}
+                """)).map(PlannerOutput.Step::intent).contains(IntentType.LOAD_LAYER);
+        assertThat(repair.readStep("""
+                {"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"q":"Wald"}}]}
+                """)).isEmpty();
+        assertThat(repair.readStep("""
+                {"intent":"load_layer","toolCalls":[{"capabilityId":"weather.forecast","args":{}}]}
+                """)).isEmpty();
+        assertThat(repair.readStep("{\"intent\":")).isEmpty();
+    }
+
+    @Test
+    void rejectsPlansThatCannotBeRepairedLocally() {
+        assertThat(repair.read("Ich kann das leider nicht.").valid()).isFalse();
+        assertThat(repair.read("""
+                {"steps":[{"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{}}]}]}
+                """).issues()).anyMatch(issue -> issue.startsWith("missing args"));
+        assertThat(repair.read("""
+                {"steps":[{"intent":"load_layer","toolCalls":[{"capabilityId":"weather.forecast","args":{}}]}]}
+                """).valid()).isFalse();
+        assertThat(meterRegistry.get("ask.planner.repair").tag("outcome", "failed").counter().count())
+                .isEqualTo(3d);
+    }
+
+    @Test
+    void readsTopLevelKeysFromArgSchema() {
+        assertThat(PlannerOutputRepair.schemaKeys("{ 'x': 'number', 'selection': { 'id': 'string' } }"))
+                .containsExactly("x", "selection");
+    }
+
+    static ToolRegistry registry() {
+        return new ToolRegistry() {
+            @Override
+            public PlannerOutput.Result execute(McpToolCapability capabilityId, Map<String, Object> args) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<McpToolCapability, ToolDescriptor> listTools() {
+                return Map.of(McpToolCapability.LAYERS_SEARCH,
+                        new ToolDescriptor(McpToolCapability.LAYERS_SEARCH, "Layer suchen", Object.class,
+                                "searchLayers", List.of(new ToolParamDescriptor("args", "", true, "Map",
+                                        "{ 'query': 'string - name of the desired map layer' }"))));
+            }
+        };
+    }
+}
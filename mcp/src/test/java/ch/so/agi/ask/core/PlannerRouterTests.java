@@ -0,0 +1,226 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.config.PlannerRoutingProperties;
+import ch.so.agi.ask.mcp.RequestDeadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PlannerRouterTests {
+
+    private static final String LAYER_PLAN = """
+            {"requestId":"r1","steps":[{"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Gewässerschutz"}}],"result":{"status":"pending","items":[],"message":""}}]}
+            """;
+    private static final String TWO_STEP_PLAN = """
+            {"requestId":"r2","steps":[
+              {"intent":"goto_address","toolCalls":[{"capabilityId":"geolocation.geocode.address","args":{"q":"Hauptgasse 1, Solothurn"}}],"result":{"status":"pending","items":[],"message":""}},
+              {"intent":"load_layer","toolCalls":[{"capabilityId":"layers.search","args":{"query":"Gewässerschutz"}}],"result":{"status":"pending","items":[],"message":""}}]}
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> models = new CopyOnWriteArrayList<>();
+
+    @Test
+    void sendsShortSingleIntentPromptToFastModel() {
+        PlannerRouter router = router(properties());
+
+        PlannerRouter.Answer answer = complete(router, "Lade die Gewässerschutzkarte", prompt -> LAYER_PLAN);
+
+        assertThat(answer.tier()).isEqualTo("fast");
+        assertThat(models).containsExactly("fast-model");
+        assertThat(meterRegistry.get("ask.planner.llm.latency").tag("tier", "fast").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void escalatesToStrongModelWhenFastAnswerIsUnusable() {
+        PlannerRouter router = router(properties());
+
+        PlannerRouter.Answer answer = complete(router, "Lade die Gewässerschutzkarte",
+                prompt -> model(prompt).equals("fast-model") ? "Hier ist dein Plan: {" : LAYER_PLAN);
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(answer.plan().steps()).hasSize(1);
+        assertThat(models).containsExactly("fast-model", "strong-model");
+        assertThat(meterRegistry.get("ask.planner.routing.escalations").tag("reason", "parse").counter().count())
+                .isEqualTo(1d);
+
+        complete(router, "Zeige Solothurn mit Gewässern", prompt -> TWO_STEP_PLAN);
+
+        assertThat(meterRegistry.get("ask.planner.routing.escalations").tag("reason", "multi_intent").counter()
+                .count()).isEqualTo(1d);
+    }
+
+    @Test
+    void routesMultiIntentAndStrongIntentPromptsDirectlyToStrongModel() {
+        PlannerRouter router = router(properties());
+
+        complete(router, "Gehe zur Adresse Hauptgasse 1 in Solothurn und lade die Gewässerschutzkarte",
+                prompt -> TWO_STEP_PLAN);
+        complete(router, "Mache einen Grundbuchplan", prompt -> LAYER_PLAN);
+
+        assertThat(models).containsExactly("strong-model", "strong-model");
+    }
+
+    @Test
+    void hedgesWithStrongModelWhenFastModelIsSlow() {
+        PlannerRoutingProperties properties = properties();
+        properties.setHedgeEnabled(true);
+        properties.setHedgeDefaultDelayMillis(50);
+        PlannerRouter router = router(properties);
+        CountDownLatch release = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        PlannerRouter.Answer answer = complete(router, "Lade die Gewässerschutzkarte", prompt -> {
+            if (model(prompt).equals("fast-model")) {
+                await(release);
+            }
+            return LAYER_PLAN;
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(elapsedMillis).isLessThan(5000L);
+        assertThat(meterRegistry.get("ask.planner.routing.hedges").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void cancelsFastModelOnceHedgedStrongModelAnswers() throws Exception {
+        PlannerRoutingProperties properties = properties();
+        properties.setHedgeEnabled(true);
+        properties.setHedgeDefaultDelayMillis(50);
+        PlannerRouter router = router(properties);
+        CountDownLatch fastCancelled = new CountDownLatch(1);
+
+        PlannerRouter.Answer answer = complete(router, "Lade die Gewässerschutzkarte", prompt -> {
+            if (model(prompt).equals("fast-model")) {
+                try {
+                    new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    fastCancelled.countDown();
+                }
+            }
+            return LAYER_PLAN;
+        });
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(fastCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void runsEscalatedCallUnderCallersDeadline() throws Exception {
+        PlannerRouter router = router(properties());
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofSeconds(5));
+        List<Boolean> boundDeadlines = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        PlannerRouter.Answer answer = deadline.call(() -> complete(router, "Lade die Gewässerschutzkarte", prompt -> {
+            boundDeadlines.add(RequestDeadline.current().map(d -> d.deadlineNanos() == deadline.deadlineNanos())
+                    .orElse(false));
+            return model(prompt).equals("fast-model") ? TWO_STEP_PLAN : LAYER_PLAN;
+        }), executor);
+        executor.shutdown();
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(boundDeadlines).containsExactly(true, true);
+    }
+
+    @Test
+    void doesNotHedgeWhenStrongModelIsPrimary() {
+        PlannerRoutingProperties properties = properties();
+        properties.setHedgeEnabled(true);
+        properties.setHedgeDefaultDelayMillis(10);
+        PlannerRouter router = router(properties);
+
+        PlannerRouter.Answer answer = complete(router, "Mache einen Grundbuchplan", prompt -> {
+            sleep(100);
+            return LAYER_PLAN;
+        });
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(models).containsExactly("strong-model");
+        assertThat(meterRegistry.get("ask.planner.routing.hedges").counter().count()).isEqualTo(0d);
+    }
+
+    @Test
+    void repromptsStrongModelOnceWhenAnswerCannotBeRepaired() {
+        PlannerRouter router = router(properties());
+        List<Integer> promptSizes = new CopyOnWriteArrayList<>();
+
+        PlannerRouter.Answer answer = complete(router, "Mache einen Grundbuchplan", prompt -> {
+            promptSizes.add(prompt.getInstructions().size());
+            return promptSizes.size() == 1 ? "Ich kann das leider nicht." : LAYER_PLAN;
+        });
+
+        assertThat(answer.tier()).isEqualTo("strong");
+        assertThat(answer.plan().steps()).hasSize(1);
+        assertThat(models).containsExactly("strong-model", "strong-model");
+        assertThat(promptSizes).containsExactly(1, 2);
+        assertThat(meterRegistry.get("ask.planner.repair").tag("outcome", "reprompt").counter().count())
+                .isEqualTo(1d);
+    }
+
+    @Test
+    void leavesPromptUntouchedWhenRoutingIsDisabled() {
+        PlannerRouter router = router(new PlannerRoutingProperties());
+
+        PlannerRouter.Answer answer = complete(router, "Lade die Gewässerschutzkarte", prompt -> LAYER_PLAN);
+
+        assertThat(answer.tier()).isEqualTo("default");
+        assertThat(models).containsExactly("");
+    }
+
+    private PlannerRouter.Answer complete(PlannerRouter router, String userMessage, Function<Prompt, String> llm) {
+        return router.complete(userMessage, new Prompt(List.of(new UserMessage(userMessage))), prompt -> {
+            models.add(model(prompt));
+            return llm.apply(prompt);
+        }, false);
+    }
+
+    private PlannerRouter router(PlannerRoutingProperties properties) {
+        return new PlannerRouter(properties, new RuleBasedPlanner(new PlannerFastPathProperties(), meterRegistry),
+                new PlannerOutputRepair(PlannerOutputRepairTests.registry(), meterRegistry), meterRegistry);
+    }
+
+    private static PlannerRoutingProperties properties() {
+        PlannerRoutingProperties properties = new PlannerRoutingProperties();
+        properties.setEnabled(true);
+        properties.setFastModel("fast-model");
+        properties.setStrongModel("strong-model");
+        return properties;
+    }
+
+    private static String model(Prompt prompt) {
+        return prompt.getOptions() == null ? "" : prompt.getOptions().getModel();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.ToolSelectionProperties;
+import ch.so.agi.ask.mcp.ToolRegistry;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PlannerSystemPromptTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void textIsByteStableRegardlessOfCatalogOrder() {
+        Map<McpToolCapability, ToolRegistry.ToolDescriptor> forward = new LinkedHashMap<>();
+        forward.put(McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH));
+        forward.put(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                descriptor(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS));
+        Map<McpToolCapability, ToolRegistry.ToolDescriptor> backward = new LinkedHashMap<>();
+        backward.put(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                descriptor(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS));
+        backward.put(McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH));
+
+        var first = new PlannerSystemPrompt(new FakeRegistry(forward), meterRegistry).current();
+        var second = new PlannerSystemPrompt(new FakeRegistry(backward), meterRegistry).current();
+
+        assertThat(second.text()).isEqualTo(first.text());
+        assertThat(second.hash()).isEqualTo(first.hash());
+        assertThat(first.text()).contains("\"geolocation.geocode.address\"");
+        assertThat(first.text().indexOf("geolocation.geocode.address"))
+                .isLessThan(first.text().indexOf("\"layers.search\""));
+    }
+
+    @Test
+    void rebuildsOnlyWhenRegistryVersionChanges() {
+        FakeRegistry registry = new FakeRegistry(
+                Map.of(McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH)));
+        PlannerSystemPrompt systemPrompt = new PlannerSystemPrompt(registry, meterRegistry);
+
+        var initial = systemPrompt.current();
+        for (int i = 0; i < 10; i++) {
+            assertThat(systemPrompt.current()).isSameAs(initial);
+        }
+        assertThat(registry.listCalls.get()).isEqualTo(1);
+
+        registry.update(Map.of(McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH),
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                descriptor(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS)));
+        var updated = systemPrompt.current();
+
+        assertThat(registry.listCalls.get()).isEqualTo(2);
+        assertThat(updated.hash()).isNotEqualTo(initial.hash());
+        assertThat(updated.text()).contains("geolocation.geocode.address");
+        assertThat(meterRegistry.get("ask.planner.system-prompt.chars").tag("hash", initial.hash()).gauge().value())
+                .isEqualTo(0d);
+        assertThat(meterRegistry.get("ask.planner.system-prompt.chars").tag("hash", updated.hash()).gauge().value())
+                .isEqualTo((double) updated.text().length());
+    }
+
+    @Test
+    void unchangedCatalogKeepsHashAfterReload() {
+        Map<McpToolCapability, ToolRegistry.ToolDescriptor> tools = Map.of(McpToolCapability.LAYERS_SEARCH,
+                descriptor(McpToolCapability.LAYERS_SEARCH));
+        FakeRegistry registry = new FakeRegistry(tools);
+        PlannerSystemPrompt systemPrompt = new PlannerSystemPrompt(registry, meterRegistry);
+        var initial = systemPrompt.current();
+
+        registry.update(new HashMap<>(tools));
+
+        assertThat(systemPrompt.current().hash()).isEqualTo(initial.hash());
+        assertThat(systemPrompt.current().text()).isSameAs(initial.text());
+    }
+
+    @Test
+    void forRequestNarrowsCatalogWhenSelectionIsEnabled() {
+        FakeRegistry registry = new FakeRegistry(Map.of(
+                McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH, "karte"),
+                McpToolCapability.OEREB_EXTRACT_BY_ID, descriptor(McpToolCapability.OEREB_EXTRACT_BY_ID, "auszug"),
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                descriptor(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, "adresse")));
+        ToolSelectionProperties selection = new ToolSelectionProperties();
+        selection.setEnabled(true);
+        PlannerSystemPrompt systemPrompt = new PlannerSystemPrompt(registry, selection, meterRegistry);
+
+        var narrowed = systemPrompt.forRequest("Lade die Gewässerschutzkarte");
+
+        assertThat(narrowed.text()).contains("\"layers.search\": ").doesNotContain("\"oereb.extractById\": ");
+        assertThat(narrowed.text().length()).isLessThan(systemPrompt.current().text().length());
+        assertThat(narrowed.hash()).isNotEqualTo(systemPrompt.current().hash());
+        assertThat(systemPrompt.forRequest("Lade die Waldkarte")).isSameAs(narrowed);
+        assertThat(systemPrompt.forRequest("Wie geht es dir?")).isSameAs(systemPrompt.current());
+        assertThat(meterRegistry.get("ask.planner.tool-selection.requests").tag("result", "selected").counter()
+                .count()).isEqualTo(2d);
+        assertThat(meterRegistry.get("ask.planner.tool-selection.requests").tag("result", "fallback").counter()
+                .count()).isEqualTo(1d);
+    }
+
+    @Test
+    void forRequestReturnsFullPromptWhenSelectionIsDisabled() {
+        PlannerSystemPrompt systemPrompt = new PlannerSystemPrompt(new FakeRegistry(Map.of(
+                McpToolCapability.LAYERS_SEARCH, descriptor(McpToolCapability.LAYERS_SEARCH, "karte"),
+                McpToolCapability.OEREB_EXTRACT_BY_ID, descriptor(McpToolCapability.OEREB_EXTRACT_BY_ID, "auszug"))),
+                meterRegistry);
+
+        assertThat(systemPrompt.forRequest("Lade die Gewässerschutzkarte")).isSameAs(systemPrompt.current());
+    }
+
+    private static ToolRegistry.ToolDescriptor descriptor(McpToolCapability capability, String keyword) {
+        return new ToolRegistry.ToolDescriptor(capability, "Beschreibung " + capability.id(), Object.class, "run",
+                List.of(), List.of(keyword), List.of());
+    }
+
+    private static ToolRegistry.ToolDescriptor descriptor(McpToolCapability capability) {
+        return new ToolRegistry.ToolDescriptor(capability, "Beschreibung " + capability.id(), Object.class, "run",
+                List.of(new ToolRegistry.ToolParamDescriptor("args", "Argumente", true, "Map<String, Object>",
+                        "{ 'q': 'string' }")));
+    }
+
+    private static final class FakeRegistry implements ToolRegistry {
+        private final AtomicInteger listCalls = new AtomicInteger();
+        private Map<McpToolCapability, ToolDescriptor> tools;
+        private long version = 1;
+
+        FakeRegistry(Map<McpToolCapability, ToolDescriptor> tools) {
+            this.tools = tools;
+        }
+
+        void update(Map<McpToolCapability, ToolDescriptor> tools) {
+            this.tools = tools;
+            version++;
+        }
+
+        @Override
+        public PlannerOutput.Result execute(McpToolCapability capabilityId, Map<String, Object> args) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<McpToolCapability, ToolDescriptor> listTools() {
+            listCalls.incrementAndGet();
+            return tools;
+        }
+
+        @Override
+        public long version() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.PlannerFastPathProperties;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RuleBasedPlannerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RuleBasedPlanner planner = new RuleBasedPlanner(new PlannerFastPathProperties(), meterRegistry);
+
+    @Test
+    void plansOerebExtractForCoordinatePair() {
+        PlannerOutput plan = planner.plan("Ich will einen ÖREB-Auszug an der Koordinate 2607717, 1228737").orElseThrow();
+
+        PlannerOutput.Step step = plan.steps().get(0);
+        assertThat(plan.requestId()).isNotBlank();
+        assertThat(step.intent()).isEqualTo(IntentType.OEREB_EXTRACT);
+        assertThat(step.toolCalls()).extracting(PlannerOutput.ToolCall::capabilityId)
+                .containsExactly(McpToolCapability.OEREB_EGRID_BY_XY, McpToolCapability.OEREB_EXTRACT_BY_ID);
+        assertThat(step.toolCalls().get(0).args()).isEqualTo(Map.of("x", "2607717", "y", "1228737"));
+        assertThat(step.result().status()).isEqualTo("pending");
+    }
+
+    @Test
+    void plansCadastralPlanForParcelNumberAndMunicipality() {
+        PlannerOutput plan = planner.plan("mache mir einen Grundbuchplan für Grundstück 123 in Messen.").orElseThrow();
+
+        PlannerOutput.Step step = plan.steps().get(0);
+        assertThat(step.intent()).isEqualTo(IntentType.CADASTRAL_PLAN);
+        assertThat(step.toolCalls()).extracting(PlannerOutput.ToolCall::capabilityId).containsExactly(
+                McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY,
+                McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY);
+        assertThat(step.toolCalls().get(0).args()).isEqualTo(Map.of("number", "123", "municipality", "Messen"));
+    }
+
+    @Test
+    void plansOerebExtractForEgrid() {
+        PlannerOutput plan = planner.plan("ÖREB-Auszug für CH870672603279").orElseThrow();
+
+        PlannerOutput.Step step = plan.steps().get(0);
+        assertThat(step.intent()).isEqualTo(IntentType.OEREB_EXTRACT);
+        assertThat(step.toolCalls().get(0).capabilityId()).isEqualTo(McpToolCapability.FEATURE_SEARCH_PARCEL_BY_EGRID);
+        assertThat(step.toolCalls().get(0).args()).isEqualTo(Map.of("egrid", "CH870672603279"));
+    }
+
+    @Test
+    void plansGotoAddressForPlainAddress() {
+        PlannerOutput plan = planner.plan("Gehe zur Burgunderstrasse 19 in Solothurn.").orElseThrow();
+
+        PlannerOutput.Step step = plan.steps().get(0);
+        assertThat(step.intent()).isEqualTo(IntentType.GOTO_ADDRESS);
+        assertThat(step.toolCalls()).hasSize(1);
+        assertThat(step.toolCalls().get(0).args()).isEqualTo(Map.of("q", "Burgunderstrasse 19, Solothurn"));
+    }
+
+    @Test
+    void fallsBackToLlmForAmbiguousPrompts() {
+        assertThat(planner.plan("Gehe zur Langendorfstrasse 19b in Solothurn und erstelle mir einen ÖREB-Katasterauszug."))
+                .isEmpty();
+        assertThat(planner.plan("Sorry, ich meinte 9.")).isEmpty();
+        assertThat(planner.plan("Lade die Gewässerschutzkarte")).isEmpty();
+        assertThat(planner.plan("Koordinate 2607717, 1228737")).isEmpty();
+        assertThat(planner.plan("Gewässerschutzkarte Burgunderstrasse 19 Solothurn")).isEmpty();
+        assertThat(planner.match("Wie hoch ist das Haus an der Langendorfstrasse 19b in Solothurn wirklich"))
+                .hasValueSatisfying(match -> assertThat(match.confidence()).isLessThan(0.9));
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        planner.plan("Gehe zur Burgunderstrasse 19 in Solothurn");
+        planner.plan("Lade die Gewässerschutzkarte");
+
+        assertThat(meterRegistry.get("ask.planner.fastpath").tag("outcome", "hit").counter().count()).isEqualTo(1d);
+        assertThat(meterRegistry.get("ask.planner.fastpath").tag("outcome", "miss").counter().count()).isEqualTo(1d);
+    }
+}
@@ -0,0 +1,175 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import ch.so.agi.ask.config.ChatMemoryProperties;
+import ch.so.agi.ask.config.DurableChatMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SegmentLogChatMemoryStoreTests {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void restoresSessionsAfterRestart() {
+        SegmentLogChatMemoryStore store = open(1024);
+        store.appendMessages("s1", List.of(new UserMessage("Lade die Gewässerschutzkarte"),
+                new AssistantMessage("{\"steps\":[]}")));
+        store.appendMessage("s2", new UserMessage("Zeige Solothurn"));
+        for (int i = 0; i < 100; i++) {
+            store.appendMessage("s3", new UserMessage("Frage " + i));
+        }
+        store.close();
+
+        SegmentLogChatMemoryStore reopened = open(1024);
+
+        List<Message> s1 = reopened.getMessages("s1");
+        assertThat(s1).hasSize(2);
+        assertThat(s1.get(0)).isInstanceOf(UserMessage.class);
+        assertThat(s1.get(0).getText()).isEqualTo("Lade die Gewässerschutzkarte");
+        assertThat(s1.get(1)).isInstanceOf(AssistantMessage.class);
+        assertThat(reopened.getMessages("s2")).hasSize(1);
+        assertThat(reopened.getMessages("s3")).hasSize(100);
+        assertThat(reopened.getMessages("s3").get(99).getText()).isEqualTo("Frage 99");
+        assertThat(segmentFiles("shard-000").size()).isGreaterThan(1);
+        reopened.close();
+    }
+
+    @Test
+    void compactionDropsDeletedSessionsAndSurvivesRestart() {
+        SegmentLogChatMemoryStore store = open(64 * 1024);
+        for (int i = 0; i < 50; i++) {
+            store.appendMessage("s" + i, new UserMessage("x".repeat(200)));
+        }
+        for (int i = 0; i < 40; i++) {
+            store.deleteSession("s" + i);
+        }
+        double before = store.diskBytes();
+
+        store.compact();
+
+        assertThat(store.diskBytes()).isLessThan(before / 2);
+        assertThat(store.getMessages("s45")).hasSize(1);
+        assertThat(meterRegistry.get("ask.chat.memory.durable.compactions").counter().count()).isEqualTo(1d);
+        store.appendMessage("s45", new UserMessage("nach der Kompaktierung"));
+        store.close();
+
+        SegmentLogChatMemoryStore reopened = open(64 * 1024);
+        assertThat(reopened.getMessages("s5")).isEmpty();
+        assertThat(reopened.getMessages("s45")).hasSize(2);
+        assertThat(segmentFiles("shard-000")).hasSize(1);
+        reopened.close();
+    }
+
+    @Test
+    void discardsTruncatedTailAndIncompleteCompactionOutput() throws IOException {
+        SegmentLogChatMemoryStore store = open(64 * 1024);
+        store.appendMessage("s1", new UserMessage("erste Frage"));
+        store.close();
+
+        Path segment = segmentFiles("shard-000").get(0);
+        int end = MappedSegment.HEADER_BYTES + SegmentLogChatMemoryStore
+                .encode(SegmentLogChatMemoryStore.OP_APPEND, "s1", new UserMessage("erste Frage")).length;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // halb geschriebener Record: Länge vorhanden, Inhalt fehlt
+            channel.write(ByteBuffer.allocate(8).putInt(0, 500).putInt(4, 42), end);
+        }
+        Files.write(directory.resolve("shard-000").resolve("00000009.seg"), new byte[4096]);
+
+        SegmentLogChatMemoryStore reopened = open(64 * 1024);
+        assertThat(reopened.getMessages("s1")).hasSize(1);
+        reopened.appendMessage("s1", new UserMessage("zweite Frage"));
+        reopened.close();
+
+        SegmentLogChatMemoryStore again = open(64 * 1024);
+        assertThat(again.getMessages("s1")).hasSize(2);
+        assertThat(again.getMessages("s1").get(1).getText()).isEqualTo("zweite Frage");
+        assertThat(segmentFiles("shard-000")).hasSize(1);
+        again.close();
+    }
+
+    @Test
+    void restoresLongSessionIdsAndRejectsOversizedOnes() {
+        String longId = "s".repeat(40_000);
+        SegmentLogChatMemoryStore store = open(64 * 1024);
+        store.appendMessage(longId, new UserMessage("lange Session"));
+        assertThatThrownBy(() -> store.appendMessage("s".repeat(70_000), new UserMessage("zu lang")))
+                .isInstanceOf(IllegalArgumentException.class);
+        store.close();
+
+        SegmentLogChatMemoryStore reopened = open(64 * 1024);
+        assertThat(reopened.getMessages(longId)).hasSize(1);
+        assertThat(reopened.getMessages(longId).get(0).getText()).isEqualTo("lange Session");
+        reopened.close();
+    }
+
+    @Test
+    void skipsRecordWithInvalidHeaderOnReplay() throws IOException {
+        SegmentLogChatMemoryStore store = open(64 * 1024);
+        store.appendMessage("s1", new UserMessage("erste Frage"));
+        store.close();
+
+        // Record mit gültiger Prüfsumme, dessen Id-Länge über den Record hinausreicht
+        byte[] record = SegmentLogChatMemoryStore.encode(SegmentLogChatMemoryStore.OP_APPEND, "s2",
+                new UserMessage("kaputt"));
+        ByteBuffer.wrap(record).putShort(SegmentLogChatMemoryStore.RECORD_HEADER_BYTES - 2, (short) 0x8000);
+        CRC32 crc = new CRC32();
+        crc.update(record, 8, record.length - 8);
+        ByteBuffer.wrap(record).putInt(4, (int) crc.getValue());
+        int end = MappedSegment.HEADER_BYTES + SegmentLogChatMemoryStore
+                .encode(SegmentLogChatMemoryStore.OP_APPEND, "s1", new UserMessage("erste Frage")).length;
+        try (FileChannel channel = FileChannel.open(segmentFiles("shard-000").get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(record), end);
+        }
+
+        SegmentLogChatMemoryStore reopened = open(64 * 1024);
+        assertThat(reopened.getMessages("s1")).hasSize(1);
+        assertThat(reopened.getMessages("s2")).isEmpty();
+        reopened.appendMessage("s1", new UserMessage("zweite Frage"));
+        reopened.close();
+
+        SegmentLogChatMemoryStore again = open(64 * 1024);
+        assertThat(again.getMessages("s1")).hasSize(2);
+        again.close();
+    }
+
+    private SegmentLogChatMemoryStore open(int segmentBytes) {
+        DurableChatMemoryProperties properties = new DurableChatMemoryProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setShards(1);
+        properties.setSegmentBytes(segmentBytes);
+        ChatMemoryProperties memoryProperties = new ChatMemoryProperties();
+        memoryProperties.setEnabled(false);
+        return new SegmentLogChatMemoryStore(properties, new ChatMemoryPolicy(memoryProperties, meterRegistry),
+                new SessionLifecycleManager(), meterRegistry);
+    }
+
+    private List<Path> segmentFiles(String shard) {
+        try (Stream<Path> files = Files.list(directory.resolve(shard))) {
+            return files.sorted().toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
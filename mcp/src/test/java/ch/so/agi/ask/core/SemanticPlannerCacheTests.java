@@ -0,0 +1,170 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.SemanticPlannerCacheProperties;
+import ch.so.agi.ask.model.IntentType;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SemanticPlannerCacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void servesParaphraseOfCachedPrompt() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Lade die Gewässerschutzkarte"), "Lade die Gewässerschutzkarte",
+                plan(IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz")));
+
+        var similar = cache.get(key("Lade bitte die Gewässerschutzkarte"), "Lade bitte die Gewässerschutzkarte");
+        var unrelated = cache.get(key("Entferne die Gewässerschutzkarte"), "Entferne die Gewässerschutzkarte");
+
+        assertThat(similar).isPresent();
+        assertThat(similar.get().requestId()).isNotEqualTo("req-1");
+        assertThat(similar.get().steps().get(0).toolCalls().get(0).args()).containsEntry("query", "Gewässerschutz");
+        assertThat(unrelated).isEmpty();
+        assertThat(meterRegistry.get("ask.planner.semantic-cache.requests").tag("result", "hit").counter().count())
+                .isEqualTo(1d);
+        assertThat(meterRegistry.get("ask.planner.semantic-cache.requests").tag("result", "miss").counter().count())
+                .isEqualTo(1d);
+    }
+
+    @Test
+    void servesLayerParaphrasesWithTheirOwnTopic() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Lade die Gewässerschutzkarte"), "Lade die Gewässerschutzkarte",
+                plan(IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz")));
+
+        Map<String, String> expectedQueries = Map.of(
+                "zeig mir die Gewässerschutzzonen", "Gewässerschutzzonen",
+                "Gewässerschutzkarte laden", "Gewässerschutz",
+                "Kannst du bitte die Gewässerschutzkarte anzeigen?", "Gewässerschutz",
+                "Lade die Gewässerkarte", "Gewässer",
+                "Zeige Naturgefahren", "Naturgefahren");
+
+        expectedQueries.forEach((prompt, query) -> {
+            var plan = cache.get(key(prompt), prompt);
+            assertThat(plan).isPresent();
+            assertThat(plan.get().steps().get(0).toolCalls().get(0).args()).containsEntry("query", query);
+        });
+        assertThat(cache.get(key("Entferne die Gewässerschutzkarte"), "Entferne die Gewässerschutzkarte")).isEmpty();
+        assertThat(cache.get(key("Wo ist Gewässerschutz?"), "Wo ist Gewässerschutz?")).isEmpty();
+    }
+
+    @Test
+    void requiresSameTopicWhenTopicIsNotPartOfTheArgs() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Zeige Grundwasser bei 2600000, 1200000"), "Zeige Grundwasser bei 2600000, 1200000",
+                plan(IntentType.GEOTHERMAL_PROBE_ASSESSMENT,
+                        McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY,
+                        Map.of("coord", "2600000,1200000")));
+
+        var sameTopic = cache.get(key("Zeige Grundwasser bei 2610000, 1210000"),
+                "Zeige Grundwasser bei 2610000, 1210000");
+        var otherTopic = cache.get(key("Zeige Altlasten bei 2610000, 1210000"), "Zeige Altlasten bei 2610000, 1210000");
+
+        assertThat(sameTopic).isPresent();
+        assertThat(sameTopic.get().steps().get(0).toolCalls().get(0).args()).containsEntry("coord", "2610000,1210000");
+        assertThat(otherTopic).isEmpty();
+    }
+
+    @Test
+    void substitutesSlotValuesOfNewPrompt() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Gehe zur Adresse Langendorfstrasse 19b in Solothurn"),
+                "Gehe zur Adresse Langendorfstrasse 19b in Solothurn",
+                plan(IntentType.GOTO_ADDRESS, McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS,
+                        Map.of("q", "Langendorfstrasse 19b, Solothurn")));
+
+        var plan = cache.get(key("Gehe zur Adresse Bielstrasse 5 in Grenchen"),
+                "Gehe zur Adresse Bielstrasse 5 in Grenchen");
+        var differentShape = cache.get(key("Gehe zur Adresse Bielstrasse 5"), "Gehe zur Adresse Bielstrasse 5");
+
+        assertThat(plan).isPresent();
+        assertThat(plan.get().steps().get(0).toolCalls().get(0).args()).containsEntry("q", "Bielstrasse 5, Grenchen");
+        assertThat(differentShape).isEmpty();
+    }
+
+    @Test
+    void substitutesWholeSlotValuesOnly() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Zeige Grundstück 1 in Grenchen"), "Zeige Grundstück 1 in Grenchen",
+                plan(IntentType.CADASTRAL_PLAN, McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY,
+                        Map.of("number", "1", "municipality", "Grenchen", "scope", "Grundbuch 19")));
+
+        var plan = cache.get(key("Zeige Grundstück 2 in Grenchen"), "Zeige Grundstück 2 in Grenchen");
+
+        assertThat(plan).isPresent();
+        assertThat(plan.get().steps().get(0).toolCalls().get(0).args()).containsEntry("number", "2")
+                .containsEntry("scope", "Grundbuch 19");
+    }
+
+    @Test
+    void doesNotTemplatePlansWithRepeatedSlotValues() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Zeige Grundstück 1 in Grenchen"), "Zeige Grundstück 1 in Grenchen",
+                plan(IntentType.CADASTRAL_PLAN, McpToolCapability.FEATURE_SEARCH_EGRID_BY_NUMBER_AND_MUNICIPALITY,
+                        Map.of("number", "1", "municipality", "Grenchen", "label", "Grundstück 1")));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void ignoresHistoryChangedSystemPromptAndCorrectedSlots() {
+        SemanticPlannerCache cache = new SemanticPlannerCache(enabledProperties(), meterRegistry);
+        cache.put(key("Lade die Gewässerschutzkarte"), "Lade die Gewässerschutzkarte",
+                plan(IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH, Map.of("query", "Gewässerschutz")));
+        // Das LLM hat den Ort korrigiert: der Plan ist nicht auf andere Orte übertragbar
+        cache.put(key("Suche den Weissenstein bei Solothurm"), "Suche den Weissenstein bei Solothurm",
+                plan(IntentType.SEARCH_PLACE, McpToolCapability.GEOLOCATION_GEOCODE_MUNICIPALITY,
+                        Map.of("q", "Weissenstein, Solothurn")));
+
+        assertThat(cache.get(new PlannerCache.Key("lade die gewässerschutzkarte", "system", "history-hash"),
+                "Lade die Gewässerschutzkarte")).isEmpty();
+        assertThat(cache.get(new PlannerCache.Key("lade die gewässerschutzkarte", "system-v2", PlannerCache.NO_HISTORY),
+                "Lade die Gewässerschutzkarte")).isEmpty();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsOldestEntriesAndKeepsIndexSearchable() {
+        SemanticPlannerCacheProperties properties = enabledProperties();
+        properties.setMaxEntries(2);
+        SemanticPlannerCache cache = new SemanticPlannerCache(properties, meterRegistry);
+        List<String> prompts = List.of("Lade die Gewässerschutzkarte", "Entferne die Bodenkarte", "Suche Naturgefahren",
+                "Wo ist Lärm?", "Gibt es Zonenplan in der Nähe?");
+
+        for (String prompt : prompts) {
+            cache.put(key(prompt), prompt,
+                    plan(IntentType.LOAD_LAYER, McpToolCapability.LAYERS_SEARCH, Map.of("query", prompt)));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(key(prompts.get(0)), prompts.get(0))).isEmpty();
+        assertThat(cache.get(key(prompts.get(3)), prompts.get(3))).isPresent();
+        assertThat(cache.get(key(prompts.get(4)), prompts.get(4))).isPresent();
+        assertThat(meterRegistry.get("ask.planner.semantic-cache.evictions").counter().count()).isEqualTo(3d);
+    }
+
+    private SemanticPlannerCacheProperties enabledProperties() {
+        SemanticPlannerCacheProperties properties = new SemanticPlannerCacheProperties();
+        properties.setEnabled(true);
+        return properties;
+    }
+
+    private PlannerCache.Key key(String userMessage) {
+        return new PlannerCache.Key(PlannerCache.normalize(userMessage), "system", PlannerCache.NO_HISTORY);
+    }
+
+    private PlannerOutput plan(IntentType intent, McpToolCapability capability, Map<String, Object> args) {
+        return new PlannerOutput("req-1", List.of(new PlannerOutput.Step(intent,
+                List.of(new PlannerOutput.ToolCall(capability, args)), new PlannerOutput.Result("pending", List.of(), ""))));
+    }
+}
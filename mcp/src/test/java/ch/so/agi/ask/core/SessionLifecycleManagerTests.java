@@ -0,0 +1,164 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import ch.so.agi.ask.config.ChatMemoryProperties;
+import ch.so.agi.ask.config.SessionLifecycleProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SessionLifecycleManagerTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-19T10:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void sweepRemovesIdleSessionsFromAllStores() {
+        SessionLifecycleProperties properties = new SessionLifecycleProperties();
+        properties.setIdleTtlSeconds(60);
+        SessionLifecycleManager manager = new SessionLifecycleManager(properties, clock, meterRegistry);
+        InMemoryChatMemoryStore chatMemory = chatMemory(manager);
+        InMemorySelectionMemoryStore selections = new InMemorySelectionMemoryStore(manager);
+
+        chatMemory.appendMessage("idle", new UserMessage("Lade die Gewässerschutzkarte"));
+        selections.save("idle", Map.of("egrid", "CH123"));
+        clock.advance(Duration.ofSeconds(45));
+        chatMemory.appendMessage("active", new UserMessage("Zeige Solothurn"));
+        clock.advance(Duration.ofSeconds(30));
+        chatMemory.getMessages("active");
+
+        manager.sweep();
+
+        assertThat(chatMemory.getMessages("idle")).isEmpty();
+        assertThat(selections.get("idle")).isEmpty();
+        assertThat(chatMemory.getMessages("active")).hasSize(1);
+        assertThat(manager.liveSessions()).isEqualTo(1);
+        assertThat(meterRegistry.get("ask.session.evictions").tag("cause", "idle").counter().count())
+                .isEqualTo(1d);
+        assertThat(meterRegistry.get("ask.session.live").gauge().value()).isEqualTo(1d);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSessionWhenSessionCapIsExceeded() {
+        SessionLifecycleProperties properties = new SessionLifecycleProperties();
+        properties.setMaxSessions(3);
+        SessionLifecycleManager manager = new SessionLifecycleManager(properties, clock, meterRegistry);
+        InMemoryChatMemoryStore chatMemory = chatMemory(manager);
+
+        for (String sessionId : List.of("a", "b", "c")) {
+            chatMemory.appendMessage(sessionId, new UserMessage("Frage " + sessionId));
+            clock.advance(Duration.ofSeconds(1));
+        }
+        chatMemory.getMessages("a");
+        clock.advance(Duration.ofSeconds(1));
+        chatMemory.appendMessage("d", new UserMessage("Frage d"));
+
+        assertThat(chatMemory.getMessages("b")).isEmpty();
+        assertThat(chatMemory.getMessages("a")).hasSize(1);
+        assertThat(chatMemory.getMessages("d")).hasSize(1);
+        assertThat(manager.liveSessions()).isEqualTo(2);
+        assertThat(meterRegistry.get("ask.session.evictions").tag("cause", "sessions").counter().count())
+                .isEqualTo(2d);
+    }
+
+    @Test
+    void enforcesByteCapAndTracksRetainedBytes() {
+        SessionLifecycleProperties properties = new SessionLifecycleProperties();
+        properties.setMaxBytes(5_000);
+        SessionLifecycleManager manager = new SessionLifecycleManager(properties, clock, meterRegistry);
+        InMemoryChatMemoryStore chatMemory = chatMemory(manager);
+
+        chatMemory.appendMessage("old", new UserMessage("x".repeat(1_500)));
+        clock.advance(Duration.ofSeconds(1));
+        chatMemory.appendMessage("new", new UserMessage("y".repeat(1_500)));
+
+        assertThat(chatMemory.getMessages("old")).isEmpty();
+        assertThat(chatMemory.getMessages("new")).hasSize(1);
+        assertThat(manager.retainedBytes()).isLessThanOrEqualTo(5_000L).isGreaterThan(3_000L);
+        assertThat(meterRegistry.get("ask.session.evictions").tag("cause", "bytes").counter().count())
+                .isEqualTo(1d);
+
+        chatMemory.deleteSession("new");
+        assertThat(manager.retainedBytes()).isZero();
+    }
+
+    @Test
+    void releasesBytesWhenSelectionIsCleared() {
+        SessionLifecycleManager manager = new SessionLifecycleManager(new SessionLifecycleProperties(), clock,
+                meterRegistry);
+        InMemorySelectionMemoryStore selections = new InMemorySelectionMemoryStore(manager);
+
+        selections.save("s", Map.of("egrid", "CH123", "coord", List.of(2600000.0, 1200000.0)));
+        long retained = manager.retainedBytes();
+        selections.clear("s");
+
+        assertThat(retained).isGreaterThan(0L);
+        assertThat(manager.retainedBytes()).isZero();
+    }
+
+    @Test
+    void forgetsSessionOnceEveryStoreHasReleasedIt() {
+        SessionLifecycleProperties properties = new SessionLifecycleProperties();
+        properties.setIdleTtlSeconds(60);
+        SessionLifecycleManager manager = new SessionLifecycleManager(properties, clock, meterRegistry);
+        InMemoryChatMemoryStore chatMemory = chatMemory(manager);
+        InMemorySelectionMemoryStore selections = new InMemorySelectionMemoryStore(manager);
+
+        chatMemory.appendMessage("s", new UserMessage("Zeige Solothurn"));
+        selections.save("s", Map.of("egrid", "CH123"));
+        chatMemory.deleteSession("s");
+        int liveWithSelection = manager.liveSessions();
+        selections.clear("s");
+
+        assertThat(liveWithSelection).isEqualTo(1);
+        assertThat(manager.liveSessions()).isZero();
+        assertThat(meterRegistry.get("ask.session.live").gauge().value()).isEqualTo(0d);
+
+        clock.advance(Duration.ofSeconds(120));
+        manager.sweep();
+        assertThat(meterRegistry.find("ask.session.evictions").counter()).isNull();
+    }
+
+    private InMemoryChatMemoryStore chatMemory(SessionLifecycleManager manager) {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.setEnabled(false);
+        return new InMemoryChatMemoryStore(new ChatMemoryPolicy(properties, meterRegistry), manager);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.SessionLifecycleProperties;
+import ch.so.agi.ask.config.SpeculationProperties;
+import ch.so.agi.ask.mcp.RequestDeadline;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SpeculativeChoiceExecutorTests {
+
+    private static final Map<String, Map<String, Object>> CANDIDATES = Map.of("CH1", Map.of("egrid", "CH1"));
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-19T10:00:00Z"));
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    @Test
+    void servesCompletedSpeculation() {
+        SpeculativeChoiceExecutor executor = executor(properties(1500), new SessionLifecycleManager());
+        release.countDown();
+
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, CANDIDATES);
+
+        assertThat(executor.consume("sess", "req", 1, "CH1", RequestDeadline.none()))
+                .map(PlannerOutput.Result::message).contains("Auszug CH1");
+    }
+
+    @Test
+    void fallsBackToLiveCallWhenSpeculationIsStillRunning() {
+        SpeculativeChoiceExecutor executor = executor(properties(50), new SessionLifecycleManager());
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, CANDIDATES);
+
+        long start = System.nanoTime();
+        assertThat(executor.consume("sess", "req", 1, "CH1", RequestDeadline.none())).isEmpty();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        release.countDown();
+    }
+
+    @Test
+    void boundsWaitByRequestDeadline() {
+        SpeculativeChoiceExecutor executor = executor(properties(60_000), new SessionLifecycleManager());
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, CANDIDATES);
+
+        long start = System.nanoTime();
+        assertThat(executor.consume("sess", "req", 1, "CH1", RequestDeadline.after(Duration.ofMillis(50))))
+                .isEmpty();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        release.countDown();
+    }
+
+    @Test
+    void sweepDropsExpiredSpeculations() {
+        SessionLifecycleManager lifecycle = new SessionLifecycleManager(new SessionLifecycleProperties(), clock,
+                new SimpleMeterRegistry());
+        SpeculativeChoiceExecutor executor = executor(properties(1500), lifecycle);
+        release.countDown();
+        executor.speculate("abandoned", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, CANDIDATES);
+        assertThat(lifecycle.retainedBytes()).isPositive();
+
+        clock.advance(Duration.ofSeconds(60));
+        executor.sweep();
+        assertThat(executor.size()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(61));
+        executor.sweep();
+        assertThat(executor.size()).isZero();
+        assertThat(lifecycle.retainedBytes()).isZero();
+    }
+
+    @Test
+    void cancelsSpeculationsThatAreNoLongerNeeded() throws Exception {
+        SpeculationProperties properties = properties(50);
+        properties.setMaxConcurrency(2);
+        SpeculativeChoiceExecutor executor = executor(properties, new SessionLifecycleManager());
+        Map<String, Map<String, Object>> candidates = new LinkedHashMap<>();
+        candidates.put("CH1", Map.of("egrid", "CH1"));
+        candidates.put("CH2", Map.of("egrid", "CH2"));
+
+        // Ersetzt: beide Aufrufe der ersten Auswahl werden abgebrochen
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, candidates);
+        awaitCount(started, 2);
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, candidates);
+        awaitCount(interrupted, 2);
+        assertThat(executor.availableBudget()).isZero();
+
+        // Gewählt: der nicht gewählte Kandidat wird abgebrochen, der gewählte nach max-wait-millis
+        awaitCount(started, 4);
+        assertThat(executor.consume("sess", "req", 1, "CH1", RequestDeadline.none())).isEmpty();
+        awaitCount(interrupted, 4);
+        assertThat(executor.availableBudget()).isEqualTo(2);
+
+        // Verworfen: beim Evict der Session
+        executor.speculate("sess", "req", 1, McpToolCapability.OEREB_EXTRACT_BY_ID, candidates);
+        awaitCount(started, 6);
+        executor.evictSession("sess");
+        awaitCount(interrupted, 6);
+        assertThat(executor.availableBudget()).isEqualTo(2);
+        release.countDown();
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(counter.get()).isEqualTo(expected);
+    }
+
+    private SpeculativeChoiceExecutor executor(SpeculationProperties properties, SessionLifecycleManager lifecycle) {
+        McpClient mcpClient = new McpClient(null) {
+            @Override
+            public PlannerOutput.Result execute(McpToolCapability capabilityId, Map<String, Object> args) {
+                started.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+                return new PlannerOutput.Result("ok", List.of(args), "Auszug " + args.get("egrid"));
+            }
+        };
+        return new SpeculativeChoiceExecutor(mcpClient, properties, clock, lifecycle);
+    }
+
+    private static SpeculationProperties properties(long maxWaitMillis) {
+        SpeculationProperties properties = new SpeculationProperties();
+        properties.setEnabled(true);
+        properties.setMaxWaitMillis(maxWaitMillis);
+        return properties;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
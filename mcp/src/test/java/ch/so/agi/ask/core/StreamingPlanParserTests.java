@@ -0,0 +1,48 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingPlanParserTests {
+
+    private static final String PLAN = """
+            ```json
+            {"requestId":"r-1","note":"\\"steps\\": [{","steps":[
+              {"intent":"goto_address","toolCalls":[{"capabilityId":"geolocation.geocode.address",
+                "args":{"q":"Weg {1}, \\"Solothurn\\""}}],"result":{"status":"pending","items":[]}},
+              {"intent":"load_layer","toolCalls":[]}
+            ]}
+            ```""";
+
+    @Test
+    void emitsEachStepAsSoonAsItCloses() {
+        StreamingPlanParser parser = new StreamingPlanParser();
+        int firstStepEnd = PLAN.indexOf("}},") + 2;
+
+        List<String> early = parser.feed(PLAN.substring(0, firstStepEnd + 1));
+        List<String> rest = parser.feed(PLAN.substring(firstStepEnd + 1));
+
+        assertThat(early).hasSize(1);
+        assertThat(early.get(0)).startsWith("{\"intent\":\"goto_address\"");
+        assertThat(rest).containsExactly("{\"intent\":\"load_layer\",\"toolCalls\":[]}");
+        assertThat(parser.content()).isEqualTo(PLAN);
+    }
+
+    @Test
+    void isIndependentOfChunkBoundaries() {
+        for (int size = 1; size <= 16; size++) {
+            StreamingPlanParser parser = new StreamingPlanParser();
+            List<String> steps = new ArrayList<>();
+            for (int i = 0; i < PLAN.length(); i += size) {
+                steps.addAll(parser.feed(PLAN.substring(i, Math.min(PLAN.length(), i + size))));
+            }
+            assertThat(steps).hasSize(2);
+            assertThat(Json.read(steps.get(0), ch.so.agi.ask.model.PlannerOutput.Step.class).toolCalls().get(0)
+                    .args()).containsEntry("q", "Weg {1}, \"Solothurn\"");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ch.so.agi.ask.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import ch.so.agi.ask.mcp.FeatureSearchTools;
+import ch.so.agi.ask.mcp.GeolocationTools;
+import ch.so.agi.ask.mcp.LayerTools;
+import ch.so.agi.ask.mcp.OerebTools;
+import ch.so.agi.ask.mcp.ProcessingTools;
+import ch.so.agi.ask.mcp.SpringMcpToolRegistry;
+import ch.so.agi.ask.model.McpToolCapability;
+
+class ToolCatalogIndexTests {
+
+    private static final int TOP_K = 4;
+    private static final double MIN_SCORE = 1.0;
+    private static final double RELATIVE_SCORE = 0.25;
+
+    private final ToolCatalogIndex index = new ToolCatalogIndex(registry().listTools().values());
+
+    @Test
+    void findsLayerSearchInCompoundTopicWord() {
+        ToolCatalogIndex.Selection selection = index.select("Lade mir die Gewässerschutzkarte", TOP_K, MIN_SCORE,
+                RELATIVE_SCORE);
+
+        assertThat(selection.fallback()).isFalse();
+        assertThat(selection.capabilities()).contains(McpToolCapability.LAYERS_SEARCH)
+                .doesNotContain(McpToolCapability.OEREB_EXTRACT_BY_ID);
+    }
+
+    @Test
+    void selectsRelatedCapabilitiesTogether() {
+        ToolCatalogIndex.Selection oereb = index.select(
+                "Ich will einen ÖREB-Auszug an der Koordinate 2607717, 1228737", TOP_K, MIN_SCORE, RELATIVE_SCORE);
+        ToolCatalogIndex.Selection geothermal = index.select(
+                "Kann ich an der Langendorfstrasse 19b in Solothurn eine Erdwärmesonde bohren?", TOP_K, MIN_SCORE,
+                RELATIVE_SCORE);
+
+        assertThat(oereb.capabilities()).contains(McpToolCapability.OEREB_EGRID_BY_XY,
+                McpToolCapability.OEREB_EXTRACT_BY_ID);
+        assertThat(geothermal.capabilities()).contains(McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY,
+                McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS);
+    }
+
+    @Test
+    void toleratesTyposInKeywords() {
+        ToolCatalogIndex.Selection selection = index.select("Ist Geotermie bei mir möglich?", TOP_K, MIN_SCORE,
+                RELATIVE_SCORE);
+
+        assertThat(selection.fallback()).isFalse();
+        assertThat(selection.capabilities()).contains(McpToolCapability.PROCESSING_GEOTHERMAL_BORE_INFO_BY_XY);
+    }
+
+    @Test
+    void fallsBackToFullCatalogWithoutConfidentMatch() {
+        ToolCatalogIndex.Selection selection = index.select("Wie geht es dir?", TOP_K, MIN_SCORE, RELATIVE_SCORE);
+
+        assertThat(selection.fallback()).isTrue();
+        assertThat(selection.capabilities()).isEqualTo(EnumSet.allOf(McpToolCapability.class));
+    }
+
+    static SpringMcpToolRegistry registry() {
+        // Kontext wird nicht gestartet: die Registry liest nur die Bean-Typen
+        GenericApplicationContext context = new GenericApplicationContext();
+        for (Class<?> type : new Class<?>[] { FeatureSearchTools.class, GeolocationTools.class, LayerTools.class,
+                OerebTools.class, ProcessingTools.class }) {
+            context.registerBeanDefinition(type.getSimpleName(), new RootBeanDefinition(type));
+        }
+        SpringMcpToolRegistry registry = new SpringMcpToolRegistry();
+        registry.setApplicationContext(context);
+        return registry;
+    }
+}
@@ -0,0 +1,92 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ch.so.agi.ask.config.GazetteerProperties;
+
+class AddressGazetteerTests {
+
+    private static final String CSV = """
+            id;strassenname;hausnummer;plz;ortschaft;e;n
+            623490242;Langendorfstrasse;19b;4500;Solothurn;2605899;1229278
+            623490243;Langendorfstrasse;19;4500;Solothurn;2605890;1229270
+            700000001;Hauptstrasse;5;4566;Kriegstetten;2613000;1224000
+            700000002;Hauptstrasse;5;4515;Oberdorf SO;2604000;1231000
+            700000003;Bielstrasse;12;2540;Grenchen;2596000;1226000
+            kaputt;;;;;;
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void findsExactAddressWithAbbreviatedStreet() throws IOException {
+        AddressGazetteer gazetteer = gazetteer();
+
+        List<AddressGazetteer.Address> result = gazetteer.lookup("Langendorfstr. 19b, Solothurn", 25);
+
+        assertThat(result).extracting(AddressGazetteer.Address::id).containsExactly("623490242");
+        assertThat(result.get(0).label()).isEqualTo("Langendorfstrasse 19b, 4500 Solothurn");
+        assertThat(result.get(0).e()).isEqualTo(2605899d);
+        assertThat(gazetteer.size()).isEqualTo(5);
+    }
+
+    @Test
+    void toleratesTyposInStreetName() throws IOException {
+        AddressGazetteer gazetteer = gazetteer();
+
+        assertThat(gazetteer.lookup("Langendorfstrase 19 b Solothurn", 25))
+                .extracting(AddressGazetteer.Address::id).containsExactly("623490242");
+        assertThat(gazetteer.lookup("Lagnendorfstrasse 19b", 25))
+                .extracting(AddressGazetteer.Address::id).containsExactly("623490242");
+    }
+
+    @Test
+    void usesLocalityOrPostcodeToDisambiguate() throws IOException {
+        AddressGazetteer gazetteer = gazetteer();
+
+        assertThat(gazetteer.lookup("Hauptstrasse 5", 25)).hasSize(2);
+        assertThat(gazetteer.lookup("Hauptstrasse 5, Kriegstetten", 25))
+                .extracting(AddressGazetteer.Address::id).containsExactly("700000001");
+        assertThat(gazetteer.lookup("Hauptstrasse 5, 4515", 25))
+                .extracting(AddressGazetteer.Address::id).containsExactly("700000002");
+    }
+
+    @Test
+    void missesFallBackToRemote() throws IOException {
+        AddressGazetteer gazetteer = gazetteer();
+
+        assertThat(gazetteer.lookup("Langendorfstrasse 99", 25)).isEmpty();
+        assertThat(gazetteer.lookup("Langendorfstrasse", 25)).isEmpty();
+        assertThat(gazetteer.lookup("Bielstrasse 12, Solothurn", 25)).isEmpty();
+        assertThat(gazetteer.lookup("Bahnhofstrasse 1", 25)).isEmpty();
+        assertThat(meterRegistry.get("ask.gazetteer.lookups").tag("result", "miss").counter().count())
+                .isEqualTo(4d);
+    }
+
+    @Test
+    void returnsNearestAddressesWithinRadius() throws IOException {
+        AddressGazetteer gazetteer = gazetteer();
+
+        List<AddressGazetteer.Nearby> nearest = gazetteer.nearest(2605896, 1229278, 2, 100);
+
+        assertThat(nearest).extracting((AddressGazetteer.Nearby nearby) -> nearby.address().id()).containsExactly("623490242", "623490243");
+        assertThat(nearest.get(0).distance()).isEqualTo(3d);
+        assertThat(gazetteer.nearest(2605896, 1229278, 5, 100)).hasSize(2);
+        assertThat(gazetteer.nearest(2600000, 1200000, 1, 100)).isEmpty();
+        assertThat(meterRegistry.get("ask.gazetteer.reverse").tag("result", "miss").counter().count())
+                .isEqualTo(1d);
+    }
+
+    private AddressGazetteer gazetteer() throws IOException {
+        AddressGazetteer gazetteer = new AddressGazetteer(new GazetteerProperties(), meterRegistry);
+        gazetteer.load(new StringReader(CSV));
+        return gazetteer;
+    }
+}
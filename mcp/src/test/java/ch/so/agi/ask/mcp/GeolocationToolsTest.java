@@ -2,6 +2,7 @@ package ch.so.agi.ask.mcp;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.web.client.RestClient;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpMethod;
@@ -9,11 +10,14 @@ import org.springframework.test.web.client.MockRestServiceServer;
 
 import ch.so.agi.ask.mcp.McpResponseItem;
 import ch.so.agi.ask.mcp.ToolResult;
+import ch.so.agi.ask.model.McpToolCapability;
 
+import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
@@ -132,4 +136,94 @@ class GeolocationToolsTest {
         Map<String, Object> payload = McpResponseItem.payload(result.items().getFirst());
         assertEquals(List.of(2592561d, 1223174d, 2599482d, 1232183d), payload.get("extent"));
     }
+
+    @Test
+    void geocodeAddress_answersFromGazetteerWithoutRemoteCall() throws Exception {
+        RestClient.Builder builder = RestClient.builder();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        AddressGazetteer gazetteer = AddressGazetteer.empty();
+        gazetteer.load(new StringReader("""
+                id;strassenname;hausnummer;plz;ortschaft;e;n
+                623490242;Langendorfstrasse;19b;4500;Solothurn;2605899;1229278
+                """));
+
+        GeolocationTools geolocationTools = new GeolocationTools(builder, mapper, UpstreamClients.direct(), gazetteer);
+        GeolocationTools.GeolocationResult result = geolocationTools
+                .geocodeAddress(Map.of("q", "Langendorfstrasse 19b, Solothurn"));
+
+        server.verify();
+        assertEquals(ToolResult.Status.SUCCESS, result.status());
+        Map<String, Object> payload = McpResponseItem.payload(result.items().getFirst());
+        assertEquals("623490242", payload.get("id"));
+        assertEquals("Langendorfstrasse 19b, 4500 Solothurn", payload.get("label"));
+        assertEquals(List.of(2605899d, 1229278d), payload.get("coord"));
+    }
+
+    @Test
+    void municipalityByXY_andGeocodeMunicipality_useLocalIndex() throws Exception {
+        RestClient.Builder builder = RestClient.builder();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        MunicipalityIndex municipalities = MunicipalityIndex.empty();
+        municipalities.load("""
+                {"type":"FeatureCollection","features":[{"type":"Feature",
+                 "properties":{"gemeindename":"Grenchen","bfs_gemeindenummer":2546},
+                 "geometry":{"type":"Polygon","coordinates":[[[2592561,1223174],[2599482,1223174],[2599482,1232183],[2592561,1232183],[2592561,1223174]]]}}]}
+                """);
+
+        GeolocationTools geolocationTools = new GeolocationTools(builder, mapper, UpstreamClients.direct(),
+                AddressGazetteer.empty(), municipalities);
+        GeolocationTools.GeolocationResult byXY = geolocationTools
+                .municipalityByXY(Map.of("coord", List.of(2596000, "1226000")));
+        GeolocationTools.GeolocationResult byName = geolocationTools.geocodeMunicipality(Map.of("q", "Grenchen"));
+
+        server.verify();
+        assertEquals(ToolResult.Status.SUCCESS, byXY.status());
+        Map<String, Object> payload = McpResponseItem.payload(byXY.items().getFirst());
+        assertEquals("2546", payload.get("id"));
+        assertEquals("Grenchen | 2546 (Gemeinde)", payload.get("label"));
+        assertEquals(List.of(2592561d, 1223174d, 2599482d, 1232183d), payload.get("extent"));
+        assertEquals(ToolResult.Status.SUCCESS, byName.status());
+        assertEquals(ToolResult.Status.ERROR,
+                geolocationTools.municipalityByXY(Map.of("x", 2600000, "y", 1200000)).status());
+    }
+
+    @Test
+    void reverse_returnsNearestAddressWithDistance() throws Exception {
+        AddressGazetteer gazetteer = AddressGazetteer.empty();
+        gazetteer.load(new StringReader("""
+                id;strassenname;hausnummer;plz;ortschaft;e;n
+                623490242;Langendorfstrasse;19b;4500;Solothurn;2605899;1229278
+                623490243;Langendorfstrasse;19;4500;Solothurn;2605890;1229270
+                """));
+        GeolocationTools geolocationTools = new GeolocationTools(RestClient.builder(), mapper,
+                UpstreamClients.direct(), gazetteer);
+
+        GeolocationTools.GeolocationResult result = geolocationTools.reverse(Map.of("x", 2605896, "y", "1229278"));
+        GeolocationTools.GeolocationResult two = geolocationTools
+                .reverse(Map.of("coord", List.of(2605896, 1229278), "k", 2));
+
+        assertEquals(ToolResult.Status.SUCCESS, result.status());
+        Map<String, Object> payload = McpResponseItem.payload(result.items().getFirst());
+        assertEquals("623490242", payload.get("id"));
+        assertEquals(3.0d, payload.get("distance"));
+        assertEquals(List.of(2605899d, 1229278d), payload.get("coord"));
+        assertEquals(ToolResult.Status.NEEDS_USER_CHOICE, two.status());
+        assertEquals(2, two.items().size());
+        assertEquals(ToolResult.Status.ERROR,
+                geolocationTools.reverse(Map.of("x", 2600000, "y", 1200000)).status());
+    }
+
+    @Test
+    void reverse_isOnlyOfferedWhenGazetteerIsEnabled() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withBean(GeolocationTools.class, () -> new GeolocationTools(RestClient.builder(), mapper))
+                .withUserConfiguration(ReverseGeocodingTools.class)
+                .withBean(SpringMcpToolRegistry.class);
+
+        runner.run(context -> assertFalse(context.getBean(SpringMcpToolRegistry.class).listTools()
+                .containsKey(McpToolCapability.GEOLOCATION_REVERSE)));
+        runner.withPropertyValues("ask.gazetteer.enabled=true")
+                .run(context -> assertTrue(context.getBean(SpringMcpToolRegistry.class).listTools()
+                        .containsKey(McpToolCapability.GEOLOCATION_REVERSE)));
+    }
 }
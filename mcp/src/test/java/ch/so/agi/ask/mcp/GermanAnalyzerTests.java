@@ -0,0 +1,39 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class GermanAnalyzerTests {
+
+    @Test
+    void foldsAndDropsStopwords() {
+        assertThat(GermanAnalyzer.words("Zeige mir die Gewässerschutz-Karte für Bözberg"))
+                .containsExactly("gewaesserschutz", "boezberg");
+        assertThat(GermanAnalyzer.words("ch.so.afu.gewaesserschutz")).containsExactly("afu", "gewaesserschutz");
+    }
+
+    @Test
+    void stripsInflectionKeepingFourCharacters() {
+        assertThat(GermanAnalyzer.stem("orthofotos")).isEqualTo("orthofoto");
+        assertThat(GermanAnalyzer.stem("standorte")).isEqualTo("standort");
+        assertThat(GermanAnalyzer.stem("gewaesser")).isEqualTo("gewaess");
+        assertThat(GermanAnalyzer.stem("wald")).isEqualTo("wald");
+        assertThat(GermanAnalyzer.stem("2023")).isEqualTo("2023");
+    }
+
+    @Test
+    void decompoundsWithLinkingElements() {
+        Set<String> known = Set.of("gewaess", "schutz", "zone", "grundwass", "strass", "laerm");
+
+        assertThat(GermanAnalyzer.decompound("gewaesserschutzkarte", known::contains))
+                .containsExactly("gewaesser", "schutz", "karte");
+        assertThat(GermanAnalyzer.decompound("grundwasserschutzzonen", known::contains))
+                .containsExactly("grundwasser", "schutz", "zonen");
+        assertThat(GermanAnalyzer.decompound("strassenlaerm", known::contains)).containsExactly("strassen", "laerm");
+        assertThat(GermanAnalyzer.decompound("gewaesser", known::contains)).isEmpty();
+        assertThat(GermanAnalyzer.decompound("velowege", known::contains)).isEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class KdTreeTests {
+
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(42);
+        int size = 5_000;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            // ganzzahlige Koordinaten erzeugen auch doppelte Punkte
+            x[i] = 2_590_000 + random.nextInt(20_000);
+            y[i] = 1_220_000 + random.nextInt(20_000);
+        }
+        KdTree tree = new KdTree(x, y);
+
+        for (int q = 0; q < 200; q++) {
+            double qx = 2_590_000 + random.nextDouble() * 20_000;
+            double qy = 1_220_000 + random.nextDouble() * 20_000;
+            int k = 1 + random.nextInt(10);
+            double maxDistance = q % 2 == 0 ? Double.POSITIVE_INFINITY : 300;
+
+            List<KdTree.Neighbour> nearest = tree.nearest(qx, qy, k, maxDistance);
+
+            double[] expected = new double[size];
+            for (int i = 0; i < size; i++) {
+                double dx = x[i] - qx;
+                double dy = y[i] - qy;
+                expected[i] = Math.sqrt(dx * dx + dy * dy);
+            }
+            double[] best = Arrays.stream(expected).filter(d -> d <= maxDistance).sorted().limit(k).toArray();
+            assertThat(nearest).extracting(KdTree.Neighbour::distance).containsExactly(
+                    Arrays.stream(best).boxed().toArray(Double[]::new));
+            nearest.forEach(n -> assertThat(expected[n.index()]).isEqualTo(n.distance()));
+        }
+    }
+
+    @Test
+    void handlesEmptyAndTinyTrees() {
+        assertThat(new KdTree(new double[0], new double[0]).nearest(0, 0, 3, 10)).isEmpty();
+
+        KdTree tree = new KdTree(new double[] { 0, 3 }, new double[] { 0, 4 });
+
+        assertThat(tree.nearest(0, 0, 5, Double.POSITIVE_INFINITY)).containsExactly(new KdTree.Neighbour(0, 0),
+                new KdTree.Neighbour(1, 5));
+        assertThat(tree.nearest(0, 0, 5, 4.9)).containsExactly(new KdTree.Neighbour(0, 0));
+    }
+}
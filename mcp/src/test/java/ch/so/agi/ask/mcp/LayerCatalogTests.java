@@ -0,0 +1,77 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+class LayerCatalogTests {
+
+    private static final String CATALOG = """
+            {"results":[
+              {"dataproduct":{"dataproduct_id":"ch.so.afu.gewaesserschutz","display":"Gewässerschutz","type":"layergroup",
+                "sublayers":[
+                  {"dataproduct_id":"ch.so.afu.gewaesserschutz.zonen_areale","display":"Grundwasserschutzzonen und -areale"},
+                  {"dataproduct_id":"ch.so.afu.gewaesserschutz.schutzbereiche","display":"Gewässerschutzbereiche"}]}},
+              {"dataproduct":{"dataproduct_id":"ch.so.agi.orthofoto_2023","display":"Orthofoto 2023","type":"singleactor"}},
+              {"dataproduct":{"dataproduct_id":"ch.so.awjf.waldstandorte","display":"Waldstandorte","type":"singleactor"}},
+              {"dataproduct":{"dataproduct_id":"ch.so.awjf.wald_schutz","display":"Schutzwald","type":"singleactor"}},
+              {"dataproduct":{"dataproduct_id":"ch.so.avt.strassenlaerm","display":"Strassenlärm","type":"singleactor"}}
+            ]}
+            """;
+
+    @Test
+    void splitsCompoundQueries() throws IOException {
+        LayerCatalog catalog = catalog();
+
+        assertThat(ids(catalog.search("Gewässerschutzkarte"))).containsExactly("ch.so.afu.gewaesserschutz");
+        assertThat(ids(catalog.search("Grundwasserschutzzonen")))
+                .containsExactly("ch.so.afu.gewaesserschutz.zonen_areale");
+        assertThat(ids(catalog.search("Lärm an Strassen"))).containsExactly("ch.so.avt.strassenlaerm");
+    }
+
+    @Test
+    void matchesStemsCompoundPartsAndSynonyms() throws IOException {
+        LayerCatalog catalog = catalog();
+
+        assertThat(ids(catalog.search("Orthofotos"))).containsExactly("ch.so.agi.orthofoto_2023");
+        assertThat(ids(catalog.search("Luftbild"))).containsExactly("ch.so.agi.orthofoto_2023");
+        assertThat(ids(catalog.search("Wald"))).containsExactlyInAnyOrder("ch.so.awjf.wald_schutz",
+                "ch.so.awjf.waldstandorte");
+    }
+
+    @Test
+    void returnsGroupInsteadOfItsSublayers() throws IOException {
+        LayerCatalog catalog = catalog();
+
+        List<JsonNode> result = catalog.search("Gewässerschutz");
+
+        assertThat(ids(result)).containsExactly("ch.so.afu.gewaesserschutz");
+        assertThat(result.getFirst().path("sublayers").size()).isEqualTo(2);
+    }
+
+    @Test
+    void missesAndKeepsCatalogOnEmptyRefresh() throws IOException {
+        LayerCatalog catalog = catalog();
+
+        assertThat(catalog.search("Velowege")).isEmpty();
+        assertThat(catalog.search("karte")).isEmpty();
+        assertThatThrownBy(() -> catalog.load("[]")).isInstanceOf(IOException.class);
+        assertThat(catalog.size()).isEqualTo(7);
+    }
+
+    private static LayerCatalog catalog() throws IOException {
+        LayerCatalog catalog = LayerCatalog.empty();
+        catalog.load(CATALOG);
+        return catalog;
+    }
+
+    private static List<String> ids(List<JsonNode> dataproducts) {
+        return dataproducts.stream().map(node -> node.path("dataproduct_id").asText()).toList();
+    }
+}
@@ -7,6 +7,8 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestClient;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -100,4 +102,64 @@ class LayerToolsTest {
         Map<String, Object> payload = McpResponseItem.payload(result.items().getFirst());
         assertThat(payload.get("layerId")).isEqualTo("ch.so.afu.abbaustellen");
     }
+
+    @Test
+    void searchLayers_answersFromLocalCatalogWithoutRemoteCall() throws Exception {
+        RestClient.Builder builder = RestClient.builder();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        LayerCatalog catalog = LayerCatalog.empty();
+        catalog.load("""
+                [
+                  { "dataproduct_id": "ch.so.afu.abbaustellen", "display": "Abbaustellen", "type": "singleactor" },
+                  { "dataproduct_id": "ch.so.awjf.waldplan", "display": "Waldplan", "type": "layergroup",
+                    "sublayers": [
+                      { "dataproduct_id": "ch.so.awjf.waldplan.waldplantyp", "display": "Wald - Typ" },
+                      { "dataproduct_id": "ch.so.awjf.waldplan.waldfunktion", "display": "Wald - Funktion" } ] }
+                ]
+                """);
+
+        LayerTools tools = new LayerTools(builder, mapper, UpstreamClients.direct(), catalog);
+        LayerTools.LayerResult result = tools.searchLayers(Map.of("query", "Waldplankarte"));
+
+        server.verify();
+        assertThat(result.status()).isEqualTo(ToolResult.Status.NEEDS_USER_CHOICE);
+        assertThat(result.items()).extracting(item -> McpResponseItem.id(item)).containsExactly(
+                "ch.so.awjf.waldplan::group", "ch.so.awjf.waldplan.waldplantyp", "ch.so.awjf.waldplan.waldfunktion");
+        Map<String, Object> source = (Map<String, Object>) McpResponseItem.payload(result.items().get(1))
+                .get("source");
+        assertThat(source.get("LAYERS")).isEqualTo("ch.so.awjf.waldplan.waldplantyp");
+    }
+
+    @Test
+    void searchLayers_enrichesPayloadFromCapabilities() throws Exception {
+        LayerCatalog catalog = LayerCatalog.empty();
+        catalog.load("""
+                [ { "dataproduct_id": "ch.so.afu.abbaustellen", "display": "Abbaustellen", "type": "singleactor" } ]
+                """);
+        WmsCapabilities capabilities = WmsCapabilities.empty();
+        capabilities.load(new ByteArrayInputStream("""
+                <WMS_Capabilities xmlns="http://www.opengis.net/wms" xmlns:xlink="http://www.w3.org/1999/xlink">
+                  <Capability>
+                    <Layer queryable="1">
+                      <Name>ch.so.afu.abbaustellen</Name>
+                      <BoundingBox CRS="EPSG:2056" minx="2600000" miny="1220000" maxx="2610000" maxy="1230000"/>
+                      <MaxScaleDenominator>25000</MaxScaleDenominator>
+                      <Style><LegendURL><OnlineResource xlink:href="https://geo.so.ch/legend.png"/></LegendURL></Style>
+                    </Layer>
+                  </Capability>
+                </WMS_Capabilities>
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        LayerTools tools = new LayerTools(RestClient.builder(), mapper, UpstreamClients.direct(), catalog,
+                capabilities);
+        LayerTools.LayerResult result = tools.searchLayers(Map.of("query", "Abbaustellen"));
+
+        assertThat(result.status()).isEqualTo(ToolResult.Status.SUCCESS);
+        Map<String, Object> payload = McpResponseItem.payload(result.items().getFirst());
+        assertThat(payload.get("extent")).isEqualTo(List.of(2600000.0, 1220000.0, 2610000.0, 1230000.0));
+        assertThat(payload.get("maxScale")).isEqualTo(25000.0);
+        assertThat(payload.containsKey("minScale")).isFalse();
+        assertThat(payload.get("queryable")).isEqualTo(true);
+        assertThat(payload.get("legendUrl")).isEqualTo("https://geo.so.ch/legend.png");
+    }
 }
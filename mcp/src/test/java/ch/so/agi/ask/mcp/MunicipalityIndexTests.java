@@ -0,0 +1,66 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class MunicipalityIndexTests {
+
+    private static final String GEOJSON = """
+            {"type":"FeatureCollection","features":[
+              {"type":"Feature","properties":{"gemeindename":"Solothurn","bfs_gemeindenummer":2601},
+               "geometry":{"type":"Polygon","coordinates":[[[0,0],[10,0],[10,10],[0,10],[0,0]]]}},
+              {"type":"Feature","properties":{"gemeindename":"Grenchen","bfs_gemeindenummer":2546},
+               "geometry":{"type":"MultiPolygon","coordinates":[
+                 [[[20,20],[40,20],[40,40],[20,40],[20,20]],[[25,25],[35,25],[35,35],[25,35],[25,25]]],
+                 [[[50,50],[60,50],[55,60],[50,50]]]]}},
+              {"type":"Feature","properties":{"name":"Solothurn Land"},
+               "geometry":{"type":"Point","coordinates":[5,5]}}
+            ]}
+            """;
+
+    @Test
+    void findsMunicipalityContainingPoint() throws IOException {
+        MunicipalityIndex index = index();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.containing(5, 5)).map(MunicipalityIndex.Municipality::name).contains("Solothurn");
+        assertThat(index.containing(22, 38)).map(MunicipalityIndex.Municipality::bfsNr).contains("2546");
+        assertThat(index.containing(54, 52)).map(MunicipalityIndex.Municipality::name).contains("Grenchen");
+        // Loch der ersten Teilfläche und ausserhalb aller Grenzen
+        assertThat(index.containing(30, 30)).isEmpty();
+        assertThat(index.containing(15, 5)).isEmpty();
+    }
+
+    @Test
+    void resolvesNamesExactlyByPrefixAndWithTypos() throws IOException {
+        MunicipalityIndex index = index();
+
+        MunicipalityIndex.Municipality solothurn = index.byName("solothurn", 25).getFirst();
+        assertThat(solothurn.extent()).containsExactly(0d, 0d, 10d, 10d);
+        assertThat(index.byName("Gren", 25)).extracting(MunicipalityIndex.Municipality::name)
+                .containsExactly("Grenchen");
+        assertThat(index.byName("Solothrun", 25)).extracting(MunicipalityIndex.Municipality::name)
+                .containsExactly("Solothurn");
+        assertThat(index.byName("Olten", 25)).isEmpty();
+    }
+
+    @Test
+    void keepsSnapshotWhenResponseHasNoMunicipalities() throws IOException {
+        MunicipalityIndex index = index();
+
+        assertThatThrownBy(() -> index.load("{\"type\":\"FeatureCollection\",\"features\":[]}"))
+                .isInstanceOf(IOException.class);
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    private static MunicipalityIndex index() throws IOException {
+        MunicipalityIndex index = MunicipalityIndex.empty();
+        index.load(GEOJSON);
+        return index;
+    }
+}
@@ -109,4 +109,13 @@ class OerebToolsTests {
         assertThat(payload.get("coord")).isEqualTo(List.of(1d, 2d));
         assertThat(payload.get("extent")).isEqualTo(List.of(1d, 2d, 1d, 2d));
     }
+
+    @Test
+    void extractByIdCacheKeyDistinguishesIds() throws Exception {
+        McpToolCache spec = OerebTools.class.getMethod("getOerebExtractById", Map.class)
+                .getAnnotation(McpToolCache.class);
+
+        assertThat(ToolResultCache.key(spec, Map.of("id", "CH870672603279")))
+                .isNotEqualTo(ToolResultCache.key(spec, Map.of("id", "CH955832730623")));
+    }
 }
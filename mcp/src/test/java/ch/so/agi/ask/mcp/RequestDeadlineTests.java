@@ -0,0 +1,72 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RequestDeadlineTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void exposesDeadlineToTheRunningTask() throws Exception {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofSeconds(5));
+
+        RequestDeadline seen = deadline.call(() -> RequestDeadline.current().orElse(null), executor);
+
+        assertThat(seen).isSameAs(deadline);
+        assertThat(RequestDeadline.current()).isEmpty();
+    }
+
+    @Test
+    void interruptsTaskWhenDeadlineExpires() throws Exception {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> deadline.call(() -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, executor)).isInstanceOf(TimeoutException.class);
+
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(deadline.isExpired()).isTrue();
+        assertThatThrownBy(() -> deadline.call(() -> "never", executor)).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void shareLimitsTheRemainingBudget() {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofSeconds(10));
+
+        RequestDeadline planner = deadline.share(0.5);
+
+        assertThat(planner.remaining()).isLessThanOrEqualTo(Duration.ofSeconds(5));
+        assertThat(planner.deadlineNanos()).isLessThan(deadline.deadlineNanos());
+    }
+
+    @Test
+    void unboundedDeadlineRunsInline() throws Exception {
+        RequestDeadline none = RequestDeadline.none();
+
+        assertThat(none.call(() -> Thread.currentThread(), executor)).isSameAs(Thread.currentThread());
+        assertThat(none.share(0.5)).isSameAs(none);
+        assertThat(none.isExpired()).isFalse();
+    }
+}
@@ -0,0 +1,101 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.context.support.GenericApplicationContext;
+
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+
+class SpringMcpToolRegistryTests {
+
+    @Test
+    void dispatchesToCompiledInvokersAndNormalizesResults() {
+        try (GenericApplicationContext context = context()) {
+            SpringMcpToolRegistry registry = context.getBean(SpringMcpToolRegistry.class);
+
+            PlannerOutput.Result layers = registry.execute(McpToolCapability.LAYERS_SEARCH,
+                    Map.of("query", "Gewässerschutz"));
+            PlannerOutput.Result egrid = registry.execute(McpToolCapability.OEREB_EGRID_BY_XY, Map.of());
+
+            assertThat(layers.status()).isEqualTo("needs_user_choice");
+            assertThat(layers.items()).containsExactly(Map.of("query", "Gewässerschutz"));
+            assertThat(egrid.status()).isEqualTo("ok");
+            assertThat(context.getBean(StubTools.class).calls.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void mapsToolExceptionsAndNullResultsToErrors() {
+        try (GenericApplicationContext context = context()) {
+            SpringMcpToolRegistry registry = context.getBean(SpringMcpToolRegistry.class);
+
+            PlannerOutput.Result failed = registry.execute(McpToolCapability.OEREB_EXTRACT_BY_ID, Map.of());
+            PlannerOutput.Result empty = registry.execute(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, Map.of());
+            PlannerOutput.Result unknown = registry.execute(McpToolCapability.PROCESSING_CADASTRAL_PLAN_BY_GEOMETRY,
+                    Map.of());
+
+            assertThat(failed.status()).isEqualTo("error");
+            assertThat(failed.message()).isEqualTo("Exception in tool: upstream down");
+            assertThat(empty.message()).startsWith("Tool returned null");
+            assertThat(unknown.message()).startsWith("Unknown capabilityId");
+        }
+    }
+
+    @Test
+    void bindsToolsLazilyWhenContextIsNotRefreshed() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(StubTools.class);
+        context.refresh();
+        SpringMcpToolRegistry registry = new SpringMcpToolRegistry();
+        registry.setApplicationContext(context);
+
+        assertThat(registry.execute(McpToolCapability.OEREB_EGRID_BY_XY, Map.of()).status()).isEqualTo("ok");
+        context.close();
+    }
+
+    private static GenericApplicationContext context() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(StubTools.class);
+        context.registerBean(SpringMcpToolRegistry.class);
+        context.refresh();
+        return context;
+    }
+
+    public static class StubTools {
+        final AtomicInteger calls = new AtomicInteger();
+
+        public record StubResult(Status status, List<Map<String, Object>> items, String message)
+                implements ToolResult {
+        }
+
+        @McpTool(name = "layers.search", description = "Layer suchen")
+        public StubResult searchLayers(Map<String, Object> args) {
+            calls.incrementAndGet();
+            return new StubResult(ToolResult.Status.NEEDS_USER_CHOICE, List.of(args), "Mehrere Layer gefunden.");
+        }
+
+        @McpTool(name = "oereb.egridByXY", description = "EGRID suchen")
+        public PlannerOutput.Result egrid() {
+            calls.incrementAndGet();
+            return new PlannerOutput.Result("ok", List.of(), "EGRID gefunden");
+        }
+
+        @McpTool(name = "oereb.extractById", description = "Auszug")
+        public StubResult extract(Map<String, Object> args) throws IOException {
+            throw new IOException("upstream down");
+        }
+
+        @McpTool(name = "geolocation.geocode.address", description = "Adresse suchen")
+        public StubResult geocode(Map<String, Object> args) {
+            return null;
+        }
+    }
+}
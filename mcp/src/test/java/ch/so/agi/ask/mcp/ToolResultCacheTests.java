@@ -0,0 +1,248 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.ToolCacheProperties;
+import ch.so.agi.ask.model.McpToolCapability;
+import ch.so.agi.ask.model.PlannerOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ToolResultCacheTests {
+
+    private static final PlannerOutput.Result OK = new PlannerOutput.Result("ok", List.of(), "Adresse gefunden");
+    private static final PlannerOutput.Result ERROR = new PlannerOutput.Result("error", List.of(), "Timeout");
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-19T10:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ToolResultCache cache = new ToolResultCache(new ToolCacheProperties(), clock, meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesCanonicallyEqualRequestsFromCache() {
+        McpToolCache spec = spec("geocode");
+
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "Hauptgasse 1,  Solothurn"),
+                this::load);
+        PlannerOutput.Result cached = cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec,
+                Map.of("q", " hauptgasse 1, solothurn ", "limit", 5), this::load);
+
+        assertThat(cached).isEqualTo(OK);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1d);
+        assertThat(requests("miss")).isEqualTo(1d);
+    }
+
+    @Test
+    void roundsCoordinatesInKey() {
+        McpToolCache spec = spec("egrid");
+
+        assertThat(ToolResultCache.key(spec, Map.of("x", 2607717.34, "y", "1228737.31")))
+                .isEqualTo(ToolResultCache.key(spec, Map.of("x", 2607717.3, "y", 1228737.26)));
+        assertThat(ToolResultCache.key(spec, Map.of("x", 2607717.34, "y", 1228737.31)))
+                .isNotEqualTo(ToolResultCache.key(spec, Map.of("x", 2607717.54, "y", 1228737.31)));
+    }
+
+    @Test
+    void servesStaleResultWhenUpstreamFailsAfterTtl() {
+        McpToolCache spec = spec("geocode");
+        Map<String, Object> args = Map.of("q", "Hauptgasse 1, Solothurn");
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, args, this::load);
+
+        clock.advance(Duration.ofSeconds(61));
+        PlannerOutput.Result stale = cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, args, () -> ERROR);
+        clock.advance(Duration.ofSeconds(120));
+        PlannerOutput.Result failed = cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, args,
+                () -> ERROR);
+
+        assertThat(stale).isEqualTo(OK);
+        assertThat(failed).isEqualTo(ERROR);
+        assertThat(requests("stale")).isEqualTo(1d);
+    }
+
+    @Test
+    void coalescesConcurrentLoadsForSameKey() throws Exception {
+        McpToolCache spec = spec("geocode");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PlannerOutput.Result>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec,
+                        Map.of("q", "Baselstrasse 12, Olten"), () -> {
+                            loads.incrementAndGet();
+                            await(release);
+                            return OK;
+                        })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<PlannerOutput.Result> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo(OK);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(requests("coalesced")).isEqualTo(3d);
+    }
+
+    @Test
+    void coalescedCallerStopsWaitingAtItsDeadline() throws Exception {
+        McpToolCache spec = spec("geocode");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        ExecutorService toolThread = Executors.newSingleThreadExecutor();
+        try {
+            Future<PlannerOutput.Result> slow = loader.submit(() -> cache.get(
+                    McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "Baselstrasse 12, Olten"), () -> {
+                        loading.countDown();
+                        await(release);
+                        return OK;
+                    }));
+            loading.await(5, TimeUnit.SECONDS);
+
+            assertThatThrownBy(() -> RequestDeadline.after(Duration.ofMillis(100)).call(
+                    () -> cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec,
+                            Map.of("q", "Baselstrasse 12, Olten"), this::load),
+                    toolThread)).isInstanceOf(TimeoutException.class);
+
+            // Der Thread des Wartenden ist wieder frei, obwohl der Ladevorgang noch läuft
+            assertThat(toolThread.submit(() -> "frei").get(1, TimeUnit.SECONDS)).isEqualTo("frei");
+            assertThat(slow.isDone()).isFalse();
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(OK);
+        } finally {
+            release.countDown();
+            loader.shutdownNow();
+            toolThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersLoadThemselvesWhenLoaderRunsOutOfTime() throws Exception {
+        McpToolCache spec = spec("geocode");
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService toolThread = Executors.newSingleThreadExecutor();
+        try {
+            // Die ladende Anfrage wird nach 300 ms unterbrochen; das Tool meldet dann einen Fehler
+            executor.submit(() -> RequestDeadline.after(Duration.ofMillis(300)).call(
+                    () -> cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec,
+                            Map.of("q", "Baselstrasse 12, Olten"), () -> {
+                                loading.countDown();
+                                await(new CountDownLatch(1));
+                                return ERROR;
+                            }),
+                    toolThread));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<PlannerOutput.Result> waiting = executor.submit(() -> cache.get(
+                    McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "Baselstrasse 12, Olten"),
+                    this::load));
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(OK);
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+            toolThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesAndNeverCachesErrors() {
+        McpToolCache spec = spec("geocode");
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "a"), this::load);
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "b"), this::load);
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "c"), this::load);
+        cache.get(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS, spec, Map.of("q", "d"), () -> ERROR);
+
+        assertThat(cache.size(McpToolCapability.GEOLOCATION_GEOCODE_ADDRESS)).isEqualTo(2);
+        assertThat(meterRegistry.get("ask.tools.cache.evictions")
+                .tag("capability", "geolocation.geocode.address").counter().count()).isEqualTo(1d);
+    }
+
+    private PlannerOutput.Result load() {
+        loads.incrementAndGet();
+        return OK;
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("ask.tools.cache.requests").tag("capability", "geolocation.geocode.address")
+                .tag("result", result).counter().count();
+    }
+
+    private static McpToolCache spec(String method) {
+        try {
+            Method declared = Specs.class.getDeclaredMethod(method);
+            return declared.getAnnotation(McpToolCache.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Specs {
+        @McpToolCache(ttlSeconds = 60, staleSeconds = 60, maxEntries = 2, keyArgs = { "q" })
+        void geocode() {
+        }
+
+        @McpToolCache(keyArgs = { "x", "y", "coord" })
+        void egrid() {
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
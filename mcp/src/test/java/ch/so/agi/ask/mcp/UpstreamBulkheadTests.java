@@ -0,0 +1,107 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.ask.config.UpstreamProperties;
+import ch.so.agi.ask.mcp.UpstreamRejectedException.Reason;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UpstreamBulkheadTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void growsLimitWhileSaturatedAndBacksOffOnFailure() throws Exception {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead("stub", limits(), meterRegistry);
+        List<UpstreamBulkhead.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(bulkhead.acquire(deadline(100)));
+        }
+        permits.forEach(permit -> bulkhead.release(permit, true));
+        double grown = bulkhead.limit();
+
+        bulkhead.release(bulkhead.acquire(deadline(100)), false);
+
+        assertThat(grown).isGreaterThan(8d);
+        assertThat(bulkhead.limit()).isLessThan(grown);
+        assertThat(bulkhead.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void rejectsExpiredDeadlineEvenWithFreeCapacity() {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead("stub", limits(), meterRegistry);
+
+        assertThatThrownBy(() -> bulkhead.acquire(System.nanoTime() - 1))
+                .isInstanceOfSatisfying(UpstreamRejectedException.class,
+                        e -> assertThat(e.reason()).isEqualTo(Reason.DEADLINE));
+        assertThat(bulkhead.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFullOrDeadlineCannotBeMet() throws Exception {
+        UpstreamProperties.Limits limits = limits();
+        limits.setInitialLimit(1);
+        limits.setMaxLimit(1);
+        limits.setQueueSize(1);
+        limits.setMaxQueueWaitMillis(50);
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead("stub", limits, meterRegistry);
+        UpstreamBulkhead.Permit running = bulkhead.acquire(deadline(100));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.acquire(deadline(1000)))
+                .isInstanceOfSatisfying(UpstreamRejectedException.class,
+                        e -> assertThat(e.reason()).isEqualTo(Reason.DEADLINE));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000L);
+
+        limits.setQueueSize(0);
+        assertThatThrownBy(() -> bulkhead.acquire(deadline(1000)))
+                .isInstanceOfSatisfying(UpstreamRejectedException.class,
+                        e -> assertThat(e.reason()).isEqualTo(Reason.QUEUE_FULL));
+        bulkhead.release(running, true);
+    }
+
+    @Test
+    void opensCircuitAfterFailuresAndClosesAfterSuccessfulProbe() throws Exception {
+        UpstreamProperties.Limits limits = limits();
+        limits.setSlidingWindowSize(4);
+        limits.setMinimumCalls(4);
+        limits.setOpenStateMillis(100);
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead("stub", limits, meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            bulkhead.release(bulkhead.acquire(deadline(100)), i % 2 == 0);
+        }
+
+        assertThat(bulkhead.state()).isEqualTo(UpstreamBulkhead.State.OPEN);
+        assertThatThrownBy(() -> bulkhead.acquire(deadline(100)))
+                .isInstanceOfSatisfying(UpstreamRejectedException.class,
+                        e -> assertThat(e.reason()).isEqualTo(Reason.CIRCUIT_OPEN));
+
+        Thread.sleep(150);
+        UpstreamBulkhead.Permit probe = bulkhead.acquire(deadline(100));
+        assertThat(bulkhead.state()).isEqualTo(UpstreamBulkhead.State.HALF_OPEN);
+        assertThatThrownBy(() -> bulkhead.acquire(deadline(100))).isInstanceOf(UpstreamRejectedException.class);
+        bulkhead.release(probe, true);
+
+        assertThat(bulkhead.state()).isEqualTo(UpstreamBulkhead.State.CLOSED);
+        assertThat(meterRegistry.get("ask.upstream.rejections").tag("upstream", "stub")
+                .tag("reason", "circuit_open").counter().count()).isEqualTo(2d);
+    }
+
+    private static long deadline(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static UpstreamProperties.Limits limits() {
+        UpstreamProperties.Limits limits = new UpstreamProperties.Limits();
+        limits.setLatencyThresholdMillis(10000);
+        return limits;
+    }
+}
@@ -0,0 +1,194 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ch.so.agi.ask.config.HttpClientProperties;
+import ch.so.agi.ask.config.UpstreamProperties;
+import ch.so.agi.ask.mcp.UpstreamRejectedException.Reason;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Bulkheads und HTTP-Clients gegen einen lokalen Stub-Server mit einstellbarer
+ * Latenz und Statuscode; der Stub komprimiert mit gzip, wenn der Client es
+ * anbietet.
+ */
+class UpstreamClientsTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final CountDownLatch firstRequest = new CountDownLatch(1);
+    private volatile long latencyMillis;
+    private volatile int status = 200;
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            firstRequest.countDown();
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void slowUpstreamOnlyBlocksItsOwnBulkhead() throws Exception {
+        UpstreamProperties properties = new UpstreamProperties();
+        UpstreamProperties.Limits print = new UpstreamProperties.Limits();
+        print.setInitialLimit(1);
+        print.setMaxLimit(1);
+        print.setQueueSize(0);
+        properties.getClients().put("landreg-print", print);
+        UpstreamClients clients = new UpstreamClients(properties, meterRegistry);
+        RestClient slow = client(clients, "landreg-print");
+        RestClient fast = client(clients, "geolocation");
+
+        latencyMillis = 500;
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> get(slow), executor);
+        assertThat(firstRequest.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> get(slow)).isInstanceOf(ResourceAccessException.class)
+                .hasCauseInstanceOf(UpstreamRejectedException.class);
+        assertThat(get(fast)).contains("ok");
+        assertThat(running.get(5, TimeUnit.SECONDS)).contains("ok");
+        assertThat(meterRegistry.get("ask.upstream.rejections").tag("upstream", "landreg-print")
+                .tag("reason", "queue_full").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void openCircuitRejectsWithoutCallingUpstream() {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.getDefaults().setSlidingWindowSize(4);
+        properties.getDefaults().setMinimumCalls(4);
+        properties.getDefaults().setOpenStateMillis(60000);
+        UpstreamClients clients = new UpstreamClients(properties, meterRegistry);
+        RestClient oereb = client(clients, "oereb");
+
+        status = 503;
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> get(oereb)).isInstanceOf(HttpServerErrorException.class);
+        }
+
+        assertThatThrownBy(() -> get(oereb)).isInstanceOf(ResourceAccessException.class)
+                .cause().isInstanceOfSatisfying(UpstreamRejectedException.class,
+                        e -> assertThat(e.reason()).isEqualTo(Reason.CIRCUIT_OPEN));
+        assertThat(hits.get()).isEqualTo(4);
+        assertThat(clients.snapshot().get("oereb")).containsEntry("state", "OPEN");
+    }
+
+    @Test
+    void slowResponsesLowerTheConcurrencyLimit() {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.getDefaults().setLatencyThresholdMillis(50);
+        UpstreamClients clients = new UpstreamClients(properties, meterRegistry);
+        RestClient layers = client(clients, "layers");
+
+        latencyMillis = 100;
+        get(layers);
+
+        assertThat(clients.bulkhead("layers").limit()).isLessThan(8d);
+    }
+
+    @Test
+    void gzipResponsesAreDecompressed() {
+        UpstreamClients clients = new UpstreamClients(new UpstreamProperties(), new HttpClientProperties(),
+                meterRegistry);
+
+        assertThat(get(client(clients, "oereb"))).isEqualTo("{\"ok\":true}");
+    }
+
+    @Test
+    void upstreamsOnTheSameHostShareAPool() {
+        HttpClientProperties httpProperties = new HttpClientProperties();
+        httpProperties.getEndpoints().put("landreg-print", pool("landreg-print"));
+        UpstreamClients clients = new UpstreamClients(new UpstreamProperties(), httpProperties, meterRegistry);
+
+        get(client(clients, "geolocation"));
+        get(client(clients, "layers"));
+        get(client(clients, "landreg-print"));
+
+        assertThat(clients.snapshot().get("geolocation")).containsEntry("pool", "geo.so.ch");
+        assertThat(clients.snapshot().get("layers")).containsEntry("pool", "geo.so.ch");
+        assertThat(clients.snapshot().get("landreg-print")).containsEntry("pool", "landreg-print");
+        assertThat(meterRegistry.get("ask.http.pool.active").tag("pool", "geo.so.ch").gauge().value())
+                .isEqualTo(0d);
+    }
+
+    @Test
+    void directClientsLeaveBuilderUntouched() {
+        RestClient.Builder builder = RestClient.builder();
+
+        assertThat(UpstreamClients.direct().builder("oereb", builder)).isSameAs(builder);
+    }
+
+    private RestClient client(UpstreamClients clients, String upstream) {
+        return clients.builder(upstream, RestClient.builder())
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+    }
+
+    private static HttpClientProperties.Endpoint pool(String pool) {
+        HttpClientProperties.Endpoint endpoint = new HttpClientProperties.Endpoint();
+        endpoint.setPool(pool);
+        return endpoint;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static String get(RestClient client) {
+        return client.get().uri("/stub").retrieve().body(String.class);
+    }
+}
@@ -0,0 +1,108 @@
+package ch.so.agi.ask.mcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class WmsCapabilitiesTests {
+
+    private static final String CAPABILITIES = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <WMS_Capabilities version="1.3.0" xmlns="http://www.opengis.net/wms"
+                xmlns:xlink="http://www.w3.org/1999/xlink">
+              <Service><Name>WMS</Name><Title>Kanton Solothurn</Title></Service>
+              <Capability>
+                <Layer>
+                  <Title>Root</Title>
+                  <BoundingBox CRS="EPSG:4326" minx="47.0" miny="7.3" maxx="47.5" maxy="8.0"/>
+                  <BoundingBox CRS="EPSG:2056" minx="2590000" miny="1210000" maxx="2650000" maxy="1265000"/>
+                  <Layer queryable="1">
+                    <Name>ch.so.awjf.waldplan</Name>
+                    <Title>Waldplan</Title>
+                    <MaxScaleDenominator>50000</MaxScaleDenominator>
+                    <Style>
+                      <Name>default</Name>
+                      <LegendURL width="200" height="40">
+                        <Format>image/png</Format>
+                        <OnlineResource xlink:type="simple"
+                            xlink:href="https://geo.so.ch/api/legend?LAYER=ch.so.awjf.waldplan"/>
+                      </LegendURL>
+                    </Style>
+                    <Layer>
+                      <Name>ch.so.awjf.waldplan.waldplantyp</Name>
+                      <Title>Wald - Typ</Title>
+                      <BoundingBox CRS="EPSG:2056" minx="2600000" miny="1220000" maxx="2610000" maxy="1230000"/>
+                      <MinScaleDenominator>500</MinScaleDenominator>
+                    </Layer>
+                  </Layer>
+                  <Layer queryable="0">
+                    <Name>ch.so.agi.hintergrundkarte</Name>
+                    <Title>Hintergrundkarte</Title>
+                  </Layer>
+                </Layer>
+              </Capability>
+            </WMS_Capabilities>
+            """;
+
+    @Test
+    void readsLayerMetadataWithInheritance() throws IOException {
+        WmsCapabilities capabilities = load(CAPABILITIES);
+
+        assertThat(capabilities.size()).isEqualTo(3);
+        WmsCapabilities.LayerMetadata group = capabilities.layer("ch.so.awjf.waldplan").orElseThrow();
+        assertThat(group.title()).isEqualTo("Waldplan");
+        assertThat(group.extent()).isEqualTo(List.of(2590000.0, 1210000.0, 2650000.0, 1265000.0));
+        assertThat(group.minScale()).isNull();
+        assertThat(group.maxScale()).isEqualTo(50000.0);
+        assertThat(group.queryable()).isTrue();
+        assertThat(group.legendUrl()).isEqualTo("https://geo.so.ch/api/legend?LAYER=ch.so.awjf.waldplan");
+
+        // Ausdehnung überschrieben, Massstab und queryable geerbt, Legende nicht
+        WmsCapabilities.LayerMetadata sublayer = capabilities.layer("ch.so.awjf.waldplan.waldplantyp").orElseThrow();
+        assertThat(sublayer.extent()).isEqualTo(List.of(2600000.0, 1220000.0, 2610000.0, 1230000.0));
+        assertThat(sublayer.minScale()).isEqualTo(500.0);
+        assertThat(sublayer.maxScale()).isEqualTo(50000.0);
+        assertThat(sublayer.queryable()).isTrue();
+        assertThat(sublayer.legendUrl()).isNull();
+
+        WmsCapabilities.LayerMetadata background = capabilities.layer("ch.so.agi.hintergrundkarte").orElseThrow();
+        assertThat(background.queryable()).isFalse();
+        assertThat(background.extent()).isEqualTo(group.extent());
+    }
+
+    @Test
+    void ignoresUnknownLayersAndUnnamedRoot() throws IOException {
+        WmsCapabilities capabilities = load(CAPABILITIES);
+
+        assertThat(capabilities.layer("ch.so.unbekannt")).isEmpty();
+        assertThat(capabilities.layer("WMS")).isEmpty();
+        assertThat(capabilities.layer(null)).isEmpty();
+    }
+
+    @Test
+    void keepsPreviousTableWhenDocumentIsInvalid() throws IOException {
+        WmsCapabilities capabilities = load(CAPABILITIES);
+
+        assertThatThrownBy(() -> capabilities.load(stream("<WMS_Capabilities><Capability>")))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> capabilities.load(stream("<WMS_Capabilities/>")))
+                .isInstanceOf(IOException.class);
+        assertThat(capabilities.size()).isEqualTo(3);
+    }
+
+    private static WmsCapabilities load(String xml) throws IOException {
+        WmsCapabilities capabilities = WmsCapabilities.empty();
+        capabilities.load(stream(xml));
+        return capabilities;
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}